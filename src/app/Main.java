@@ -1,5 +1,7 @@
 package app;
 
+import app.model.BancoSimulado;
+import app.model.MetricasMotor;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -11,8 +13,26 @@ import java.net.URL;
 
 public class Main extends Application {
 
+    // Arquivo do log de transações: os dados confirmados são recuperados dele na próxima execução.
+    private static final String ARQUIVO_LOG = "simulador.wal";
+    // Arquivo do checkpoint: cópia binária do banco, gravada pelo CHECKPOINT e ao fechar o programa.
+    private static final String ARQUIVO_CHECKPOINT = "simulador.ckp";
+
     @Override
     public void start(Stage primaryStage) throws IOException {
+        try {
+            BancoSimulado.getInstancia().abrirLog(ARQUIVO_LOG, ARQUIVO_CHECKPOINT);
+        } catch (Exception e) {
+            System.err.println("Não foi possível abrir o log de transações (" + e.getMessage() + "). Os dados ficarão apenas em memória.");
+        }
+
+        // Métricas do motor, lidas pelo jconsole (MBean "app.model:type=MetricasMotor").
+        try {
+            MetricasMotor.getInstancia().registrar();
+        } catch (Exception e) {
+            System.err.println("Não foi possível registrar as métricas no JMX (" + e.getMessage() + ").");
+        }
+
         // Assegura que o recurso FXML seja encontrado corretamente
         URL fxmlLocation = getClass().getResource("/app/view/MainView.fxml");
         if (fxmlLocation == null) {
@@ -36,6 +56,21 @@ public class Main extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        // O checkpoint ao sair faz a próxima inicialização carregar o arquivo binário, sem executar o log.
+        try {
+            BancoSimulado.getInstancia().checkpoint();
+        } catch (Exception e) {
+            System.err.println("Erro ao gravar o checkpoint: " + e.getMessage());
+        }
+        try {
+            BancoSimulado.getInstancia().fecharLog();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o log de transações: " + e.getMessage());
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
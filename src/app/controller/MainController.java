@@ -1,8 +1,9 @@
 package app.controller;
 
+import app.model.AnalisadorLexico;
 import app.model.Coluna;
+import app.model.Cursor;
 import app.model.InterpretadorSQL;
-import app.model.Linha;
 import app.model.Tabela;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
@@ -30,8 +31,9 @@ public class MainController {
     @FXML
     private Button executarButton;
 
+    // Cada item é a posição de uma linha do resultado; os valores são lidos da Tabela sob demanda.
     @FXML
-    private TableView<Linha> resultadoTableView;
+    private TableView<Integer> resultadoTableView;
 
     @FXML
     private Label statusLabel;
@@ -42,6 +44,9 @@ public class MainController {
 
     private InterpretadorSQL interpretador;
 
+    // Visão exibida na TableView: fica aberta (adiando a compactação das origens) até ser substituída.
+    private Tabela resultadoExibido;
+
     @FXML
     public void initialize() {
         this.interpretador = new InterpretadorSQL();
@@ -53,25 +58,29 @@ public class MainController {
 
     @FXML
     private void handleExecutarSQL() {
-        String[] comandos = sqlTextArea.getText().split(";");
+        // Separa os comandos por ';' sem quebrar textos entre aspas (ex: 'a; b') nem comentários.
+        String[] comandos = AnalisadorLexico.dividirComandos(sqlTextArea.getText());
 
         for (String comando : comandos) {
-            comando = comando.replaceAll("--.*", "").trim();
-            if (comando.isEmpty()) {
-                continue;
-            }
-
+            Object resultado = null;
             try {
-                Object resultado = interpretador.executar(comando);
+                resultado = interpretador.executar(comando);
                 limparTabelaResultado();
 
-                if (resultado instanceof Tabela) {
-                    exibirResultado((Tabela) resultado);
-                    atualizarStatus("Comando SELECT executado com sucesso!", false);
+                if (resultado instanceof Cursor) {
+                    // O cursor é lido por completo e guardado como visão (sem cópia dos dados).
+                    exibirResultado(((Cursor) resultado).paraVisao());
+                    String plano = interpretador.getUltimoPlano();
+                    atualizarStatus("Comando SELECT executado com sucesso!" + (plano != null ? " Plano: " + plano : ""), false);
                 } else if (resultado instanceof String) {
-                    atualizarStatus((String) resultado, false);
+                    String plano = interpretador.getUltimoPlano();
+                    atualizarStatus((String) resultado + (plano != null ? " Plano: " + plano : ""), false);
                 }
             } catch (Exception e) {
+                // Um cursor que falhou durante a leitura não pode ficar aberto (ver Cursor.fechar).
+                if (resultado instanceof Cursor) {
+                    ((Cursor) resultado).fechar();
+                }
                 limparTabelaResultado();
                 atualizarStatus("Erro: " + e.getMessage(), true);
                 break;
@@ -87,15 +96,45 @@ public class MainController {
         // Texto do glossário formatado com quebras de linha literais (\n)
         String glossarioTexto = "Comandos Suportados:\n\n" +
                 "1. SELECT:\n" +
-                "  Utilizado para consultar dados de tabelas. Ex: SELECT * FROM tabela;\n\n" +
+                "  Utilizado para consultar dados de tabelas. Ex: SELECT * FROM tabela;\n" +
+                "  Aceita WHERE com =, <, >, <=, >=, BETWEEN, AND e OR.\n" +
+                "  Ex: SELECT * FROM tabela WHERE id BETWEEN 1 AND 10 OR nome = 'Ana';\n" +
+                "  LIMIT e OFFSET limitam as linhas retornadas. Ex: SELECT * FROM tabela LIMIT 10 OFFSET 20;\n" +
+                "  Aceita COUNT, SUM, AVG, MIN e MAX, com ou sem GROUP BY.\n" +
+                "  Ex: SELECT id_cidade, COUNT(*), MAX(id) FROM usuarios GROUP BY id_cidade;\n" +
+                "  ORDER BY ordena o resultado (ASC ou DESC). Ex: SELECT * FROM usuarios ORDER BY nome DESC LIMIT 10;\n\n" +
                 "2. CREATE TABLE:\n" +
-                "  Cria uma nova tabela no banco de dados. Ex: CREATE TABLE nome (coluna INT PRIMARY KEY);\n\n" +
+                "  Cria uma nova tabela no banco de dados. Ex: CREATE TABLE nome (coluna INT PRIMARY KEY);\n" +
+                "  Para guardar os dados por coluna (arrays primitivos), use: CREATE TABLE nome (...) WITH (storage = columnar);\n" +
+                "  Para guardar os dados em páginas de um arquivo, lidas por um buffer pool, use: WITH (storage = disk);\n\n" +
                 "3. INSERT INTO:\n" +
-                "  Adiciona uma nova linha de dados na tabela. Ex: INSERT INTO tabela (coluna) VALUES (valor);\n\n" +
+                "  Adiciona uma nova linha de dados na tabela. Ex: INSERT INTO tabela (coluna) VALUES (valor);\n" +
+                "  Várias linhas podem ser inseridas de uma vez. Ex: INSERT INTO tabela (coluna) VALUES (1), (2), (3);\n\n" +
                 "4. DELETE FROM:\n" +
                 "  Remove linhas de uma tabela. Ex: DELETE FROM tabela WHERE condicao;\n\n" +
                 "5. DROP TABLE:\n" +
-                "  Exclui uma tabela inteira. Ex: DROP TABLE nome_tabela;";
+                "  Exclui uma tabela inteira. Ex: DROP TABLE nome_tabela;\n\n" +
+                "6. CREATE INDEX:\n" +
+                "  Cria um índice ordenado (árvore B+) sobre uma coluna. Ex: CREATE INDEX idx_nome ON tabela(coluna);\n\n" +
+                "7. DROP INDEX:\n" +
+                "  Remove um índice. Ex: DROP INDEX idx_nome;\n\n" +
+                "8. BEGIN / COMMIT / ROLLBACK:\n" +
+                "  Agrupa INSERTs e DELETEs em uma transação, aplicada de uma vez no COMMIT ou descartada no ROLLBACK.\n" +
+                "  Ex: BEGIN; INSERT INTO tabela (coluna) VALUES (1); DELETE FROM tabela WHERE coluna = 2; COMMIT;\n\n" +
+                "9. CHECKPOINT:\n" +
+                "  Grava todo o banco em um arquivo binário, carregado rapidamente na próxima execução. Também é feito ao fechar o programa.\n\n" +
+                "10. COPY:\n" +
+                "  Importa ou exporta uma tabela em CSV (com cabeçalho; campo vazio = NULL).\n" +
+                "  Ex: COPY tabela FROM 'dados.csv'; COPY tabela TO 'saida.csv';\n\n" +
+                "11. SET:\n" +
+                "  Ajusta a sessão: número de threads das varreduras e tamanho mínimo da tabela para usá-las,\n" +
+                "  a memória (KB) do ORDER BY antes de usar arquivos temporários e o cache de resultados dos SELECTs\n" +
+                "  (1 = ligado, 0 = desligado; um resultado guardado é descartado quando uma das tabelas muda).\n" +
+                "  Ex: SET PARALLELISM = 4; SET PARALLEL_THRESHOLD = 100000; SET SORT_MEMORY = 65536; SET RESULT_CACHE = 0;\n\n" +
+                "12. EXPLAIN:\n" +
+                "  Mostra o plano de um SELECT, INSERT ou DELETE (varredura ou índice, algoritmo do JOIN) sem executá-lo.\n" +
+                "  EXPLAIN ANALYZE executa o comando e mostra, por etapa, as linhas, o tempo (ms) e a memória alocada.\n" +
+                "  Ex: EXPLAIN SELECT * FROM usuarios WHERE id = 1; EXPLAIN ANALYZE SELECT * FROM usuarios JOIN cidades ON usuarios.id_cidade = cidades.id;";
 
         // Cria a Label de conteúdo
         Label contentLabel = new Label(glossarioTexto);
@@ -137,6 +176,7 @@ public class MainController {
     }
 
     private void exibirResultado(Tabela tabela) throws Exception {
+        this.resultadoExibido = tabela;
         if (tabela == null || tabela.getNumColunas() == 0) {
             return;
         }
@@ -150,26 +190,26 @@ public class MainController {
             // É crucial usar 'final' para que o índice possa ser usado no lambda
             final int indiceColuna = i;
 
-            TableColumn<Linha, Object> tableColumn = new TableColumn<>(coluna.getNome());
+            TableColumn<Integer, Object> tableColumn = new TableColumn<>(coluna.getNome());
 
-            // Define como cada célula da coluna obterá seu valor, AGORA USANDO O ÍNDICE
+            // Define como cada célula da coluna obterá seu valor, pela posição da linha e o índice da coluna.
+            // O resultado do SELECT é uma visão: só as células visíveis são lidas das tabelas de origem.
             tableColumn.setCellValueFactory(cellData -> {
-                Linha linha = cellData.getValue();
-                Object valor = linha.getDadoPorIndice(indiceColuna);
+                int posicao = cellData.getValue();
+                Object valor = tabela.getValor(posicao, indiceColuna);
                 return new SimpleObjectProperty<>(valor != null ? valor : "NULL");
             });
 
             resultadoTableView.getColumns().add(tableColumn);
         }
 
-        // 2. Adiciona os dados (linhas) à TableView
-        // O JavaFX exige uma ObservableList, então copiamos o array clássico para uma
-        ObservableList<Linha> dadosObservaveis = FXCollections.observableArrayList();
-        Linha[] linhasArray = tabela.getLinhasArray();
+        // 2. Adiciona as linhas à TableView
+        // O JavaFX exige uma ObservableList; ela recebe apenas as posições, sem copiar os dados.
+        ObservableList<Integer> dadosObservaveis = FXCollections.observableArrayList();
 
-        // Loop for clássico para copiar o array para a ObservableList
+        // Loop for clássico para preencher a ObservableList
         for (int i = 0; i < tabela.getNumLinhas(); i++) {
-            dadosObservaveis.add(linhasArray[i]);
+            dadosObservaveis.add(i);
         }
 
         resultadoTableView.setItems(dadosObservaveis);
@@ -178,6 +218,10 @@ public class MainController {
     private void limparTabelaResultado() {
         resultadoTableView.getColumns().clear();
         resultadoTableView.getItems().clear();
+        if (resultadoExibido != null) {
+            resultadoExibido.fecharVisao();
+            resultadoExibido = null;
+        }
     }
 
     private void atualizarStatus(String mensagem, boolean isError) {
@@ -0,0 +1,307 @@
+package app.model;
+
+import java.util.Arrays;
+
+/**
+ * Agregação por hash: GROUP BY com COUNT, SUM, AVG, MIN e MAX.
+ *
+ * Cada linha da entrada é levada ao seu grupo pela tabela hash das chaves do GROUP BY e
+ * atualiza os acumuladores do grupo. Os acumuladores são arrays primitivos paralelos, com
+ * um elemento por grupo (contagens em int[], somas em long[], mínimos e máximos de colunas
+ * INT em int[]), e os valores INT são lidos com Tabela.isNulo/getInt: nenhum Integer é
+ * criado por linha. Só MIN/MAX de colunas STRING guardam objetos (o texto já existente).
+ *
+ * Chaves de grupo:
+ * - uma única coluna INT: tabela hash de endereçamento aberto sobre int[] (sem objetos);
+ * - as demais combinações: IndiceHash com a lista de valores da linha como chave.
+ * Os grupos são numerados na ordem em que aparecem pela primeira vez na entrada.
+ *
+ * Sem GROUP BY há um único grupo, que existe mesmo se a entrada for vazia
+ * (COUNT = 0; SUM, AVG, MIN e MAX = NULL), como no SQL.
+ */
+class Agregacao {
+
+    public enum Funcao { COUNT, SUM, AVG, MIN, MAX }
+
+    private static final int CAPACIDADE_INICIAL = 16;
+
+    private final Tabela[] origens;
+
+    // --- Chaves (GROUP BY) ---
+    private final int numChaves;
+    private final int[] origensChaves;
+    private final int[] colunasChaves;
+    private final boolean chaveInteira; // Uma única coluna INT
+
+    // Chave INT única: endereçamento aberto (slot vazio = grupo -1), e o grupo das linhas com NULL.
+    private int[] slotsChave;
+    private int[] slotsGrupo;
+    private int grupoNulo;
+    private int[] chavesInteiras;       // Valor da chave de cada grupo
+
+    // Demais chaves: lista de valores -> número do grupo (como "posição" do IndiceHash).
+    private IndiceHash gruposPorChave;
+    private ChaveGrupo chaveBusca;
+    private ChaveGrupo[] chavesGrupos;
+
+    // --- Agregados (arrays paralelos, um elemento por agregado) ---
+    private final int numAgregados;
+    private final Funcao[] funcoes;
+    private final int[] origensAgregados;
+    private final int[] colunasAgregados; // -1 = COUNT(*)
+    private final boolean[] agregadosInteiros;
+
+    // Acumuladores: [agregado][grupo]. Só são criados os usados por cada função.
+    private final int[][] contagens;      // Linhas (COUNT(*)) ou valores não nulos
+    private final long[][] somas;         // SUM e AVG
+    private final int[][] extremosInt;    // MIN e MAX de colunas INT
+    private final String[][] extremosTexto; // MIN e MAX de colunas STRING
+
+    private int numGrupos;
+    private int capacidadeGrupos;
+
+    /**
+     * @param origensChaves/colunasChaves As colunas do GROUP BY (origem 0 ou 1 e índice na origem).
+     * @param colunasAgregados O índice na origem da coluna de cada agregado, ou -1 para COUNT(*).
+     */
+    Agregacao(Tabela[] origens, int[] origensChaves, int[] colunasChaves,
+              Funcao[] funcoes, int[] origensAgregados, int[] colunasAgregados) {
+        this.origens = origens;
+        this.numChaves = colunasChaves.length;
+        this.origensChaves = origensChaves;
+        this.colunasChaves = colunasChaves;
+        this.chaveInteira = numChaves == 1
+                && origens[origensChaves[0]].getColunaPorIndice(colunasChaves[0]).getTipoDado().equals("INT");
+
+        this.numAgregados = funcoes.length;
+        this.funcoes = funcoes;
+        this.origensAgregados = origensAgregados;
+        this.colunasAgregados = colunasAgregados;
+        this.agregadosInteiros = new boolean[numAgregados];
+        this.capacidadeGrupos = CAPACIDADE_INICIAL;
+        this.contagens = new int[numAgregados][];
+        this.somas = new long[numAgregados][];
+        this.extremosInt = new int[numAgregados][];
+        this.extremosTexto = new String[numAgregados][];
+        for (int a = 0; a < numAgregados; a++) {
+            contagens[a] = new int[capacidadeGrupos];
+            if (colunasAgregados[a] == -1) continue;
+            agregadosInteiros[a] = origens[origensAgregados[a]].getColunaPorIndice(colunasAgregados[a]).getTipoDado().equals("INT");
+            if (funcoes[a] == Funcao.SUM || funcoes[a] == Funcao.AVG) {
+                somas[a] = new long[capacidadeGrupos];
+            } else if (funcoes[a] == Funcao.MIN || funcoes[a] == Funcao.MAX) {
+                if (agregadosInteiros[a]) {
+                    extremosInt[a] = new int[capacidadeGrupos];
+                } else {
+                    extremosTexto[a] = new String[capacidadeGrupos];
+                }
+            }
+        }
+
+        if (chaveInteira) {
+            this.slotsChave = new int[CAPACIDADE_INICIAL];
+            this.slotsGrupo = new int[CAPACIDADE_INICIAL];
+            Arrays.fill(slotsGrupo, -1);
+            this.grupoNulo = -1;
+            this.chavesInteiras = new int[capacidadeGrupos];
+        } else if (numChaves > 0) {
+            this.gruposPorChave = new IndiceHash();
+            this.chaveBusca = new ChaveGrupo(new Object[numChaves]);
+            this.chavesGrupos = new ChaveGrupo[capacidadeGrupos];
+        } else {
+            novoGrupo(); // Sem GROUP BY: o grupo único existe mesmo sem linhas.
+        }
+    }
+
+    /** Valores das colunas do GROUP BY de uma linha, usados como chave do IndiceHash. */
+    private static class ChaveGrupo {
+        final Object[] valores;
+
+        ChaveGrupo(Object[] valores) {
+            this.valores = valores;
+        }
+
+        @Override
+        public int hashCode() { return Arrays.hashCode(valores); }
+
+        @Override
+        public boolean equals(Object outro) {
+            return outro instanceof ChaveGrupo && Arrays.equals(valores, ((ChaveGrupo) outro).valores);
+        }
+    }
+
+    // --- Acumulação ---
+
+    /**
+     * Acumula a linha atual do pipeline. Chamado com as origens travadas para leitura
+     * (ver Cursor.agregar).
+     */
+    void acumular(Operador raiz) {
+        int grupo = localizarGrupo(raiz);
+        for (int a = 0; a < numAgregados; a++) {
+            int coluna = colunasAgregados[a];
+            if (coluna == -1) {
+                contagens[a][grupo]++;
+                continue;
+            }
+            Tabela tabela = origens[origensAgregados[a]];
+            int posicao = raiz.getPosicao(origensAgregados[a]);
+            if (tabela.isNulo(posicao, coluna)) {
+                continue; // As funções de agregação ignoram NULL.
+            }
+            boolean primeiro = contagens[a][grupo]++ == 0;
+            switch (funcoes[a]) {
+                case SUM:
+                case AVG:
+                    somas[a][grupo] += tabela.getInt(posicao, coluna);
+                    break;
+                case MIN:
+                case MAX:
+                    boolean minimo = funcoes[a] == Funcao.MIN;
+                    if (agregadosInteiros[a]) {
+                        int valor = tabela.getInt(posicao, coluna);
+                        int atual = extremosInt[a][grupo];
+                        if (primeiro || (minimo ? valor < atual : valor > atual)) {
+                            extremosInt[a][grupo] = valor;
+                        }
+                    } else {
+                        String valor = (String) tabela.getValor(posicao, coluna);
+                        String atual = extremosTexto[a][grupo];
+                        if (primeiro || (minimo ? valor.compareTo(atual) < 0 : valor.compareTo(atual) > 0)) {
+                            extremosTexto[a][grupo] = valor;
+                        }
+                    }
+                    break;
+                default: // COUNT(coluna): apenas a contagem de valores não nulos.
+                    break;
+            }
+        }
+    }
+
+    /** Número do grupo da linha atual, criando o grupo se for a primeira linha com a chave. */
+    private int localizarGrupo(Operador raiz) {
+        if (numChaves == 0) {
+            return 0;
+        }
+        if (chaveInteira) {
+            Tabela tabela = origens[origensChaves[0]];
+            int posicao = raiz.getPosicao(origensChaves[0]);
+            if (tabela.isNulo(posicao, colunasChaves[0])) {
+                if (grupoNulo == -1) {
+                    grupoNulo = novoGrupo();
+                }
+                return grupoNulo;
+            }
+            return localizarGrupoInteiro(tabela.getInt(posicao, colunasChaves[0]));
+        }
+
+        for (int k = 0; k < numChaves; k++) {
+            chaveBusca.valores[k] = origens[origensChaves[k]].getValor(raiz.getPosicao(origensChaves[k]), colunasChaves[k]);
+        }
+        int grupo = gruposPorChave.buscarPrimeira(chaveBusca);
+        if (grupo == -1) {
+            grupo = novoGrupo();
+            ChaveGrupo chave = new ChaveGrupo(chaveBusca.valores.clone());
+            chavesGrupos[grupo] = chave;
+            gruposPorChave.inserir(chave, grupo);
+        }
+        return grupo;
+    }
+
+    private int localizarGrupoInteiro(int chave) {
+        int mascara = slotsChave.length - 1;
+        int h = chave * 0x9E3779B9; // Espalha chaves sequenciais pelos slots.
+        int slot = (h ^ (h >>> 16)) & mascara;
+        while (slotsGrupo[slot] != -1) {
+            if (slotsChave[slot] == chave) {
+                return slotsGrupo[slot];
+            }
+            slot = (slot + 1) & mascara;
+        }
+        int grupo = novoGrupo();
+        chavesInteiras[grupo] = chave;
+        slotsChave[slot] = chave;
+        slotsGrupo[slot] = grupo;
+        // Ocupação máxima de 50%, para que as sequências de slots ocupados fiquem curtas.
+        if (numGrupos * 2 > slotsChave.length) {
+            redimensionarSlots();
+        }
+        return grupo;
+    }
+
+    private void redimensionarSlots() {
+        int[] chavesAntigas = slotsChave;
+        int[] gruposAntigos = slotsGrupo;
+        slotsChave = new int[chavesAntigas.length * 2];
+        slotsGrupo = new int[gruposAntigos.length * 2];
+        Arrays.fill(slotsGrupo, -1);
+        int mascara = slotsChave.length - 1;
+        for (int s = 0; s < chavesAntigas.length; s++) {
+            if (gruposAntigos[s] == -1) continue;
+            int h = chavesAntigas[s] * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mascara;
+            while (slotsGrupo[slot] != -1) {
+                slot = (slot + 1) & mascara;
+            }
+            slotsChave[slot] = chavesAntigas[s];
+            slotsGrupo[slot] = gruposAntigos[s];
+        }
+    }
+
+    /** Cria um grupo com os acumuladores zerados, dobrando os arrays se estiverem cheios. */
+    private int novoGrupo() {
+        if (numGrupos == capacidadeGrupos) {
+            capacidadeGrupos *= 2;
+            for (int a = 0; a < numAgregados; a++) {
+                contagens[a] = Arrays.copyOf(contagens[a], capacidadeGrupos);
+                if (somas[a] != null) somas[a] = Arrays.copyOf(somas[a], capacidadeGrupos);
+                if (extremosInt[a] != null) extremosInt[a] = Arrays.copyOf(extremosInt[a], capacidadeGrupos);
+                if (extremosTexto[a] != null) extremosTexto[a] = Arrays.copyOf(extremosTexto[a], capacidadeGrupos);
+            }
+            if (chavesInteiras != null) chavesInteiras = Arrays.copyOf(chavesInteiras, capacidadeGrupos);
+            if (chavesGrupos != null) chavesGrupos = Arrays.copyOf(chavesGrupos, capacidadeGrupos);
+        }
+        return numGrupos++;
+    }
+
+    // --- Resultado ---
+
+    public int getNumGrupos() { return numGrupos; }
+
+    /** Valor da k-ésima coluna do GROUP BY no grupo (Integer, String ou null). */
+    public Object getChave(int grupo, int k) {
+        if (chaveInteira) {
+            return grupo == grupoNulo ? null : (Object) chavesInteiras[grupo];
+        }
+        return chavesGrupos[grupo].valores[k];
+    }
+
+    /**
+     * Resultado do agregado no grupo: COUNT como Integer, SUM como Long, AVG como Double e
+     * MIN/MAX no tipo da coluna; null se o grupo não tiver nenhum valor não nulo (exceto COUNT).
+     */
+    public Object getResultado(int grupo, int a) {
+        int contagem = contagens[a][grupo];
+        if (funcoes[a] == Funcao.COUNT) {
+            return contagem;
+        }
+        if (contagem == 0) {
+            return null;
+        }
+        switch (funcoes[a]) {
+            case SUM: return somas[a][grupo];
+            case AVG: return (double) somas[a][grupo] / contagem;
+            default: return agregadosInteiros[a] ? (Object) extremosInt[a][grupo] : extremosTexto[a][grupo];
+        }
+    }
+
+    /** Tipo da coluna de resultado do agregado: INT, BIGINT (SUM), DECIMAL (AVG) ou o da coluna (MIN/MAX). */
+    public String getTipoResultado(int a) {
+        switch (funcoes[a]) {
+            case COUNT: return "INT";
+            case SUM: return "BIGINT";
+            case AVG: return "DECIMAL";
+            default: return agregadosInteiros[a] ? "INT" : "STRING";
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package app.model;
+
+/**
+ * Analisador léxico (lexer) de SQL, escrito à mão.
+ *
+ * Percorre o texto uma única vez, caractere a caractere, e reconhece um token por vez
+ * sob demanda (o analisador sintático pede o próximo com avancar()). Nenhum objeto é
+ * criado por token: o token atual é descrito pelos campos tipo/inicio/fim, e só quando
+ * o analisador sintático precisa do conteúdo (um nome ou um texto) uma String é criada.
+ * Números são convertidos diretamente dos caracteres, sem substring.
+ *
+ * Palavras-chave e identificadores não diferenciam maiúsculas de minúsculas;
+ * o conteúdo dos textos entre aspas é preservado exatamente como foi digitado.
+ */
+public class AnalisadorLexico {
+
+    public enum TipoToken {
+        IDENTIFICADOR,   // nomes e palavras-chave (ex: select, usuarios, id_cidade)
+        NUMERO,          // inteiro, com sinal opcional (ex: 10, -3)
+        TEXTO,           // texto entre aspas simples (ex: 'Recife')
+        VIRGULA, PONTO, PONTO_E_VIRGULA, ABRE_PARENTESES, FECHA_PARENTESES,
+        ASTERISCO, INTERROGACAO,
+        IGUAL, MENOR, MAIOR, MENOR_IGUAL, MAIOR_IGUAL,
+        FIM
+    }
+
+    private final String sql;
+    private final int tamanho;
+    private int posicao;
+
+    // --- Token atual ---
+    private TipoToken tipo;
+    private int inicio;
+    private int fim;
+    private int valorNumero;
+
+    public AnalisadorLexico(String sql) throws Exception {
+        this.sql = sql;
+        this.tamanho = sql.length();
+        this.posicao = 0;
+        avancar();
+    }
+
+    public TipoToken getTipo() { return tipo; }
+    public int getInicio() { return inicio; }
+    public int getValorNumero() { return valorNumero; }
+
+    /** Reconhece o próximo token a partir da posição atual. */
+    public void avancar() throws Exception {
+        pularEspacosEComentarios();
+        inicio = posicao;
+
+        if (posicao >= tamanho) {
+            tipo = TipoToken.FIM;
+            fim = posicao;
+            return;
+        }
+
+        char c = sql.charAt(posicao);
+
+        if (isInicioIdentificador(c)) {
+            while (posicao < tamanho && isParteIdentificador(sql.charAt(posicao))) {
+                posicao++;
+            }
+            tipo = TipoToken.IDENTIFICADOR;
+        } else if (isDigito(c) || (c == '-' && posicao + 1 < tamanho && isDigito(sql.charAt(posicao + 1)))) {
+            lerNumero();
+        } else if (c == '\'') {
+            lerTexto();
+        } else {
+            lerSimbolo(c);
+        }
+        fim = posicao;
+    }
+
+    private void pularEspacosEComentarios() {
+        while (posicao < tamanho) {
+            char c = sql.charAt(posicao);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                posicao++;
+            } else if (c == '-' && posicao + 1 < tamanho && sql.charAt(posicao + 1) == '-') {
+                // Comentário de linha: ignora até o fim da linha.
+                while (posicao < tamanho && sql.charAt(posicao) != '\n') {
+                    posicao++;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void lerNumero() throws Exception {
+        boolean negativo = sql.charAt(posicao) == '-';
+        if (negativo) posicao++;
+
+        // Acumula em long para detectar estouro do INT.
+        long valor = 0;
+        while (posicao < tamanho && isDigito(sql.charAt(posicao))) {
+            valor = valor * 10 + (sql.charAt(posicao) - '0');
+            if (valor > (long) Integer.MAX_VALUE + 1) {
+                throw erro(inicio, "número fora do intervalo de INT");
+            }
+            posicao++;
+        }
+        if (negativo) valor = -valor;
+        if (valor > Integer.MAX_VALUE) {
+            throw erro(inicio, "número fora do intervalo de INT");
+        }
+        if (posicao < tamanho && isInicioIdentificador(sql.charAt(posicao))) {
+            throw erro(inicio, "número inválido");
+        }
+
+        valorNumero = (int) valor;
+        tipo = TipoToken.NUMERO;
+    }
+
+    private void lerTexto() throws Exception {
+        posicao++; // Aspa de abertura
+        while (true) {
+            if (posicao >= tamanho) {
+                throw erro(inicio, "texto sem aspa de fechamento");
+            }
+            if (sql.charAt(posicao) == '\'') {
+                // Duas aspas seguidas ('') representam uma aspa dentro do texto.
+                if (posicao + 1 < tamanho && sql.charAt(posicao + 1) == '\'') {
+                    posicao += 2;
+                    continue;
+                }
+                posicao++; // Aspa de fechamento
+                break;
+            }
+            posicao++;
+        }
+        tipo = TipoToken.TEXTO;
+    }
+
+    private void lerSimbolo(char c) throws Exception {
+        posicao++;
+        switch (c) {
+            case ',': tipo = TipoToken.VIRGULA; break;
+            case '.': tipo = TipoToken.PONTO; break;
+            case ';': tipo = TipoToken.PONTO_E_VIRGULA; break;
+            case '(': tipo = TipoToken.ABRE_PARENTESES; break;
+            case ')': tipo = TipoToken.FECHA_PARENTESES; break;
+            case '*': tipo = TipoToken.ASTERISCO; break;
+            case '?': tipo = TipoToken.INTERROGACAO; break;
+            case '=': tipo = TipoToken.IGUAL; break;
+            case '<':
+                if (posicao < tamanho && sql.charAt(posicao) == '=') {
+                    posicao++;
+                    tipo = TipoToken.MENOR_IGUAL;
+                } else {
+                    tipo = TipoToken.MENOR;
+                }
+                break;
+            case '>':
+                if (posicao < tamanho && sql.charAt(posicao) == '=') {
+                    posicao++;
+                    tipo = TipoToken.MAIOR_IGUAL;
+                } else {
+                    tipo = TipoToken.MAIOR;
+                }
+                break;
+            default:
+                throw erro(inicio, "caractere inesperado '" + c + "'");
+        }
+    }
+
+    // --- Acesso ao Conteúdo do Token Atual ---
+
+    /** Verifica, sem criar Strings, se o token atual é a palavra-chave informada (em minúsculas). */
+    public boolean isPalavra(String palavraChave) {
+        return tipo == TipoToken.IDENTIFICADOR
+                && fim - inicio == palavraChave.length()
+                && sql.regionMatches(true, inicio, palavraChave, 0, palavraChave.length());
+    }
+
+    /** Retorna o identificador atual em minúsculas (nomes não diferenciam maiúsculas). */
+    public String getIdentificador() {
+        return sql.substring(inicio, fim).toLowerCase();
+    }
+
+    /** Retorna o conteúdo do texto atual, sem as aspas e com '' convertido em '. */
+    public String getTexto() {
+        String conteudo = sql.substring(inicio + 1, fim - 1);
+        return conteudo.indexOf('\'') == -1 ? conteudo : conteudo.replace("''", "'");
+    }
+
+    /** Trecho do SQL original correspondente ao token atual (para mensagens de erro). */
+    public String getTrecho() {
+        return tipo == TipoToken.FIM ? "fim do comando" : "'" + sql.substring(inicio, fim) + "'";
+    }
+
+    // --- Erros ---
+
+    /**
+     * Cria a exceção de erro de sintaxe, indicando linha e coluna (a partir de 1)
+     * da posição informada no texto SQL.
+     */
+    public Exception erro(int posicaoErro, String mensagem) {
+        int linha = 1;
+        int coluna = 1;
+        for (int i = 0; i < posicaoErro && i < tamanho; i++) {
+            if (sql.charAt(i) == '\n') {
+                linha++;
+                coluna = 1;
+            } else {
+                coluna++;
+            }
+        }
+        return new Exception("Erro de sintaxe na linha " + linha + ", coluna " + coluna + ": " + mensagem + ".");
+    }
+
+    // --- Classificação de Caracteres ---
+
+    private static boolean isDigito(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isInicioIdentificador(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isParteIdentificador(char c) {
+        return isInicioIdentificador(c) || isDigito(c);
+    }
+
+    // --- Divisão de Scripts ---
+
+    /**
+     * Divide um script em comandos separados por ';', em uma única passada, ignorando os ';'
+     * que aparecem dentro de textos entre aspas ou de comentários. Comandos vazios
+     * (apenas espaços e comentários) são descartados.
+     */
+    public static String[] dividirComandos(String script) {
+        String[] comandos = new String[8];
+        int numComandos = 0;
+        int inicioComando = 0;
+        boolean temConteudo = false;
+        int tamanhoScript = script.length();
+
+        for (int i = 0; i <= tamanhoScript; i++) {
+            char c = i < tamanhoScript ? script.charAt(i) : ';';
+
+            if (c == '\'') {
+                // Pula o texto inteiro; duas aspas seguidas ('') continuam dentro do texto.
+                temConteudo = true;
+                i++;
+                while (i < tamanhoScript) {
+                    if (script.charAt(i) == '\'') {
+                        if (i + 1 < tamanhoScript && script.charAt(i + 1) == '\'') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    i++;
+                }
+            } else if (c == '-' && i + 1 < tamanhoScript && script.charAt(i + 1) == '-') {
+                // Pula o comentário até o fim da linha.
+                while (i + 1 < tamanhoScript && script.charAt(i + 1) != '\n') {
+                    i++;
+                }
+            } else if (c == ';') {
+                if (temConteudo) {
+                    if (numComandos == comandos.length) {
+                        String[] novoComandos = new String[comandos.length * 2];
+                        for (int j = 0; j < numComandos; j++) {
+                            novoComandos[j] = comandos[j];
+                        }
+                        comandos = novoComandos;
+                    }
+                    comandos[numComandos++] = script.substring(inicioComando, Math.min(i, tamanhoScript)).trim();
+                }
+                inicioComando = i + 1;
+                temConteudo = false;
+            } else if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                temConteudo = true;
+            }
+        }
+
+        String[] resultado = new String[numComandos];
+        for (int j = 0; j < numComandos; j++) {
+            resultado[j] = comandos[j];
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,677 @@
+package app.model;
+
+import app.model.AnalisadorLexico.TipoToken;
+
+/**
+ * Analisador sintático (parser) descendente recursivo de SQL.
+ *
+ * Consome os tokens do AnalisadorLexico em uma única passada e monta a árvore do comando
+ * (um Comando, com a cláusula WHERE como árvore de Condicao). Cada regra da gramática
+ * abaixo corresponde a um método analisarXxx:
+ *
+ *   comando      := (createTable | dropTable | createIndex | dropIndex | insert | delete | select
+ *                    | begin | COMMIT | ROLLBACK | CHECKPOINT | copy | set) [';']
+ *   createTable  := CREATE TABLE nome '(' defColuna (',' defColuna)* ')' [WITH '(' STORAGE '=' (ROW | COLUMNAR | DISK) ')']
+ *   defColuna    := nome (INT | STRING) (PRIMARY KEY | REFERENCES nome '(' nome ')')*
+ *   dropTable    := DROP TABLE nome
+ *   createIndex  := CREATE INDEX nome ON nome '(' nome ')'
+ *   dropIndex    := DROP INDEX nome [ON nome]
+ *   insert       := INSERT INTO nome '(' nome (',' nome)* ')' VALUES linhaValores (',' linhaValores)*
+ *   linhaValores := '(' valorInsert (',' valorInsert)* ')'
+ *   valorInsert  := valor | NULL
+ *   delete       := DELETE FROM nome WHERE nome '=' valor
+ *   select       := SELECT ('*' | itemSelect (',' itemSelect)*) FROM nome
+ *                   [JOIN nome ON refColuna '=' refColuna] [WHERE condicao]
+ *                   [GROUP BY refColuna (',' refColuna)*]
+ *                   [ORDER BY itemOrdem (',' itemOrdem)*] [LIMIT NUMERO] [OFFSET NUMERO]
+ *   itemOrdem    := (refColuna | funcao '(' ('*' | refColuna) ')') [ASC | DESC]
+ *   itemSelect   := refColuna | funcao '(' ('*' | refColuna) ')'
+ *   funcao       := COUNT | SUM | AVG | MIN | MAX          ('*' apenas em COUNT)
+ *   condicao     := termo (OR termo)*
+ *   termo        := fator (AND fator)*
+ *   fator        := '(' condicao ')' | refColuna op valor | refColuna BETWEEN valor AND valor
+ *   refColuna    := nome ['.' nome]
+ *   valor        := NUMERO | TEXTO | '?'
+ *   begin        := BEGIN [TRANSACTION]
+ *   copy         := COPY nome (FROM | TO) TEXTO
+ *   set          := SET nome ['='] NUMERO
+ *
+ * Erros de sintaxe informam a linha e a coluna do token onde a análise parou.
+ */
+public class AnalisadorSintatico {
+
+    private final AnalisadorLexico lexico;
+
+    // Contador de parâmetros '?' do comando em análise.
+    private int numParametros;
+
+    private AnalisadorSintatico(String sql) throws Exception {
+        this.lexico = new AnalisadorLexico(sql);
+        this.numParametros = 0;
+    }
+
+    /**
+     * Analisa um único comando SQL e retorna a sua representação em árvore.
+     * @throws Exception Com a linha e a coluna do erro, se a sintaxe for inválida.
+     */
+    public static Comando analisar(String sql) throws Exception {
+        return new AnalisadorSintatico(sql).analisarComando();
+    }
+
+    private Comando analisarComando() throws Exception {
+        Comando comando;
+
+        // EXPLAIN [ANALYZE] antes de um SELECT, INSERT ou DELETE: o próprio comando, marcado
+        // para ter o plano descrito (e, com ANALYZE, executado e medido) em vez do resultado.
+        boolean explicar = false;
+        boolean analisar = false;
+        if (lexico.isPalavra("explain")) {
+            lexico.avancar();
+            explicar = true;
+            if (lexico.isPalavra("analyze")) {
+                lexico.avancar();
+                analisar = true;
+            }
+            if (!lexico.isPalavra("select") && !lexico.isPalavra("insert") && !lexico.isPalavra("delete")) {
+                throw esperado("SELECT, INSERT ou DELETE depois de EXPLAIN");
+            }
+        }
+
+        // O analisador decide qual regra seguir com base na primeira palavra-chave.
+        if (lexico.isPalavra("create")) {
+            lexico.avancar();
+            if (lexico.isPalavra("table")) {
+                comando = analisarCreateTable();
+            } else if (lexico.isPalavra("index")) {
+                comando = analisarCreateIndex();
+            } else {
+                throw esperado("TABLE ou INDEX");
+            }
+        } else if (lexico.isPalavra("drop")) {
+            lexico.avancar();
+            if (lexico.isPalavra("table")) {
+                comando = analisarDropTable();
+            } else if (lexico.isPalavra("index")) {
+                comando = analisarDropIndex();
+            } else {
+                throw esperado("TABLE ou INDEX");
+            }
+        } else if (lexico.isPalavra("insert")) {
+            comando = analisarInsert();
+        } else if (lexico.isPalavra("delete")) {
+            comando = analisarDelete();
+        } else if (lexico.isPalavra("select")) {
+            comando = analisarSelect();
+        } else if (lexico.isPalavra("begin")) {
+            lexico.avancar();
+            if (lexico.isPalavra("transaction")) {
+                lexico.avancar();
+            }
+            comando = new Comando(Comando.Tipo.BEGIN);
+        } else if (lexico.isPalavra("commit")) {
+            lexico.avancar();
+            comando = new Comando(Comando.Tipo.COMMIT);
+        } else if (lexico.isPalavra("rollback")) {
+            lexico.avancar();
+            comando = new Comando(Comando.Tipo.ROLLBACK);
+        } else if (lexico.isPalavra("copy")) {
+            comando = analisarCopy();
+        } else if (lexico.isPalavra("checkpoint")) {
+            lexico.avancar();
+            comando = new Comando(Comando.Tipo.CHECKPOINT);
+        } else if (lexico.isPalavra("set")) {
+            comando = analisarSet();
+        } else {
+            throw lexico.erro(lexico.getInicio(), "comando não suportado " + lexico.getTrecho()
+                    + ". Use CREATE, DROP, INSERT, DELETE, SELECT, EXPLAIN, COPY, BEGIN, COMMIT, ROLLBACK, CHECKPOINT ou SET");
+        }
+
+        // Um ';' final é opcional; depois dele não pode haver mais nada.
+        if (lexico.getTipo() == TipoToken.PONTO_E_VIRGULA) {
+            lexico.avancar();
+        }
+        if (lexico.getTipo() != TipoToken.FIM) {
+            throw esperado("fim do comando");
+        }
+
+        comando.numParametros = numParametros;
+        comando.explicar = explicar;
+        comando.analisar = analisar;
+        return comando;
+    }
+
+    // --- Comandos ---
+
+    private Comando analisarCreateTable() throws Exception {
+        lexico.avancar(); // TABLE
+        Comando comando = new Comando(Comando.Tipo.CREATE_TABLE);
+        comando.nomeTabela = consumirNome("o nome da tabela");
+        consumir(TipoToken.ABRE_PARENTESES, "'('");
+
+        // Array clássico que cresce conforme as definições de coluna são lidas.
+        Coluna[] definicoes = new Coluna[8];
+        int numDefinicoes = 0;
+        do {
+            if (numDefinicoes == definicoes.length) {
+                Coluna[] novoDefinicoes = new Coluna[definicoes.length * 2];
+                for (int i = 0; i < numDefinicoes; i++) {
+                    novoDefinicoes[i] = definicoes[i];
+                }
+                definicoes = novoDefinicoes;
+            }
+            definicoes[numDefinicoes++] = analisarDefinicaoColuna();
+        } while (consumirSe(TipoToken.VIRGULA));
+        consumir(TipoToken.FECHA_PARENTESES, "',' ou ')'");
+
+        comando.definicoes = new Coluna[numDefinicoes];
+        for (int i = 0; i < numDefinicoes; i++) {
+            comando.definicoes[i] = definicoes[i];
+        }
+
+        // Formato de armazenamento opcional: WITH (storage = row | columnar | disk).
+        if (lexico.isPalavra("with")) {
+            lexico.avancar();
+            consumir(TipoToken.ABRE_PARENTESES, "'('");
+            consumirPalavra("storage");
+            consumir(TipoToken.IGUAL, "'='");
+            if (lexico.isPalavra("columnar")) {
+                comando.armazenamento = Tabela.TipoArmazenamento.COLUNAR;
+            } else if (lexico.isPalavra("row")) {
+                comando.armazenamento = Tabela.TipoArmazenamento.LINHAS;
+            } else if (lexico.isPalavra("disk")) {
+                comando.armazenamento = Tabela.TipoArmazenamento.PAGINADO;
+            } else {
+                throw esperado("ROW, COLUMNAR ou DISK");
+            }
+            lexico.avancar();
+            consumir(TipoToken.FECHA_PARENTESES, "')'");
+        }
+        return comando;
+    }
+
+    private Coluna analisarDefinicaoColuna() throws Exception {
+        String nomeColuna = consumirNome("o nome da coluna");
+
+        String tipoDado;
+        if (lexico.isPalavra("int")) {
+            tipoDado = "INT";
+        } else if (lexico.isPalavra("string")) {
+            tipoDado = "STRING";
+        } else {
+            throw lexico.erro(lexico.getInicio(), "tipo de dado " + lexico.getTrecho() + " não suportado. Use INT ou STRING");
+        }
+        lexico.avancar();
+
+        Coluna coluna = new Coluna(nomeColuna, tipoDado);
+
+        // Restrições (PK, FK), em qualquer ordem.
+        while (true) {
+            if (lexico.isPalavra("primary")) {
+                lexico.avancar();
+                consumirPalavra("key");
+                coluna.setAsPrimaryKey();
+            } else if (lexico.isPalavra("references")) {
+                lexico.avancar();
+                String tabelaReferenciada = consumirNome("o nome da tabela referenciada");
+                consumir(TipoToken.ABRE_PARENTESES, "'('");
+                String colunaReferenciada = consumirNome("o nome da coluna referenciada");
+                consumir(TipoToken.FECHA_PARENTESES, "')'");
+                coluna.setAsForeignKey(tabelaReferenciada, colunaReferenciada);
+            } else {
+                return coluna;
+            }
+        }
+    }
+
+    private Comando analisarDropTable() throws Exception {
+        lexico.avancar(); // TABLE
+        Comando comando = new Comando(Comando.Tipo.DROP_TABLE);
+        comando.nomeTabela = consumirNome("o nome da tabela");
+        return comando;
+    }
+
+    private Comando analisarCreateIndex() throws Exception {
+        lexico.avancar(); // INDEX
+        Comando comando = new Comando(Comando.Tipo.CREATE_INDEX);
+        comando.nomeIndice = consumirNome("o nome do índice");
+        consumirPalavra("on");
+        comando.nomeTabela = consumirNome("o nome da tabela");
+        consumir(TipoToken.ABRE_PARENTESES, "'('");
+        comando.nomeColuna = consumirNome("o nome da coluna");
+        consumir(TipoToken.FECHA_PARENTESES, "')'");
+        return comando;
+    }
+
+    private Comando analisarDropIndex() throws Exception {
+        lexico.avancar(); // INDEX
+        Comando comando = new Comando(Comando.Tipo.DROP_INDEX);
+        comando.nomeIndice = consumirNome("o nome do índice");
+        // Aceita também a forma "DROP INDEX nome ON tabela"; o nome do índice já é único no banco.
+        if (lexico.isPalavra("on")) {
+            lexico.avancar();
+            consumirNome("o nome da tabela");
+        }
+        return comando;
+    }
+
+    private Comando analisarCopy() throws Exception {
+        lexico.avancar(); // COPY
+        Comando comando = new Comando(Comando.Tipo.COPY);
+        comando.nomeTabela = consumirNome("o nome da tabela");
+        if (lexico.isPalavra("to")) {
+            comando.paraArquivo = true;
+        } else if (!lexico.isPalavra("from")) {
+            throw esperado("FROM ou TO");
+        }
+        lexico.avancar();
+        if (lexico.getTipo() != TipoToken.TEXTO) {
+            throw esperado("o nome do arquivo entre aspas simples");
+        }
+        comando.arquivo = lexico.getTexto();
+        lexico.avancar();
+        return comando;
+    }
+
+    private Comando analisarSet() throws Exception {
+        lexico.avancar(); // SET
+        Comando comando = new Comando(Comando.Tipo.SET);
+        comando.opcao = consumirNome("o nome da opção (PARALLELISM, PARALLEL_THRESHOLD, SORT_MEMORY ou RESULT_CACHE)");
+        consumirSe(TipoToken.IGUAL);
+        comando.valorOpcao = consumirInteiroNaoNegativo("o valor da opção (um número)");
+        return comando;
+    }
+
+    private Comando analisarInsert() throws Exception {
+        lexico.avancar(); // INSERT
+        consumirPalavra("into");
+        Comando comando = new Comando(Comando.Tipo.INSERT);
+        comando.nomeTabela = consumirNome("o nome da tabela");
+
+        consumir(TipoToken.ABRE_PARENTESES, "'('");
+        String[] colunas = new String[8];
+        int numColunas = 0;
+        do {
+            if (numColunas == colunas.length) {
+                String[] novoColunas = new String[colunas.length * 2];
+                for (int i = 0; i < numColunas; i++) {
+                    novoColunas[i] = colunas[i];
+                }
+                colunas = novoColunas;
+            }
+            colunas[numColunas++] = consumirNome("o nome da coluna");
+        } while (consumirSe(TipoToken.VIRGULA));
+        consumir(TipoToken.FECHA_PARENTESES, "',' ou ')'");
+
+        comando.colunas = new String[numColunas];
+        for (int i = 0; i < numColunas; i++) {
+            comando.colunas[i] = colunas[i];
+        }
+
+        // Os valores de todas as linhas ficam em um único array, linha após linha
+        // (VALUES (a, b), (c, d) -> [a, b, c, d]), que cresce de linha em linha.
+        consumirPalavra("values");
+        Object[] valores = new Object[numColunas];
+        int numValores = 0;
+        do {
+            int inicioLinha = lexico.getInicio();
+            consumir(TipoToken.ABRE_PARENTESES, "'('");
+            if (numValores + numColunas > valores.length) {
+                Object[] novoValores = new Object[valores.length * 2];
+                for (int i = 0; i < numValores; i++) {
+                    novoValores[i] = valores[i];
+                }
+                valores = novoValores;
+            }
+            int numValoresLinha = 0;
+            do {
+                if (numValoresLinha == numColunas) {
+                    throw lexico.erro(inicioLinha, "número de colunas e valores não coincide");
+                }
+                if (lexico.isPalavra("null")) {
+                    lexico.avancar();
+                    valores[numValores++] = null;
+                } else {
+                    valores[numValores++] = analisarValor();
+                }
+                numValoresLinha++;
+            } while (consumirSe(TipoToken.VIRGULA));
+            consumir(TipoToken.FECHA_PARENTESES, "',' ou ')'");
+
+            if (numValoresLinha != numColunas) {
+                throw lexico.erro(inicioLinha, "número de colunas e valores não coincide");
+            }
+        } while (consumirSe(TipoToken.VIRGULA));
+
+        if (numValores == valores.length) {
+            comando.valores = valores;
+        } else {
+            comando.valores = new Object[numValores];
+            for (int i = 0; i < numValores; i++) {
+                comando.valores[i] = valores[i];
+            }
+        }
+        return comando;
+    }
+
+    private Comando analisarDelete() throws Exception {
+        lexico.avancar(); // DELETE
+        consumirPalavra("from");
+        Comando comando = new Comando(Comando.Tipo.DELETE);
+        comando.nomeTabela = consumirNome("o nome da tabela");
+        consumirPalavra("where");
+        comando.nomeColuna = consumirNome("o nome da coluna");
+        consumir(TipoToken.IGUAL, "'='");
+        comando.valor = analisarValor();
+        return comando;
+    }
+
+    private Comando analisarSelect() throws Exception {
+        lexico.avancar(); // SELECT
+        Comando comando = new Comando(Comando.Tipo.SELECT);
+
+        // Projeção: '*' fica como null (todas as colunas).
+        if (!consumirSe(TipoToken.ASTERISCO)) {
+            String[] colunas = new String[8];
+            Agregacao.Funcao[] funcoes = new Agregacao.Funcao[8];
+            boolean temFuncao = false;
+            int numColunas = 0;
+            do {
+                if (numColunas == colunas.length) {
+                    String[] novoColunas = new String[colunas.length * 2];
+                    Agregacao.Funcao[] novoFuncoes = new Agregacao.Funcao[colunas.length * 2];
+                    for (int i = 0; i < numColunas; i++) {
+                        novoColunas[i] = colunas[i];
+                        novoFuncoes[i] = funcoes[i];
+                    }
+                    colunas = novoColunas;
+                    funcoes = novoFuncoes;
+                }
+                String referencia = analisarReferenciaColuna();
+                // Um nome seguido de '(' é uma função de agregação (ex: COUNT(*), SUM(valor)).
+                if (lexico.getTipo() == TipoToken.ABRE_PARENTESES) {
+                    funcoes[numColunas] = funcaoAgregacao(referencia);
+                    referencia = analisarArgumentoFuncao(funcoes[numColunas]);
+                    temFuncao = true;
+                }
+                colunas[numColunas++] = referencia;
+            } while (consumirSe(TipoToken.VIRGULA));
+
+            comando.colunas = new String[numColunas];
+            for (int i = 0; i < numColunas; i++) {
+                comando.colunas[i] = colunas[i];
+            }
+            if (temFuncao) {
+                comando.funcoes = new Agregacao.Funcao[numColunas];
+                for (int i = 0; i < numColunas; i++) {
+                    comando.funcoes[i] = funcoes[i];
+                }
+            }
+        }
+
+        consumirPalavra("from");
+        comando.nomeTabela = consumirNome("o nome da tabela");
+
+        if (lexico.isPalavra("join")) {
+            lexico.avancar();
+            comando.nomeTabelaJoin = consumirNome("o nome da tabela do JOIN");
+            consumirPalavra("on");
+            String ref1 = analisarReferenciaColuna();
+            consumir(TipoToken.IGUAL, "'='");
+            String ref2 = analisarReferenciaColuna();
+
+            // Cada lado do ON vai para a sua tabela: um prefixo com o nome da segunda
+            // tabela no primeiro lado (ex: "ON t2.x = t1.y") inverte a ordem.
+            if (prefixoTabela(ref1) != null && prefixoTabela(ref1).equals(comando.nomeTabelaJoin)
+                    && !comando.nomeTabelaJoin.equals(comando.nomeTabela)) {
+                String troca = ref1;
+                ref1 = ref2;
+                ref2 = troca;
+            }
+            comando.colunaJoin1 = semPrefixo(ref1);
+            comando.colunaJoin2 = semPrefixo(ref2);
+        }
+
+        if (lexico.isPalavra("where")) {
+            lexico.avancar();
+            comando.condicao = analisarOu();
+        }
+
+        if (lexico.isPalavra("group")) {
+            lexico.avancar();
+            consumirPalavra("by");
+            String[] agrupamento = new String[4];
+            int numAgrupamento = 0;
+            do {
+                if (numAgrupamento == agrupamento.length) {
+                    String[] novoAgrupamento = new String[agrupamento.length * 2];
+                    for (int i = 0; i < numAgrupamento; i++) {
+                        novoAgrupamento[i] = agrupamento[i];
+                    }
+                    agrupamento = novoAgrupamento;
+                }
+                agrupamento[numAgrupamento++] = analisarReferenciaColuna();
+            } while (consumirSe(TipoToken.VIRGULA));
+
+            comando.agrupamento = new String[numAgrupamento];
+            for (int i = 0; i < numAgrupamento; i++) {
+                comando.agrupamento[i] = agrupamento[i];
+            }
+        }
+
+        if (lexico.isPalavra("order")) {
+            lexico.avancar();
+            consumirPalavra("by");
+            analisarOrdenacao(comando);
+        }
+
+        if (lexico.isPalavra("limit")) {
+            lexico.avancar();
+            comando.limite = consumirInteiroNaoNegativo("o número de linhas do LIMIT");
+        }
+        if (lexico.isPalavra("offset")) {
+            lexico.avancar();
+            comando.deslocamento = consumirInteiroNaoNegativo("o número de linhas do OFFSET");
+        }
+        return comando;
+    }
+
+    // --- Cláusula WHERE ---
+
+    private Condicao analisarOu() throws Exception {
+        Condicao condicao = analisarE();
+        while (lexico.isPalavra("or")) {
+            lexico.avancar();
+            condicao = Condicao.logica(Condicao.Tipo.OU, condicao, analisarE());
+        }
+        return condicao;
+    }
+
+    private Condicao analisarE() throws Exception {
+        Condicao condicao = analisarFator();
+        while (lexico.isPalavra("and")) {
+            lexico.avancar();
+            condicao = Condicao.logica(Condicao.Tipo.E, condicao, analisarFator());
+        }
+        return condicao;
+    }
+
+    private Condicao analisarFator() throws Exception {
+        if (consumirSe(TipoToken.ABRE_PARENTESES)) {
+            Condicao condicao = analisarOu();
+            consumir(TipoToken.FECHA_PARENTESES, "')'");
+            return condicao;
+        }
+
+        String coluna = analisarReferenciaColuna();
+
+        if (lexico.isPalavra("between")) {
+            lexico.avancar();
+            Object minimo = analisarValor();
+            consumirPalavra("and");
+            Object maximo = analisarValor();
+            return Condicao.comparacao(Condicao.Tipo.ENTRE, coluna, minimo, maximo);
+        }
+
+        Condicao.Tipo tipo;
+        switch (lexico.getTipo()) {
+            case IGUAL: tipo = Condicao.Tipo.IGUAL; break;
+            case MENOR: tipo = Condicao.Tipo.MENOR; break;
+            case MAIOR: tipo = Condicao.Tipo.MAIOR; break;
+            case MENOR_IGUAL: tipo = Condicao.Tipo.MENOR_IGUAL; break;
+            case MAIOR_IGUAL: tipo = Condicao.Tipo.MAIOR_IGUAL; break;
+            default: throw esperado("=, <, >, <=, >= ou BETWEEN");
+        }
+        lexico.avancar();
+        return Condicao.comparacao(tipo, coluna, analisarValor(), null);
+    }
+
+    // --- Elementos Básicos ---
+
+    /**
+     * Lê um valor literal: números viram Integer, textos entre aspas viram String
+     * (com maiúsculas e vírgulas preservadas) e '?' vira um Parametro, preenchido na execução.
+     */
+    private Object analisarValor() throws Exception {
+        Object valor;
+        switch (lexico.getTipo()) {
+            case NUMERO: valor = lexico.getValorNumero(); break;
+            case TEXTO: valor = lexico.getTexto(); break;
+            case INTERROGACAO: valor = new Comando.Parametro(numParametros++); break;
+            default: throw esperado("um valor (número, texto entre aspas simples ou ?)");
+        }
+        lexico.avancar();
+        return valor;
+    }
+
+    /** Lê um nome de coluna, opcionalmente qualificado pela tabela ("tabela.coluna"). */
+    private String analisarReferenciaColuna() throws Exception {
+        String nome = consumirNome("o nome da coluna");
+        if (consumirSe(TipoToken.PONTO)) {
+            return nome + "." + consumirNome("o nome da coluna");
+        }
+        return nome;
+    }
+
+    private static String prefixoTabela(String referencia) {
+        int ponto = referencia.indexOf('.');
+        return ponto == -1 ? null : referencia.substring(0, ponto);
+    }
+
+    private static String semPrefixo(String referencia) {
+        return referencia.substring(referencia.indexOf('.') + 1);
+    }
+
+    /** Itens do ORDER BY: coluna ou função de agregação, cada um com ASC (padrão) ou DESC. */
+    private void analisarOrdenacao(Comando comando) throws Exception {
+        String[] itens = new String[4];
+        Agregacao.Funcao[] funcoes = new Agregacao.Funcao[4];
+        boolean[] decrescente = new boolean[4];
+        int numItens = 0;
+        do {
+            if (numItens == itens.length) {
+                String[] novoItens = new String[itens.length * 2];
+                Agregacao.Funcao[] novoFuncoes = new Agregacao.Funcao[itens.length * 2];
+                boolean[] novoDecrescente = new boolean[itens.length * 2];
+                for (int i = 0; i < numItens; i++) {
+                    novoItens[i] = itens[i];
+                    novoFuncoes[i] = funcoes[i];
+                    novoDecrescente[i] = decrescente[i];
+                }
+                itens = novoItens;
+                funcoes = novoFuncoes;
+                decrescente = novoDecrescente;
+            }
+            String referencia = analisarReferenciaColuna();
+            if (lexico.getTipo() == TipoToken.ABRE_PARENTESES) {
+                funcoes[numItens] = funcaoAgregacao(referencia);
+                referencia = analisarArgumentoFuncao(funcoes[numItens]);
+            }
+            if (lexico.isPalavra("desc")) {
+                lexico.avancar();
+                decrescente[numItens] = true;
+            } else if (lexico.isPalavra("asc")) {
+                lexico.avancar();
+            }
+            itens[numItens++] = referencia;
+        } while (consumirSe(TipoToken.VIRGULA));
+
+        comando.ordenacao = new String[numItens];
+        comando.funcoesOrdenacao = new Agregacao.Funcao[numItens];
+        comando.ordemDecrescente = new boolean[numItens];
+        for (int i = 0; i < numItens; i++) {
+            comando.ordenacao[i] = itens[i];
+            comando.funcoesOrdenacao[i] = funcoes[i];
+            comando.ordemDecrescente[i] = decrescente[i];
+        }
+    }
+
+    /** Argumento entre parênteses de uma função de agregação: uma coluna, ou '*' em COUNT. */
+    private String analisarArgumentoFuncao(Agregacao.Funcao funcao) throws Exception {
+        consumir(TipoToken.ABRE_PARENTESES, "'('");
+        String argumento;
+        if (funcao == Agregacao.Funcao.COUNT && consumirSe(TipoToken.ASTERISCO)) {
+            argumento = "*";
+        } else {
+            argumento = analisarReferenciaColuna();
+        }
+        consumir(TipoToken.FECHA_PARENTESES, "')'");
+        return argumento;
+    }
+
+    /** Traduz o nome lido antes de '(' para a função de agregação. */
+    private Agregacao.Funcao funcaoAgregacao(String nome) throws Exception {
+        switch (nome) {
+            case "count": return Agregacao.Funcao.COUNT;
+            case "sum": return Agregacao.Funcao.SUM;
+            case "avg": return Agregacao.Funcao.AVG;
+            case "min": return Agregacao.Funcao.MIN;
+            case "max": return Agregacao.Funcao.MAX;
+            default:
+                throw lexico.erro(lexico.getInicio(), "função '" + nome + "' não suportada. Use COUNT, SUM, AVG, MIN ou MAX");
+        }
+    }
+
+    private String consumirNome(String descricao) throws Exception {
+        if (lexico.getTipo() != TipoToken.IDENTIFICADOR) {
+            throw esperado(descricao);
+        }
+        String nome = lexico.getIdentificador();
+        lexico.avancar();
+        return nome;
+    }
+
+    private int consumirInteiroNaoNegativo(String descricao) throws Exception {
+        if (lexico.getTipo() != TipoToken.NUMERO || lexico.getValorNumero() < 0) {
+            throw esperado(descricao);
+        }
+        int valor = lexico.getValorNumero();
+        lexico.avancar();
+        return valor;
+    }
+
+    private void consumirPalavra(String palavraChave) throws Exception {
+        if (!lexico.isPalavra(palavraChave)) {
+            throw esperado(palavraChave.toUpperCase());
+        }
+        lexico.avancar();
+    }
+
+    private void consumir(TipoToken tipo, String descricao) throws Exception {
+        if (lexico.getTipo() != tipo) {
+            throw esperado(descricao);
+        }
+        lexico.avancar();
+    }
+
+    private boolean consumirSe(TipoToken tipo) throws Exception {
+        if (lexico.getTipo() != tipo) {
+            return false;
+        }
+        lexico.avancar();
+        return true;
+    }
+
+    private Exception esperado(String descricao) {
+        return lexico.erro(lexico.getInicio(), "esperado " + descricao + ", encontrado " + lexico.getTrecho());
+    }
+}
@@ -0,0 +1,364 @@
+package app.model;
+
+/**
+ * Armazenamento colunar dos dados de uma Tabela (CREATE TABLE ... WITH (storage = columnar)).
+ *
+ * Em vez de um array de Linhas (cada uma com um Object[] de valores "empacotados"),
+ * cada coluna é guardada em um array clássico de tipo primitivo:
+ * - Colunas INT: int[] com os próprios valores.
+ * - Colunas STRING: int[] com códigos de dicionário; cada texto distinto é guardado
+ *   uma única vez no Dicionario da coluna.
+ * - Em ambas, um bitmap (long[], um bit por linha) marca os valores nulos.
+ *
+ * Varreduras com filtro trabalham diretamente sobre os arrays primitivos, uma coluna por vez,
+ * produzindo bitmaps de linhas aceitas que são combinados com AND/OR.
+ * As linhas continuam identificadas pela posição (0 a numLinhas-1), como no armazenamento
+ * por linhas, de modo que os índices (hash e árvore B+) funcionam igualmente nos dois formatos.
+ */
+public class ArmazenamentoColunar {
+    private static final int CAPACIDADE_INICIAL = 10;
+
+    /**
+     * Dicionário de textos de uma coluna STRING: associa cada texto distinto a um código
+     * (sua posição no array 'textos'). Os códigos nunca mudam nem são reaproveitados,
+     * então continuam válidos após remoções de linhas.
+     */
+    static class Dicionario {
+        private String[] textos;
+        private int numTextos;
+        // Texto -> código, reaproveitando o índice hash (a "posição" guardada é o código).
+        private final IndiceHash codigos;
+
+        Dicionario() {
+            this.textos = new String[16];
+            this.numTextos = 0;
+            this.codigos = new IndiceHash();
+        }
+
+        /** Retorna o código do texto, adicionando-o ao dicionário se ainda não existir. */
+        int codificar(String texto) {
+            int codigo = codigos.buscarPrimeira(texto);
+            if (codigo != -1) {
+                return codigo;
+            }
+            if (numTextos == textos.length) {
+                String[] novoTextos = new String[textos.length * 2];
+                for (int i = 0; i < numTextos; i++) {
+                    novoTextos[i] = textos[i];
+                }
+                textos = novoTextos;
+            }
+            textos[numTextos] = texto;
+            codigos.inserir(texto, numTextos);
+            return numTextos++;
+        }
+
+        /** Retorna o código do texto, ou -1 se ele não existe no dicionário. */
+        int buscarCodigo(String texto) {
+            return codigos.buscarPrimeira(texto);
+        }
+
+        String decodificar(int codigo) {
+            return textos[codigo];
+        }
+
+        int getNumTextos() { return numTextos; }
+    }
+
+    // --- Estrutura (uma entrada por coluna, em arrays paralelos) ---
+    private boolean[] colunasTexto;   // true = STRING (valores são códigos do dicionário)
+    private Dicionario[] dicionarios; // null para colunas INT
+    private int[][] valores;          // valores[coluna][linha]
+    private long[][] nulos;           // nulos[coluna][palavra]: bit ligado = valor nulo
+    private int numColunas;
+
+    // --- Dados ---
+    private int numLinhas;
+    private int capacidadeLinhas;
+
+    public ArmazenamentoColunar() {
+        this.colunasTexto = new boolean[CAPACIDADE_INICIAL];
+        this.dicionarios = new Dicionario[CAPACIDADE_INICIAL];
+        this.valores = new int[CAPACIDADE_INICIAL][];
+        this.nulos = new long[CAPACIDADE_INICIAL][];
+        this.numColunas = 0;
+        this.numLinhas = 0;
+        this.capacidadeLinhas = CAPACIDADE_INICIAL;
+    }
+
+    // --- Bitmaps ---
+
+    private static int numPalavras(int numBits) {
+        return (numBits + 63) >>> 6;
+    }
+
+    private static boolean getBit(long[] bitmap, int posicao) {
+        return (bitmap[posicao >>> 6] & (1L << posicao)) != 0;
+    }
+
+    private static void definirBit(long[] bitmap, int posicao, boolean ligado) {
+        if (ligado) {
+            bitmap[posicao >>> 6] |= 1L << posicao;
+        } else {
+            bitmap[posicao >>> 6] &= ~(1L << posicao);
+        }
+    }
+
+    // --- Estrutura ---
+
+    /**
+     * Adiciona uma coluna. Linhas já existentes ficam com valor nulo na nova coluna.
+     */
+    public void adicionarColuna(String tipoDado) {
+        if (numColunas == colunasTexto.length) {
+            int novaCapacidade = colunasTexto.length * 2;
+            boolean[] novoColunasTexto = new boolean[novaCapacidade];
+            Dicionario[] novoDicionarios = new Dicionario[novaCapacidade];
+            int[][] novoValores = new int[novaCapacidade][];
+            long[][] novoNulos = new long[novaCapacidade][];
+            for (int i = 0; i < numColunas; i++) {
+                novoColunasTexto[i] = colunasTexto[i];
+                novoDicionarios[i] = dicionarios[i];
+                novoValores[i] = valores[i];
+                novoNulos[i] = nulos[i];
+            }
+            colunasTexto = novoColunasTexto;
+            dicionarios = novoDicionarios;
+            valores = novoValores;
+            nulos = novoNulos;
+        }
+
+        boolean texto = tipoDado.equals("STRING");
+        colunasTexto[numColunas] = texto;
+        dicionarios[numColunas] = texto ? new Dicionario() : null;
+        valores[numColunas] = new int[capacidadeLinhas];
+        nulos[numColunas] = new long[numPalavras(capacidadeLinhas)];
+        for (int i = 0; i < numLinhas; i++) {
+            definirBit(nulos[numColunas], i, true);
+        }
+        numColunas++;
+    }
+
+    /**
+     * Garante espaço para 'capacidadeNecessaria' linhas em todas as colunas,
+     * com um único redimensionamento de cada array.
+     */
+    public void garantirCapacidade(int capacidadeNecessaria) {
+        if (capacidadeNecessaria <= capacidadeLinhas) {
+            return;
+        }
+        int novaCapacidade = Math.max(capacidadeLinhas * 2, capacidadeNecessaria);
+        for (int c = 0; c < numColunas; c++) {
+            int[] novoValores = new int[novaCapacidade];
+            for (int i = 0; i < numLinhas; i++) {
+                novoValores[i] = valores[c][i];
+            }
+            valores[c] = novoValores;
+
+            long[] novoNulos = new long[numPalavras(novaCapacidade)];
+            for (int i = 0; i < nulos[c].length; i++) {
+                novoNulos[i] = nulos[c][i];
+            }
+            nulos[c] = novoNulos;
+        }
+        capacidadeLinhas = novaCapacidade;
+    }
+
+    // --- Escrita ---
+
+    /** Acrescenta os valores da linha ao final de cada coluna (a Linha não é guardada). */
+    public void adicionar(Linha linha) {
+        if (numLinhas == capacidadeLinhas) {
+            garantirCapacidade(numLinhas + 1);
+        }
+        for (int c = 0; c < numColunas; c++) {
+            Object valor = linha.getDadoPorIndice(c);
+            // O bit é sempre definido: a posição pode ter sido usada antes de uma remoção.
+            definirBit(nulos[c], numLinhas, valor == null);
+            if (valor == null) {
+                valores[c][numLinhas] = 0;
+            } else if (colunasTexto[c]) {
+                valores[c][numLinhas] = dicionarios[c].codificar((String) valor);
+            } else {
+                valores[c][numLinhas] = (Integer) valor;
+            }
+        }
+        numLinhas++;
+    }
+
+    /**
+     * Adiciona à lista, em ordem crescente, as posições das linhas cujo valor na coluna é igual
+     * ao informado. A comparação é feita sobre os arrays primitivos: inteiros diretamente e textos
+     * pelo código do dicionário (um texto ausente do dicionário não está em nenhuma linha).
+     */
+    public void buscarIguais(int indiceColuna, Object valor, ListaPosicoes saida) {
+        buscarIguais(indiceColuna, valor, 0, numLinhas, saida);
+    }
+
+    /** Como buscarIguais, apenas nas posições [inicio, fim) (ver ExecucaoParalela). */
+    public void buscarIguais(int indiceColuna, Object valor, int inicio, int fim, ListaPosicoes saida) {
+        int alvo;
+        if (colunasTexto[indiceColuna]) {
+            if (!(valor instanceof String)) return;
+            alvo = dicionarios[indiceColuna].buscarCodigo((String) valor);
+            if (alvo == -1) return;
+        } else {
+            if (!(valor instanceof Integer)) return;
+            alvo = (Integer) valor;
+        }
+
+        int[] coluna = valores[indiceColuna];
+        long[] nulosColuna = nulos[indiceColuna];
+        for (int i = inicio; i < fim; i++) {
+            if (coluna[i] == alvo && !getBit(nulosColuna, i)) {
+                saida.adicionar(i);
+            }
+        }
+    }
+
+    /**
+     * Descarta as linhas marcadas no bitmap 'remover', compactando cada coluna, uma de cada vez
+     * (acesso sequencial a cada array). As linhas mantidas preservam a ordem relativa.
+     */
+    public void compactar(long[] remover) {
+        int novoNumLinhas = 0;
+        for (int c = 0; c < numColunas; c++) {
+            int[] dados = valores[c];
+            long[] nulosDados = nulos[c];
+            int destino = 0;
+            for (int i = 0; i < numLinhas; i++) {
+                if (!isMarcada(remover, i)) {
+                    dados[destino] = dados[i];
+                    definirBit(nulosDados, destino, getBit(nulosDados, i));
+                    destino++;
+                }
+            }
+            novoNumLinhas = destino;
+        }
+        numLinhas = novoNumLinhas;
+    }
+
+    /** Consulta um bitmap que pode ser menor que o número de linhas (bits ausentes = desligados). */
+    private static boolean isMarcada(long[] bitmap, int posicao) {
+        return bitmap != null && (posicao >>> 6) < bitmap.length && getBit(bitmap, posicao);
+    }
+
+    // --- Leitura ---
+
+    public int getNumLinhas() { return numLinhas; }
+
+    public boolean isNulo(int posicao, int indiceColuna) {
+        return getBit(nulos[indiceColuna], posicao);
+    }
+
+    /** Valor primitivo de uma coluna INT (ou o código, em uma coluna STRING). */
+    public int getInt(int posicao, int indiceColuna) {
+        return valores[indiceColuna][posicao];
+    }
+
+    /** Valor da célula como objeto (Integer ou String), ou null. */
+    public Object getValor(int posicao, int indiceColuna) {
+        if (getBit(nulos[indiceColuna], posicao)) {
+            return null;
+        }
+        int valor = valores[indiceColuna][posicao];
+        return colunasTexto[indiceColuna] ? dicionarios[indiceColuna].decodificar(valor) : (Object) valor;
+    }
+
+    /** Monta uma Linha com os valores da posição (usado quando uma Linha é exigida). */
+    public Linha materializarLinha(int posicao) {
+        Linha linha = new Linha(numColunas);
+        for (int c = 0; c < numColunas; c++) {
+            linha.setDadoPorIndice(c, getValor(posicao, c));
+        }
+        return linha;
+    }
+
+    // --- Varredura com Filtro ---
+
+    /**
+     * Adiciona à lista, em ordem crescente, as posições no intervalo [inicio, fim) das linhas
+     * que atendem à condição (já resolvida e vinculada, referenciando apenas colunas desta tabela).
+     * O intervalo permite filtrar a tabela em blocos, sob demanda (ver Operador.Varredura).
+     * @param ignorar Bitmap das linhas a ignorar (ex: linhas removidas), ou null.
+     */
+    public void filtrar(Condicao condicao, int inicio, int fim, long[] ignorar, ListaPosicoes saida) {
+        long[] aceitas = avaliar(condicao, inicio, fim);
+        for (int p = 0; p < aceitas.length; p++) {
+            long palavra = aceitas[p];
+            while (palavra != 0) {
+                int posicao = inicio + (p << 6) + Long.numberOfTrailingZeros(palavra);
+                if (!isMarcada(ignorar, posicao)) {
+                    saida.adicionar(posicao);
+                }
+                palavra &= palavra - 1; // Desliga o bit menos significativo.
+            }
+        }
+    }
+
+    /**
+     * Avalia a condição para as linhas do intervalo [inicio, fim), retornando o bitmap
+     * das linhas aceitas (o bit 0 corresponde à linha 'inicio').
+     */
+    private long[] avaliar(Condicao condicao, int inicio, int fim) {
+        if (condicao.isLogica()) {
+            long[] esquerda = avaliar(condicao.getEsquerda(), inicio, fim);
+            long[] direita = avaliar(condicao.getDireita(), inicio, fim);
+            boolean e = condicao.getTipo() == Condicao.Tipo.E;
+            for (int p = 0; p < esquerda.length; p++) {
+                esquerda[p] = e ? esquerda[p] & direita[p] : esquerda[p] | direita[p];
+            }
+            return esquerda;
+        }
+
+        int indiceColuna = condicao.getIndiceColuna();
+        int[] coluna = valores[indiceColuna];
+        long[] nulosColuna = nulos[indiceColuna];
+        long[] aceitas = new long[numPalavras(fim - inicio)];
+
+        if (colunasTexto[indiceColuna]) {
+            Dicionario dicionario = dicionarios[indiceColuna];
+            if (dicionario.getNumTextos() > fim - inicio) {
+                // Dicionário maior que o intervalo: compara apenas os textos das linhas do intervalo.
+                for (int i = inicio; i < fim; i++) {
+                    if (!getBit(nulosColuna, i) && condicao.compararValor(dicionario.decodificar(coluna[i]))) {
+                        definirBit(aceitas, i - inicio, true);
+                    }
+                }
+                return aceitas;
+            }
+            // STRING: a comparação é feita uma vez por texto distinto do dicionário;
+            // a varredura apenas consulta o resultado pelo código de cada linha.
+            boolean[] codigosAceitos = new boolean[dicionario.getNumTextos()];
+            for (int codigo = 0; codigo < codigosAceitos.length; codigo++) {
+                codigosAceitos[codigo] = condicao.compararValor(dicionario.decodificar(codigo));
+            }
+            for (int i = inicio; i < fim; i++) {
+                if (codigosAceitos[coluna[i]] && !getBit(nulosColuna, i)) {
+                    definirBit(aceitas, i - inicio, true);
+                }
+            }
+            return aceitas;
+        }
+
+        // INT: comparação direta entre inteiros primitivos.
+        int valor = (Integer) condicao.getValor();
+        int valorAte = condicao.getTipo() == Condicao.Tipo.ENTRE ? (Integer) condicao.getValorAte() : 0;
+        for (int i = inicio; i < fim; i++) {
+            int v = coluna[i];
+            boolean aceita;
+            switch (condicao.getTipo()) {
+                case IGUAL: aceita = v == valor; break;
+                case MENOR: aceita = v < valor; break;
+                case MAIOR: aceita = v > valor; break;
+                case MENOR_IGUAL: aceita = v <= valor; break;
+                case MAIOR_IGUAL: aceita = v >= valor; break;
+                default: aceita = v >= valor && v <= valorAte; break;
+            }
+            if (aceita && !getBit(nulosColuna, i)) {
+                definirBit(aceitas, i - inicio, true);
+            }
+        }
+        return aceitas;
+    }
+}
@@ -0,0 +1,503 @@
+package app.model;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Armazenamento em disco dos dados de uma Tabela (CREATE TABLE ... WITH (storage = disk)).
+ *
+ * As linhas são codificadas em bytes e gravadas em páginas de tamanho fixo de um arquivo da
+ * tabela; as páginas são lidas e alteradas por meio do buffer pool (ver GerenciadorBuffer).
+ * Assim, o tamanho da tabela não é limitado pela memória: apenas as páginas em uso ficam nela.
+ *
+ * Página (slotted page):
+ *   [número de registros (int)][fim da área de dados (int)][registros ->   ...   <- slots]
+ * Os registros são acrescentados depois do cabeçalho; os slots (um int por registro, com o
+ * deslocamento do registro na página) crescem do fim da página para o início.
+ *
+ * Registro:
+ *   [criada em (long)][removida em (long)][número de colunas (short)][bitmap de nulos][valores]
+ * - INT: 4 bytes; STRING: tamanho (short) + bytes em UTF-8. Valores nulos não ocupam espaço.
+ * - As versões da linha (MVCC, ver Tabela.isVisivel) ficam no próprio registro, e não em arrays
+ *   na memória como nos outros formatos.
+ * - Colunas adicionadas depois da gravação do registro são lidas como nulas.
+ *
+ * As linhas continuam identificadas pela posição (0 a numLinhas-1), preenchendo as páginas em
+ * ordem: a página p contém as posições a partir de primeiraPosicao[p]. Esse diretório (um int
+ * por página) é a única estrutura proporcional ao tamanho da tabela mantida em memória.
+ */
+public class ArmazenamentoPaginado {
+    private static final int CAPACIDADE_INICIAL = 10;
+
+    private static final int TAMANHO_PAGINA = GerenciadorBuffer.TAMANHO_PAGINA;
+    // Cabeçalho da página: número de registros e fim da área de dados.
+    private static final int CABECALHO_PAGINA = 8;
+    // Cabeçalho do registro: criada em, removida em e número de colunas.
+    private static final int CABECALHO_REGISTRO = 18;
+    // Maior registro que cabe em uma página vazia (com o seu slot).
+    private static final int TAMANHO_MAXIMO_REGISTRO = TAMANHO_PAGINA - CABECALHO_PAGINA - 4;
+
+    private final GerenciadorBuffer buffer;
+    private final String nomeTabela;
+    private GerenciadorBuffer.ArquivoDados arquivo;
+
+    // --- Estrutura ---
+    private boolean[] colunasTexto; // true = STRING
+    private int numColunas;
+
+    // --- Diretório de Páginas ---
+    private int[] primeiraPosicao;  // Primeira posição de cada página
+    private int numPaginas;
+    private int numLinhas;
+    // Última página localizada: leituras seguidas costumam cair na mesma página.
+    // Uma dica desatualizada (escrita por outra thread) é apenas verificada e descartada.
+    private int paginaDica;
+
+    public ArmazenamentoPaginado(String nomeTabela) {
+        this.buffer = GerenciadorBuffer.getInstancia();
+        this.nomeTabela = nomeTabela;
+        this.arquivo = buffer.criarArquivo(nomeTabela);
+        this.colunasTexto = new boolean[CAPACIDADE_INICIAL];
+        this.numColunas = 0;
+        this.primeiraPosicao = new int[CAPACIDADE_INICIAL];
+        this.numPaginas = 0;
+        this.numLinhas = 0;
+    }
+
+    // --- Leitura e Escrita de Números nos Bytes da Página (big-endian) ---
+
+    private static int lerInt(byte[] dados, int i) {
+        return ((dados[i] & 0xFF) << 24) | ((dados[i + 1] & 0xFF) << 16) | ((dados[i + 2] & 0xFF) << 8) | (dados[i + 3] & 0xFF);
+    }
+
+    private static void escreverInt(byte[] dados, int i, int valor) {
+        dados[i] = (byte) (valor >>> 24);
+        dados[i + 1] = (byte) (valor >>> 16);
+        dados[i + 2] = (byte) (valor >>> 8);
+        dados[i + 3] = (byte) valor;
+    }
+
+    private static long lerLong(byte[] dados, int i) {
+        return ((long) lerInt(dados, i) << 32) | (lerInt(dados, i + 4) & 0xFFFFFFFFL);
+    }
+
+    private static void escreverLong(byte[] dados, int i, long valor) {
+        escreverInt(dados, i, (int) (valor >>> 32));
+        escreverInt(dados, i + 4, (int) valor);
+    }
+
+    private static int lerShort(byte[] dados, int i) {
+        return ((dados[i] & 0xFF) << 8) | (dados[i + 1] & 0xFF);
+    }
+
+    private static void escreverShort(byte[] dados, int i, int valor) {
+        dados[i] = (byte) (valor >>> 8);
+        dados[i + 1] = (byte) valor;
+    }
+
+    // --- Estrutura ---
+
+    /** Adiciona uma coluna. Registros já gravados ficam com valor nulo na nova coluna. */
+    public void adicionarColuna(String tipoDado) {
+        if (numColunas == colunasTexto.length) {
+            boolean[] novoColunasTexto = new boolean[colunasTexto.length * 2];
+            for (int i = 0; i < numColunas; i++) {
+                novoColunasTexto[i] = colunasTexto[i];
+            }
+            colunasTexto = novoColunasTexto;
+        }
+        colunasTexto[numColunas++] = tipoDado.equals("STRING");
+    }
+
+    // --- Escrita ---
+
+    /** Tamanho do registro da linha em bytes (textos em UTF-8 já convertidos em 'textos'). */
+    private int calcularTamanho(Linha linha, byte[][] textos) {
+        int tamanho = CABECALHO_REGISTRO + (numColunas + 7) / 8;
+        for (int c = 0; c < numColunas; c++) {
+            Object valor = linha.getDadoPorIndice(c);
+            if (valor == null) continue;
+            if (colunasTexto[c]) {
+                textos[c] = ((String) valor).getBytes(StandardCharsets.UTF_8);
+                tamanho += 2 + textos[c].length;
+            } else {
+                tamanho += 4;
+            }
+        }
+        return tamanho;
+    }
+
+    /** Recusa linhas que não cabem em uma página (chamado antes de qualquer alteração na tabela). */
+    public void verificarTamanho(Linha linha) throws Exception {
+        int tamanho = calcularTamanho(linha, new byte[numColunas][]);
+        if (tamanho > TAMANHO_MAXIMO_REGISTRO) {
+            throw new Exception("A linha ocupa " + tamanho + " bytes e não cabe em uma página da tabela '"
+                    + nomeTabela + "' (máximo de " + TAMANHO_MAXIMO_REGISTRO + " bytes).");
+        }
+    }
+
+    /** Acrescenta a linha na posição numLinhas, criada pela escrita informada (a Linha não é guardada). */
+    public void adicionar(Linha linha, long criadaEm) {
+        byte[][] textos = new byte[numColunas][];
+        int tamanho = calcularTamanho(linha, textos);
+
+        int quadro = fixarPaginaComEspaco(tamanho);
+        byte[] dados = buffer.getDados(quadro);
+        try {
+            int numRegistros = lerInt(dados, 0);
+            int inicio = lerInt(dados, 4);
+
+            int i = inicio;
+            escreverLong(dados, i, criadaEm);
+            escreverLong(dados, i + 8, 0);
+            escreverShort(dados, i + 16, numColunas);
+            i += CABECALHO_REGISTRO;
+            int inicioNulos = i;
+            int bytesNulos = (numColunas + 7) / 8;
+            for (int b = 0; b < bytesNulos; b++) {
+                dados[inicioNulos + b] = 0;
+            }
+            i += bytesNulos;
+            for (int c = 0; c < numColunas; c++) {
+                Object valor = linha.getDadoPorIndice(c);
+                if (valor == null) {
+                    dados[inicioNulos + (c >>> 3)] |= (byte) (1 << (c & 7));
+                } else if (colunasTexto[c]) {
+                    escreverShort(dados, i, textos[c].length);
+                    for (int b = 0; b < textos[c].length; b++) {
+                        dados[i + 2 + b] = textos[c][b];
+                    }
+                    i += 2 + textos[c].length;
+                } else {
+                    escreverInt(dados, i, (Integer) valor);
+                    i += 4;
+                }
+            }
+
+            escreverInt(dados, TAMANHO_PAGINA - 4 * (numRegistros + 1), inicio);
+            escreverInt(dados, 0, numRegistros + 1);
+            escreverInt(dados, 4, i);
+            numLinhas++;
+        } finally {
+            buffer.desafixar(quadro, true);
+        }
+    }
+
+    /** Fixa a última página, ou uma nova se o registro (e o seu slot) não couber nela. */
+    private int fixarPaginaComEspaco(int tamanhoRegistro) {
+        if (numPaginas > 0) {
+            int quadro = buffer.fixar(arquivo, numPaginas - 1);
+            byte[] dados = buffer.getDados(quadro);
+            int livre = TAMANHO_PAGINA - 4 * lerInt(dados, 0) - lerInt(dados, 4);
+            if (tamanhoRegistro + 4 <= livre) {
+                return quadro;
+            }
+            buffer.desafixar(quadro, false);
+        }
+
+        // Nova página no fim do arquivo, começando na posição numLinhas.
+        if (numPaginas == primeiraPosicao.length) {
+            int[] novoPrimeiraPosicao = new int[primeiraPosicao.length * 2];
+            for (int i = 0; i < numPaginas; i++) {
+                novoPrimeiraPosicao[i] = primeiraPosicao[i];
+            }
+            primeiraPosicao = novoPrimeiraPosicao;
+        }
+        primeiraPosicao[numPaginas] = numLinhas;
+        int quadro = buffer.fixar(arquivo, numPaginas);
+        numPaginas++;
+        byte[] dados = buffer.getDados(quadro);
+        escreverInt(dados, 0, 0);
+        escreverInt(dados, 4, CABECALHO_PAGINA);
+        return quadro;
+    }
+
+    /** Grava o número da escrita que removeu a linha (0 = desfaz a remoção). */
+    public void definirRemovidaEm(int posicao, long removidaEm) {
+        int pagina = localizarPagina(posicao);
+        int quadro = buffer.fixar(arquivo, pagina);
+        try {
+            byte[] dados = buffer.getDados(quadro);
+            escreverLong(dados, inicioRegistro(dados, posicao - primeiraPosicao[pagina]) + 8, removidaEm);
+        } finally {
+            buffer.desafixar(quadro, true);
+        }
+    }
+
+    /**
+     * Descarta as linhas marcadas no bitmap 'remover', copiando as demais (na mesma ordem) para
+     * um novo arquivo, registro a registro, sem decodificá-los. O arquivo antigo é apagado.
+     */
+    public void compactar(long[] remover) {
+        GerenciadorBuffer.ArquivoDados arquivoAntigo = this.arquivo;
+        int[] primeiraPosicaoAntiga = this.primeiraPosicao;
+        int numPaginasAntigo = this.numPaginas;
+
+        this.arquivo = buffer.criarArquivo(nomeTabela);
+        this.primeiraPosicao = new int[Math.max(CAPACIDADE_INICIAL, numPaginasAntigo)];
+        this.numPaginas = 0;
+        this.numLinhas = 0;
+
+        for (int p = 0; p < numPaginasAntigo; p++) {
+            int quadroOrigem = buffer.fixar(arquivoAntigo, p);
+            try {
+                byte[] origem = buffer.getDados(quadroOrigem);
+                int numRegistros = lerInt(origem, 0);
+                for (int s = 0; s < numRegistros; s++) {
+                    int posicaoAntiga = primeiraPosicaoAntiga[p] + s;
+                    if (isMarcada(remover, posicaoAntiga)) continue;
+                    copiarRegistro(origem, inicioRegistro(origem, s));
+                }
+            } finally {
+                buffer.desafixar(quadroOrigem, false);
+            }
+        }
+        buffer.descartarArquivo(arquivoAntigo);
+        paginaDica = 0;
+    }
+
+    private void copiarRegistro(byte[] origem, int inicioOrigem) {
+        int tamanho = tamanhoRegistro(origem, inicioOrigem);
+        int quadro = fixarPaginaComEspaco(tamanho);
+        try {
+            byte[] dados = buffer.getDados(quadro);
+            int numRegistros = lerInt(dados, 0);
+            int inicio = lerInt(dados, 4);
+            for (int b = 0; b < tamanho; b++) {
+                dados[inicio + b] = origem[inicioOrigem + b];
+            }
+            escreverInt(dados, TAMANHO_PAGINA - 4 * (numRegistros + 1), inicio);
+            escreverInt(dados, 0, numRegistros + 1);
+            escreverInt(dados, 4, inicio + tamanho);
+            numLinhas++;
+        } finally {
+            buffer.desafixar(quadro, true);
+        }
+    }
+
+    private static boolean isMarcada(long[] bitmap, int posicao) {
+        return bitmap != null && (posicao >>> 6) < bitmap.length && (bitmap[posicao >>> 6] & (1L << posicao)) != 0;
+    }
+
+    /** Apaga o arquivo da tabela (DROP TABLE); o armazenamento não pode mais ser usado. */
+    public void liberar() {
+        buffer.descartarArquivo(arquivo);
+        numPaginas = 0;
+        numLinhas = 0;
+    }
+
+    // --- Localização ---
+
+    /** Página que contém a posição: busca binária no diretório (ou a dica, se ainda valer). */
+    private int localizarPagina(int posicao) {
+        int dica = paginaDica;
+        if (dica < numPaginas && primeiraPosicao[dica] <= posicao
+                && (dica + 1 == numPaginas || posicao < primeiraPosicao[dica + 1])) {
+            return dica;
+        }
+        int inicio = 0;
+        int fim = numPaginas - 1;
+        while (inicio < fim) {
+            int meio = (inicio + fim + 1) >>> 1;
+            if (primeiraPosicao[meio] <= posicao) {
+                inicio = meio;
+            } else {
+                fim = meio - 1;
+            }
+        }
+        paginaDica = inicio;
+        return inicio;
+    }
+
+    private static int inicioRegistro(byte[] dados, int slot) {
+        return lerInt(dados, TAMANHO_PAGINA - 4 * (slot + 1));
+    }
+
+    private int tamanhoRegistro(byte[] dados, int inicio) {
+        int colunasRegistro = lerShort(dados, inicio + 16);
+        return inicioValor(dados, inicio, colunasRegistro) - inicio;
+    }
+
+    /**
+     * Deslocamento do valor da coluna no registro (ou do fim do registro, para coluna = número
+     * de colunas do registro), pulando os valores não nulos das colunas anteriores.
+     */
+    private int inicioValor(byte[] dados, int inicio, int coluna) {
+        int colunasRegistro = lerShort(dados, inicio + 16);
+        int inicioNulos = inicio + CABECALHO_REGISTRO;
+        int i = inicioNulos + (colunasRegistro + 7) / 8;
+        for (int c = 0; c < coluna; c++) {
+            if ((dados[inicioNulos + (c >>> 3)] & (1 << (c & 7))) != 0) continue;
+            i += colunasTexto[c] ? 2 + lerShort(dados, i) : 4;
+        }
+        return i;
+    }
+
+    private static boolean isNuloNoRegistro(byte[] dados, int inicio, int coluna) {
+        int colunasRegistro = lerShort(dados, inicio + 16);
+        if (coluna >= colunasRegistro) {
+            return true;
+        }
+        return (dados[inicio + CABECALHO_REGISTRO + (coluna >>> 3)] & (1 << (coluna & 7))) != 0;
+    }
+
+    private Object lerValor(byte[] dados, int inicio, int coluna) {
+        if (isNuloNoRegistro(dados, inicio, coluna)) {
+            return null;
+        }
+        int i = inicioValor(dados, inicio, coluna);
+        if (colunasTexto[coluna]) {
+            return new String(dados, i + 2, lerShort(dados, i), StandardCharsets.UTF_8);
+        }
+        return lerInt(dados, i);
+    }
+
+    private static boolean isVisivelNoRegistro(byte[] dados, int inicio, long snapshot) {
+        long removida = lerLong(dados, inicio + 8);
+        return lerLong(dados, inicio) <= snapshot && (removida == 0 || removida > snapshot);
+    }
+
+    // --- Leitura (cada chamada fixa a página da linha no buffer) ---
+
+    public int getNumLinhas() { return numLinhas; }
+
+    public int getNumPaginas() { return numPaginas; }
+
+    public Object getValor(int posicao, int indiceColuna) {
+        int pagina = localizarPagina(posicao);
+        int quadro = buffer.fixar(arquivo, pagina);
+        try {
+            byte[] dados = buffer.getDados(quadro);
+            return lerValor(dados, inicioRegistro(dados, posicao - primeiraPosicao[pagina]), indiceColuna);
+        } finally {
+            buffer.desafixar(quadro, false);
+        }
+    }
+
+    public boolean isNulo(int posicao, int indiceColuna) {
+        int pagina = localizarPagina(posicao);
+        int quadro = buffer.fixar(arquivo, pagina);
+        try {
+            byte[] dados = buffer.getDados(quadro);
+            return isNuloNoRegistro(dados, inicioRegistro(dados, posicao - primeiraPosicao[pagina]), indiceColuna);
+        } finally {
+            buffer.desafixar(quadro, false);
+        }
+    }
+
+    /** Valor de uma coluna INT (não nulo) sem criar um Integer. */
+    public int getInt(int posicao, int indiceColuna) {
+        int pagina = localizarPagina(posicao);
+        int quadro = buffer.fixar(arquivo, pagina);
+        try {
+            byte[] dados = buffer.getDados(quadro);
+            return lerInt(dados, inicioValor(dados, inicioRegistro(dados, posicao - primeiraPosicao[pagina]), indiceColuna));
+        } finally {
+            buffer.desafixar(quadro, false);
+        }
+    }
+
+    /** Versão da linha visível no snapshot (ver Tabela.isVisivel), lida do cabeçalho do registro. */
+    public boolean isVisivel(int posicao, long snapshot) {
+        int pagina = localizarPagina(posicao);
+        int quadro = buffer.fixar(arquivo, pagina);
+        try {
+            byte[] dados = buffer.getDados(quadro);
+            return isVisivelNoRegistro(dados, inicioRegistro(dados, posicao - primeiraPosicao[pagina]), snapshot);
+        } finally {
+            buffer.desafixar(quadro, false);
+        }
+    }
+
+    /** Monta uma Linha com os valores da posição, com uma única fixação da página. */
+    public Linha materializarLinha(int posicao) {
+        int pagina = localizarPagina(posicao);
+        int quadro = buffer.fixar(arquivo, pagina);
+        try {
+            byte[] dados = buffer.getDados(quadro);
+            int inicio = inicioRegistro(dados, posicao - primeiraPosicao[pagina]);
+            Linha linha = new Linha(numColunas);
+            for (int c = 0; c < numColunas; c++) {
+                linha.setDadoPorIndice(c, lerValor(dados, inicio, c));
+            }
+            return linha;
+        } finally {
+            buffer.desafixar(quadro, false);
+        }
+    }
+
+    // --- Varreduras (uma fixação por página, e não por valor) ---
+
+    /**
+     * Adiciona à lista, em ordem crescente, as posições das linhas cujo valor na coluna é igual
+     * ao informado (incluindo linhas marcadas como removidas, como nos outros formatos).
+     */
+    public void buscarIguais(int indiceColuna, Object valor, ListaPosicoes saida) {
+        buscarIguais(indiceColuna, valor, 0, numLinhas, saida);
+    }
+
+    /** Como buscarIguais, apenas nas posições [inicio, fim) (ver ExecucaoParalela). */
+    public void buscarIguais(int indiceColuna, Object valor, int inicio, int fim, ListaPosicoes saida) {
+        if (inicio >= fim) {
+            return;
+        }
+        int p = localizarPagina(inicio);
+        int posicao = inicio;
+        while (posicao < fim) {
+            int quadro = buffer.fixar(arquivo, p);
+            try {
+                byte[] dados = buffer.getDados(quadro);
+                int numRegistros = lerInt(dados, 0);
+                for (int s = posicao - primeiraPosicao[p]; s < numRegistros && posicao < fim; s++, posicao++) {
+                    Object valorNaLinha = lerValor(dados, inicioRegistro(dados, s), indiceColuna);
+                    if (valorNaLinha != null && valorNaLinha.equals(valor)) {
+                        saida.adicionar(posicao);
+                    }
+                }
+            } finally {
+                buffer.desafixar(quadro, false);
+            }
+            p++;
+        }
+    }
+
+    /**
+     * Adiciona à lista, em ordem crescente, as posições no intervalo [inicio, fim) das linhas
+     * visíveis no snapshot que atendem à condição (já resolvida, referenciando apenas colunas
+     * desta tabela). Cada página do intervalo é fixada uma única vez.
+     */
+    public void filtrar(Condicao condicao, int inicio, int fim, long snapshot, ListaPosicoes saida) {
+        if (inicio >= fim) {
+            return;
+        }
+        int p = localizarPagina(inicio);
+        int posicao = inicio;
+        while (posicao < fim) {
+            int quadro = buffer.fixar(arquivo, p);
+            try {
+                byte[] dados = buffer.getDados(quadro);
+                int numRegistros = lerInt(dados, 0);
+                for (int s = posicao - primeiraPosicao[p]; s < numRegistros && posicao < fim; s++, posicao++) {
+                    int inicioReg = inicioRegistro(dados, s);
+                    if (isVisivelNoRegistro(dados, inicioReg, snapshot) && avaliar(condicao, dados, inicioReg)) {
+                        saida.adicionar(posicao);
+                    }
+                }
+            } finally {
+                buffer.desafixar(quadro, false);
+            }
+            p++;
+        }
+    }
+
+    /** Avalia a condição sobre o registro, lendo apenas as colunas usadas por ela. */
+    private boolean avaliar(Condicao condicao, byte[] dados, int inicio) {
+        switch (condicao.getTipo()) {
+            case E:
+                return avaliar(condicao.getEsquerda(), dados, inicio) && avaliar(condicao.getDireita(), dados, inicio);
+            case OU:
+                return avaliar(condicao.getEsquerda(), dados, inicio) || avaliar(condicao.getDireita(), dados, inicio);
+            default:
+                return condicao.compararValor(lerValor(dados, inicio, condicao.getIndiceColuna()));
+        }
+    }
+}
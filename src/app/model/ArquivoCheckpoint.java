@@ -0,0 +1,305 @@
+package app.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Checkpoint: cópia binária de todo o banco (catálogo e linhas) em um único arquivo. Na
+ * inicialização, ele é carregado diretamente, em vez de executar de novo todos os comandos
+ * do log de transações; do log, apenas as transações posteriores ao checkpoint são executadas.
+ *
+ * Formato do arquivo (inteiros em big-endian):
+ *   cabeçalho   := MAGICO (int) | VERSAO (int) | geração do log (long) | tamanho do corpo (long)
+ *                  | crc32 do corpo (int)
+ *   corpo       := quantidade de tabelas (int) | tabela*
+ *   tabela      := texto (nome) | armazenamento (byte) | quantidade de colunas (int) | coluna*
+ *                  | quantidade de linhas (int) | dadosColuna*
+ *   coluna      := texto (nome) | tipo (byte: 0 = INT, 1 = STRING) | PK (byte)
+ *                  | texto (tabela da FK) | texto (coluna da FK) | texto (índice ordenado)
+ *                  (textos vazios: sem FK / sem índice)
+ *   dadosColuna := tamanho em bytes do restante (long) | bitmap de nulos (um long a cada 64 linhas)
+ *                  | valores não nulos (INT: int; STRING: texto)
+ *   texto       := tamanho em bytes (int) | UTF-8
+ *
+ * Os dados ficam no formato colunar: os valores de uma coluna são gravados em sequência,
+ * sem os objetos Linha. Com o tamanho de cada coluna, a leitura posiciona um "cursor" no
+ * início de cada uma e monta as linhas em blocos, sem decodificar a tabela inteira de uma vez.
+ *
+ * A leitura mapeia o arquivo na memória (FileChannel.map): o sistema operacional traz as
+ * páginas do arquivo conforme elas são lidas, sem cópias para buffers intermediários.
+ * O crc32 do corpo é conferido antes de qualquer tabela ser criada, então um arquivo
+ * corrompido é recusado por inteiro.
+ *
+ * A geração do log (ver LogTransacoes) indica quais transações o checkpoint já contém:
+ * todas as do log daquela geração. Depois de gravar o checkpoint, o log é reiniciado com a
+ * geração seguinte.
+ */
+public class ArquivoCheckpoint {
+
+    // "SGBC": identifica o arquivo como um checkpoint do simulador.
+    private static final int MAGICO = 0x53474243;
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 4 + 4 + 8 + 8 + 4;
+
+    private static final byte TIPO_INT = 0;
+    private static final byte TIPO_STRING = 1;
+
+    // Quantidade de linhas montadas por vez na carga.
+    private static final int LINHAS_POR_BLOCO = 4096;
+
+    private ArquivoCheckpoint() {
+    }
+
+    // --- Gravação ---
+
+    /**
+     * Grava as tabelas no arquivo. A gravação é feita em um arquivo temporário, sincronizada com
+     * o disco e só então renomeada para o nome final: um checkpoint interrompido não substitui
+     * o anterior. Deve ser chamado com as tabelas travadas para leitura.
+     * @param geracaoLog A geração do log cujas transações estão todas nas tabelas.
+     * @return A quantidade de linhas gravadas.
+     */
+    static long gravar(String caminho, Tabela[] tabelas, long geracaoLog) throws IOException {
+        Path destino = Paths.get(caminho);
+        Path temporario = Paths.get(caminho + ".tmp");
+        long totalLinhas = 0;
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            canal.position(TAMANHO_CABECALHO);
+            CRC32 crc = new CRC32();
+            DataOutputStream saida = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16), crc));
+
+            saida.writeInt(tabelas.length);
+            for (int t = 0; t < tabelas.length; t++) {
+                totalLinhas += gravarTabela(saida, tabelas[t]);
+            }
+            saida.flush();
+            long tamanhoCorpo = canal.position() - TAMANHO_CABECALHO;
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            cabecalho.putInt(MAGICO).putInt(VERSAO).putLong(geracaoLog).putLong(tamanhoCorpo).putInt((int) crc.getValue());
+            cabecalho.flip();
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho, cabecalho.position());
+            }
+            canal.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return totalLinhas;
+    }
+
+    private static int gravarTabela(DataOutputStream saida, Tabela tabela) throws IOException {
+        int numColunas = tabela.getNumColunas();
+        gravarTexto(saida, tabela.getNome());
+        saida.writeByte(tabela.getTipoArmazenamento().ordinal());
+        saida.writeInt(numColunas);
+        for (int i = 0; i < numColunas; i++) {
+            Coluna coluna = tabela.getColunaPorIndice(i);
+            gravarTexto(saida, coluna.getNome());
+            saida.writeByte(coluna.getTipoDado().equals("INT") ? TIPO_INT : TIPO_STRING);
+            saida.writeByte(coluna.isPrimaryKey() ? 1 : 0);
+            ForeignKeyConstraint constraint = coluna.getFkConstraint();
+            gravarTexto(saida, constraint == null ? "" : constraint.getTabelaReferenciada());
+            gravarTexto(saida, constraint == null ? "" : constraint.getColunaReferenciada());
+            ArvoreBMais indice = tabela.getIndiceOrdenado(i);
+            gravarTexto(saida, indice == null ? "" : indice.getNome());
+        }
+
+        int numLinhas = tabela.getNumLinhas();
+        int numPosicoes = tabela.getNumPosicoes();
+        saida.writeInt(numLinhas);
+        for (int i = 0; i < numColunas; i++) {
+            boolean inteira = tabela.getColunaPorIndice(i).getTipoDado().equals("INT");
+
+            // 1ª passada: bitmap de nulos e tamanho dos valores (para o cursor da leitura).
+            long[] nulos = new long[(numLinhas + 63) >>> 6];
+            long tamanhoValores = 0;
+            int linha = 0;
+            for (int posicao = 0; posicao < numPosicoes; posicao++) {
+                if (tabela.isRemovida(posicao)) continue;
+                if (tabela.isNulo(posicao, i)) {
+                    nulos[linha >>> 6] |= 1L << linha;
+                } else {
+                    tamanhoValores += inteira ? 4 : 4 + tamanhoUtf8((String) tabela.getValor(posicao, i));
+                }
+                linha++;
+            }
+            saida.writeLong(8L * nulos.length + tamanhoValores);
+            for (int w = 0; w < nulos.length; w++) {
+                saida.writeLong(nulos[w]);
+            }
+
+            // 2ª passada: os valores não nulos.
+            for (int posicao = 0; posicao < numPosicoes; posicao++) {
+                if (tabela.isRemovida(posicao) || tabela.isNulo(posicao, i)) continue;
+                if (inteira) {
+                    saida.writeInt(tabela.getInt(posicao, i));
+                } else {
+                    gravarTexto(saida, (String) tabela.getValor(posicao, i));
+                }
+            }
+        }
+        return numLinhas;
+    }
+
+    private static void gravarTexto(DataOutputStream saida, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        saida.writeInt(bytes.length);
+        saida.write(bytes);
+    }
+
+    /** Tamanho do texto em UTF-8, sem codificá-lo. */
+    private static int tamanhoUtf8(String texto) {
+        int tamanho = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                tamanho += 1;
+            } else if (c < 0x800) {
+                tamanho += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < texto.length() && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                tamanho += 4;
+                i++;
+            } else {
+                tamanho += 3;
+            }
+        }
+        return tamanho;
+    }
+
+    // --- Leitura ---
+
+    /**
+     * Carrega o checkpoint no banco (que deve estar vazio): cria as tabelas e os índices e
+     * insere as linhas. Deve ser chamado na inicialização, antes de o log ser aberto.
+     * @return A geração do log contida no checkpoint.
+     */
+    static long carregar(String caminho, BancoSimulado banco) throws Exception {
+        MappedByteBuffer arquivo;
+        try (FileChannel canal = FileChannel.open(Paths.get(caminho), StandardOpenOption.READ)) {
+            long tamanhoArquivo = canal.size();
+            if (tamanhoArquivo > Integer.MAX_VALUE) {
+                throw new Exception("O checkpoint tem mais de 2 GB e não pode ser mapeado de uma vez.");
+            }
+            // O mapeamento continua válido depois que o canal é fechado.
+            arquivo = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanhoArquivo);
+        }
+
+        if (arquivo.remaining() < TAMANHO_CABECALHO || arquivo.getInt() != MAGICO) {
+            throw new Exception("O arquivo '" + caminho + "' não é um checkpoint do simulador.");
+        }
+        int versao = arquivo.getInt();
+        if (versao != VERSAO) {
+            throw new Exception("Versão do checkpoint não suportada: " + versao + ".");
+        }
+        long geracaoLog = arquivo.getLong();
+        long tamanhoCorpo = arquivo.getLong();
+        int checksum = arquivo.getInt();
+        if (tamanhoCorpo != arquivo.remaining()) {
+            throw new Exception("Checkpoint corrompido: o tamanho do arquivo não confere.");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(arquivo.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new Exception("Checkpoint corrompido: o checksum não confere.");
+        }
+
+        int numTabelas = arquivo.getInt();
+        for (int t = 0; t < numTabelas; t++) {
+            carregarTabela(arquivo, banco);
+        }
+        return geracaoLog;
+    }
+
+    private static void carregarTabela(ByteBuffer arquivo, BancoSimulado banco) throws Exception {
+        String nome = lerTexto(arquivo);
+        Tabela.TipoArmazenamento[] tipos = Tabela.TipoArmazenamento.values();
+        int armazenamento = arquivo.get();
+        if (armazenamento < 0 || armazenamento >= tipos.length) {
+            throw new Exception("Checkpoint corrompido: armazenamento inválido na tabela '" + nome + "'.");
+        }
+        Tabela tabela = new Tabela(nome, tipos[armazenamento]);
+
+        int numColunas = arquivo.getInt();
+        boolean[] inteiras = new boolean[numColunas];
+        String[] nomesIndices = new String[numColunas];
+        for (int i = 0; i < numColunas; i++) {
+            String nomeColuna = lerTexto(arquivo);
+            inteiras[i] = arquivo.get() == TIPO_INT;
+            Coluna coluna = new Coluna(nomeColuna, inteiras[i] ? "INT" : "STRING");
+            if (arquivo.get() == 1) {
+                coluna.setAsPrimaryKey();
+            }
+            String tabelaReferenciada = lerTexto(arquivo);
+            String colunaReferenciada = lerTexto(arquivo);
+            if (!tabelaReferenciada.isEmpty()) {
+                coluna.setAsForeignKey(tabelaReferenciada, colunaReferenciada);
+            }
+            nomesIndices[i] = lerTexto(arquivo);
+            tabela.adicionarColuna(coluna);
+        }
+        banco.criarTabela(tabela);
+
+        // Um cursor por coluna, posicionado nos seus valores; o bitmap de nulos é lido direto do arquivo.
+        int numLinhas = arquivo.getInt();
+        int palavrasNulos = (numLinhas + 63) >>> 6;
+        int[] inicioNulos = new int[numColunas];
+        int[] cursores = new int[numColunas];
+        for (int i = 0; i < numColunas; i++) {
+            long tamanho = arquivo.getLong();
+            inicioNulos[i] = arquivo.position();
+            cursores[i] = inicioNulos[i] + 8 * palavrasNulos;
+            arquivo.position((int) (inicioNulos[i] + tamanho));
+        }
+        int fimTabela = arquivo.position();
+
+        Linha[] bloco = new Linha[Math.min(numLinhas, LINHAS_POR_BLOCO)];
+        for (int inicio = 0; inicio < numLinhas; inicio += bloco.length) {
+            int quantidade = Math.min(bloco.length, numLinhas - inicio);
+            for (int j = 0; j < quantidade; j++) {
+                bloco[j] = new Linha(numColunas);
+            }
+            for (int i = 0; i < numColunas; i++) {
+                arquivo.position(cursores[i]);
+                for (int j = 0; j < quantidade; j++) {
+                    int linha = inicio + j;
+                    long palavra = arquivo.getLong(inicioNulos[i] + 8 * (linha >>> 6));
+                    if ((palavra & (1L << linha)) != 0) continue;
+                    bloco[j].setDadoPorIndice(i, inteiras[i] ? (Object) arquivo.getInt() : lerTexto(arquivo));
+                }
+                cursores[i] = arquivo.position();
+            }
+            tabela.carregarLinhas(bloco, quantidade);
+        }
+        arquivo.position(fimTabela);
+
+        for (int i = 0; i < numColunas; i++) {
+            if (!nomesIndices[i].isEmpty()) {
+                banco.criarIndice(nomesIndices[i], nome, tabela.getColunaPorIndice(i).getNome());
+            }
+        }
+    }
+
+    private static String lerTexto(ByteBuffer arquivo) {
+        byte[] bytes = new byte[arquivo.getInt()];
+        arquivo.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
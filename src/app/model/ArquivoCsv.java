@@ -0,0 +1,445 @@
+package app.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Leitura e gravação de arquivos CSV para o comando COPY:
+ *   COPY tabela FROM 'arquivo.csv'   (importação, ver Leitor)
+ *   COPY tabela TO 'arquivo.csv'     (exportação, ver exportar)
+ *
+ * Formato (RFC 4180, em UTF-8):
+ * - A primeira linha é o cabeçalho, com os nomes das colunas. Na importação, ele indica a
+ *   coluna da tabela de cada campo (em qualquer ordem; as colunas ausentes ficam nulas).
+ * - Campos separados por ',' e registros por '\n' (ou "\r\n").
+ * - Um campo vazio é NULL; um texto vazio é gravado entre aspas (""). Textos com vírgula,
+ *   aspas ou quebra de linha também vão entre aspas, com a aspa escrita duas vezes ("").
+ *
+ * O arquivo nunca fica inteiro na memória: os bytes passam por um único buffer (array clássico)
+ * reaproveitado, lido e gravado por um FileChannel. Os campos INT são convertidos direto dos
+ * bytes (e gravados direto como bytes), sem passar por String.
+ */
+public class ArquivoCsv {
+
+    // Tamanho do buffer de leitura/gravação (o de leitura cresce se um registro não couber nele).
+    private static final int TAMANHO_BUFFER = 1 << 20;
+
+    private ArquivoCsv() {
+    }
+
+    // --- Exportação (COPY ... TO) ---
+
+    /**
+     * Grava as linhas do cursor no arquivo, com o cabeçalho. O cursor é consumido até o fim.
+     * @return A quantidade de linhas gravadas.
+     */
+    static long exportar(Cursor cursor, String caminho) throws IOException {
+        try (FileChannel canal = FileChannel.open(Paths.get(caminho), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Escritor escritor = new Escritor(canal);
+            int numColunas = cursor.getNumColunas();
+            boolean[] inteiras = new boolean[numColunas];
+            for (int i = 0; i < numColunas; i++) {
+                Coluna coluna = cursor.getColuna(i);
+                inteiras[i] = coluna.getTipoDado().equals("INT");
+                if (i > 0) escritor.byteSimples(',');
+                escritor.texto(coluna.getNome());
+            }
+            escritor.byteSimples('\n');
+
+            long numLinhas = 0;
+            while (cursor.proximo()) {
+                for (int i = 0; i < numColunas; i++) {
+                    if (i > 0) escritor.byteSimples(',');
+                    if (inteiras[i]) {
+                        if (!cursor.isNulo(i)) {
+                            escritor.inteiro(cursor.getInt(i));
+                        }
+                    } else {
+                        String valor = (String) cursor.getValor(i);
+                        if (valor != null) {
+                            escritor.texto(valor);
+                        }
+                    }
+                }
+                escritor.byteSimples('\n');
+                numLinhas++;
+            }
+            escritor.descarregar();
+            return numLinhas;
+        } finally {
+            cursor.fechar();
+        }
+    }
+
+    /** Buffer de gravação: os valores são codificados direto no array e gravados quando ele enche. */
+    private static class Escritor {
+        private final FileChannel canal;
+        private final byte[] dados = new byte[TAMANHO_BUFFER];
+        private final ByteBuffer buffer = ByteBuffer.wrap(dados);
+        private int tamanho;
+
+        Escritor(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        void byteSimples(char c) throws IOException {
+            if (tamanho == dados.length) descarregar();
+            dados[tamanho++] = (byte) c;
+        }
+
+        /** Escreve os dígitos do inteiro (de trás para frente, como em Integer.toString). */
+        void inteiro(int valor) throws IOException {
+            if (dados.length - tamanho < 11) descarregar();
+            if (valor == Integer.MIN_VALUE) {
+                for (int i = 0; i < MENOR_INT.length; i++) {
+                    dados[tamanho++] = MENOR_INT[i];
+                }
+                return;
+            }
+            if (valor < 0) {
+                dados[tamanho++] = '-';
+                valor = -valor;
+            }
+            int fim = tamanho + digitos(valor);
+            int p = fim;
+            do {
+                int quociente = valor / 10;
+                dados[--p] = (byte) ('0' + (valor - quociente * 10));
+                valor = quociente;
+            } while (valor != 0);
+            tamanho = fim;
+        }
+
+        private static final byte[] MENOR_INT = String.valueOf(Integer.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+        /** Quantidade de dígitos de um inteiro não negativo. */
+        private static int digitos(int v) {
+            int limite = 10;
+            for (int n = 1; n < 10; n++) {
+                if (v < limite) return n;
+                limite *= 10;
+            }
+            return 10;
+        }
+
+        /**
+         * Escreve o texto, entre aspas se necessário. Caracteres ASCII são copiados direto para
+         * o buffer; um texto com outros caracteres é codificado em UTF-8 de uma vez.
+         */
+        void texto(String texto) throws IOException {
+            boolean aspas = texto.isEmpty();
+            boolean ascii = true;
+            for (int i = 0; i < texto.length(); i++) {
+                char c = texto.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') aspas = true;
+                if (c >= 0x80) ascii = false;
+            }
+            if (aspas) byteSimples('"');
+            if (ascii && !aspas && texto.length() <= dados.length) {
+                // Caso comum: cópia direta dos caracteres, com uma única verificação de espaço.
+                if (dados.length - tamanho < texto.length()) descarregar();
+                for (int i = 0; i < texto.length(); i++) {
+                    dados[tamanho + i] = (byte) texto.charAt(i);
+                }
+                tamanho += texto.length();
+            } else if (ascii) {
+                for (int i = 0; i < texto.length(); i++) {
+                    char c = texto.charAt(i);
+                    if (c == '"') byteSimples('"');
+                    byteSimples(c);
+                }
+            } else {
+                byte[] bytes = (aspas ? texto.replace("\"", "\"\"") : texto).getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > dados.length - tamanho) descarregar();
+                if (bytes.length > dados.length) {
+                    escreverTudo(ByteBuffer.wrap(bytes));
+                } else {
+                    System.arraycopy(bytes, 0, dados, tamanho, bytes.length);
+                    tamanho += bytes.length;
+                }
+            }
+            if (aspas) byteSimples('"');
+        }
+
+        void descarregar() throws IOException {
+            buffer.clear().limit(tamanho);
+            escreverTudo(buffer);
+            tamanho = 0;
+        }
+
+        private void escreverTudo(ByteBuffer origem) throws IOException {
+            while (origem.hasRemaining()) {
+                canal.write(origem);
+            }
+        }
+    }
+
+    // --- Importação (COPY ... FROM) ---
+
+    /**
+     * Leitor de um arquivo CSV para uma tabela: entrega as linhas em blocos (lerBloco), para que
+     * o COPY as insira em lotes sem guardar o arquivo inteiro.
+     *
+     * Cada registro é analisado sobre o buffer: os campos são guardados como intervalos de bytes
+     * (arrays paralelos de início e fim) e só então convertidos. Se o registro termina depois do
+     * fim do buffer, os bytes ainda não usados são movidos para o início, o buffer é completado
+     * com a próxima leitura do arquivo e o registro é analisado de novo.
+     */
+    static class Leitor implements AutoCloseable {
+        private final FileChannel canal;
+        private final Tabela tabela;
+        private byte[] dados = new byte[TAMANHO_BUFFER];
+        private int inicio;          // Início do próximo registro no buffer
+        private int fim;             // Fim dos bytes lidos do arquivo
+        private boolean fimArquivo;
+        private long numLinhaArquivo = 1; // Linha do arquivo onde começa o próximo registro
+        private long linhaRegistro;       // Linha do arquivo onde começa o último registro
+
+        // Campos do último registro analisado (arrays paralelos).
+        private int[] inicioCampo = new int[16];
+        private int[] fimCampo = new int[16];
+        private boolean[] campoComAspas = new boolean[16];
+        private int numCampos;
+
+        // Cabeçalho: a coluna da tabela de cada campo do arquivo e se ela é INT.
+        private final int[] colunaDoCampo;
+        private final boolean[] campoInteiro;
+
+        /** Abre o arquivo e lê o cabeçalho. */
+        Leitor(String caminho, Tabela tabela) throws Exception {
+            try {
+                this.canal = FileChannel.open(Paths.get(caminho), StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                throw new Exception("Arquivo '" + caminho + "' não encontrado.");
+            }
+            this.tabela = tabela;
+            try {
+                if (!proximoRegistro()) {
+                    throw new Exception("O arquivo '" + caminho + "' está vazio: falta o cabeçalho com os nomes das colunas.");
+                }
+                colunaDoCampo = new int[numCampos];
+                campoInteiro = new boolean[numCampos];
+                for (int k = 0; k < numCampos; k++) {
+                    String nomeColuna = lerTexto(k).trim();
+                    int indice = tabela.getIndiceColunaPeloNome(nomeColuna);
+                    if (indice == -1) {
+                        throw new Exception("Coluna '" + nomeColuna + "' do cabeçalho do CSV não encontrada na tabela '" + tabela.getNome() + "'.");
+                    }
+                    for (int j = 0; j < k; j++) {
+                        if (colunaDoCampo[j] == indice) {
+                            throw new Exception("Coluna '" + nomeColuna + "' repetida no cabeçalho do CSV.");
+                        }
+                    }
+                    colunaDoCampo[k] = indice;
+                    campoInteiro[k] = tabela.getColunaPorIndice(indice).getTipoDado().equals("INT");
+                }
+            } catch (Exception e) {
+                canal.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Preenche o bloco com as próximas linhas do arquivo (Linhas novas a cada chamada).
+         * @return A quantidade de linhas lidas; 0 no fim do arquivo.
+         */
+        int lerBloco(Linha[] bloco) throws Exception {
+            int quantidade = 0;
+            int numColunas = tabela.getNumColunas();
+            while (quantidade < bloco.length && proximoRegistro()) {
+                if (numCampos != colunaDoCampo.length) {
+                    throw erro("esperados " + colunaDoCampo.length + " campos, encontrados " + numCampos);
+                }
+                Linha linha = new Linha(numColunas);
+                for (int k = 0; k < numCampos; k++) {
+                    // Campo vazio sem aspas: NULL.
+                    if (inicioCampo[k] == fimCampo[k] && !campoComAspas[k]) continue;
+                    if (campoInteiro[k]) {
+                        linha.setDadoPorIndice(colunaDoCampo[k], lerInteiro(k));
+                    } else {
+                        linha.setDadoPorIndice(colunaDoCampo[k], lerTexto(k));
+                    }
+                }
+                bloco[quantidade++] = linha;
+            }
+            return quantidade;
+        }
+
+        private Exception erro(String mensagem) {
+            return new Exception("Erro no CSV, linha " + linhaRegistro + ": " + mensagem + ".");
+        }
+
+        /** Converte o campo em int direto dos bytes (espaços nas pontas, sinal opcional e dígitos). */
+        private Integer lerInteiro(int k) throws Exception {
+            int p = inicioCampo[k];
+            int limite = fimCampo[k];
+            while (p < limite && dados[p] == ' ') p++;
+            while (limite > p && dados[limite - 1] == ' ') limite--;
+            boolean negativo = false;
+            if (p < limite && (dados[p] == '-' || dados[p] == '+')) {
+                negativo = dados[p] == '-';
+                p++;
+            }
+            if (p == limite) {
+                throw erro("valor inválido para a coluna INT '" + tabela.getColunaPorIndice(colunaDoCampo[k]).getNome() + "'");
+            }
+            long valor = 0;
+            for (; p < limite; p++) {
+                int digito = dados[p] - '0';
+                if (digito < 0 || digito > 9 || (valor = valor * 10 + digito) > 1L + Integer.MAX_VALUE) {
+                    throw erro("valor inválido para a coluna INT '" + tabela.getColunaPorIndice(colunaDoCampo[k]).getNome()
+                            + "': " + new String(dados, inicioCampo[k], limite - inicioCampo[k], StandardCharsets.UTF_8));
+                }
+            }
+            if (negativo) valor = -valor;
+            if (valor > Integer.MAX_VALUE) {
+                throw erro("valor fora do intervalo de INT na coluna '" + tabela.getColunaPorIndice(colunaDoCampo[k]).getNome() + "'");
+            }
+            return (int) valor;
+        }
+
+        /** Decodifica o campo (UTF-8), trocando "" por " nos campos entre aspas. */
+        private String lerTexto(int k) {
+            String texto = new String(dados, inicioCampo[k], fimCampo[k] - inicioCampo[k], StandardCharsets.UTF_8);
+            return campoComAspas[k] && texto.indexOf('"') != -1 ? texto.replace("\"\"", "\"") : texto;
+        }
+
+        /**
+         * Analisa o próximo registro, preenchendo os intervalos dos campos.
+         * @return false no fim do arquivo.
+         */
+        private boolean proximoRegistro() throws Exception {
+            linhaRegistro = numLinhaArquivo;
+            while (true) {
+                int linhasNoRegistro = analisarRegistro();
+                if (linhasNoRegistro >= 0) {
+                    if (numCampos == -1) return false; // Fim do arquivo
+                    numLinhaArquivo += linhasNoRegistro;
+                    return true;
+                }
+                completarBuffer();
+            }
+        }
+
+        /**
+         * Tenta analisar um registro a partir de 'inicio'.
+         * @return As quebras de linha consumidas a mais que a do fim do registro (dentro de aspas),
+         *         ou -1 se o registro não terminou dentro dos bytes disponíveis.
+         */
+        private int analisarRegistro() throws Exception {
+            int p = inicio;
+            if (p == fim && fimArquivo) {
+                numCampos = -1;
+                return 0;
+            }
+            numCampos = 0;
+            int quebrasInternas = 0;
+            while (true) {
+                if (numCampos == inicioCampo.length) crescerCampos();
+                int campo = numCampos++;
+                if (p < fim && dados[p] == '"') {
+                    // Campo entre aspas: vai até a aspa que não está duplicada.
+                    campoComAspas[campo] = true;
+                    inicioCampo[campo] = ++p;
+                    while (true) {
+                        if (p >= fim) {
+                            if (fimArquivo) throw erro("aspas sem fechamento");
+                            return -1;
+                        }
+                        if (dados[p] == '"') {
+                            if (p + 1 >= fim && !fimArquivo) return -1;
+                            if (p + 1 < fim && dados[p + 1] == '"') {
+                                p += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        if (dados[p] == '\n') quebrasInternas++;
+                        p++;
+                    }
+                    fimCampo[campo] = p++;
+                } else {
+                    campoComAspas[campo] = false;
+                    inicioCampo[campo] = p;
+                    while (p < fim && dados[p] != ',' && dados[p] != '\n') {
+                        p++;
+                    }
+                    if (p == fim && !fimArquivo) return -1;
+                    // "\r\n": o '\r' não faz parte do último campo.
+                    boolean fimDeLinha = p == fim || dados[p] == '\n';
+                    fimCampo[campo] = fimDeLinha && p > inicioCampo[campo] && dados[p - 1] == '\r' ? p - 1 : p;
+                }
+
+                if (p == fim) {
+                    // Último registro, sem quebra de linha no final.
+                    inicio = p;
+                    return quebrasInternas;
+                }
+                if (dados[p] == ',') {
+                    p++;
+                    continue;
+                }
+                if (dados[p] == '\r') {
+                    if (p + 1 == fim) {
+                        if (!fimArquivo) return -1;
+                        inicio = fim; // "\r" final, depois de um campo entre aspas
+                        return quebrasInternas;
+                    }
+                    if (dados[p + 1] == '\n') p++;
+                }
+                if (dados[p] != '\n') {
+                    throw erro("esperado ',' ou fim de linha depois de um campo entre aspas");
+                }
+                inicio = p + 1;
+                return quebrasInternas + 1;
+            }
+        }
+
+        /** Move os bytes não usados para o início do buffer (crescendo-o, se cheio) e lê mais do arquivo. */
+        private void completarBuffer() throws IOException {
+            int pendentes = fim - inicio;
+            if (pendentes == dados.length) {
+                byte[] novoDados = new byte[dados.length * 2];
+                System.arraycopy(dados, 0, novoDados, 0, pendentes);
+                dados = novoDados;
+            } else if (inicio > 0) {
+                System.arraycopy(dados, inicio, dados, 0, pendentes);
+            }
+            inicio = 0;
+            fim = pendentes;
+            ByteBuffer destino = ByteBuffer.wrap(dados, fim, dados.length - fim);
+            int lidos = canal.read(destino);
+            if (lidos == -1) {
+                fimArquivo = true;
+            } else {
+                fim += lidos;
+            }
+        }
+
+        private void crescerCampos() {
+            int novaCapacidade = inicioCampo.length * 2;
+            int[] novoInicio = new int[novaCapacidade];
+            int[] novoFim = new int[novaCapacidade];
+            boolean[] novoAspas = new boolean[novaCapacidade];
+            for (int i = 0; i < numCampos; i++) {
+                novoInicio[i] = inicioCampo[i];
+                novoFim[i] = fimCampo[i];
+                novoAspas[i] = campoComAspas[i];
+            }
+            inicioCampo = novoInicio;
+            fimCampo = novoFim;
+            campoComAspas = novoAspas;
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package app.model;
+
+/**
+ * Índice ordenado (secundário) sobre uma coluna, implementado como uma árvore B+.
+ *
+ * - Nós internos guardam apenas chaves separadoras e ponteiros para os filhos.
+ * - Folhas guardam as chaves (valores da coluna) em ordem e, para cada chave,
+ *   as posições das linhas que a contêm. As folhas são encadeadas da esquerda
+ *   para a direita, o que permite buscas por intervalo (<, >, BETWEEN).
+ *
+ * Todos os nós usam arrays clássicos com capacidade fixa (ORDEM).
+ */
+public class ArvoreBMais {
+    // Número máximo de chaves por nó antes de ocorrer a divisão (split).
+    private static final int ORDEM = 32;
+
+    private abstract static class No {
+        // Um slot extra permite inserir antes de dividir o nó.
+        final Object[] chaves = new Object[ORDEM + 1];
+        int numChaves = 0;
+    }
+
+    private static class Folha extends No {
+        // Para cada chave, um array clássico com as posições das linhas.
+        final int[][] posicoes = new int[ORDEM + 1][];
+        final int[] numPosicoes = new int[ORDEM + 1];
+        Folha proxima; // Folha vizinha à direita
+    }
+
+    private static class Interno extends No {
+        // O filho 'i' contém as chaves menores que chaves[i];
+        // o filho 'i + 1' contém as chaves maiores ou iguais a chaves[i].
+        final No[] filhos = new No[ORDEM + 2];
+    }
+
+    private final String nome;
+    private No raiz;
+    private int numChaves;
+
+    // Resultado de um split durante a inserção: o novo nó à direita e a chave que sobe ao pai.
+    private No novoIrmao;
+    private Object chaveSeparadora;
+
+    public ArvoreBMais(String nome) {
+        this.nome = nome.toLowerCase();
+        this.raiz = new Folha();
+        this.numChaves = 0;
+    }
+
+    public String getNome() { return nome; }
+
+    /** Número de chaves distintas indexadas. */
+    public int getNumChaves() { return numChaves; }
+
+    @SuppressWarnings("unchecked")
+    private static int comparar(Object a, Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    /** Busca binária: primeiro índice em 'chaves' cuja chave é >= 'chave'. */
+    private static int limiteInferior(No no, Object chave) {
+        int inicio = 0;
+        int fim = no.numChaves;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (comparar(no.chaves[meio], chave) < 0) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    /** Busca binária: primeiro índice em 'chaves' cuja chave é > 'chave' (qual filho seguir). */
+    private static int limiteSuperior(No no, Object chave) {
+        int inicio = 0;
+        int fim = no.numChaves;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (comparar(no.chaves[meio], chave) <= 0) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    /** Desce da raiz até a folha onde 'chave' está (ou estaria). */
+    private Folha encontrarFolha(Object chave) {
+        No no = raiz;
+        while (no instanceof Interno) {
+            no = ((Interno) no).filhos[limiteSuperior(no, chave)];
+        }
+        return (Folha) no;
+    }
+
+    private Folha folhaMaisAEsquerda() {
+        No no = raiz;
+        while (no instanceof Interno) {
+            no = ((Interno) no).filhos[0];
+        }
+        return (Folha) no;
+    }
+
+    // --- Inserção ---
+
+    /**
+     * Registra que a linha na posição informada contém o valor 'chave'.
+     * Valores nulos não são indexados.
+     */
+    public void inserir(Object chave, int posicao) {
+        if (chave == null) return;
+
+        novoIrmao = null;
+        inserir(raiz, chave, posicao);
+
+        if (novoIrmao != null) {
+            // A raiz foi dividida: a árvore cresce um nível.
+            Interno novaRaiz = new Interno();
+            novaRaiz.chaves[0] = chaveSeparadora;
+            novaRaiz.filhos[0] = raiz;
+            novaRaiz.filhos[1] = novoIrmao;
+            novaRaiz.numChaves = 1;
+            raiz = novaRaiz;
+            novoIrmao = null;
+        }
+    }
+
+    private void inserir(No no, Object chave, int posicao) {
+        if (no instanceof Folha) {
+            inserirNaFolha((Folha) no, chave, posicao);
+            return;
+        }
+
+        Interno interno = (Interno) no;
+        int indiceFilho = limiteSuperior(interno, chave);
+        inserir(interno.filhos[indiceFilho], chave, posicao);
+
+        if (novoIrmao == null) return;
+
+        // O filho foi dividido: insere a chave separadora e o novo filho neste nó.
+        for (int i = interno.numChaves; i > indiceFilho; i--) {
+            interno.chaves[i] = interno.chaves[i - 1];
+            interno.filhos[i + 1] = interno.filhos[i];
+        }
+        interno.chaves[indiceFilho] = chaveSeparadora;
+        interno.filhos[indiceFilho + 1] = novoIrmao;
+        interno.numChaves++;
+        novoIrmao = null;
+
+        if (interno.numChaves > ORDEM) {
+            dividirInterno(interno);
+        }
+    }
+
+    private void inserirNaFolha(Folha folha, Object chave, int posicao) {
+        int i = limiteInferior(folha, chave);
+
+        if (i < folha.numChaves && comparar(folha.chaves[i], chave) == 0) {
+            // Chave já existe: apenas acrescenta a posição.
+            adicionarPosicao(folha, i, posicao);
+            return;
+        }
+
+        // Abre espaço deslocando as chaves maiores para a direita.
+        for (int j = folha.numChaves; j > i; j--) {
+            folha.chaves[j] = folha.chaves[j - 1];
+            folha.posicoes[j] = folha.posicoes[j - 1];
+            folha.numPosicoes[j] = folha.numPosicoes[j - 1];
+        }
+        folha.chaves[i] = chave;
+        folha.posicoes[i] = new int[1];
+        folha.numPosicoes[i] = 0;
+        folha.numChaves++;
+        numChaves++;
+        adicionarPosicao(folha, i, posicao);
+
+        if (folha.numChaves > ORDEM) {
+            dividirFolha(folha);
+        }
+    }
+
+    private static void adicionarPosicao(Folha folha, int i, int posicao) {
+        int[] atual = folha.posicoes[i];
+        if (folha.numPosicoes[i] == atual.length) {
+            int[] novo = new int[atual.length * 2];
+            for (int k = 0; k < atual.length; k++) {
+                novo[k] = atual[k];
+            }
+            folha.posicoes[i] = novo;
+        }
+        folha.posicoes[i][folha.numPosicoes[i]] = posicao;
+        folha.numPosicoes[i]++;
+    }
+
+    /** Divide uma folha cheia ao meio; a primeira chave da nova folha sobe para o pai. */
+    private void dividirFolha(Folha folha) {
+        Folha nova = new Folha();
+        int meio = folha.numChaves / 2;
+
+        for (int i = meio; i < folha.numChaves; i++) {
+            nova.chaves[i - meio] = folha.chaves[i];
+            nova.posicoes[i - meio] = folha.posicoes[i];
+            nova.numPosicoes[i - meio] = folha.numPosicoes[i];
+            folha.chaves[i] = null;
+            folha.posicoes[i] = null;
+        }
+        nova.numChaves = folha.numChaves - meio;
+        folha.numChaves = meio;
+
+        // Mantém o encadeamento das folhas.
+        nova.proxima = folha.proxima;
+        folha.proxima = nova;
+
+        novoIrmao = nova;
+        chaveSeparadora = nova.chaves[0];
+    }
+
+    /** Divide um nó interno cheio; a chave do meio sobe para o pai (e não fica em nenhum dos lados). */
+    private void dividirInterno(Interno interno) {
+        Interno novo = new Interno();
+        int meio = interno.numChaves / 2;
+        Object chaveMeio = interno.chaves[meio];
+
+        for (int i = meio + 1; i < interno.numChaves; i++) {
+            novo.chaves[i - meio - 1] = interno.chaves[i];
+            interno.chaves[i] = null;
+        }
+        for (int i = meio + 1; i <= interno.numChaves; i++) {
+            novo.filhos[i - meio - 1] = interno.filhos[i];
+            interno.filhos[i] = null;
+        }
+        novo.numChaves = interno.numChaves - meio - 1;
+        interno.chaves[meio] = null;
+        interno.numChaves = meio;
+
+        novoIrmao = novo;
+        chaveSeparadora = chaveMeio;
+    }
+
+    // --- Remoção ---
+
+    /**
+     * Remove a associação entre o valor 'chave' e a posição informada.
+     * Chaves sem posições são retiradas da folha. As folhas não são fundidas
+     * (remoção "preguiçosa"): as chaves separadoras continuam válidas para a navegação.
+     */
+    public void remover(Object chave, int posicao) {
+        if (chave == null) return;
+
+        Folha folha = encontrarFolha(chave);
+        int i = limiteInferior(folha, chave);
+        if (i >= folha.numChaves || comparar(folha.chaves[i], chave) != 0) return;
+
+        int[] posicoes = folha.posicoes[i];
+        for (int k = 0; k < folha.numPosicoes[i]; k++) {
+            if (posicoes[k] == posicao) {
+                for (int j = k; j < folha.numPosicoes[i] - 1; j++) {
+                    posicoes[j] = posicoes[j + 1];
+                }
+                folha.numPosicoes[i]--;
+                break;
+            }
+        }
+
+        if (folha.numPosicoes[i] == 0) {
+            retirarChave(folha, i);
+        }
+    }
+
+    /**
+     * Remove a chave e todas as suas posições de uma vez
+     * (ex: DELETE pela própria coluna indexada).
+     */
+    public void removerChave(Object chave) {
+        if (chave == null) return;
+
+        Folha folha = encontrarFolha(chave);
+        int i = limiteInferior(folha, chave);
+        if (i < folha.numChaves && comparar(folha.chaves[i], chave) == 0) {
+            retirarChave(folha, i);
+        }
+    }
+
+    /** Retira da folha a chave na posição i, deslocando as seguintes. */
+    private void retirarChave(Folha folha, int i) {
+        for (int j = i; j < folha.numChaves - 1; j++) {
+            folha.chaves[j] = folha.chaves[j + 1];
+            folha.posicoes[j] = folha.posicoes[j + 1];
+            folha.numPosicoes[j] = folha.numPosicoes[j + 1];
+        }
+        folha.numChaves--;
+        folha.chaves[folha.numChaves] = null;
+        folha.posicoes[folha.numChaves] = null;
+        numChaves--;
+    }
+
+    /** Esvazia o índice. */
+    public void limpar() {
+        raiz = new Folha();
+        numChaves = 0;
+    }
+
+    // --- Buscas ---
+
+    /** Verifica se existe ao menos uma linha com o valor 'chave'. */
+    public boolean contem(Object chave) {
+        if (chave == null) return false;
+        Folha folha = encontrarFolha(chave);
+        int i = limiteInferior(folha, chave);
+        return i < folha.numChaves && comparar(folha.chaves[i], chave) == 0;
+    }
+
+    /** Busca por igualdade: adiciona a 'saida' as posições das linhas com o valor 'chave'. */
+    public void buscar(Object chave, ListaPosicoes saida) {
+        buscarIntervalo(chave, true, chave, true, saida);
+    }
+
+    /**
+     * Busca por intervalo: adiciona a 'saida', em ordem crescente de chave, as posições
+     * das linhas cujo valor está entre 'minimo' e 'maximo'.
+     * Um limite null significa intervalo aberto naquele lado.
+     */
+    public void buscarIntervalo(Object minimo, boolean incluirMinimo, Object maximo, boolean incluirMaximo, ListaPosicoes saida) {
+        Folha folha;
+        int i;
+        if (minimo == null) {
+            folha = folhaMaisAEsquerda();
+            i = 0;
+        } else {
+            folha = encontrarFolha(minimo);
+            i = limiteInferior(folha, minimo);
+        }
+
+        // Percorre as folhas encadeadas a partir da primeira chave >= mínimo.
+        while (folha != null) {
+            for (; i < folha.numChaves; i++) {
+                Object chave = folha.chaves[i];
+
+                if (minimo != null && !incluirMinimo && comparar(chave, minimo) == 0) continue;
+                if (maximo != null) {
+                    int c = comparar(chave, maximo);
+                    if (c > 0 || (c == 0 && !incluirMaximo)) return;
+                }
+
+                for (int k = 0; k < folha.numPosicoes[i]; k++) {
+                    saida.adicionar(folha.posicoes[i][k]);
+                }
+            }
+            folha = folha.proxima;
+            i = 0;
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package app.model;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 public class BancoSimulado {
 
     // Define a capacidade inicial do nosso array.
@@ -20,14 +25,62 @@ public class BancoSimulado {
     // precisamos de uma variável ('numTabelas') para rastrear quantos slots
     // estão *realmente ocupados* (ex: 0, 1, 2...).
     private int numTabelas;
+
+    // 3. O Índice de Nomes:
+    // Índice hash: nome da tabela -> posição dela no array 'tabelas'.
+    // Permite encontrar uma tabela pelo nome em tempo constante, sem busca linear.
+    private final IndiceHash indicePorNome;
     // ---------------------------------------------
 
+    // ----- Grafo de Dependências (Chaves Estrangeiras) -----
+    // Para cada tabela referenciada, as colunas (de outras tabelas) que a referenciam.
+    // Assim, o DROP TABLE descobre quem depende da tabela sem percorrer todo o esquema.
+    //
+    // Cada dependência ocupa um "slot" nos arrays paralelos abaixo; o índice hash mapeia
+    // o nome da tabela referenciada para os slots das suas dependências.
+    private final IndiceHash dependenciasPorReferenciada;
+    private Tabela[] tabelasDependentes;  // slot -> tabela que possui a FK (null = slot livre)
+    private int[] colunasDependentes;     // slot -> índice da coluna FK nessa tabela
+    private int numSlots;
+    // Pilha de slots liberados (por DROP TABLE), reaproveitados antes de crescer os arrays.
+    private int[] slotsLivres;
+    private int numSlotsLivres;
+    // -------------------------------------------------------
+
+    // Versão do catálogo: incrementada a cada CREATE/DROP de tabela ou índice.
+    // Permite que comandos analisados (planos em cache) saibam quando resolver os nomes novamente.
+    // 'volatile': é lida pelas sessões sem a trava do catálogo.
+    private volatile int versaoCatalogo;
+
+    // Trava do catálogo (array de tabelas, índice de nomes e grafo de dependências), separada
+    // das travas de cada tabela (ver Tabela): buscas por nome podem ocorrer em paralelo;
+    // CREATE/DROP de tabela ou índice são exclusivos.
+    // Ordem das travas: a do catálogo antes das travas das tabelas, nunca o contrário.
+    private final ReentrantReadWriteLock travaCatalogo = new ReentrantReadWriteLock();
+
+    // Log de transações (ver LogTransacoes), ou null se o banco funciona apenas em memória.
+    // Os comandos de definição (DDL) são registrados aqui; os de dados, no COMMIT (ver Transacao).
+    private volatile LogTransacoes log;
+    // Arquivo do checkpoint (ver ArquivoCheckpoint), ou null se o banco não usa checkpoints.
+    private volatile String caminhoCheckpoint;
+
+    // Resultados de SELECT guardados, compartilhados pelas sessões (ver CacheResultados).
+    private final CacheResultados cacheResultados = new CacheResultados();
+
     private BancoSimulado() {
         // Inicializa o array clássico com a capacidade fixa definida.
         this.tabelas = new Tabela[CAPACIDADE_INICIAL];
 
         // No início, o array está vazio (0 elementos ocupados).
         this.numTabelas = 0;
+        this.indicePorNome = new IndiceHash();
+
+        this.dependenciasPorReferenciada = new IndiceHash();
+        this.tabelasDependentes = new Tabela[CAPACIDADE_INICIAL];
+        this.colunasDependentes = new int[CAPACIDADE_INICIAL];
+        this.numSlots = 0;
+        this.slotsLivres = new int[CAPACIDADE_INICIAL];
+        this.numSlotsLivres = 0;
     }
 
     public static synchronized BancoSimulado getInstancia() {
@@ -45,6 +98,8 @@ public class BancoSimulado {
      * e copiar manualmente todos os elementos do antigo para o novo.
      */
     private void redimensionarTabelas() {
+        MetricasMotor.atuais().redimensionamentos.increment();
+
         // 1. Define uma nova capacidade (neste caso, o dobro).
         int novaCapacidade = tabelas.length * 2;
 
@@ -64,91 +119,383 @@ public class BancoSimulado {
     // --- Métodos de Manipulação (CREATE TABLE) ---
 
     public void criarTabela(Tabela tabela) throws Exception {
-        String nomeTabela = tabela.getNome().toLowerCase();
+        long fimNoLog;
+        travaCatalogo.writeLock().lock();
+        try {
+            String nomeTabela = tabela.getNome().toLowerCase();
 
-        // Busca em Array: Iteramos manualmente (loop for) sobre os elementos
-        // ocupados (de 0 até 'numTabelas') para verificar se a tabela já existe.
-        for (int i = 0; i < numTabelas; i++) {
-            if (this.tabelas[i].getNome().equals(nomeTabela)) {
+            // Busca pelo Índice de Nomes: verifica em tempo constante se a tabela já existe.
+            if (indicePorNome.contem(nomeTabela)) {
                 throw new Exception("Tabela '" + nomeTabela + "' já existe.");
             }
-        }
 
-        // Verificação de Capacidade: Checamos se o número de elementos ocupados
-        // ('numTabelas') atingiu a capacidade total do array ('tabelas.length').
-        if (numTabelas == tabelas.length) {
-            // Se sim, precisamos "aumentar" o array antes de inserir.
-            redimensionarTabelas();
-        }
+            // Verificação de Capacidade: Checamos se o número de elementos ocupados
+            // ('numTabelas') atingiu a capacidade total do array ('tabelas.length').
+            if (numTabelas == tabelas.length) {
+                // Se sim, precisamos "aumentar" o array antes de inserir.
+                redimensionarTabelas();
+            }
+
+            // Inserção em Array: A nova tabela é adicionada no primeiro índice
+            // livre disponível, que é sempre o índice 'numTabelas'.
+            this.tabelas[numTabelas] = tabela;
+            indicePorNome.inserir(nomeTabela, numTabelas);
 
-        // Inserção em Array: A nova tabela é adicionada no primeiro índice
-        // livre disponível, que é sempre o índice 'numTabelas'.
-        this.tabelas[numTabelas] = tabela;
+            // Incrementamos o contador de elementos ocupados.
+            this.numTabelas++;
 
-        // Incrementamos o contador de elementos ocupados.
-        this.numTabelas++;
+            // Registra no grafo as FKs da nova tabela (tabela referenciada -> esta tabela e coluna).
+            for (int j = 0; j < tabela.getNumColunas(); j++) {
+                ForeignKeyConstraint constraint = tabela.getColunaPorIndice(j).getFkConstraint();
+                if (constraint != null) {
+                    adicionarDependencia(constraint.getTabelaReferenciada().toLowerCase(), tabela, j);
+                }
+            }
+            this.versaoCatalogo++;
+            fimNoLog = registrarNoLog(gerarCreateTable(tabela));
+        } finally {
+            travaCatalogo.writeLock().unlock();
+        }
+        aguardarLog(fimNoLog);
     }
 
     // --- Métodos de Manipulação (DROP TABLE) ---
 
     public void removerTabela(String nome) throws Exception {
-        String nomeTabela = nome.toLowerCase();
+        long fimNoLog;
+        travaCatalogo.writeLock().lock();
+        try {
+            String nomeTabela = nome.toLowerCase();
+
+            // 1. Busca pelo Índice de Nomes
+            int indiceRemover = indicePorNome.buscarPrimeira(nomeTabela);
+            if (indiceRemover == -1) {
+                throw new Exception("Tabela '" + nomeTabela + "' não encontrada.");
+            }
+            Tabela tabelaRemovida = this.tabelas[indiceRemover];
+
+            // 2. Verificação de Integridade: consulta apenas as dependências da tabela no grafo.
+            // Uma FK da tabela para ela mesma não impede a remoção (ela sai junto com a tabela).
+            IndiceHash.Entrada dependencias = dependenciasPorReferenciada.buscarEntrada(nomeTabela);
+            if (dependencias != null) {
+                for (int i = 0; i < dependencias.numPosicoes; i++) {
+                    Tabela dependente = tabelasDependentes[dependencias.posicoes[i]];
+                    if (dependente != tabelaRemovida) {
+                        throw new Exception("Não é possível remover a tabela '" + nomeTabela + "'. Ela está sendo referenciada pela chave estrangeira na tabela '" + dependente.getNome() + "'.");
+                    }
+                }
+            }
 
-        // 1. Verificação de Integridade (Busca em Array)
-        // Itera sobre todas as tabelas (de 0 a 'numTabelas').
-        for (int i = 0; i < numTabelas; i++) {
-            Tabela tabelaExistente = this.tabelas[i];
+            // 3. Com a trava de escrita da tabela, registra o DROP no log e marca a tabela como
+            //    removida: um COMMIT que já tinha a tabela e chegar depois é recusado, então
+            //    nenhuma escrita nela aparece no log depois do DROP.
+            tabelaRemovida.travarEscrita();
+            try {
+                fimNoLog = registrarNoLog("DROP TABLE " + tabelaRemovida.getNome());
+                tabelaRemovida.marcarExcluida();
+            } finally {
+                tabelaRemovida.destravarEscrita();
+            }
+
+            // 4. Remoção (Manipulação de Array)
+            // Estratégia de Remoção em Array (Sem "buracos"):
+            // Para evitar criar um "buraco" (null) no meio do array, o que
+            // quebraria nossos loops (que vão de 0 a 'numTabelas'), nós
+            // pegamos o *último* elemento ocupado (índice 'numTabelas - 1')
+            // e o movemos para a posição do elemento que queremos remover.
+
+            int indiceUltimoElemento = numTabelas - 1;
+            indicePorNome.removerChave(nomeTabela);
+
+            if (indiceRemover < indiceUltimoElemento) {
+                // Move o último elemento para a posição do item removido (e atualiza o índice de nomes).
+                Tabela ultima = this.tabelas[indiceUltimoElemento];
+                this.tabelas[indiceRemover] = ultima;
+                indicePorNome.remover(ultima.getNome(), indiceUltimoElemento);
+                indicePorNome.inserir(ultima.getNome(), indiceRemover);
+            }
+
+            // Limpa a referência do último elemento (agora duplicada ou já removida).
+            // Isso ajuda o Coletor de Lixo (Garbage Collector).
+            this.tabelas[indiceUltimoElemento] = null;
+
+            // Finalmente, decrementamos o contador de elementos ocupados.
+            this.numTabelas--;
+            this.versaoCatalogo++;
+
+            // 5. Retira do grafo as FKs da tabela removida.
+            for (int j = 0; j < tabelaRemovida.getNumColunas(); j++) {
+                ForeignKeyConstraint constraint = tabelaRemovida.getColunaPorIndice(j).getFkConstraint();
+                if (constraint != null) {
+                    removerDependencia(constraint.getTabelaReferenciada().toLowerCase(), tabelaRemovida, j);
+                    // Descarta a resolução em cache, para que uma futura tabela com o mesmo nome seja resolvida novamente.
+                    constraint.invalidarCache();
+                }
+            }
+        } finally {
+            travaCatalogo.writeLock().unlock();
+        }
+        aguardarLog(fimNoLog);
+    }
 
-            // Itera sobre as colunas da tabela atual.
-            for (int j = 0; j < tabelaExistente.getNumColunas(); j++) {
-                Coluna coluna = tabelaExistente.getColunaPorIndice(j);
+    // --- Grafo de Dependências ---
+
+    /** Registra que a coluna 'indiceColuna' de 'dependente' referencia a tabela 'nomeReferenciada'. */
+    private void adicionarDependencia(String nomeReferenciada, Tabela dependente, int indiceColuna) {
+        int slot;
+        if (numSlotsLivres > 0) {
+            // Reaproveita um slot liberado.
+            slot = slotsLivres[--numSlotsLivres];
+        } else {
+            if (numSlots == tabelasDependentes.length) {
+                int novaCapacidade = tabelasDependentes.length * 2;
+                Tabela[] novoTabelas = new Tabela[novaCapacidade];
+                int[] novoColunas = new int[novaCapacidade];
+                for (int i = 0; i < numSlots; i++) {
+                    novoTabelas[i] = tabelasDependentes[i];
+                    novoColunas[i] = colunasDependentes[i];
+                }
+                tabelasDependentes = novoTabelas;
+                colunasDependentes = novoColunas;
+            }
+            slot = numSlots++;
+        }
+        tabelasDependentes[slot] = dependente;
+        colunasDependentes[slot] = indiceColuna;
+        dependenciasPorReferenciada.inserir(nomeReferenciada, slot);
+    }
 
-                if (coluna != null && coluna.getFkConstraint() != null) {
-                    if (coluna.getFkConstraint().getTabelaReferenciada().equalsIgnoreCase(nomeTabela)) {
-                        throw new Exception("Não é possível remover a tabela '" + nomeTabela + "'. Ela está sendo referenciada pela chave estrangeira na tabela '" + tabelaExistente.getNome() + "'.");
+    /** Retira a dependência registrada por adicionarDependencia e libera o seu slot. */
+    private void removerDependencia(String nomeReferenciada, Tabela dependente, int indiceColuna) {
+        IndiceHash.Entrada dependencias = dependenciasPorReferenciada.buscarEntrada(nomeReferenciada);
+        if (dependencias == null) return;
+
+        for (int i = 0; i < dependencias.numPosicoes; i++) {
+            int slot = dependencias.posicoes[i];
+            if (tabelasDependentes[slot] == dependente && colunasDependentes[slot] == indiceColuna) {
+                dependenciasPorReferenciada.remover(nomeReferenciada, slot);
+                tabelasDependentes[slot] = null;
+
+                if (numSlotsLivres == slotsLivres.length) {
+                    int[] novoSlotsLivres = new int[slotsLivres.length * 2];
+                    for (int k = 0; k < numSlotsLivres; k++) {
+                        novoSlotsLivres[k] = slotsLivres[k];
                     }
+                    slotsLivres = novoSlotsLivres;
                 }
+                slotsLivres[numSlotsLivres++] = slot;
+                return;
             }
         }
+    }
 
-        // 2. Busca e Remoção (Manipulação de Array)
+    // --- Métodos de Manipulação (CREATE INDEX / DROP INDEX) ---
+
+    public void criarIndice(String nomeIndice, String nomeTabela, String nomeColuna) throws Exception {
+        long fimNoLog;
+        travaCatalogo.writeLock().lock();
+        try {
+            // Nomes de índice são únicos no banco inteiro (como em DROP INDEX nome).
+            if (buscarTabelaDoIndice(nomeIndice) != null) {
+                throw new Exception("Índice '" + nomeIndice.toLowerCase() + "' já existe.");
+            }
 
-        // Primeiro, encontramos o índice do elemento a ser removido.
-        // Novamente, usamos uma busca linear de 0 até 'numTabelas'.
-        int indiceRemover = -1;
+            Tabela tabela = getTabela(nomeTabela);
+            if (tabela == null) {
+                throw new Exception("Tabela '" + nomeTabela.toLowerCase() + "' não encontrada.");
+            }
+            tabela.criarIndiceOrdenado(nomeIndice, nomeColuna);
+            this.versaoCatalogo++;
+            fimNoLog = registrarNoLog("CREATE INDEX " + nomeIndice.toLowerCase() + " ON " + tabela.getNome() + " (" + nomeColuna.toLowerCase() + ")");
+        } finally {
+            travaCatalogo.writeLock().unlock();
+        }
+        aguardarLog(fimNoLog);
+    }
+
+    public void removerIndice(String nomeIndice) throws Exception {
+        long fimNoLog;
+        travaCatalogo.writeLock().lock();
+        try {
+            Tabela tabela = buscarTabelaDoIndice(nomeIndice);
+            if (tabela == null) {
+                throw new Exception("Índice '" + nomeIndice.toLowerCase() + "' não encontrado.");
+            }
+            tabela.removerIndiceOrdenado(nomeIndice);
+            this.versaoCatalogo++;
+            fimNoLog = registrarNoLog("DROP INDEX " + nomeIndice.toLowerCase());
+        } finally {
+            travaCatalogo.writeLock().unlock();
+        }
+        aguardarLog(fimNoLog);
+    }
+
+    /** Busca linear pela tabela que contém o índice com o nome informado, ou null. */
+    private Tabela buscarTabelaDoIndice(String nomeIndice) {
         for (int i = 0; i < numTabelas; i++) {
-            if (this.tabelas[i].getNome().equals(nomeTabela)) {
-                indiceRemover = i;
-                break; // Encontramos, podemos parar o loop.
+            if (this.tabelas[i].getIndiceColunaPeloNomeIndice(nomeIndice) != -1) {
+                return this.tabelas[i];
             }
         }
+        return null;
+    }
 
-        if (indiceRemover == -1) {
-            throw new Exception("Tabela '" + nomeTabela + "' não encontrada.");
+    // --- Log de Transações ---
+
+    /**
+     * Abre o log de transações no arquivo informado (criando-o se não existir) e recupera o
+     * banco: as transações gravadas são executadas novamente, na ordem em que foram confirmadas.
+     * A partir daí, cada COMMIT e cada comando de definição são gravados no log.
+     * Deve ser chamado na inicialização, antes de as sessões usarem o banco.
+     * @return O número de transações recuperadas.
+     */
+    public int abrirLog(String caminho) throws Exception {
+        return abrirLog(caminho, null);
+    }
+
+    /**
+     * Abre o log de transações usando também um checkpoint (ver ArquivoCheckpoint): se o arquivo
+     * do checkpoint existir, ele é carregado primeiro e, do log, só são executadas as transações
+     * posteriores a ele. A partir daí, o comando CHECKPOINT grava o banco nesse arquivo.
+     * @param caminhoCheckpoint O arquivo do checkpoint, ou null para usar apenas o log.
+     * @return O número de transações recuperadas do log.
+     */
+    public int abrirLog(String caminho, String caminhoCheckpoint) throws Exception {
+        if (log != null) {
+            throw new IllegalStateException("O log de transações já está aberto.");
+        }
+        long geracaoCheckpoint = 0;
+        if (caminhoCheckpoint != null && Files.exists(Paths.get(caminhoCheckpoint))) {
+            geracaoCheckpoint = ArquivoCheckpoint.carregar(caminhoCheckpoint, this);
         }
+        LogTransacoes novoLog = new LogTransacoes(caminho);
+        try {
+            String[][] transacoes = novoLog.recuperar();
+            if (novoLog.getGeracao() <= geracaoCheckpoint) {
+                // Tudo o que está no log já está no checkpoint: o log começa de novo, vazio.
+                transacoes = new String[0][];
+                novoLog.reiniciar(geracaoCheckpoint + 1);
+            }
 
-        // Estratégia de Remoção em Array (Sem "buracos"):
-        // Para evitar criar um "buraco" (null) no meio do array, o que
-        // quebraria nossos loops (que vão de 0 a 'numTabelas'), nós
-        // pegamos o *último* elemento ocupado (índice 'numTabelas - 1')
-        // e o movemos para a posição do elemento que queremos remover.
+            // A recuperação acontece com o log ainda desligado, para não gravar as transações de novo.
+            InterpretadorSQL interpretador = new InterpretadorSQL();
+            for (int i = 0; i < transacoes.length; i++) {
+                String[] comandos = transacoes[i];
+                if (comandos.length == 1) {
+                    interpretador.executar(comandos[0]);
+                    continue;
+                }
+                interpretador.executar("BEGIN");
+                for (int j = 0; j < comandos.length; j++) {
+                    interpretador.executar(comandos[j]);
+                }
+                interpretador.executar("COMMIT");
+            }
+            this.caminhoCheckpoint = caminhoCheckpoint;
+            this.log = novoLog;
+            return transacoes.length;
+        } catch (Exception e) {
+            novoLog.fechar();
+            throw e;
+        }
+    }
 
-        int indiceUltimoElemento = numTabelas - 1;
+    /**
+     * CHECKPOINT: grava todas as tabelas no arquivo do checkpoint e reinicia o log, cujo
+     * conteúdo passa a estar no checkpoint. Com a trava do catálogo e as de leitura de todas
+     * as tabelas, nenhum comando de definição ou COMMIT acontece durante a gravação
+     * (as consultas continuam).
+     * @return Um resumo do que foi gravado.
+     */
+    public String checkpoint() throws Exception {
+        travaCatalogo.writeLock().lock();
+        try {
+            LogTransacoes logAtual = this.log;
+            if (logAtual == null || caminhoCheckpoint == null) {
+                throw new Exception("O banco não tem arquivo de checkpoint: os dados estão apenas em memória.");
+            }
+            Tabela[] todas = new Tabela[numTabelas];
+            for (int i = 0; i < numTabelas; i++) {
+                todas[i] = tabelas[i];
+            }
+            Tabela[] travadas = Tabela.ordenarPorTrava(todas);
+            Tabela.travarLeitura(travadas);
+            try {
+                long geracao = logAtual.getGeracao();
+                long linhas = ArquivoCheckpoint.gravar(caminhoCheckpoint, todas, geracao);
+                logAtual.reiniciar(geracao + 1);
+                return "Checkpoint concluído: " + numTabelas + " tabela(s) e " + linhas + " linha(s) gravadas.";
+            } finally {
+                Tabela.destravarLeitura(travadas);
+            }
+        } finally {
+            travaCatalogo.writeLock().unlock();
+        }
+    }
 
-        if (indiceRemover < indiceUltimoElemento) {
-            // Move o último elemento para a posição do item removido.
-            this.tabelas[indiceRemover] = this.tabelas[indiceUltimoElemento];
+    /** O log de transações aberto, ou null. */
+    public LogTransacoes getLog() { return log; }
+
+    /** Grava o que estiver pendente e fecha o log; o banco volta a funcionar apenas em memória. */
+    public void fecharLog() throws IOException {
+        LogTransacoes logAtual = this.log;
+        if (logAtual != null) {
+            this.log = null;
+            this.caminhoCheckpoint = null;
+            logAtual.fechar();
+        }
+    }
+
+    /**
+     * Acrescenta um comando de definição ao log (com a trava do catálogo, para manter a ordem).
+     * @return A posição para aguardarLog, ou -1 se o log não estiver aberto.
+     */
+    private long registrarNoLog(String sql) throws IOException {
+        LogTransacoes logAtual = this.log;
+        if (logAtual == null) {
+            return -1;
         }
+        return logAtual.acrescentar(GerenciadorTransacoes.getInstancia().getSnapshot(), new String[] { sql });
+    }
 
-        // Limpa a referência do último elemento (agora duplicada ou já removida).
-        // Isso ajuda o Coletor de Lixo (Garbage Collector).
-        this.tabelas[indiceUltimoElemento] = null;
+    /** Espera a gravação do comando em disco (sem a trava do catálogo). */
+    private void aguardarLog(long fimNoLog) throws IOException {
+        LogTransacoes logAtual = this.log;
+        if (fimNoLog != -1 && logAtual != null) {
+            logAtual.aguardarGravacao(fimNoLog);
+        }
+    }
 
-        // Finalmente, decrementamos o contador de elementos ocupados.
-        this.numTabelas--;
+    /** Reconstrói o CREATE TABLE da tabela, para o log. */
+    private static String gerarCreateTable(Tabela tabela) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE ").append(tabela.getNome()).append(" (");
+        for (int j = 0; j < tabela.getNumColunas(); j++) {
+            Coluna coluna = tabela.getColunaPorIndice(j);
+            if (j > 0) sql.append(", ");
+            sql.append(coluna.getNome()).append(' ').append(coluna.getTipoDado());
+            if (coluna.isPrimaryKey()) {
+                sql.append(" PRIMARY KEY");
+            }
+            ForeignKeyConstraint constraint = coluna.getFkConstraint();
+            if (constraint != null) {
+                sql.append(" REFERENCES ").append(constraint.getTabelaReferenciada())
+                        .append('(').append(constraint.getColunaReferenciada()).append(')');
+            }
+        }
+        sql.append(')');
+        if (tabela.isColunar()) {
+            sql.append(" WITH (storage = columnar)");
+        } else if (tabela.isPaginada()) {
+            sql.append(" WITH (storage = disk)");
+        }
+        return sql.toString();
     }
 
-    // --- Getter ---
+    // --- Getters ---
+
+    public int getVersaoCatalogo() { return versaoCatalogo; }
+
+    public CacheResultados getCacheResultados() { return cacheResultados; }
 
     /**
      * Retorna a tabela pelo nome ou null se não for encontrada.
@@ -156,17 +503,15 @@ public class BancoSimulado {
      * @return O objeto Tabela ou null.
      */
     public Tabela getTabela(String nome) {
-        String nomeBusca = nome.toLowerCase();
-
-        // Busca em Array: Mais uma vez, uma busca linear
-        // iterando de 0 até o número de elementos ocupados ('numTabelas').
-        for (int i = 0; i < numTabelas; i++) {
-            if (this.tabelas[i].getNome().equals(nomeBusca)) {
-                return this.tabelas[i]; // Retorna o elemento encontrado.
-            }
+        travaCatalogo.readLock().lock();
+        try {
+            // Consulta ao Índice de Nomes (tempo constante): nome -> posição no array 'tabelas'.
+            int indice = indicePorNome.buscarPrimeira(nome.toLowerCase());
+
+            // -1 significa que a tabela não existe.
+            return indice == -1 ? null : this.tabelas[indice];
+        } finally {
+            travaCatalogo.readLock().unlock();
         }
-
-        // Se o loop terminar sem encontrar, significa que o elemento não existe.
-        return null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package app.model;
+
+/**
+ * Cache LRU (Least Recently Used) de comandos analisados, indexado pelo texto SQL normalizado.
+ *
+ * Implementado manualmente com:
+ * - um array clássico de buckets (tabela hash com encadeamento) para a busca em tempo constante;
+ * - uma lista duplamente encadeada em ordem de uso, do mais recente (início)
+ *   ao menos recente (fim), que é o descartado quando o cache está cheio.
+ */
+public class CachePlanos {
+
+    private static class Entrada {
+        final String chave;
+        final Comando comando;
+        Entrada proximaNoBucket;
+        Entrada anterior; // Em direção ao mais recente
+        Entrada proxima;  // Em direção ao menos recente
+
+        Entrada(String chave, Comando comando) {
+            this.chave = chave;
+            this.comando = comando;
+        }
+    }
+
+    private final int capacidade;
+    private final Entrada[] buckets;
+    private int numEntradas;
+
+    private Entrada maisRecente;
+    private Entrada menosRecente;
+
+    public CachePlanos(int capacidade) {
+        this.capacidade = capacidade;
+        int numBuckets = 16;
+        while (numBuckets < capacidade * 2) {
+            numBuckets *= 2;
+        }
+        this.buckets = new Entrada[numBuckets];
+        this.numEntradas = 0;
+    }
+
+    private int indiceBucket(String chave) {
+        int h = chave.hashCode();
+        return (h ^ (h >>> 16)) & (buckets.length - 1);
+    }
+
+    /** Retorna o comando associado ao texto, marcando-o como o mais recente, ou null. */
+    public Comando buscar(String chave) {
+        Entrada e = buckets[indiceBucket(chave)];
+        while (e != null) {
+            if (e.chave.equals(chave)) {
+                moverParaInicio(e);
+                return e.comando;
+            }
+            e = e.proximaNoBucket;
+        }
+        return null;
+    }
+
+    /** Insere um comando no cache, descartando o menos recente se a capacidade for atingida. */
+    public void inserir(String chave, Comando comando) {
+        if (buscar(chave) != null) {
+            return;
+        }
+        if (numEntradas == capacidade) {
+            remover(menosRecente);
+        }
+
+        Entrada nova = new Entrada(chave, comando);
+        int indice = indiceBucket(chave);
+        nova.proximaNoBucket = buckets[indice];
+        buckets[indice] = nova;
+
+        nova.proxima = maisRecente;
+        if (maisRecente != null) maisRecente.anterior = nova;
+        maisRecente = nova;
+        if (menosRecente == null) menosRecente = nova;
+
+        numEntradas++;
+    }
+
+    /** Descarta todos os comandos (ex: após CREATE/DROP TABLE). */
+    public void limpar() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = null;
+        }
+        maisRecente = null;
+        menosRecente = null;
+        numEntradas = 0;
+    }
+
+    public int getNumEntradas() { return numEntradas; }
+
+    private void moverParaInicio(Entrada e) {
+        if (e == maisRecente) return;
+
+        // Desencadeia da posição atual...
+        e.anterior.proxima = e.proxima;
+        if (e.proxima != null) {
+            e.proxima.anterior = e.anterior;
+        } else {
+            menosRecente = e.anterior;
+        }
+
+        // ...e encadeia no início.
+        e.anterior = null;
+        e.proxima = maisRecente;
+        maisRecente.anterior = e;
+        maisRecente = e;
+    }
+
+    private void remover(Entrada e) {
+        // 1. Remove do bucket.
+        int indice = indiceBucket(e.chave);
+        Entrada atual = buckets[indice];
+        Entrada anteriorNoBucket = null;
+        while (atual != e) {
+            anteriorNoBucket = atual;
+            atual = atual.proximaNoBucket;
+        }
+        if (anteriorNoBucket == null) {
+            buckets[indice] = e.proximaNoBucket;
+        } else {
+            anteriorNoBucket.proximaNoBucket = e.proximaNoBucket;
+        }
+
+        // 2. Remove da lista de uso.
+        if (e.anterior != null) e.anterior.proxima = e.proxima; else maisRecente = e.proxima;
+        if (e.proxima != null) e.proxima.anterior = e.anterior; else menosRecente = e.anterior;
+
+        numEntradas--;
+    }
+}
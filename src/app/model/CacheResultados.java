@@ -0,0 +1,334 @@
+package app.model;
+
+/**
+ * Cache de resultados de SELECT, compartilhado pelas sessões e indexado pelo texto SQL
+ * normalizado (o mesmo do cache de planos).
+ *
+ * Cada entrada guarda uma cópia do resultado (uma tabela temporária em memória, com os valores)
+ * e a versão dos dados de cada tabela consultada no momento da consulta (ver
+ * Tabela.getVersaoDados), lida com as travas de leitura, junto com o snapshot. Ao buscar, a
+ * entrada só é usada se todas as versões forem as mesmas: qualquer INSERT, DELETE ou COMMIT
+ * em uma das tabelas a invalida, e as escritas em outras tabelas não.
+ *
+ * O resultado entra no cache enquanto o cursor da consulta é lido (ver Cursor), sem executar a
+ * consulta de novo, e só quando ele chega ao fim: um cursor abandonado não guarda nada.
+ *
+ * O tamanho é limitado em bytes (estimados pelos valores guardados), e não em número de
+ * entradas: ao passar da capacidade, as entradas menos usadas recentemente são descartadas (LRU).
+ * Um resultado maior que 1/FRACAO_MAXIMA_ENTRADA da capacidade não é guardado.
+ *
+ * Implementado como o CachePlanos (buckets com encadeamento e lista duplamente encadeada em
+ * ordem de uso), com todos os métodos sincronizados.
+ */
+public class CacheResultados {
+
+    // Capacidade padrão: 64 MB.
+    public static final long CAPACIDADE_PADRAO_BYTES = 64L * 1024 * 1024;
+
+    // Maior resultado guardado, em fração da capacidade: um resultado grande não expulsa todos os outros.
+    private static final int FRACAO_MAXIMA_ENTRADA = 8;
+
+    private static final int NUM_BUCKETS = 1024;
+
+    private static class Entrada {
+        final String chave;
+        final Tabela[] tabelas;
+        final long[] versoes;
+        final int versaoCatalogo;
+        final Tabela resultado;
+        final Coluna[] colunas;
+        final long bytes;
+        Entrada proximaNoBucket;
+        Entrada anterior; // Em direção ao mais recente
+        Entrada proxima;  // Em direção ao menos recente
+
+        Entrada(String chave, Tabela[] tabelas, long[] versoes, int versaoCatalogo,
+                Tabela resultado, Coluna[] colunas, long bytes) {
+            this.chave = chave;
+            this.tabelas = tabelas;
+            this.versoes = versoes;
+            this.versaoCatalogo = versaoCatalogo;
+            this.resultado = resultado;
+            this.colunas = colunas;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Entrada[] buckets = new Entrada[NUM_BUCKETS];
+    private int numEntradas;
+    private Entrada maisRecente;
+    private Entrada menosRecente;
+
+    private long capacidadeBytes = CAPACIDADE_PADRAO_BYTES;
+    private long bytesUsados;
+
+    // Métricas (desde a criação ou o último limpar()).
+    private long acertos;
+    private long falhas;
+    private long invalidacoes;
+    private long descartes;
+    private long insercoes;
+
+    // --- Busca ---
+
+    /**
+     * Abre um cursor sobre o resultado guardado para o texto, se ele ainda for válido para as
+     * tabelas consultadas; conta um acerto ou uma falha. Deve ser chamado com as travas de
+     * leitura das tabelas, para que as versões lidas correspondam ao snapshot da consulta.
+     * @return O cursor sobre o resultado guardado, ou null.
+     */
+    public synchronized Cursor abrir(String chave, Tabela[] tabelas, int versaoCatalogo) {
+        Entrada e = buscar(chave);
+        if (e != null && !isValida(e, tabelas, versaoCatalogo)) {
+            remover(e);
+            invalidacoes++;
+            e = null;
+        }
+        if (e == null) {
+            falhas++;
+            return null;
+        }
+        acertos++;
+        moverParaInicio(e);
+        int numColunas = e.colunas.length;
+        int[] colunaNaOrigem = new int[numColunas];
+        for (int i = 0; i < numColunas; i++) {
+            colunaNaOrigem[i] = i;
+        }
+        return new Cursor("resultado_cache", new Operador.Varredura(e.resultado, null, 0, Long.MAX_VALUE),
+                new Tabela[] { e.resultado }, e.colunas, new int[numColunas], colunaNaOrigem);
+    }
+
+    /** Número de linhas do resultado guardado para o texto, ou -1 (sem contar acerto ou falha). */
+    public synchronized int getNumLinhas(String chave) {
+        Entrada e = buscar(chave);
+        return e != null ? e.resultado.getNumLinhas() : -1;
+    }
+
+    private static boolean isValida(Entrada e, Tabela[] tabelas, int versaoCatalogo) {
+        if (e.versaoCatalogo != versaoCatalogo || e.tabelas.length != tabelas.length) {
+            return false;
+        }
+        for (int t = 0; t < tabelas.length; t++) {
+            if (e.tabelas[t] != tabelas[t] || e.versoes[t] != tabelas[t].getVersaoDados()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- Coleta do Resultado ---
+
+    /**
+     * Começa a coleta do resultado de uma consulta (as versões das tabelas são lidas agora,
+     * com as travas de leitura). As linhas são acrescentadas pelo cursor à medida que são lidas.
+     */
+    Coleta iniciarColeta(String chave, Tabela[] tabelas, int versaoCatalogo) {
+        long[] versoes = new long[tabelas.length];
+        for (int t = 0; t < tabelas.length; t++) {
+            versoes[t] = tabelas[t].getVersaoDados();
+        }
+        return new Coleta(chave, tabelas, versoes, versaoCatalogo, getTamanhoMaximoEntrada());
+    }
+
+    /** Cópia, linha a linha, do resultado de uma consulta para o cache. */
+    class Coleta {
+        private final String chave;
+        private final Tabela[] tabelas;
+        private final long[] versoes;
+        private final int versaoCatalogo;
+        private final long tamanhoMaximo;
+
+        private Linha[] linhas;
+        private int numLinhas;
+        private long bytes;
+
+        private Coleta(String chave, Tabela[] tabelas, long[] versoes, int versaoCatalogo, long tamanhoMaximo) {
+            this.chave = chave;
+            this.tabelas = tabelas;
+            this.versoes = versoes;
+            this.versaoCatalogo = versaoCatalogo;
+            this.tamanhoMaximo = tamanhoMaximo;
+            this.linhas = new Linha[16];
+        }
+
+        /**
+         * Acrescenta uma linha do resultado.
+         * @return false se o resultado passou do tamanho máximo de uma entrada (a coleta deve parar).
+         */
+        boolean adicionar(Linha linha) {
+            if (numLinhas == linhas.length) {
+                Linha[] novasLinhas = new Linha[linhas.length * 2];
+                for (int i = 0; i < numLinhas; i++) {
+                    novasLinhas[i] = linhas[i];
+                }
+                linhas = novasLinhas;
+            }
+            linhas[numLinhas++] = linha;
+            bytes += tamanhoEstimado(linha);
+            return bytes <= tamanhoMaximo;
+        }
+
+        /** Guarda o resultado completo no cache. */
+        void concluir(Coluna[] colunas) {
+            Coluna[] copias = new Coluna[colunas.length];
+            for (int i = 0; i < colunas.length; i++) {
+                copias[i] = new Coluna(colunas[i].getNome(), colunas[i].getTipoDado());
+            }
+            Tabela resultado = Tabela.criarResultado("resultado_cache", copias, linhas, numLinhas);
+            inserir(new Entrada(chave, tabelas, versoes, versaoCatalogo, resultado, copias, bytes + 64L * colunas.length));
+        }
+    }
+
+    /** Memória aproximada de uma linha guardada (objeto Linha, array e valores). */
+    private static long tamanhoEstimado(Linha linha) {
+        Object[] valores = linha.getDadosArray();
+        long bytes = 32 + 8L * valores.length;
+        for (int i = 0; i < valores.length; i++) {
+            Object valor = valores[i];
+            if (valor instanceof String) {
+                bytes += 48 + ((String) valor).length();
+            } else if (valor != null) {
+                bytes += 24;
+            }
+        }
+        return bytes;
+    }
+
+    private synchronized void inserir(Entrada nova) {
+        if (nova.bytes > getTamanhoMaximoEntrada()) {
+            return;
+        }
+        Entrada antiga = buscar(nova.chave);
+        if (antiga != null) {
+            remover(antiga);
+        }
+        int indice = indiceBucket(nova.chave);
+        nova.proximaNoBucket = buckets[indice];
+        buckets[indice] = nova;
+
+        nova.proxima = maisRecente;
+        if (maisRecente != null) maisRecente.anterior = nova;
+        maisRecente = nova;
+        if (menosRecente == null) menosRecente = nova;
+
+        numEntradas++;
+        bytesUsados += nova.bytes;
+        insercoes++;
+        descartarExcedente();
+    }
+
+    // --- Capacidade e Métricas ---
+
+    /** Define a capacidade em bytes, descartando as entradas menos recentes que não couberem. */
+    public synchronized void configurarCapacidade(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("A capacidade do cache de resultados não pode ser negativa.");
+        }
+        this.capacidadeBytes = bytes;
+        descartarExcedente();
+    }
+
+    /** Descarta todas as entradas e zera as métricas. */
+    public synchronized void limpar() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = null;
+        }
+        maisRecente = null;
+        menosRecente = null;
+        numEntradas = 0;
+        bytesUsados = 0;
+        acertos = 0;
+        falhas = 0;
+        invalidacoes = 0;
+        descartes = 0;
+        insercoes = 0;
+    }
+
+    public synchronized long getCapacidadeBytes() { return capacidadeBytes; }
+    public synchronized long getBytesUsados() { return bytesUsados; }
+    public synchronized int getNumEntradas() { return numEntradas; }
+    public synchronized long getAcertos() { return acertos; }
+    public synchronized long getFalhas() { return falhas; }
+    /** Entradas encontradas, mas descartadas porque uma das tabelas mudou. */
+    public synchronized long getInvalidacoes() { return invalidacoes; }
+    /** Entradas descartadas para liberar espaço (LRU). */
+    public synchronized long getDescartes() { return descartes; }
+    public synchronized long getInsercoes() { return insercoes; }
+
+    /** Fração das buscas atendidas pelo cache (0 se ainda não houve buscas). */
+    public synchronized double getTaxaAcertos() {
+        long buscas = acertos + falhas;
+        return buscas == 0 ? 0 : (double) acertos / buscas;
+    }
+
+    private synchronized long getTamanhoMaximoEntrada() {
+        return capacidadeBytes / FRACAO_MAXIMA_ENTRADA;
+    }
+
+    private void descartarExcedente() {
+        while (bytesUsados > capacidadeBytes && menosRecente != null) {
+            remover(menosRecente);
+            descartes++;
+        }
+    }
+
+    // --- Tabela Hash e Lista de Uso ---
+
+    private int indiceBucket(String chave) {
+        int h = chave.hashCode();
+        return (h ^ (h >>> 16)) & (buckets.length - 1);
+    }
+
+    private Entrada buscar(String chave) {
+        Entrada e = buckets[indiceBucket(chave)];
+        while (e != null) {
+            if (e.chave.equals(chave)) {
+                return e;
+            }
+            e = e.proximaNoBucket;
+        }
+        return null;
+    }
+
+    private void moverParaInicio(Entrada e) {
+        if (e == maisRecente) return;
+
+        // Desencadeia da posição atual...
+        e.anterior.proxima = e.proxima;
+        if (e.proxima != null) {
+            e.proxima.anterior = e.anterior;
+        } else {
+            menosRecente = e.anterior;
+        }
+
+        // ...e encadeia no início.
+        e.anterior = null;
+        e.proxima = maisRecente;
+        maisRecente.anterior = e;
+        maisRecente = e;
+    }
+
+    private void remover(Entrada e) {
+        // 1. Remove do bucket.
+        int indice = indiceBucket(e.chave);
+        Entrada atual = buckets[indice];
+        Entrada anteriorNoBucket = null;
+        while (atual != e) {
+            anteriorNoBucket = atual;
+            atual = atual.proximaNoBucket;
+        }
+        if (anteriorNoBucket == null) {
+            buckets[indice] = e.proximaNoBucket;
+        } else {
+            anteriorNoBucket.proximaNoBucket = e.proximaNoBucket;
+        }
+
+        // 2. Remove da lista de uso.
+        if (e.anterior != null) e.anterior.proxima = e.proxima; else maisRecente = e.proxima;
+        if (e.proxima != null) e.proxima.anterior = e.anterior; else menosRecente = e.anterior;
+
+        numEntradas--;
+        bytesUsados -= e.bytes;
+    }
+}
@@ -2,7 +2,7 @@ package app.model;
 
 public class Coluna {
     private String nome;
-    private String tipoDado; // "INT" ou "STRING"
+    private String tipoDado; // "INT" ou "STRING" (resultados de SUM e AVG: "BIGINT" e "DECIMAL")
     private boolean isPrimaryKey = false;
     private ForeignKeyConstraint fkConstraint = null;
 
@@ -0,0 +1,118 @@
+package app.model;
+
+/**
+ * Representa um comando SQL já analisado (o "plano" de execução).
+ *
+ * O InterpretadorSQL separa o trabalho em duas fases:
+ * 1. Análise: o texto SQL vira um Comando pelo AnalisadorSintatico (feita uma única vez
+ *    por texto, graças ao cache).
+ * 2. Execução: o Comando é executado, possivelmente várias vezes, com valores diferentes
+ *    para os parâmetros '?' (comandos preparados).
+ *
+ * Além dos dados da análise, o Comando guarda a resolução de nomes (tabelas e índices de
+ * colunas). Ela é refeita apenas quando a versão do catálogo do BancoSimulado muda
+ * (CREATE/DROP TABLE, CREATE/DROP INDEX).
+ *
+ * Os campos são de pacote: o Comando é preenchido e lido apenas pelo InterpretadorSQL.
+ */
+public class Comando {
+
+    public enum Tipo { CREATE_TABLE, DROP_TABLE, CREATE_INDEX, DROP_INDEX, INSERT, DELETE, SELECT, BEGIN, COMMIT, ROLLBACK, CHECKPOINT, COPY, SET }
+
+    /** Marcador de um parâmetro '?' no texto SQL, numerado da esquerda para a direita a partir de 0. */
+    public static class Parametro {
+        final int indice;
+
+        Parametro(int indice) {
+            this.indice = indice;
+        }
+
+        @Override
+        public String toString() { return "?" + (indice + 1); }
+    }
+
+    final Tipo tipo;
+
+    // --- Dados da Análise ---
+    String nomeTabela;       // Todos, exceto DROP INDEX
+    String nomeIndice;       // CREATE INDEX / DROP INDEX
+    String nomeColuna;       // CREATE INDEX (coluna indexada) e DELETE (coluna do WHERE)
+    Coluna[] definicoes;     // CREATE TABLE: colunas a criar
+    Tabela.TipoArmazenamento armazenamento = Tabela.TipoArmazenamento.LINHAS; // CREATE TABLE: WITH (storage = ...)
+    String[] colunas;        // INSERT: colunas informadas; SELECT: projeção (null = '*'), ignorada no JOIN sem agregação
+    Agregacao.Funcao[] funcoes; // SELECT: função de cada item da projeção (null = coluna; argumento "*" = COUNT(*)), ou null sem agregação
+    String[] agrupamento;    // SELECT: colunas do GROUP BY, ou null
+    String[] ordenacao;      // SELECT: colunas do ORDER BY, ou null
+    Agregacao.Funcao[] funcoesOrdenacao; // SELECT: função de cada item do ORDER BY (null = coluna)
+    boolean[] ordemDecrescente;          // SELECT: DESC em cada item do ORDER BY
+    Object[] valores;        // INSERT: literais (Integer ou String) ou Parametro, linha após linha
+    Object valor;            // DELETE: literal (Integer ou String) ou Parametro
+    String nomeTabelaJoin;   // SELECT com JOIN: segunda tabela
+    String colunaJoin1;      // SELECT com JOIN: coluna da condição ON na primeira tabela
+    String colunaJoin2;      // SELECT com JOIN: coluna da condição ON na segunda tabela
+    Condicao condicao;       // SELECT: cláusula WHERE (ou null)
+    int limite = -1;         // SELECT: LIMIT (-1 = sem limite)
+    int deslocamento;        // SELECT: OFFSET
+    String arquivo;          // COPY: caminho do arquivo CSV
+    boolean paraArquivo;     // COPY: TO (exportação) ou FROM (importação)
+    String opcao;            // SET: nome da opção da sessão
+    int valorOpcao;          // SET: novo valor
+    int numParametros;       // Quantidade de '?' no comando
+    boolean explicar;        // EXPLAIN: descreve o plano em vez de executar o comando (SELECT, INSERT e DELETE)
+    boolean analisar;        // EXPLAIN ANALYZE: executa o comando e mede cada etapa do plano
+    String textoNormalizado; // Chave do comando no cache de planos e no de resultados (ver InterpretadorSQL.obterComando)
+
+    // --- Resolução em Cache ---
+    int versaoCatalogo = -1;     // Versão do catálogo usada na última resolução
+    Tabela tabela;
+    Tabela tabelaJoin;
+    int[] indicesColunas;        // INSERT: índice de cada coluna informada; SELECT: projeção
+    Object[] valoresConvertidos; // INSERT/DELETE: literais já convertidos para o tipo da coluna (mesmo layout de 'valores')
+    int indiceColuna;            // DELETE: índice da coluna do WHERE
+    int indiceJoin1;
+    int indiceJoin2;
+    Condicao[] partesJoin;       // SELECT com JOIN: WHERE distribuído em [só T1, só T2, residual]
+    int[] origensColunas;        // SELECT com agregação: origem (0 ou 1) de cada item da projeção (índice em indicesColunas; -1 = '*')
+    int[] origensAgrupamento;    // SELECT com GROUP BY: origem e índice de cada coluna do GROUP BY
+    int[] indicesAgrupamento;
+    int[] origensOrdenacao;      // SELECT com ORDER BY: origem e índice de cada item (com agregação: coluna do resultado)
+    int[] indicesOrdenacao;
+
+    Comando(Tipo tipo) {
+        this.tipo = tipo;
+    }
+
+    public Tipo getTipo() { return tipo; }
+    public int getNumParametros() { return numParametros; }
+
+    /** SELECT com funções de agregação ou GROUP BY. */
+    boolean isAgregacao() { return funcoes != null || agrupamento != null; }
+
+    /** INSERT: quantidade de linhas da cláusula VALUES. */
+    int getNumLinhasValores() { return valores.length / colunas.length; }
+
+    /**
+     * Apenas comandos de dados entram no cache de planos. Comandos de definição (DDL)
+     * são raros e, no caso do CREATE TABLE, não devem compartilhar objetos Coluna entre execuções.
+     */
+    boolean isCacheavel() {
+        return tipo == Tipo.INSERT || tipo == Tipo.DELETE || tipo == Tipo.SELECT;
+    }
+
+    /** Comandos de definição (DDL): CREATE/DROP de tabela ou índice. */
+    boolean isDefinicao() {
+        return tipo == Tipo.CREATE_TABLE || tipo == Tipo.DROP_TABLE || tipo == Tipo.CREATE_INDEX || tipo == Tipo.DROP_INDEX;
+    }
+
+    /** Substitui um Parametro pelo valor definido pelo usuário; literais são retornados como estão. */
+    static Object vincularValor(Object valor, Object[] parametros) throws Exception {
+        if (!(valor instanceof Parametro)) {
+            return valor;
+        }
+        int indice = ((Parametro) valor).indice;
+        if (parametros == null || indice >= parametros.length || parametros[indice] == null) {
+            throw new Exception("Parâmetro " + valor + " não foi definido.");
+        }
+        return parametros[indice];
+    }
+}
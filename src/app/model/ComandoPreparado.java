@@ -0,0 +1,48 @@
+package app.model;
+
+/**
+ * Comando SQL preparado: analisado uma única vez e executado quantas vezes for preciso,
+ * com valores diferentes para os parâmetros '?'.
+ *
+ * Exemplo:
+ *   ComandoPreparado insert = interpretador.preparar("INSERT INTO t (id, nome) VALUES (?, ?)");
+ *   insert.definirParametro(1, 10);
+ *   insert.definirParametro(2, "Recife");
+ *   insert.executar();
+ */
+public class ComandoPreparado {
+    private final InterpretadorSQL interpretador;
+    private final Comando comando;
+    private final Object[] parametros;
+
+    ComandoPreparado(InterpretadorSQL interpretador, Comando comando) {
+        this.interpretador = interpretador;
+        this.comando = comando;
+        this.parametros = new Object[comando.getNumParametros()];
+    }
+
+    /**
+     * Define o valor do parâmetro na posição informada (a partir de 1, da esquerda para a direita).
+     * Colunas INT aceitam Integer; colunas STRING aceitam String.
+     */
+    public void definirParametro(int posicao, Object valor) throws Exception {
+        if (posicao < 1 || posicao > parametros.length) {
+            throw new Exception("Parâmetro " + posicao + " inexistente. O comando possui " + parametros.length + " parâmetro(s).");
+        }
+        parametros[posicao - 1] = valor;
+    }
+
+    /** Esquece os valores definidos para os parâmetros. */
+    public void limparParametros() {
+        for (int i = 0; i < parametros.length; i++) {
+            parametros[i] = null;
+        }
+    }
+
+    public int getNumParametros() { return parametros.length; }
+
+    /** Executa o comando com os parâmetros atuais. O retorno é o mesmo de InterpretadorSQL.executar. */
+    public Object executar() throws Exception {
+        return interpretador.executarComando(comando, parametros);
+    }
+}
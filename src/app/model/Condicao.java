@@ -0,0 +1,230 @@
+package app.model;
+
+/**
+ * Representa uma condição de WHERE em forma de árvore:
+ * - Folhas são comparações entre uma coluna e valores literais (=, <, >, <=, >=, BETWEEN).
+ * - Nós internos combinam duas condições com AND (E) ou OR (OU).
+ *
+ * Antes de avaliar, a condição precisa ser resolvida contra a(s) tabela(s) da consulta,
+ * o que traduz cada nome de coluna para (lado, índice da coluna). O lado indica de qual
+ * tabela vem o valor: 0 para a primeira tabela, 1 para a segunda (em um JOIN).
+ */
+public class Condicao {
+
+    public enum Tipo { IGUAL, MENOR, MAIOR, MENOR_IGUAL, MAIOR_IGUAL, ENTRE, E, OU }
+
+    private final Tipo tipo;
+
+    // --- Comparações (folhas) ---
+    private final String nomeColuna;
+    private final Object valor;
+    private final Object valorAte; // Limite superior do BETWEEN
+
+    // --- E / OU (nós internos) ---
+    private final Condicao esquerda;
+    private final Condicao direita;
+
+    // --- Resolução ---
+    private int lado = -1;
+    private int indiceColuna = -1;
+    private String tipoDado;
+
+    private Condicao(Tipo tipo, String nomeColuna, Object valor, Object valorAte, Condicao esquerda, Condicao direita) {
+        this.tipo = tipo;
+        this.nomeColuna = nomeColuna;
+        this.valor = valor;
+        this.valorAte = valorAte;
+        this.esquerda = esquerda;
+        this.direita = direita;
+    }
+
+    /** Cria uma comparação 'coluna tipo valor' (ou 'coluna BETWEEN valor AND valorAte'). */
+    public static Condicao comparacao(Tipo tipo, String nomeColuna, Object valor, Object valorAte) {
+        return new Condicao(tipo, nomeColuna.toLowerCase(), valor, valorAte, null, null);
+    }
+
+    /** Cria a combinação de duas condições com AND ou OR. */
+    public static Condicao logica(Tipo tipo, Condicao esquerda, Condicao direita) {
+        return new Condicao(tipo, null, null, null, esquerda, direita);
+    }
+
+    /** Combina duas condições com AND, aceitando null em qualquer um dos lados. */
+    public static Condicao juntarComE(Condicao a, Condicao b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return logica(Tipo.E, a, b);
+    }
+
+    public Tipo getTipo() { return tipo; }
+    public boolean isLogica() { return tipo == Tipo.E || tipo == Tipo.OU; }
+    public Condicao getEsquerda() { return esquerda; }
+    public Condicao getDireita() { return direita; }
+    public String getNomeColuna() { return nomeColuna; }
+    public Object getValor() { return valor; }
+    public Object getValorAte() { return valorAte; }
+    public int getLado() { return lado; }
+    public int getIndiceColuna() { return indiceColuna; }
+
+    // --- Resolução ---
+
+    /**
+     * Resolve os nomes de coluna contra as tabelas da consulta e valida os tipos dos literais.
+     * @param t1 A tabela da consulta (ou a primeira tabela do JOIN).
+     * @param t2 A segunda tabela do JOIN, ou null em um SELECT simples.
+     */
+    public void resolver(Tabela t1, Tabela t2) throws Exception {
+        if (isLogica()) {
+            esquerda.resolver(t1, t2);
+            direita.resolver(t1, t2);
+            return;
+        }
+
+        // Nomes qualificados (tabela.coluna) indicam o lado diretamente.
+        String nomeTabela = null;
+        String coluna = nomeColuna;
+        int ponto = nomeColuna.indexOf('.');
+        if (ponto != -1) {
+            nomeTabela = nomeColuna.substring(0, ponto);
+            coluna = nomeColuna.substring(ponto + 1);
+        }
+
+        int indiceT1 = -1;
+        int indiceT2 = -1;
+        if (nomeTabela == null || nomeTabela.equals(t1.getNome())) {
+            indiceT1 = t1.getIndiceColunaPeloNome(coluna);
+        }
+        if (t2 != null && (nomeTabela == null || nomeTabela.equals(t2.getNome()))) {
+            indiceT2 = t2.getIndiceColunaPeloNome(coluna);
+        }
+
+        if (indiceT1 != -1 && indiceT2 != -1) {
+            throw new Exception("Coluna '" + nomeColuna + "' é ambígua no WHERE. Use tabela.coluna.");
+        }
+        if (indiceT1 == -1 && indiceT2 == -1) {
+            throw new Exception("Coluna '" + nomeColuna + "' não encontrada.");
+        }
+
+        Tabela tabela = indiceT1 != -1 ? t1 : t2;
+        this.lado = indiceT1 != -1 ? 0 : 1;
+        this.indiceColuna = indiceT1 != -1 ? indiceT1 : indiceT2;
+
+        // Validação de tipo dos literais contra o tipo da coluna.
+        // Parâmetros '?' são validados apenas quando recebem valor (em vincular).
+        this.tipoDado = tabela.getColunaPorIndice(indiceColuna).getTipoDado();
+        validarTipo(valor);
+        if (tipo == Tipo.ENTRE) {
+            validarTipo(valorAte);
+        }
+    }
+
+    private void validarTipo(Object literal) throws Exception {
+        if (literal instanceof Comando.Parametro) return;
+        boolean ok = tipoDado.equals("INT") ? literal instanceof Integer : literal instanceof String;
+        if (!ok) {
+            throw new Exception("Erro de tipo: O valor '" + literal + "' não é um " + tipoDado + " para a coluna '" + nomeColuna + "'.");
+        }
+    }
+
+    /** Verifica se algum valor da condição é um parâmetro '?'. */
+    public boolean contemParametros() {
+        if (isLogica()) {
+            return esquerda.contemParametros() || direita.contemParametros();
+        }
+        return valor instanceof Comando.Parametro || valorAte instanceof Comando.Parametro;
+    }
+
+    /**
+     * Retorna uma cópia da condição (já resolvida) com os parâmetros '?' substituídos
+     * pelos valores informados. Sem parâmetros, a própria condição é retornada.
+     */
+    public Condicao vincular(Object[] parametros) throws Exception {
+        if (!contemParametros()) {
+            return this;
+        }
+        if (isLogica()) {
+            return logica(tipo, esquerda.vincular(parametros), direita.vincular(parametros));
+        }
+
+        Condicao copia = new Condicao(tipo, nomeColuna,
+                Comando.vincularValor(valor, parametros), Comando.vincularValor(valorAte, parametros), null, null);
+        copia.lado = lado;
+        copia.indiceColuna = indiceColuna;
+        copia.tipoDado = tipoDado;
+        copia.validarTipo(copia.valor);
+        if (tipo == Tipo.ENTRE) {
+            copia.validarTipo(copia.valorAte);
+        }
+        return copia;
+    }
+
+    /**
+     * Retorna quais lados a condição referencia, como máscara de bits:
+     * 1 = primeira tabela, 2 = segunda tabela, 3 = ambas. Requer a condição resolvida.
+     */
+    public int getLadosReferenciados() {
+        if (isLogica()) {
+            return esquerda.getLadosReferenciados() | direita.getLadosReferenciados();
+        }
+        return 1 << lado;
+    }
+
+    // --- Avaliação ---
+
+    /**
+     * Avalia a condição durante a varredura, lendo os valores diretamente das tabelas de origem
+     * (em qualquer formato de armazenamento), pelas posições das linhas.
+     * @param t1 Primeira tabela e p1 a posição da linha nela (pode ser null se a condição só usa a segunda).
+     * @param t2 Segunda tabela e p2 a posição da linha nela (null em um SELECT simples).
+     */
+    public boolean avaliar(Tabela t1, int p1, Tabela t2, int p2) {
+        switch (tipo) {
+            case E:
+                return esquerda.avaliar(t1, p1, t2, p2) && direita.avaliar(t1, p1, t2, p2);
+            case OU:
+                return esquerda.avaliar(t1, p1, t2, p2) || direita.avaliar(t1, p1, t2, p2);
+            default:
+                return lado == 0 ? compararValor(t1.getValor(p1, indiceColuna)) : compararValor(t2.getValor(p2, indiceColuna));
+        }
+    }
+
+    /** Aplica a comparação desta folha ao valor da coluna. Valores nulos nunca satisfazem. */
+    public boolean compararValor(Object valorLinha) {
+        if (valorLinha == null) return false;
+
+        switch (tipo) {
+            case IGUAL:
+                return valorLinha.equals(valor);
+            case MENOR:
+                return comparar(valorLinha, valor) < 0;
+            case MAIOR:
+                return comparar(valorLinha, valor) > 0;
+            case MENOR_IGUAL:
+                return comparar(valorLinha, valor) <= 0;
+            case MAIOR_IGUAL:
+                return comparar(valorLinha, valor) >= 0;
+            case ENTRE:
+                return comparar(valorLinha, valor) >= 0 && comparar(valorLinha, valorAte) <= 0;
+            default:
+                return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int comparar(Object a, Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    @Override
+    public String toString() {
+        switch (tipo) {
+            case E: return "(" + esquerda + " AND " + direita + ")";
+            case OU: return "(" + esquerda + " OR " + direita + ")";
+            case IGUAL: return nomeColuna + " = " + valor;
+            case MENOR: return nomeColuna + " < " + valor;
+            case MAIOR: return nomeColuna + " > " + valor;
+            case MENOR_IGUAL: return nomeColuna + " <= " + valor;
+            case MAIOR_IGUAL: return nomeColuna + " >= " + valor;
+            default: return nomeColuna + " BETWEEN " + valor + " AND " + valorAte;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package app.model;
+
+/**
+ * Resultado de um SELECT, avaliado sob demanda: cada chamada a proximo() puxa uma linha
+ * do pipeline de operadores (ver Operador). Nenhuma linha é calculada antes de ser pedida,
+ * e a consulta termina assim que o cursor deixa de ser lido.
+ *
+ * O cursor também faz a projeção das colunas, sem cópia: getValor(coluna) lê o valor
+ * direto da tabela de origem, na posição da linha atual.
+ *
+ * Uso:
+ *   Cursor cursor = (Cursor) interpretador.executar("SELECT nome FROM usuarios LIMIT 10");
+ *   while (cursor.proximo()) {
+ *       Object nome = cursor.getValor(0);
+ *   }
+ *
+ * As posições das linhas mudam quando uma tabela de origem é compactada (ver Tabela.compactar);
+ * nesse caso o cursor recusa a leitura e a consulta deve ser executada novamente.
+ *
+ * O cursor obtém as travas de leitura das origens apenas enquanto produz cada linha (e não
+ * entre uma linha e outra), então um cursor aberto não impede as escritas de outras sessões.
+ * As linhas produzidas são as visíveis no snapshot da consulta (ver GerenciadorTransacoes).
+ *
+ * Enquanto o cursor está aberto, as origens adiam a compactação (a coleta das versões antigas).
+ * Ele é fechado automaticamente ao chegar ao fim das linhas (e por paraVisao) ou ao falhar; um cursor
+ * abandonado antes do fim deve ser fechado com fechar() (ou em um try-with-resources).
+ *
+ * Um cursor pode também copiar as linhas que produz para o cache de resultados (ver
+ * CacheResultados): o resultado só é guardado se o cursor for lido até o fim.
+ */
+public class Cursor implements AutoCloseable {
+    // Linhas lidas por obtenção das travas em agregar.
+    private static final int LINHAS_POR_TRAVA = 1024;
+
+    private final String nome;
+    private final Operador raiz;
+    private final Tabela[] origens;
+    private final int[] versoesOrigens;
+    // As origens na ordem global das travas (ver Tabela.ordenarPorTrava).
+    private final Tabela[] origensOrdenadas;
+
+    // Projeção (arrays paralelos, um elemento por coluna do resultado).
+    private final Coluna[] colunas;
+    private final int[] origemDaColuna;
+    private final int[] colunaNaOrigem;
+
+    private boolean temLinha;
+    private boolean fechado;
+
+    // Cópia das linhas para o cache de resultados, ou null.
+    private CacheResultados.Coleta coleta;
+
+    // Métricas do comando que retornou o cursor (ver medirPara), ou null.
+    private MetricasMotor.Contadores contadores;
+    private long inicioNanos;
+    private long linhasProduzidas;
+
+    Cursor(String nome, Operador raiz, Tabela[] origens, Coluna[] colunas, int[] origemDaColuna, int[] colunaNaOrigem) {
+        this.nome = nome;
+        this.raiz = raiz;
+        this.origens = origens;
+        this.colunas = colunas;
+        this.origemDaColuna = origemDaColuna;
+        this.colunaNaOrigem = colunaNaOrigem;
+        this.temLinha = false;
+        this.origensOrdenadas = Tabela.ordenarPorTrava(origens);
+
+        this.versoesOrigens = new int[origens.length];
+        for (int o = 0; o < origens.length; o++) {
+            versoesOrigens[o] = origens[o].getVersaoPosicoes();
+            origens[o].registrarLeitor();
+        }
+    }
+
+    /** Avança para a próxima linha do resultado. @return false quando não há mais linhas. */
+    public boolean proximo() {
+        if (fechado) {
+            return false;
+        }
+        boolean lida = false;
+        try {
+            Tabela.travarLeitura(origensOrdenadas);
+            try {
+                verificarOrigens();
+                temLinha = raiz.proximo();
+                if (temLinha) linhasProduzidas++;
+                if (temLinha && coleta != null && !coleta.adicionar(copiarLinha())) {
+                    coleta = null; // Grande demais para o cache.
+                }
+                lida = true;
+            } finally {
+                Tabela.destravarLeitura(origensOrdenadas);
+                if (!lida) {
+                    coleta = null; // Um resultado com erro não é guardado.
+                }
+            }
+        } catch (RuntimeException e) {
+            // Com erro, o cursor não pode continuar: fecha-o (já sem as travas), liberando as
+            // origens e os arquivos temporários, pois quem o lê pode não chegar a fechá-lo.
+            fechar();
+            throw e;
+        }
+        if (!temLinha) {
+            if (coleta != null) {
+                coleta.concluir(colunas);
+                coleta = null;
+            }
+            fechar();
+        }
+        return temLinha;
+    }
+
+    /**
+     * Ao ser fechado, registra nas métricas as linhas produzidas e a latência do comando,
+     * contada a partir de inicioNanos (ver InterpretadorSQL.executarComando).
+     */
+    void medirPara(MetricasMotor.Contadores contadores, long inicioNanos) {
+        this.contadores = contadores;
+        this.inicioNanos = inicioNanos;
+    }
+
+    /** Passa a copiar as linhas produzidas para o cache de resultados (ver CacheResultados.iniciarColeta). */
+    void coletarPara(CacheResultados.Coleta coleta) {
+        this.coleta = coleta;
+    }
+
+    /** Copia os valores projetados da linha atual (com as travas de leitura das origens). */
+    private Linha copiarLinha() {
+        Linha linha = new Linha(colunas.length);
+        for (int c = 0; c < colunas.length; c++) {
+            int origem = origemDaColuna[c];
+            linha.setDadoPorIndice(c, origens[origem].getValor(raiz.getPosicao(origem), colunaNaOrigem[c]));
+        }
+        return linha;
+    }
+
+    /**
+     * Fecha o cursor, liberando as origens para a compactação (e os arquivos temporários de
+     * um ORDER BY). Chamadas repetidas não têm efeito.
+     */
+    public void fechar() {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        temLinha = false;
+        coleta = null; // Fechado antes do fim: o resultado incompleto é descartado.
+        raiz.fechar();
+        for (int o = 0; o < origens.length; o++) {
+            origens[o].liberarLeitor();
+        }
+        if (contadores != null) {
+            contadores.linhasRetornadas.add(linhasProduzidas);
+            contadores.registrarExecucao(System.nanoTime() - inicioNanos, false);
+            contadores = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        fechar();
+    }
+
+    public int getNumColunas() { return colunas.length; }
+
+    public Coluna getColuna(int indice) { return colunas[indice]; }
+
+    /** Valor da coluna (índice na projeção) na linha atual, ou null. */
+    public Object getValor(int coluna) {
+        if (!temLinha) {
+            throw new IllegalStateException("O cursor não está posicionado em uma linha. Chame proximo() antes de ler os valores.");
+        }
+        int origem = origemDaColuna[coluna];
+        origens[origem].travarLeitura();
+        try {
+            verificarOrigens();
+            return origens[origem].getValor(raiz.getPosicao(origem), colunaNaOrigem[coluna]);
+        } finally {
+            origens[origem].destravarLeitura();
+        }
+    }
+
+    /** Indica se o valor da coluna (índice na projeção) na linha atual é nulo. */
+    public boolean isNulo(int coluna) {
+        if (!temLinha) {
+            throw new IllegalStateException("O cursor não está posicionado em uma linha. Chame proximo() antes de ler os valores.");
+        }
+        int origem = origemDaColuna[coluna];
+        origens[origem].travarLeitura();
+        try {
+            verificarOrigens();
+            return origens[origem].isNulo(raiz.getPosicao(origem), colunaNaOrigem[coluna]);
+        } finally {
+            origens[origem].destravarLeitura();
+        }
+    }
+
+    /**
+     * Valor de uma coluna INT não nula na linha atual, sem criar um Integer
+     * (consulte isNulo antes; ver Tabela.getInt).
+     */
+    public int getInt(int coluna) {
+        if (!temLinha) {
+            throw new IllegalStateException("O cursor não está posicionado em uma linha. Chame proximo() antes de ler os valores.");
+        }
+        int origem = origemDaColuna[coluna];
+        origens[origem].travarLeitura();
+        try {
+            verificarOrigens();
+            return origens[origem].getInt(raiz.getPosicao(origem), colunaNaOrigem[coluna]);
+        } finally {
+            origens[origem].destravarLeitura();
+        }
+    }
+
+    /**
+     * Lê todas as linhas restantes e as guarda como uma visão somente leitura (ver Visao):
+     * apenas as posições das linhas são guardadas, sem copiar os dados. O cursor é fechado ao final.
+     * Graças ao snapshot, as escritas de outras sessões podem continuar durante a leitura.
+     * A visão deve ser fechada depois de usada (ver Tabela.fecharVisao).
+     */
+    public Tabela paraVisao() {
+        // O registro de leitor da visão é feito antes da leitura: ao fechar o cursor no fim das
+        // linhas, a compactação continua adiada, e as posições lidas continuam valendo.
+        for (int o = 0; o < origens.length; o++) {
+            origens[o].registrarLeitor();
+        }
+        ListaPosicoes[] posicoes = new ListaPosicoes[origens.length];
+        for (int o = 0; o < origens.length; o++) {
+            posicoes[o] = new ListaPosicoes();
+        }
+        try {
+            while (proximo()) {
+                for (int o = 0; o < origens.length; o++) {
+                    posicoes[o].adicionar(raiz.getPosicao(o));
+                }
+            }
+        } catch (RuntimeException e) {
+            for (int o = 0; o < origens.length; o++) {
+                origens[o].liberarLeitor();
+            }
+            throw e;
+        }
+        return Tabela.criarVisao(nome, origens, posicoes, versoesOrigens, colunas, origemDaColuna, colunaNaOrigem);
+    }
+
+    /**
+     * Passa todas as linhas restantes para a agregação (ver Agregacao). As travas de leitura
+     * das origens são obtidas uma vez por bloco de LINHAS_POR_TRAVA linhas, e não a cada linha
+     * ou valor: as escritas de outras sessões podem acontecer entre um bloco e outro.
+     * O cursor é fechado ao final, também em caso de erro.
+     */
+    void agregar(Agregacao agregacao) {
+        try {
+            while (!fechado) {
+                Tabela.travarLeitura(origensOrdenadas);
+                try {
+                    verificarOrigens();
+                    for (int i = 0; i < LINHAS_POR_TRAVA; i++) {
+                        temLinha = raiz.proximo();
+                        if (!temLinha) break;
+                        agregacao.acumular(raiz);
+                    }
+                } finally {
+                    Tabela.destravarLeitura(origensOrdenadas);
+                }
+                if (!temLinha) {
+                    fechar();
+                }
+            }
+        } finally {
+            // Com erro, quem chamou não recebe o cursor: ele é fechado aqui (como no fim das linhas).
+            fechar();
+        }
+    }
+
+    private void verificarOrigens() {
+        for (int o = 0; o < origens.length; o++) {
+            if (origens[o].getVersaoPosicoes() != versoesOrigens[o]) {
+                throw new IllegalStateException("O resultado ficou desatualizado: a tabela '" + origens[o].getNome()
+                        + "' foi compactada. Execute a consulta novamente.");
+            }
+        }
+    }
+}
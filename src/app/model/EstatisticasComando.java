@@ -0,0 +1,60 @@
+package app.model;
+
+/**
+ * Cópia das métricas de um tipo de comando em um instante (ver MetricasMotor). Exibida pelo
+ * jconsole como uma linha da tabela "Comandos"; as latências estão em microssegundos.
+ */
+public class EstatisticasComando {
+    private final String tipo;
+    private final long execucoes;
+    private final long erros;
+    private final long linhasLidas;
+    private final long linhasRetornadas;
+    private final long verificacoesRestricoes;
+    private final long redimensionamentos;
+    private final double latenciaMediaMicros;
+    private final long latenciaP50Micros;
+    private final long latenciaP95Micros;
+    private final long latenciaP99Micros;
+    private final long latenciaMaximaMicros;
+
+    EstatisticasComando(String tipo, long execucoes, long erros, long linhasLidas, long linhasRetornadas,
+                        long verificacoesRestricoes, long redimensionamentos, HistogramaLatencia latencia) {
+        this.tipo = tipo;
+        this.execucoes = execucoes;
+        this.erros = erros;
+        this.linhasLidas = linhasLidas;
+        this.linhasRetornadas = linhasRetornadas;
+        this.verificacoesRestricoes = verificacoesRestricoes;
+        this.redimensionamentos = redimensionamentos;
+        this.latenciaMediaMicros = latencia.getMedia() / 1000.0;
+        this.latenciaP50Micros = latencia.getPercentil(50) / 1000;
+        this.latenciaP95Micros = latencia.getPercentil(95) / 1000;
+        this.latenciaP99Micros = latencia.getPercentil(99) / 1000;
+        this.latenciaMaximaMicros = latencia.getMaximo() / 1000;
+    }
+
+    public String getTipo() { return tipo; }
+
+    public long getExecucoes() { return execucoes; }
+
+    public long getErros() { return erros; }
+
+    public long getLinhasLidas() { return linhasLidas; }
+
+    public long getLinhasRetornadas() { return linhasRetornadas; }
+
+    public long getVerificacoesRestricoes() { return verificacoesRestricoes; }
+
+    public long getRedimensionamentos() { return redimensionamentos; }
+
+    public double getLatenciaMediaMicros() { return latenciaMediaMicros; }
+
+    public long getLatenciaP50Micros() { return latenciaP50Micros; }
+
+    public long getLatenciaP95Micros() { return latenciaP95Micros; }
+
+    public long getLatenciaP99Micros() { return latenciaP99Micros; }
+
+    public long getLatenciaMaximaMicros() { return latenciaMaximaMicros; }
+}
@@ -0,0 +1,187 @@
+package app.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Divisão de uma varredura em partes processadas ao mesmo tempo (ForkJoin).
+ *
+ * As posições [0, total) são divididas em partes contíguas; cada parte é processada por
+ * uma thread do pool e grava o seu resultado em uma saída própria (sem travas nem
+ * sincronização entre as partes). Depois, as saídas são concatenadas na ordem das partes,
+ * de modo que o resultado é o mesmo, e na mesma ordem, de uma varredura sequencial.
+ *
+ * As partes leem a tabela sem obter as travas: quem chama já tem a trava da tabela (de
+ * leitura no SELECT, de escrita no DELETE) e só continua depois que todas as partes
+ * terminam, então nenhuma escrita acontece durante a varredura.
+ */
+class ExecucaoParalela {
+
+    // Maior número de threads aceito por sessão (ver InterpretadorSQL.definirOpcao).
+    static final int MAXIMO_THREADS = 64;
+
+    // Mais partes que threads: uma parte com muitas linhas aceitas não deixa as outras threads paradas.
+    private static final int PARTES_POR_THREAD = 4;
+
+    // Menor parte que vale o custo de agendar uma tarefa (múltiplo de 64, como os blocos da Varredura).
+    private static final int TAMANHO_MINIMO_PARTE = 8192;
+
+    // Um pool por grau de paralelismo, criado na primeira vez em que é usado e compartilhado
+    // pelas sessões (as threads de um ForkJoinPool são daemon).
+    private static final ForkJoinPool[] pools = new ForkJoinPool[MAXIMO_THREADS + 1];
+
+    private ExecucaoParalela() {}
+
+    private static synchronized ForkJoinPool getPool(int paralelismo) {
+        if (pools[paralelismo] == null) {
+            pools[paralelismo] = new ForkJoinPool(paralelismo);
+        }
+        return pools[paralelismo];
+    }
+
+    /** Trabalho feito sobre cada parte. processar é chamado de várias threads ao mesmo tempo. */
+    abstract static class Trabalho {
+        /** Processa as posições [inicio, fim), gravando o resultado na saída da 'parte'. */
+        abstract void processar(int parte, int inicio, int fim);
+    }
+
+    /** Número de partes em que 'total' posições são divididas para 'paralelismo' threads (ao menos 1). */
+    static int calcularNumPartes(int total, int paralelismo) {
+        int partes = Math.min(paralelismo * PARTES_POR_THREAD, total / TAMANHO_MINIMO_PARTE);
+        return Math.max(partes, 1);
+    }
+
+    /** Primeira posição da parte (a última parte termina em 'total'). */
+    private static int inicioParte(int parte, int numPartes, int total) {
+        if (parte >= numPartes) {
+            return total;
+        }
+        return (int) ((long) total * parte / numPartes) & ~63;
+    }
+
+    /**
+     * Executa o trabalho sobre as 'numPartes' partes de [0, total) no pool com 'paralelismo'
+     * threads e só retorna quando todas terminam. Um erro em uma parte é repassado a quem chamou.
+     */
+    static void executar(Trabalho trabalho, int total, int numPartes, int paralelismo) {
+        if (numPartes == 1) {
+            trabalho.processar(0, 0, total);
+            return;
+        }
+        getPool(paralelismo).invoke(new Divisao(trabalho, total, numPartes, 0, numPartes));
+    }
+
+    /** Divide o intervalo de partes ao meio até restar uma parte por tarefa. */
+    private static class Divisao extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Trabalho trabalho;
+        private final int total;
+        private final int numPartes;
+        private final int primeiraParte;
+        private final int fimPartes;
+
+        Divisao(Trabalho trabalho, int total, int numPartes, int primeiraParte, int fimPartes) {
+            this.trabalho = trabalho;
+            this.total = total;
+            this.numPartes = numPartes;
+            this.primeiraParte = primeiraParte;
+            this.fimPartes = fimPartes;
+        }
+
+        @Override
+        protected void compute() {
+            if (fimPartes - primeiraParte == 1) {
+                trabalho.processar(primeiraParte, inicioParte(primeiraParte, numPartes, total),
+                        inicioParte(primeiraParte + 1, numPartes, total));
+                return;
+            }
+            int meio = (primeiraParte + fimPartes) >>> 1;
+            invokeAll(new Divisao(trabalho, total, numPartes, primeiraParte, meio),
+                    new Divisao(trabalho, total, numPartes, meio, fimPartes));
+        }
+    }
+
+    /** Junta as listas das partes, na ordem das partes, em uma única lista. */
+    static ListaPosicoes concatenar(ListaPosicoes[] partes) {
+        if (partes.length == 1) {
+            return partes[0];
+        }
+        int total = 0;
+        for (int p = 0; p < partes.length; p++) {
+            total += partes[p].getTamanho();
+        }
+        ListaPosicoes resultado = new ListaPosicoes(total);
+        for (int p = 0; p < partes.length; p++) {
+            resultado.adicionarTodas(partes[p]);
+        }
+        return resultado;
+    }
+
+    // --- Trabalhos ---
+
+    /**
+     * Filtra a tabela em paralelo (ver Tabela.filtrar), retornando as posições aceitas
+     * em ordem crescente, como a varredura sequencial.
+     */
+    static ListaPosicoes filtrar(Tabela tabela, Condicao condicao, int lado, int numPosicoes, long snapshot, int paralelismo) {
+        Filtragem filtragem = new Filtragem(tabela, condicao, lado, snapshot,
+                calcularNumPartes(numPosicoes, paralelismo));
+        executar(filtragem, numPosicoes, filtragem.saidas.length, paralelismo);
+        return concatenar(filtragem.saidas);
+    }
+
+    /**
+     * Procura em paralelo as posições com o valor na coluna (ver Tabela.buscarIguais),
+     * em ordem crescente. Usada pelo DELETE quando a coluna não tem índice.
+     */
+    static ListaPosicoes buscarIguais(Tabela tabela, int indiceColuna, Object valor, int numPosicoes, int paralelismo) {
+        BuscaIguais busca = new BuscaIguais(tabela, indiceColuna, valor, calcularNumPartes(numPosicoes, paralelismo));
+        executar(busca, numPosicoes, busca.saidas.length, paralelismo);
+        return concatenar(busca.saidas);
+    }
+
+    private static class Filtragem extends Trabalho {
+        private final Tabela tabela;
+        private final Condicao condicao;
+        private final int lado;
+        private final long snapshot;
+        final ListaPosicoes[] saidas;
+
+        Filtragem(Tabela tabela, Condicao condicao, int lado, long snapshot, int numPartes) {
+            this.tabela = tabela;
+            this.condicao = condicao;
+            this.lado = lado;
+            this.snapshot = snapshot;
+            this.saidas = new ListaPosicoes[numPartes];
+        }
+
+        @Override
+        void processar(int parte, int inicio, int fim) {
+            ListaPosicoes saida = new ListaPosicoes();
+            tabela.filtrar(condicao, lado, inicio, fim, saida, snapshot);
+            saidas[parte] = saida;
+        }
+    }
+
+    private static class BuscaIguais extends Trabalho {
+        private final Tabela tabela;
+        private final int indiceColuna;
+        private final Object valor;
+        final ListaPosicoes[] saidas;
+
+        BuscaIguais(Tabela tabela, int indiceColuna, Object valor, int numPartes) {
+            this.tabela = tabela;
+            this.indiceColuna = indiceColuna;
+            this.valor = valor;
+            this.saidas = new ListaPosicoes[numPartes];
+        }
+
+        @Override
+        void processar(int parte, int inicio, int fim) {
+            ListaPosicoes saida = new ListaPosicoes();
+            tabela.buscarIguais(indiceColuna, valor, inicio, fim, saida);
+            saidas[parte] = saida;
+        }
+    }
+}
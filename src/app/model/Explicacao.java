@@ -0,0 +1,173 @@
+package app.model;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * EXPLAIN e EXPLAIN ANALYZE: as etapas do plano de um comando, em árvore, e o resultado que
+ * as descreve (uma tabela temporária, exibida como o resultado de um SELECT).
+ *
+ * No EXPLAIN, as etapas são apenas registradas enquanto o plano é montado (ver
+ * InterpretadorSQL.registrarEtapa), com o número estimado de linhas quando ele é conhecido,
+ * e o comando não é executado. No EXPLAIN ANALYZE, o comando é executado e cada operador é
+ * envolvido por um Operador.Medido, que conta as linhas produzidas e soma o tempo e a memória
+ * alocada em cada chamada. Os valores de uma etapa incluem os das suas entradas (o Hash Join
+ * inclui o tempo das varreduras que ele puxa).
+ *
+ * A memória alocada é a da thread da sessão (ThreadMXBean): o que as threads de uma varredura
+ * paralela alocam não entra, mas o tempo de espera por elas, sim.
+ */
+class Explicacao {
+
+    // Medidor de memória alocada por thread, ou null se a JVM não o oferece.
+    private static final com.sun.management.ThreadMXBean MEDIDOR_MEMORIA = criarMedidorMemoria();
+
+    private static com.sun.management.ThreadMXBean criarMedidorMemoria() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean medidor = (com.sun.management.ThreadMXBean) threads;
+        if (!medidor.isThreadAllocatedMemorySupported() || !medidor.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+        return medidor;
+    }
+
+    /** Bytes alocados até agora pela thread atual (0 sem o medidor: a coluna fica NULL). */
+    static long bytesAlocados() {
+        return MEDIDOR_MEMORIA != null ? MEDIDOR_MEMORIA.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /** Uma etapa do plano: descrição, entradas e, no EXPLAIN ANALYZE, as medidas. */
+    static class Etapa {
+        final String descricao;
+        final Etapa[] entradas;
+        final long estimativa;   // Linhas estimadas no planejamento, ou -1
+        long linhas = -1;        // Linhas produzidas, ou -1 se a etapa não conta linhas
+        long nanos = -1;         // Tempo total, ou -1 se a etapa não foi medida
+        long bytes;
+        Ordenador ordenador;     // Ordenação externa: as runs gravadas são informadas no EXPLAIN ANALYZE
+
+        private long inicioNanos;
+        private long inicioBytes;
+
+        Etapa(String descricao, long estimativa, Etapa[] entradas) {
+            this.descricao = descricao;
+            this.estimativa = estimativa;
+            this.entradas = entradas != null ? entradas : new Etapa[0];
+        }
+
+        /** Começa a medir um trecho da etapa (iniciar/terminar não podem ser aninhados). */
+        void iniciar() {
+            inicioNanos = System.nanoTime();
+            inicioBytes = bytesAlocados();
+        }
+
+        void terminar() {
+            adicionar(System.nanoTime() - inicioNanos, bytesAlocados() - inicioBytes);
+        }
+
+        /** Soma um trecho medido ao total da etapa. */
+        void adicionar(long nanosTrecho, long bytesTrecho) {
+            nanos = nanos == -1 ? nanosTrecho : nanos + nanosTrecho;
+            bytes += bytesTrecho;
+        }
+    }
+
+    final boolean analisar;
+
+    // Etapas de primeiro nível, na ordem do resultado (ex: análise, planejamento, plano, total).
+    private Etapa[] etapas = new Etapa[4];
+    private int numEtapas;
+
+    // Raiz do plano montado até agora: a última etapa registrada (como o InterpretadorSQL.ultimoPlano).
+    Etapa ultima;
+
+    Explicacao(boolean analisar) {
+        this.analisar = analisar;
+    }
+
+    /** Acrescenta uma etapa (com as suas entradas) ao resultado. */
+    void adicionarEtapa(Etapa etapa) {
+        if (numEtapas == etapas.length) {
+            Etapa[] novasEtapas = new Etapa[etapas.length * 2];
+            for (int i = 0; i < numEtapas; i++) {
+                novasEtapas[i] = etapas[i];
+            }
+            etapas = novasEtapas;
+        }
+        etapas[numEtapas++] = etapa;
+    }
+
+    // --- Resultado ---
+
+    /**
+     * Uma linha por etapa, em pré-ordem: as entradas de uma etapa vêm logo abaixo dela, recuadas
+     * ("->"). Colunas: plano e estimativa; no EXPLAIN ANALYZE, também linhas, tempo_ms e
+     * bytes_alocados (NULL nas etapas sem a medida).
+     */
+    Cursor gerarResultado() {
+        Coluna[] colunas = analisar
+                ? new Coluna[] { new Coluna("plano", "STRING"), new Coluna("estimativa", "BIGINT"),
+                        new Coluna("linhas", "BIGINT"), new Coluna("tempo_ms", "DECIMAL"), new Coluna("bytes_alocados", "BIGINT") }
+                : new Coluna[] { new Coluna("plano", "STRING"), new Coluna("estimativa", "BIGINT") };
+
+        int total = 0;
+        for (int i = 0; i < numEtapas; i++) {
+            total += contar(etapas[i]);
+        }
+        Linha[] linhas = new Linha[total];
+        int proxima = 0;
+        for (int i = 0; i < numEtapas; i++) {
+            proxima = gerarLinhas(etapas[i], 0, linhas, proxima, colunas.length);
+        }
+
+        Tabela resultado = Tabela.criarResultado("resultado_explain", colunas, linhas, total);
+        int[] colunaNaOrigem = new int[colunas.length];
+        for (int i = 0; i < colunas.length; i++) {
+            colunaNaOrigem[i] = i;
+        }
+        return new Cursor("resultado_explain", new Operador.Varredura(resultado, null, 0, Long.MAX_VALUE),
+                new Tabela[] { resultado }, colunas, new int[colunas.length], colunaNaOrigem);
+    }
+
+    private static int contar(Etapa etapa) {
+        int total = 1;
+        for (int i = 0; i < etapa.entradas.length; i++) {
+            total += contar(etapa.entradas[i]);
+        }
+        return total;
+    }
+
+    /** Grava a etapa e as suas entradas a partir de linhas[proxima]. @return A próxima linha livre. */
+    private int gerarLinhas(Etapa etapa, int nivel, Linha[] linhas, int proxima, int numColunas) {
+        StringBuilder plano = new StringBuilder();
+        for (int i = 1; i < nivel; i++) {
+            plano.append("   ");
+        }
+        if (nivel > 0) {
+            plano.append("-> ");
+        }
+        plano.append(etapa.descricao);
+        if (analisar && etapa.ordenador != null) {
+            int runs = etapa.ordenador.getNumRunsGravadas();
+            plano.append(runs == 0 ? " [em memória]" : " [" + runs + (runs == 1 ? " run gravada" : " runs gravadas") + " em disco]");
+        }
+
+        Linha linha = new Linha(numColunas);
+        linha.setDadoPorIndice(0, plano.toString());
+        linha.setDadoPorIndice(1, etapa.estimativa != -1 ? Long.valueOf(etapa.estimativa) : null);
+        if (analisar) {
+            linha.setDadoPorIndice(2, etapa.linhas != -1 ? Long.valueOf(etapa.linhas) : null);
+            // Milissegundos com três casas (resolução de microssegundos).
+            linha.setDadoPorIndice(3, etapa.nanos != -1 ? Double.valueOf(Math.round(etapa.nanos / 1000.0) / 1000.0) : null);
+            linha.setDadoPorIndice(4, etapa.nanos != -1 && MEDIDOR_MEMORIA != null ? Long.valueOf(etapa.bytes) : null);
+        }
+        linhas[proxima++] = linha;
+
+        for (int i = 0; i < etapa.entradas.length; i++) {
+            proxima = gerarLinhas(etapa.entradas[i], nivel + 1, linhas, proxima, numColunas);
+        }
+        return proxima;
+    }
+}
@@ -4,6 +4,13 @@ public class ForeignKeyConstraint {
     private String tabelaReferenciada;
     private String colunaReferenciada;
 
+    // Cache da resolução: evita buscar a tabela e a coluna referenciadas pelo nome
+    // a cada inserção. É invalidado pelo BancoSimulado quando a tabela é removida (DROP TABLE).
+    // 'volatile': a resolução feita por uma sessão fica visível para as demais; o índice da
+    // coluna é escrito antes da tabela, então quem vê a tabela resolvida também vê o índice.
+    private volatile Tabela tabelaResolvida = null;
+    private volatile int indiceColunaResolvida = -1;
+
     public ForeignKeyConstraint(String tabelaReferenciada, String colunaReferenciada) {
         this.tabelaReferenciada = tabelaReferenciada;
         this.colunaReferenciada = colunaReferenciada;
@@ -16,4 +23,43 @@ public class ForeignKeyConstraint {
     public String getColunaReferenciada() {
         return colunaReferenciada;
     }
-}
\ No newline at end of file
+
+    /**
+     * Retorna a tabela referenciada, resolvendo-a pelo nome apenas na primeira chamada.
+     * Na resolução, garante que a coluna referenciada possua um índice hash,
+     * para que a validação da FK seja uma consulta em tempo constante.
+     */
+    public Tabela getTabelaResolvida() throws Exception {
+        Tabela resolvida = tabelaResolvida;
+        if (resolvida == null) {
+            Tabela tabela = BancoSimulado.getInstancia().getTabela(tabelaReferenciada);
+            if (tabela == null) {
+                throw new Exception("Tabela referenciada '" + tabelaReferenciada + "' não existe.");
+            }
+
+            int indiceColuna = tabela.getIndiceColunaPeloNome(colunaReferenciada);
+            if (indiceColuna == -1) {
+                throw new Exception("Coluna referenciada '" + colunaReferenciada + "' não existe na tabela '" + tabelaReferenciada + "'.");
+            }
+
+            tabela.criarIndiceHash(indiceColuna);
+
+            // Duas sessões podem resolver ao mesmo tempo: ambas chegam à mesma tabela e coluna.
+            this.indiceColunaResolvida = indiceColuna;
+            this.tabelaResolvida = tabela;
+            resolvida = tabela;
+        }
+        return resolvida;
+    }
+
+    /** Índice da coluna referenciada; válido após getTabelaResolvida(). */
+    public int getIndiceColunaResolvida() {
+        return indiceColunaResolvida;
+    }
+
+    /** Descarta a resolução em cache (chamado quando a tabela referenciada é removida). */
+    public void invalidarCache() {
+        this.tabelaResolvida = null;
+        this.indiceColunaResolvida = -1;
+    }
+}
@@ -0,0 +1,365 @@
+package app.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffer pool das tabelas em disco (CREATE TABLE ... WITH (storage = disk), ver ArmazenamentoPaginado).
+ *
+ * Os dados dessas tabelas ficam em arquivos divididos em páginas de tamanho fixo. Para ler ou
+ * alterar uma página, ela é trazida para um dos quadros (frames) do buffer, um número limitado
+ * de arrays de bytes em memória compartilhado por todas as tabelas em disco:
+ * - acerto (hit): a página já está em um quadro;
+ * - falta (miss): a página é lida do arquivo para um quadro livre ou para o quadro de outra
+ *   página, escolhida pelo algoritmo do relógio (CLOCK). Se a página escolhida foi alterada
+ *   (suja), ela é gravada no arquivo antes de o quadro ser reaproveitado (write-back).
+ *
+ * Uso: quadro = fixar(arquivo, pagina); ... getDados(quadro) ...; desafixar(quadro, alterou).
+ * Enquanto estiver fixada (pinned), a página não sai do quadro.
+ *
+ * Algoritmo do relógio: cada quadro tem um bit de referência, ligado a cada acesso. O ponteiro
+ * percorre os quadros em círculo; um quadro com o bit ligado ganha uma "segunda chance" (o bit é
+ * desligado) e o primeiro com o bit desligado é o escolhido. É uma aproximação do LRU que não
+ * precisa reordenar nenhuma lista a cada acesso.
+ *
+ * Os arquivos de dados são temporários: a durabilidade dos dados vem do log de transações
+ * (ver LogTransacoes), que reconstrói as tabelas ao abrir o banco.
+ */
+public class GerenciadorBuffer {
+
+    public static final int TAMANHO_PAGINA = 8192;
+
+    // 1024 quadros de 8 KB: 8 MB de buffer.
+    public static final int CAPACIDADE_PADRAO = 1024;
+
+    private static GerenciadorBuffer instancia;
+
+    /** Arquivo de dados de uma tabela em disco, dividido em páginas de TAMANHO_PAGINA bytes. */
+    static class ArquivoDados {
+        private final int id;
+        private final Path caminho;
+        private final FileChannel canal;
+
+        private ArquivoDados(int id, Path caminho) throws IOException {
+            this.id = id;
+            this.caminho = caminho;
+            this.canal = FileChannel.open(caminho, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /** Lê a página para o array (páginas ainda não gravadas são lidas como zeros). */
+        private void lerPagina(int pagina, byte[] destino) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(destino);
+            long posicao = (long) pagina * TAMANHO_PAGINA;
+            while (buffer.hasRemaining()) {
+                int lidos = canal.read(buffer, posicao + buffer.position());
+                if (lidos < 0) break;
+            }
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) 0);
+            }
+        }
+
+        private void gravarPagina(int pagina, byte[] origem) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(origem);
+            long posicao = (long) pagina * TAMANHO_PAGINA;
+            while (buffer.hasRemaining()) {
+                canal.write(buffer, posicao + buffer.position());
+            }
+        }
+
+        private void fechar() throws IOException {
+            canal.close();
+            Files.deleteIfExists(caminho);
+        }
+    }
+
+    // ----- Quadros (arrays paralelos, um elemento por quadro) -----
+    private byte[][] quadros;
+    private ArquivoDados[] arquivoDoQuadro; // null = quadro livre
+    private int[] paginaDoQuadro;
+    private int[] fixacoes;                 // Quantas vezes o quadro está fixado (pin count)
+    private boolean[] sujos;                // Página alterada e ainda não gravada no arquivo
+    private boolean[] referenciados;        // Bit de referência do algoritmo do relógio
+    private int ponteiroRelogio;
+
+    // ----- Tabela de páginas: (arquivo, página) -> quadro -----
+    // Hash com endereçamento aberto (sondagem linear) sobre chaves long: id do arquivo nos 32 bits
+    // altos e número da página nos 32 baixos. -1 marca uma posição vazia.
+    private long[] chavesPaginas;
+    private int[] quadrosPaginas;
+    private int mascaraPaginas;
+
+    private int proximoIdArquivo;
+
+    // ----- Métricas -----
+    private long numAcertos;
+    private long numFaltas;
+    private long numGravacoes;
+
+    private GerenciadorBuffer(int capacidade) {
+        alocar(capacidade);
+    }
+
+    public static synchronized GerenciadorBuffer getInstancia() {
+        if (instancia == null) {
+            instancia = new GerenciadorBuffer(CAPACIDADE_PADRAO);
+        }
+        return instancia;
+    }
+
+    private void alocar(int capacidade) {
+        this.quadros = new byte[capacidade][];
+        this.arquivoDoQuadro = new ArquivoDados[capacidade];
+        this.paginaDoQuadro = new int[capacidade];
+        this.fixacoes = new int[capacidade];
+        this.sujos = new boolean[capacidade];
+        this.referenciados = new boolean[capacidade];
+        this.ponteiroRelogio = 0;
+
+        int tamanhoTabela = 16;
+        while (tamanhoTabela < capacidade * 2) {
+            tamanhoTabela *= 2;
+        }
+        this.chavesPaginas = new long[tamanhoTabela];
+        this.quadrosPaginas = new int[tamanhoTabela];
+        for (int i = 0; i < tamanhoTabela; i++) {
+            chavesPaginas[i] = -1;
+        }
+        this.mascaraPaginas = tamanhoTabela - 1;
+    }
+
+    /**
+     * Altera o número de quadros do buffer. As páginas alteradas são gravadas antes.
+     * Só pode ser chamado com nenhuma página fixada (ex: na inicialização).
+     */
+    public synchronized void configurarCapacidade(int capacidade) {
+        if (capacidade < 2) {
+            throw new IllegalArgumentException("O buffer precisa de pelo menos 2 quadros.");
+        }
+        for (int q = 0; q < quadros.length; q++) {
+            if (fixacoes[q] > 0) {
+                throw new IllegalStateException("Não é possível redimensionar o buffer com páginas em uso.");
+            }
+        }
+        gravarPaginasSujas();
+        alocar(capacidade);
+    }
+
+    // --- Arquivos ---
+
+    /** Cria o arquivo de dados (temporário) de uma tabela em disco. */
+    synchronized ArquivoDados criarArquivo(String nomeTabela) {
+        try {
+            Path caminho = Files.createTempFile("simulador_" + nomeTabela + "_", ".pag");
+            caminho.toFile().deleteOnExit();
+            return new ArquivoDados(proximoIdArquivo++, caminho);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o arquivo de dados da tabela '" + nomeTabela + "'.", e);
+        }
+    }
+
+    /**
+     * Descarta as páginas do arquivo que estão no buffer (sem gravá-las) e apaga o arquivo.
+     * Nenhuma página do arquivo pode estar fixada.
+     */
+    synchronized void descartarArquivo(ArquivoDados arquivo) {
+        for (int q = 0; q < quadros.length; q++) {
+            if (arquivoDoQuadro[q] == arquivo) {
+                removerDaTabelaPaginas(chave(arquivo, paginaDoQuadro[q]));
+                arquivoDoQuadro[q] = null;
+                sujos[q] = false;
+                referenciados[q] = false;
+                fixacoes[q] = 0;
+            }
+        }
+        try {
+            arquivo.fechar();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // --- Fixar / Desafixar ---
+
+    /**
+     * Traz a página para um quadro (lendo do arquivo em caso de falta) e a fixa.
+     * @return O número do quadro, para getDados e desafixar.
+     */
+    synchronized int fixar(ArquivoDados arquivo, int pagina) {
+        long chave = chave(arquivo, pagina);
+        int quadro = buscarNaTabelaPaginas(chave);
+        if (quadro != -1) {
+            numAcertos++;
+        } else {
+            numFaltas++;
+            quadro = escolherQuadro();
+            if (quadros[quadro] == null) {
+                quadros[quadro] = new byte[TAMANHO_PAGINA];
+            }
+            try {
+                arquivo.lerPagina(pagina, quadros[quadro]);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao ler a página " + pagina + " do arquivo de dados.", e);
+            }
+            arquivoDoQuadro[quadro] = arquivo;
+            paginaDoQuadro[quadro] = pagina;
+            sujos[quadro] = false;
+            inserirNaTabelaPaginas(chave, quadro);
+        }
+        fixacoes[quadro]++;
+        referenciados[quadro] = true;
+        return quadro;
+    }
+
+    /** Os bytes da página no quadro. Válido apenas enquanto o quadro estiver fixado. */
+    byte[] getDados(int quadro) {
+        return quadros[quadro];
+    }
+
+    /** Libera uma fixação do quadro. @param alterada Se a página foi alterada (será gravada depois). */
+    synchronized void desafixar(int quadro, boolean alterada) {
+        if (alterada) {
+            sujos[quadro] = true;
+        }
+        fixacoes[quadro]--;
+    }
+
+    /**
+     * Escolhe o quadro que receberá uma nova página: um quadro livre ou, pelo algoritmo do
+     * relógio, o de uma página não fixada (gravando-a antes, se estiver suja).
+     */
+    private int escolherQuadro() {
+        // Duas voltas completas: a primeira pode apenas desligar os bits de referência.
+        for (int passo = 0; passo < 2 * quadros.length; passo++) {
+            int quadro = ponteiroRelogio;
+            ponteiroRelogio = (ponteiroRelogio + 1) % quadros.length;
+
+            if (arquivoDoQuadro[quadro] == null) {
+                return quadro;
+            }
+            if (fixacoes[quadro] > 0) {
+                continue;
+            }
+            if (referenciados[quadro]) {
+                referenciados[quadro] = false; // Segunda chance
+                continue;
+            }
+
+            // Vítima: grava a página se ela foi alterada e a retira da tabela de páginas.
+            if (sujos[quadro]) {
+                gravarQuadro(quadro);
+            }
+            removerDaTabelaPaginas(chave(arquivoDoQuadro[quadro], paginaDoQuadro[quadro]));
+            arquivoDoQuadro[quadro] = null;
+            return quadro;
+        }
+        throw new IllegalStateException("Todas as " + quadros.length + " páginas do buffer estão em uso.");
+    }
+
+    private void gravarQuadro(int quadro) {
+        try {
+            arquivoDoQuadro[quadro].gravarPagina(paginaDoQuadro[quadro], quadros[quadro]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar a página " + paginaDoQuadro[quadro] + " no arquivo de dados.", e);
+        }
+        sujos[quadro] = false;
+        numGravacoes++;
+    }
+
+    /** Grava no arquivo todas as páginas alteradas que estão no buffer. */
+    public synchronized void gravarPaginasSujas() {
+        for (int q = 0; q < quadros.length; q++) {
+            if (arquivoDoQuadro[q] != null && sujos[q]) {
+                gravarQuadro(q);
+            }
+        }
+    }
+
+    // --- Tabela de Páginas ---
+
+    private static long chave(ArquivoDados arquivo, int pagina) {
+        return ((long) arquivo.id << 32) | (pagina & 0xFFFFFFFFL);
+    }
+
+    private int posicaoInicial(long chave) {
+        long h = chave * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mascaraPaginas;
+    }
+
+    private int buscarNaTabelaPaginas(long chave) {
+        int i = posicaoInicial(chave);
+        while (chavesPaginas[i] != -1) {
+            if (chavesPaginas[i] == chave) {
+                return quadrosPaginas[i];
+            }
+            i = (i + 1) & mascaraPaginas;
+        }
+        return -1;
+    }
+
+    private void inserirNaTabelaPaginas(long chave, int quadro) {
+        int i = posicaoInicial(chave);
+        while (chavesPaginas[i] != -1) {
+            i = (i + 1) & mascaraPaginas;
+        }
+        chavesPaginas[i] = chave;
+        quadrosPaginas[i] = quadro;
+    }
+
+    /**
+     * Remove a chave. Na sondagem linear não se pode apenas esvaziar a posição (as buscas parariam
+     * nela): as chaves seguintes do mesmo agrupamento são reposicionadas.
+     */
+    private void removerDaTabelaPaginas(long chave) {
+        int i = posicaoInicial(chave);
+        while (chavesPaginas[i] != chave) {
+            if (chavesPaginas[i] == -1) return;
+            i = (i + 1) & mascaraPaginas;
+        }
+        chavesPaginas[i] = -1;
+        int j = (i + 1) & mascaraPaginas;
+        while (chavesPaginas[j] != -1) {
+            long chaveMovida = chavesPaginas[j];
+            int quadroMovido = quadrosPaginas[j];
+            chavesPaginas[j] = -1;
+            inserirNaTabelaPaginas(chaveMovida, quadroMovido);
+            j = (j + 1) & mascaraPaginas;
+        }
+    }
+
+    // --- Métricas ---
+
+    public synchronized int getCapacidade() { return quadros.length; }
+
+    /** Acessos a páginas que já estavam no buffer. */
+    public synchronized long getNumAcertos() { return numAcertos; }
+
+    /** Acessos a páginas que precisaram ser lidas do arquivo. */
+    public synchronized long getNumFaltas() { return numFaltas; }
+
+    /** Páginas alteradas gravadas no arquivo (ao serem retiradas do buffer ou em gravarPaginasSujas). */
+    public synchronized long getNumGravacoes() { return numGravacoes; }
+
+    /** Fração dos acessos atendidos pelo buffer (0 a 1). */
+    public synchronized double getTaxaAcertos() {
+        long total = numAcertos + numFaltas;
+        return total == 0 ? 0 : (double) numAcertos / total;
+    }
+
+    public synchronized void zerarContadores() {
+        numAcertos = 0;
+        numFaltas = 0;
+        numGravacoes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Buffer: " + quadros.length + " páginas de " + TAMANHO_PAGINA + " bytes, acertos=" + numAcertos
+                + ", faltas=" + numFaltas + ", gravações=" + numGravacoes;
+    }
+}
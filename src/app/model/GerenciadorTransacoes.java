@@ -0,0 +1,51 @@
+package app.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Numeração das transações para o controle de concorrência multiversão (MVCC).
+ *
+ * Cada escrita (INSERT ou DELETE) recebe um número crescente, gravado nas versões de linha
+ * que ela cria ou remove (ver Tabela.isVisivel). Uma consulta guarda, ao começar, o número da
+ * última escrita: o seu snapshot. Ela enxerga apenas as linhas criadas até o snapshot e não
+ * removidas até ele, então as escritas feitas durante a consulta não mudam o seu resultado,
+ * e a consulta não precisa impedir essas escritas.
+ *
+ * Exemplo: com o snapshot 10, uma linha criada pela escrita 8 e removida pela escrita 12
+ * ainda é vista; uma linha criada pela escrita 11 não é.
+ */
+public class GerenciadorTransacoes {
+
+    private static GerenciadorTransacoes instancia;
+
+    // Número da última escrita. As linhas carregadas sem uma escrita (ex: em materializar)
+    // ficam com o número 0, visível para qualquer snapshot.
+    private final AtomicLong ultimaTransacao = new AtomicLong();
+
+    private GerenciadorTransacoes() {
+    }
+
+    public static synchronized GerenciadorTransacoes getInstancia() {
+        if (instancia == null) {
+            instancia = new GerenciadorTransacoes();
+        }
+        return instancia;
+    }
+
+    /**
+     * Retorna o número de uma nova escrita. Deve ser obtido já com a trava de escrita da
+     * tabela: assim, nenhuma consulta que tenha a trava de leitura da tabela vê a escrita pela metade.
+     */
+    long novaTransacao() {
+        return ultimaTransacao.incrementAndGet();
+    }
+
+    /**
+     * Retorna o snapshot de uma consulta: ela enxerga as escritas de número até o retornado.
+     * Deve ser obtido com as travas de leitura das tabelas consultadas, para que nenhuma
+     * escrita com número menor ou igual esteja em andamento nelas.
+     */
+    public long getSnapshot() {
+        return ultimaTransacao.get();
+    }
+}
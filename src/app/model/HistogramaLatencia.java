@@ -0,0 +1,103 @@
+package app.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências (em nanossegundos) no estilo do HdrHistogram: os valores são
+ * contados em faixas log-lineares, com erro relativo de no máximo 1/SUBFAIXAS (cerca de 3%)
+ * em qualquer ordem de grandeza, usando memória fixa.
+ *
+ * Os valores abaixo de 2 * SUBFAIXAS têm uma faixa cada. Acima disso, cada potência de dois
+ * [2^k, 2^(k+1)) é dividida em SUBFAIXAS faixas de mesma largura.
+ * Ex (SUBFAIXAS = 32): 100 fica na faixa [100, 101]; 1.000.000, na faixa [999.424, 1.015.807].
+ *
+ * A gravação não usa travas: um incremento atômico na faixa do valor e nos totais. A leitura
+ * (percentis) pode ocorrer durante as gravações; o resultado é então aproximado.
+ */
+class HistogramaLatencia {
+
+    private static final int BITS_SUBFAIXAS = 5;
+    private static final int SUBFAIXAS = 1 << BITS_SUBFAIXAS;
+    // Faixas unitárias [0, 2 * SUBFAIXAS) e SUBFAIXAS faixas por potência de dois até 2^63.
+    private static final int NUM_FAIXAS = 2 * SUBFAIXAS + (63 - BITS_SUBFAIXAS - 1) * SUBFAIXAS;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(NUM_FAIXAS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    /** Registra um valor (negativos contam como 0). */
+    void registrar(long nanos) {
+        if (nanos < 0) nanos = 0;
+        contagens.incrementAndGet(faixa(nanos));
+        total.increment();
+        soma.add(nanos);
+        maximo.accumulate(nanos);
+    }
+
+    static int faixa(long valor) {
+        if (valor < 2 * SUBFAIXAS) {
+            return (int) valor;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(valor);
+        int deslocamento = expoente - BITS_SUBFAIXAS;
+        int subfaixa = (int) (valor >>> deslocamento) - SUBFAIXAS;
+        return 2 * SUBFAIXAS + (deslocamento - 1) * SUBFAIXAS + subfaixa;
+    }
+
+    /** Maior valor contado na faixa. */
+    static long limiteSuperior(int faixa) {
+        if (faixa < 2 * SUBFAIXAS) {
+            return faixa;
+        }
+        int k = faixa - 2 * SUBFAIXAS;
+        int deslocamento = k / SUBFAIXAS + 1;
+        long inicio = (long) (k % SUBFAIXAS + SUBFAIXAS) << deslocamento;
+        return inicio + (1L << deslocamento) - 1;
+    }
+
+    long getTotal() { return total.sum(); }
+
+    long getMaximo() { return maximo.get(); }
+
+    /** Média dos valores registrados (0 se não houver nenhum). */
+    double getMedia() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) soma.sum() / n;
+    }
+
+    /**
+     * Valor abaixo do qual (ou igual) estão 'percentil' % dos registros: o limite superior da
+     * faixa que o contém, sem passar do máximo registrado. @return 0 se não houver registros.
+     */
+    long getPercentil(double percentil) {
+        long n = 0;
+        for (int i = 0; i < NUM_FAIXAS; i++) {
+            n += contagens.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long posicao = Math.max(1, (long) Math.ceil(percentil / 100.0 * n));
+        long acumulado = 0;
+        for (int i = 0; i < NUM_FAIXAS; i++) {
+            acumulado += contagens.get(i);
+            if (acumulado >= posicao) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /** Zera o histograma (registros simultâneos podem ficar parcialmente contados). */
+    void zerar() {
+        for (int i = 0; i < NUM_FAIXAS; i++) {
+            contagens.set(i, 0);
+        }
+        total.reset();
+        soma.reset();
+        maximo.reset();
+    }
+}
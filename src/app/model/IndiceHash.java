@@ -0,0 +1,236 @@
+package app.model;
+
+/**
+ * Índice hash sobre uma coluna de uma Tabela: mapeia cada valor da coluna para as
+ * posições (índices no array de linhas) onde ele aparece.
+ * Implementado manualmente com um array clássico de "buckets" e encadeamento,
+ * permitindo buscas, inserções e remoções em tempo constante (em média).
+ */
+public class IndiceHash {
+    private static final int CAPACIDADE_INICIAL = 16;
+    private static final int CAPACIDADE_POSICOES_INICIAL = 1;
+
+    /**
+     * Um valor distinto da coluna e as posições das linhas que o contêm.
+     * As posições ficam em um array clássico, na ordem em que foram inseridas.
+     */
+    static class Entrada {
+        final Object chave;
+        final int hash;
+        int[] posicoes;
+        int numPosicoes;
+        Entrada proxima; // Próxima entrada do mesmo bucket (encadeamento)
+
+        Entrada(Object chave, int hash, Entrada proxima) {
+            this.chave = chave;
+            this.hash = hash;
+            this.posicoes = new int[CAPACIDADE_POSICOES_INICIAL];
+            this.numPosicoes = 0;
+            this.proxima = proxima;
+        }
+
+        void adicionarPosicao(int posicao) {
+            if (numPosicoes == posicoes.length) {
+                int[] novoPosicoes = new int[posicoes.length * 2];
+                for (int i = 0; i < numPosicoes; i++) {
+                    novoPosicoes[i] = posicoes[i];
+                }
+                posicoes = novoPosicoes;
+            }
+            posicoes[numPosicoes] = posicao;
+            numPosicoes++;
+        }
+    }
+
+    // Array Clássico de buckets: cada slot guarda o início de uma lista encadeada de Entradas.
+    private Entrada[] buckets;
+    // Contador: número de chaves distintas armazenadas.
+    private int numChaves;
+
+    public IndiceHash() {
+        this(CAPACIDADE_INICIAL);
+    }
+
+    /**
+     * Cria o índice já dimensionado para a quantidade esperada de chaves,
+     * evitando redimensionamentos quando o índice é construído de uma vez.
+     */
+    public IndiceHash(int capacidadeEsperada) {
+        int capacidade = CAPACIDADE_INICIAL;
+        while (capacidade * 3 / 4 < capacidadeEsperada) {
+            capacidade *= 2;
+        }
+        this.buckets = new Entrada[capacidade];
+        this.numChaves = 0;
+    }
+
+    private static int calcularHash(Object chave) {
+        int h = chave.hashCode();
+        // Espalha os bits altos para os baixos, já que o bucket é escolhido pelos bits baixos.
+        return h ^ (h >>> 16);
+    }
+
+    private int indiceBucket(int hash) {
+        // A capacidade é sempre potência de 2, então o '&' equivale ao resto da divisão.
+        return hash & (buckets.length - 1);
+    }
+
+    // --- Lógica de Redimensionamento ---
+
+    /**
+     * Dobra o array de buckets quando a taxa de ocupação passa de 75%,
+     * redistribuindo manualmente cada Entrada para o seu novo bucket.
+     */
+    private void redimensionar() {
+        Entrada[] antigos = buckets;
+        buckets = new Entrada[antigos.length * 2];
+
+        for (int i = 0; i < antigos.length; i++) {
+            Entrada e = antigos[i];
+            while (e != null) {
+                Entrada proxima = e.proxima;
+                int indice = indiceBucket(e.hash);
+                e.proxima = buckets[indice];
+                buckets[indice] = e;
+                e = proxima;
+            }
+        }
+    }
+
+    // --- Operações ---
+
+    /**
+     * Registra que a linha na posição informada contém o valor 'chave'.
+     * Valores nulos não são indexados.
+     */
+    public void inserir(Object chave, int posicao) {
+        if (chave == null) return;
+
+        int hash = calcularHash(chave);
+        Entrada entrada = buscarEntrada(chave, hash);
+
+        if (entrada == null) {
+            if (numChaves + 1 > buckets.length * 3 / 4) {
+                redimensionar();
+            }
+            int indice = indiceBucket(hash);
+            entrada = new Entrada(chave, hash, buckets[indice]);
+            buckets[indice] = entrada;
+            numChaves++;
+        }
+        entrada.adicionarPosicao(posicao);
+    }
+
+    /**
+     * Remove a associação entre o valor 'chave' e a posição informada.
+     * Se a chave ficar sem posições, ela é retirada do índice.
+     */
+    public void remover(Object chave, int posicao) {
+        if (chave == null) return;
+
+        int hash = calcularHash(chave);
+        int indice = indiceBucket(hash);
+        Entrada anterior = null;
+        Entrada e = buckets[indice];
+
+        while (e != null) {
+            if (e.hash == hash && e.chave.equals(chave)) {
+                // Remove a posição mantendo a ordem das demais.
+                for (int i = 0; i < e.numPosicoes; i++) {
+                    if (e.posicoes[i] == posicao) {
+                        for (int j = i; j < e.numPosicoes - 1; j++) {
+                            e.posicoes[j] = e.posicoes[j + 1];
+                        }
+                        e.numPosicoes--;
+                        break;
+                    }
+                }
+                if (e.numPosicoes == 0) {
+                    // Desencadeia a Entrada vazia.
+                    if (anterior == null) {
+                        buckets[indice] = e.proxima;
+                    } else {
+                        anterior.proxima = e.proxima;
+                    }
+                    numChaves--;
+                }
+                return;
+            }
+            anterior = e;
+            e = e.proxima;
+        }
+    }
+
+    /**
+     * Remove a chave e todas as suas posições de uma vez
+     * (ex: DELETE pela própria coluna indexada).
+     */
+    public void removerChave(Object chave) {
+        if (chave == null) return;
+
+        int hash = calcularHash(chave);
+        int indice = indiceBucket(hash);
+        Entrada anterior = null;
+        Entrada e = buckets[indice];
+
+        while (e != null) {
+            if (e.hash == hash && e.chave.equals(chave)) {
+                if (anterior == null) {
+                    buckets[indice] = e.proxima;
+                } else {
+                    anterior.proxima = e.proxima;
+                }
+                numChaves--;
+                return;
+            }
+            anterior = e;
+            e = e.proxima;
+        }
+    }
+
+    /** Verifica se existe ao menos uma linha com o valor 'chave'. */
+    public boolean contem(Object chave) {
+        if (chave == null) return false;
+        return buscarEntrada(chave, calcularHash(chave)) != null;
+    }
+
+    /**
+     * Retorna a primeira posição (em ordem de inserção) que contém o valor 'chave',
+     * ou -1 se o valor não estiver indexado.
+     */
+    public int buscarPrimeira(Object chave) {
+        if (chave == null) return -1;
+        Entrada entrada = buscarEntrada(chave, calcularHash(chave));
+        return entrada == null ? -1 : entrada.posicoes[0];
+    }
+
+    /**
+     * Retorna a Entrada de 'chave' (posições e quantidade) sem copiar o array interno,
+     * ou null.
+     */
+    Entrada buscarEntrada(Object chave) {
+        if (chave == null) return null;
+        return buscarEntrada(chave, calcularHash(chave));
+    }
+
+    private Entrada buscarEntrada(Object chave, int hash) {
+        Entrada e = buckets[indiceBucket(hash)];
+        while (e != null) {
+            if (e.hash == hash && e.chave.equals(chave)) {
+                return e;
+            }
+            e = e.proxima;
+        }
+        return null;
+    }
+
+    /** Esvazia o índice, mantendo a capacidade atual dos buckets. */
+    public void limpar() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = null;
+        }
+        numChaves = 0;
+    }
+
+    public int getNumChaves() { return numChaves; }
+}
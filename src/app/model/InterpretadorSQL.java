@@ -1,379 +1,1421 @@
 package app.model;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 // Esta classe é responsável por traduzir comandos SQL em ações do nosso modelo de dados.
+// Cada sessão (thread) deve usar o seu próprio InterpretadorSQL: o cache de planos e o último
+// plano pertencem à sessão, enquanto o BancoSimulado e as tabelas, compartilhados, são protegidos
+// pelas suas travas (ver Tabela e BancoSimulado).
+// A transação aberta por BEGIN também pertence à sessão (ver Transacao).
 
 public class InterpretadorSQL {
 
+    // Abaixo deste número de comparações (linhas T1 x linhas T2), o Nested Loop Join
+    // é mais barato que construir a tabela hash do Hash Join.
+    private static final long LIMITE_NESTED_LOOP = 1000;
+
+    // Quantidade máxima de comandos analisados mantidos no cache de planos.
+    private static final int CAPACIDADE_CACHE_PLANOS = 256;
+
+    // Linhas inseridas por escrita no COPY ... FROM.
+    private static final int LINHAS_POR_BLOCO_COPY = 8192;
+
+    // Tamanho (em linhas) a partir do qual uma varredura é dividida entre as threads da sessão:
+    // abaixo dele, o custo de agendar as partes é maior que o ganho.
+    private static final int LIMIAR_PARALELISMO_PADRAO = 100000;
+
+    // Memória (em KB) da ordenação externa antes de gravar uma run em arquivo (ver Ordenador).
+    private static final int MEMORIA_ORDENACAO_PADRAO_KB = 64 * 1024;
+
+    // Maior LIMIT + OFFSET ordenado pelo heap do top-N; acima dele, a ordenação externa.
+    private static final int MAXIMO_LINHAS_TOP_N = 100000;
+
     // Referência única ao nosso banco de dados simulado (Singleton).
     private final BancoSimulado banco;
 
+    // Cache LRU de comandos analisados, indexado pelo texto SQL normalizado.
+    private final CachePlanos cachePlanos;
+    // Versão do catálogo quando o cache foi validado pela última vez.
+    private int versaoCatalogoCache;
+
+    // Descrição do algoritmo usado pelo último SELECT executado (ex: "Hash Join").
+    private String ultimoPlano;
+
+    // Descrição e número estimado de linhas do caminho de acesso (índice ou varredura)
+    // escolhido pela última chamada a planejarAcesso.
+    private String descricaoAcesso;
+    private int estimativaAcesso;
+
+    // Transação aberta por BEGIN, ou null (cada comando é confirmado sozinho: autocommit).
+    private Transacao transacao;
+
+    // EXPLAIN em andamento, ou null: o plano montado registra as suas etapas (ver registrarEtapa).
+    private Explicacao explicacao;
+
+    // Comando analisado (fora do cache de planos) na última chamada a obterComando e o custo da
+    // análise, mostrado pelo EXPLAIN ANALYZE.
+    private Comando ultimoAnalisado;
+    private long nanosUltimaAnalise;
+    private long bytesUltimaAnalise;
+
+    // Opções da sessão (SET): número de threads das varreduras (1 = sempre sequencial),
+    // número mínimo de linhas da tabela para que a varredura seja paralela e memória (KB)
+    // da ordenação externa, e se os SELECTs usam o cache de resultados.
+    private int paralelismo;
+    private int limiarParalelismo;
+    private int memoriaOrdenacaoKb;
+    private boolean usarCacheResultados;
+
     public InterpretadorSQL() {
         // Obtém a instância única do banco ao inicializar o interpretador.
         this.banco = BancoSimulado.getInstancia();
+        this.cachePlanos = new CachePlanos(CAPACIDADE_CACHE_PLANOS);
+        this.versaoCatalogoCache = banco.getVersaoCatalogo();
+        this.paralelismo = Math.min(Runtime.getRuntime().availableProcessors(), ExecucaoParalela.MAXIMO_THREADS);
+        this.limiarParalelismo = LIMIAR_PARALELISMO_PADRAO;
+        this.memoriaOrdenacaoKb = MEMORIA_ORDENACAO_PADRAO_KB;
+        this.usarCacheResultados = true;
     }
 
     /**
      * Ponto de entrada para execução de comandos SQL.
      * @param sql O comando SQL em formato String.
-     * @return O resultado da operação (mensagem ou Tabela de resultado).
+     * @return O resultado da operação: uma mensagem, ou um Cursor para SELECT (avaliado sob demanda).
      */
     public Object executar(String sql) throws Exception {
-        // Pré-processamento: normaliza o SQL para minúsculas e remove espaços extras.
-        sql = sql.trim().replaceAll("\\s+", " ").toLowerCase();
-
-        // O interpretador decide qual método de processamento chamar com base no prefixo.
-        if (sql.startsWith("create table")) {
-            processarCreateTable(sql);
-            return "Tabela criada com sucesso!";
-        } else if (sql.startsWith("drop table")) {
-            processarDropTable(sql);
-            return "Tabela removida com sucesso!";
-        } else if (sql.startsWith("insert into")) {
-            processarInsert(sql);
-            return "Linha inserida com sucesso!";
-        } else if (sql.startsWith("delete from")) {
-            int linhasAfetadas = processarDelete(sql);
-            return "Comando DELETE executado com sucesso! Linhas afetadas: " + linhasAfetadas;
-        } else if (sql.startsWith("select")) {
-            return processarSelect(sql);
+        Comando comando = obterComando(sql);
+        if (comando.getNumParametros() > 0) {
+            throw new Exception("O comando possui parâmetros '?'. Use preparar() e definirParametro() para executá-lo.");
         }
+        return executarComando(comando, null);
+    }
 
-        throw new Exception("Comando SQL inválido ou não suportado: '" + sql + "'");
+    /**
+     * Analisa o comando uma única vez e retorna um ComandoPreparado, que pode ser executado
+     * várias vezes com valores diferentes para os parâmetros '?'.
+     * Ex: preparar("INSERT INTO cidades (id, nome_cidade) VALUES (?, ?)")
+     */
+    public ComandoPreparado preparar(String sql) throws Exception {
+        return new ComandoPreparado(this, obterComando(sql));
     }
 
     /**
-     * Analisa o comando CREATE TABLE e delega a criação para o BancoSimulado.
+     * Retorna a descrição do plano usado pelo último SELECT ou DELETE (ex: "Hash Join (build: cidades)"),
+     * ou null se o último comando não foi um deles. Varreduras divididas entre threads
+     * informam "paralela: N threads".
      */
-    private void processarCreateTable(String sql) throws Exception {
-        // Regex para extrair nome da tabela e a string de definição das colunas.
-        Pattern p = Pattern.compile("create table ([a-z0-9_]+) \\((.+)\\)");
-        Matcher m = p.matcher(sql);
+    public String getUltimoPlano() {
+        return ultimoPlano;
+    }
 
-        if (!m.matches()) throw new Exception("Sintaxe de CREATE TABLE inválida.");
+    public int getParalelismo() { return paralelismo; }
 
-        String nomeTabela = m.group(1);
-        String defsColunaStr = m.group(2);
+    public int getLimiarParalelismo() { return limiarParalelismo; }
 
-        Tabela novaTabela = new Tabela(nomeTabela);
+    public int getMemoriaOrdenacaoKb() { return memoriaOrdenacaoKb; }
 
-        // Separa as definições de coluna, ignorando vírgulas dentro dos parênteses da FK.
-        String[] defs = defsColunaStr.split(",(?![^(]*\\))");
+    public boolean isUsarCacheResultados() { return usarCacheResultados; }
 
-        // Itera sobre cada definição de coluna (e.g., "id INT primary key", "nome STRING")
-        for (String def : defs) {
-            def = def.trim();
-            String[] partes = def.split(" ");
+    /**
+     * Define uma opção da sessão (também pelo comando SET):
+     * - PARALLELISM: número de threads das varreduras, de 1 (sequencial) a ExecucaoParalela.MAXIMO_THREADS;
+     * - PARALLEL_THRESHOLD: número mínimo de linhas da tabela para que a varredura seja paralela;
+     * - SORT_MEMORY: memória (KB) da ordenação do ORDER BY; acima dela, as linhas vão para arquivos temporários;
+     * - RESULT_CACHE: 1 para usar o cache de resultados nos SELECTs (padrão), 0 para sempre executá-los.
+     * @return A mensagem de confirmação.
+     */
+    public String definirOpcao(String opcao, int valor) throws Exception {
+        switch (opcao.toLowerCase()) {
+            case "parallelism":
+                if (valor < 1 || valor > ExecucaoParalela.MAXIMO_THREADS) {
+                    throw new Exception("PARALLELISM deve estar entre 1 e " + ExecucaoParalela.MAXIMO_THREADS + ".");
+                }
+                this.paralelismo = valor;
+                return valor == 1 ? "Varreduras sequenciais nesta sessão." : "Varreduras com até " + valor + " threads nesta sessão.";
+            case "parallel_threshold":
+                if (valor < 0) {
+                    throw new Exception("PARALLEL_THRESHOLD não pode ser negativo.");
+                }
+                this.limiarParalelismo = valor;
+                return "Varreduras paralelas em tabelas a partir de " + valor + " linhas.";
+            case "sort_memory":
+                if (valor < 1) {
+                    throw new Exception("SORT_MEMORY deve ser de pelo menos 1 KB.");
+                }
+                this.memoriaOrdenacaoKb = valor;
+                return "Ordenações com até " + valor + " KB em memória nesta sessão.";
+            case "result_cache":
+                if (valor != 0 && valor != 1) {
+                    throw new Exception("RESULT_CACHE deve ser 0 (desligado) ou 1 (ligado).");
+                }
+                this.usarCacheResultados = valor == 1;
+                return valor == 1 ? "Cache de resultados ligado nesta sessão." : "Cache de resultados desligado nesta sessão.";
+            default:
+                throw new Exception("Opção '" + opcao + "' desconhecida. Use PARALLELISM, PARALLEL_THRESHOLD, SORT_MEMORY ou RESULT_CACHE.");
+        }
+    }
 
-            String nomeColuna = partes[0];
-            String tipoDado = partes[1].toUpperCase();
+    /** Indica se há uma transação aberta (BEGIN sem COMMIT/ROLLBACK) nesta sessão. */
+    public boolean isEmTransacao() {
+        return transacao != null;
+    }
 
-            if (!tipoDado.equals("INT") && !tipoDado.equals("STRING")) {
-                throw new Exception("Tipo de dado '" + tipoDado + "' não suportado. Use INT ou STRING.");
-            }
+    // --- Cache de Planos ---
 
-            Coluna novaColuna = new Coluna(nomeColuna, tipoDado);
+    /**
+     * Busca o comando analisado no cache de planos; em caso de ausência, analisa o texto
+     * e guarda o resultado. O cache é esvaziado quando o catálogo muda (CREATE/DROP).
+     */
+    private Comando obterComando(String sql) throws Exception {
+        if (versaoCatalogoCache != banco.getVersaoCatalogo()) {
+            cachePlanos.limpar();
+            versaoCatalogoCache = banco.getVersaoCatalogo();
+        }
 
-            // Verifica e define as restrições (PK, FK)
-            if (def.contains("primary key")) {
-                novaColuna.setAsPrimaryKey();
+        String normalizado = normalizar(sql);
+        Comando comando = cachePlanos.buscar(normalizado);
+        ultimoAnalisado = null;
+        if (comando == null) {
+            long inicioNanos = System.nanoTime();
+            long inicioBytes = Explicacao.bytesAlocados();
+            comando = AnalisadorSintatico.analisar(sql);
+            nanosUltimaAnalise = System.nanoTime() - inicioNanos;
+            bytesUltimaAnalise = Explicacao.bytesAlocados() - inicioBytes;
+            ultimoAnalisado = comando;
+            comando.textoNormalizado = normalizado;
+            if (comando.isCacheavel()) {
+                cachePlanos.inserir(normalizado, comando);
             }
-            if (def.contains("references")) {
-                // Regex específico para a sintaxe da chave estrangeira.
-                Pattern fkPattern = Pattern.compile("references ([a-z0-9_]+)\\s*\\(([a-z0-9_]+)\\)");
-                Matcher fkMatcher = fkPattern.matcher(def);
-                if (fkMatcher.find()) {
-                    // Extrai tabela e coluna referenciadas.
-                    novaColuna.setAsForeignKey(fkMatcher.group(1), fkMatcher.group(2));
-                } else {
-                    throw new Exception("Sintaxe de FOREIGN KEY inválida para a coluna " + nomeColuna);
+        }
+        return comando;
+    }
+
+    /**
+     * Gera a chave do cache de planos em uma única passada sobre os caracteres: palavras ficam
+     * em minúsculas e cada sequência de espaços vira um único espaço (ou uma quebra de linha,
+     * que encerra um comentário "--"). Textos entre aspas são copiados sem alteração,
+     * pois 'Recife' e 'recife' são valores diferentes.
+     */
+    private static String normalizar(String sql) {
+        char[] saida = new char[sql.length()];
+        int tamanho = 0;
+        char espacoPendente = 0;
+        boolean dentroDeTexto = false;
+
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (dentroDeTexto) {
+                saida[tamanho++] = c;
+                // Duas aspas seguidas ('') apenas fecham e reabrem o texto.
+                dentroDeTexto = c != '\'';
+            } else if (Character.isWhitespace(c)) {
+                if (tamanho > 0 && espacoPendente != '\n') {
+                    espacoPendente = c == '\n' ? '\n' : ' ';
                 }
+            } else {
+                if (espacoPendente != 0) {
+                    saida[tamanho++] = espacoPendente;
+                    espacoPendente = 0;
+                }
+                saida[tamanho++] = Character.toLowerCase(c);
+                dentroDeTexto = c == '\'';
             }
-            novaTabela.adicionarColuna(novaColuna);
         }
-        // Delega a persistência da nova tabela para o BancoSimulado.
-        banco.criarTabela(novaTabela);
+        return new String(saida, 0, tamanho);
     }
 
+    // --- Execução ---
+
     /**
-     * Analisa o comando DROP TABLE e delega a remoção para o BancoSimulado.
+     * Executa um comando analisado com os parâmetros informados (null se não houver),
+     * registrando a execução nas métricas do motor (ver MetricasMotor). A latência de um
+     * SELECT é registrada quando o Cursor retornado é fechado.
      */
-    private void processarDropTable(String sql) throws Exception {
-        // Regex simples para extrair o nome da tabela.
-        Pattern p = Pattern.compile("drop table ([a-z0-9_]+)");
-        Matcher m = p.matcher(sql);
+    Object executarComando(Comando comando, Object[] parametros) throws Exception {
+        MetricasMotor metricas = MetricasMotor.getInstancia();
+        long inicio = System.nanoTime();
+        MetricasMotor.Contadores anterior = metricas.iniciar(comando.explicar ? MetricasMotor.EXPLAIN : comando.getTipo().ordinal());
+        MetricasMotor.Contadores contadores = MetricasMotor.atuais();
+        boolean concluido = false;
+        try {
+            Object resultado = executarPorTipo(comando, parametros);
+            concluido = true;
+            if (resultado instanceof Cursor) {
+                ((Cursor) resultado).medirPara(contadores, inicio);
+            } else {
+                contadores.registrarExecucao(System.nanoTime() - inicio, false);
+            }
+            return resultado;
+        } finally {
+            if (!concluido) {
+                contadores.registrarExecucao(System.nanoTime() - inicio, true);
+            }
+            metricas.terminar(anterior);
+        }
+    }
+
+    /**
+     * Executa o comando de acordo com o seu tipo.
+     * A resolução de tabelas e colunas é reaproveitada enquanto o catálogo não mudar.
+     */
+    private Object executarPorTipo(Comando comando, Object[] parametros) throws Exception {
+        this.ultimoPlano = null;
+
+        if (comando.isCacheavel() && comando.versaoCatalogo != banco.getVersaoCatalogo()) {
+            resolver(comando);
+        }
 
-        if (!m.matches()) {
-            throw new Exception("Sintaxe de DROP TABLE inválida. Use: DROP TABLE nome_tabela");
+        // Comandos de definição não são adiados: não podem ser desfeitos por um ROLLBACK.
+        if (transacao != null && comando.isDefinicao()) {
+            throw new Exception("Comandos CREATE e DROP não são permitidos dentro de uma transação. Use COMMIT ou ROLLBACK antes.");
         }
 
-        String nomeTabela = m.group(1);
+        if (comando.explicar) {
+            return explicar(comando, parametros);
+        }
 
-        // Delega a remoção e checagem de FKs para o BancoSimulado.
-        banco.removerTabela(nomeTabela);
+        // O interpretador decide qual método de execução chamar com base no tipo do comando.
+        switch (comando.getTipo()) {
+            case BEGIN:
+                if (transacao != null) {
+                    throw new Exception("Já existe uma transação em andamento.");
+                }
+                transacao = new Transacao();
+                return "Transação iniciada.";
+            case COMMIT:
+                return executarCommit();
+            case ROLLBACK:
+                if (transacao == null) {
+                    throw new Exception("Não há transação em andamento.");
+                }
+                int descartadas = transacao.getNumOperacoes();
+                transacao = null;
+                return "Transação desfeita. Operações descartadas: " + descartadas;
+            case COPY:
+                return executarCopy(comando);
+            case SET:
+                return definirOpcao(comando.opcao, comando.valorOpcao);
+            case CHECKPOINT:
+                // As operações pendentes de uma transação aberta não entram: só existem no COMMIT.
+                return banco.checkpoint();
+            case CREATE_TABLE:
+                executarCreateTable(comando);
+                return "Tabela criada com sucesso!";
+            case DROP_TABLE:
+                // Delega a remoção e checagem de FKs para o BancoSimulado.
+                banco.removerTabela(comando.nomeTabela);
+                return "Tabela removida com sucesso!";
+            case CREATE_INDEX:
+                banco.criarIndice(comando.nomeIndice, comando.nomeTabela, comando.nomeColuna);
+                return "Índice criado com sucesso!";
+            case DROP_INDEX:
+                banco.removerIndice(comando.nomeIndice);
+                return "Índice removido com sucesso!";
+            case INSERT:
+                int linhasInseridas = executarInsert(comando, parametros);
+                MetricasMotor.atuais().linhasRetornadas.add(linhasInseridas);
+                if (transacao != null) {
+                    return linhasInseridas == 1 ? "Linha inserida na transação (aplicada no COMMIT)."
+                            : linhasInseridas + " linhas inseridas na transação (aplicadas no COMMIT).";
+                }
+                return linhasInseridas == 1 ? "Linha inserida com sucesso!" : linhasInseridas + " linhas inseridas com sucesso!";
+            case DELETE:
+                int linhasAfetadas = executarDelete(comando, parametros);
+                MetricasMotor.atuais().linhasRetornadas.add(linhasAfetadas);
+                if (transacao != null) {
+                    return "Comando DELETE registrado na transação (aplicado no COMMIT).";
+                }
+                return "Comando DELETE executado com sucesso! Linhas afetadas: " + linhasAfetadas;
+            default:
+                return executarSelect(comando, parametros);
+        }
     }
 
     /**
-     * Analisa o comando INSERT INTO, valida os dados e insere a linha na Tabela.
+     * Executa um SELECT (com ou sem JOIN e agregação), retornando o Cursor do resultado.
+     * Um resultado guardado no cache de resultados é reaproveitado se as tabelas não mudaram.
      */
-    private void processarInsert(String sql) throws Exception {
-        // Regex para extrair nome da tabela, lista de colunas e lista de valores.
-        Pattern p = Pattern.compile("insert into ([a-z0-9_]+) \\((.+)\\) values \\((.+)\\)");
-        Matcher m = p.matcher(sql);
-
-        if (!m.matches()) throw new Exception("Sintaxe de INSERT INTO inválida.");
+    private Cursor executarSelect(Comando comando, Object[] parametros) throws Exception {
+        // O planejamento consulta os índices, então as tabelas ficam travadas para leitura
+        // durante ele; depois, o Cursor obtém as travas a cada linha que produz.
+        // O snapshot é obtido com as travas: os índices refletem exatamente o que ele enxerga.
+        Tabela[] consultadas = Tabela.ordenarPorTrava(comando.nomeTabelaJoin != null
+                ? new Tabela[] { comando.tabela, comando.tabelaJoin } : new Tabela[] { comando.tabela });
+        // Cache de resultados: só para o texto exato, sem parâmetros (nem EXPLAIN). As versões das tabelas
+        // são lidas com as mesmas travas do snapshot, então o resultado guardado é o que ele enxerga.
+        CacheResultados cacheResultados = usarCacheResultados && parametros == null && explicacao == null
+                ? banco.getCacheResultados() : null;
+        CacheResultados.Coleta coleta = null;
+        Explicacao.Etapa planejamento = explicacao != null && explicacao.analisar ? new Explicacao.Etapa("Planejamento", -1, null) : null;
+        if (planejamento != null) planejamento.iniciar();
+        Cursor cursor;
+        Tabela.travarLeitura(consultadas);
+        try {
+            if (cacheResultados != null) {
+                int versaoCatalogo = banco.getVersaoCatalogo();
+                Cursor guardado = cacheResultados.abrir(comando.textoNormalizado, consultadas, versaoCatalogo);
+                if (guardado != null) {
+                    this.ultimoPlano = "Cache de resultados (" + cacheResultados.getNumLinhas(comando.textoNormalizado) + " linhas)";
+                    return guardado;
+                }
+                coleta = cacheResultados.iniciarColeta(comando.textoNormalizado, consultadas, versaoCatalogo);
+            }
+            long snapshot = GerenciadorTransacoes.getInstancia().getSnapshot();
+            if (comando.nomeTabelaJoin != null) {
+                cursor = executarJoin(comando, parametros, snapshot);
+            } else {
+                cursor = executarSelectSimples(comando, parametros, snapshot);
+            }
+        } finally {
+            Tabela.destravarLeitura(consultadas);
+        }
+        if (planejamento != null) {
+            planejamento.terminar();
+            explicacao.adicionarEtapa(planejamento);
+        }
+        // A agregação lê a entrada inteira de uma vez: fora das travas do planejamento,
+        // com as travas obtidas pelo cursor a cada bloco de linhas.
+        if (comando.isAgregacao()) {
+            cursor = executarAgregacao(comando, cursor);
+        }
+        if (coleta != null) {
+            cursor.coletarPara(coleta);
+        }
+        return cursor;
+    }
 
-        String nomeTabela = m.group(1);
-        String[] colunas = m.group(2).split(",");
-        String[] valores = m.group(3).split(",");
+    // --- EXPLAIN ---
 
-        if (colunas.length != valores.length) throw new Exception("Número de colunas e valores não coincide.");
+    /**
+     * EXPLAIN [ANALYZE]: monta o plano do comando registrando as suas etapas (ver Explicacao)
+     * e retorna um Cursor sobre a descrição delas. Sem ANALYZE, o comando não é executado.
+     * Com ANALYZE, ele é executado de fato (o SELECT é lido até o fim, sem guardar as linhas;
+     * o INSERT e o DELETE alteram a tabela) e cada etapa traz as linhas, o tempo e a memória
+     * alocada, precedidas da análise sintática e do planejamento e seguidas do total.
+     */
+    private Cursor explicar(Comando comando, Object[] parametros) throws Exception {
+        if (comando.analisar && transacao != null && comando.getTipo() != Comando.Tipo.SELECT) {
+            throw new Exception("EXPLAIN ANALYZE de INSERT ou DELETE não é permitido dentro de uma transação, "
+                    + "pois as escritas só são aplicadas no COMMIT. Use COMMIT ou ROLLBACK antes.");
+        }
+        Explicacao explicacaoAtual = new Explicacao(comando.analisar);
+        if (comando.analisar) {
+            // Um comando do cache de planos não foi analisado agora.
+            boolean analisado = comando == ultimoAnalisado;
+            Explicacao.Etapa analise = new Explicacao.Etapa(analisado ? "Análise sintática"
+                    : "Análise sintática (reaproveitada do cache de planos)", -1, null);
+            analise.adicionar(analisado ? nanosUltimaAnalise : 0, analisado ? bytesUltimaAnalise : 0);
+            explicacaoAtual.adicionarEtapa(analise);
+        }
 
-        Tabela tabela = banco.getTabela(nomeTabela);
-        if (tabela == null) throw new Exception("Tabela '" + nomeTabela + "' não encontrada.");
+        Explicacao.Etapa total = new Explicacao.Etapa("Total", -1, null);
+        this.explicacao = explicacaoAtual;
+        try {
+            total.iniciar();
+            long linhas;
+            switch (comando.getTipo()) {
+                case INSERT:
+                    linhas = executarInsert(comando, parametros);
+                    break;
+                case DELETE:
+                    linhas = executarDelete(comando, parametros);
+                    break;
+                default:
+                    Cursor cursor = executarSelect(comando, parametros);
+                    linhas = 0;
+                    if (comando.analisar) {
+                        while (cursor.proximo()) {
+                            linhas++;
+                        }
+                    } else {
+                        cursor.fechar();
+                    }
+            }
+            total.terminar();
+            total.linhas = linhas;
+            if (comando.analisar && comando.getTipo() != Comando.Tipo.SELECT) {
+                // INSERT e DELETE: a etapa principal é o próprio comando.
+                explicacaoAtual.ultima.adicionar(total.nanos, total.bytes);
+                explicacaoAtual.ultima.linhas = linhas;
+            }
+        } finally {
+            this.explicacao = null;
+        }
 
-        // Cria a linha, cujo array interno deve ter o tamanho total das colunas da tabela.
-        Linha novaLinha = new Linha(tabela.getNumColunas());
+        explicacaoAtual.adicionarEtapa(explicacaoAtual.ultima);
+        if (comando.analisar) {
+            explicacaoAtual.adicionarEtapa(total);
+        }
+        return explicacaoAtual.gerarResultado();
+    }
 
-        // Mapeia os valores fornecidos para os índices corretos da tabela.
-        for (int i = 0; i < colunas.length; i++) {
-            String nomeColuna = colunas[i].trim();
-            String valorStr = valores[i].trim();
+    /**
+     * No EXPLAIN, registra a etapa do plano executada pelo operador (com as etapas das suas
+     * entradas) como a última do plano; no EXPLAIN ANALYZE, também envolve o operador para
+     * medi-lo (ver Operador.Medido). Fora do EXPLAIN, retorna o próprio operador.
+     * @param estimativa O número estimado de linhas da etapa, ou -1.
+     */
+    private Operador registrarEtapa(Operador operador, String descricao, long estimativa, Explicacao.Etapa[] entradas) {
+        if (explicacao == null) {
+            return operador;
+        }
+        Explicacao.Etapa etapa = new Explicacao.Etapa(descricao, estimativa, entradas);
+        explicacao.ultima = etapa;
+        return explicacao.analisar ? new Operador.Medido(operador, etapa) : operador;
+    }
 
-            int indiceColuna = tabela.getIndiceColunaPeloNome(nomeColuna);
-            if (indiceColuna == -1) {
-                throw new Exception("Coluna '" + nomeColuna + "' não encontrada na tabela '" + nomeTabela + "'.");
-            }
+    /** A última etapa registrada no EXPLAIN (a raiz do plano montado até agora), ou null. */
+    private Explicacao.Etapa ultimaEtapa() {
+        return explicacao != null ? explicacao.ultima : null;
+    }
 
-            Coluna coluna = tabela.getColunaPorIndice(indiceColuna);
+    // --- Resolução de Nomes (feita uma vez por versão do catálogo) ---
 
-            // Conversão e validação de tipos.
-            Object valor;
-            if (coluna.getTipoDado().equals("INT")) {
-                try {
-                    valor = Integer.parseInt(valorStr);
-                } catch (NumberFormatException e) {
-                    throw new Exception("Erro de tipo: O valor '" + valorStr + "' não é um INT para a coluna '" + nomeColuna + "'.");
+    /**
+     * Traduz os nomes de tabelas e colunas do comando para referências e índices,
+     * guardando o resultado no próprio Comando para as próximas execuções.
+     */
+    private void resolver(Comando comando) throws Exception {
+        Tabela tabela = banco.getTabela(comando.nomeTabela);
+        if (tabela == null) throw new Exception("Tabela '" + comando.nomeTabela + "' não encontrada.");
+
+        switch (comando.getTipo()) {
+            case INSERT:
+                int numColunas = comando.colunas.length;
+                comando.indicesColunas = new int[numColunas];
+                comando.valoresConvertidos = new Object[comando.valores.length];
+                for (int i = 0; i < numColunas; i++) {
+                    String nomeColuna = comando.colunas[i];
+                    int indiceColuna = tabela.getIndiceColunaPeloNome(nomeColuna);
+                    if (indiceColuna == -1) {
+                        throw new Exception("Coluna '" + nomeColuna + "' não encontrada na tabela '" + comando.nomeTabela + "'.");
+                    }
+                    // Uma coluna repetida na lista receberia dois valores: o último sobrescreveria o primeiro.
+                    for (int j = 0; j < i; j++) {
+                        if (comando.indicesColunas[j] == indiceColuna) {
+                            throw new Exception("Coluna '" + nomeColuna + "' informada mais de uma vez no INSERT.");
+                        }
+                    }
+                    comando.indicesColunas[i] = indiceColuna;
                 }
-            } else { // STRING
-                valor = valorStr.replace("'", ""); // Remove aspas simples da string.
-            }
-
-            // Define o dado no índice correto da Linha.
-            novaLinha.setDadoPorIndice(indiceColuna, valor);
+                // Literais são convertidos uma única vez; parâmetros, a cada execução.
+                for (int v = 0; v < comando.valores.length; v++) {
+                    Coluna coluna = tabela.getColunaPorIndice(comando.indicesColunas[v % numColunas]);
+                    comando.valoresConvertidos[v] = converterValor(comando.valores[v], coluna);
+                }
+                break;
+
+            case DELETE:
+                comando.indiceColuna = tabela.getIndiceColunaPeloNome(comando.nomeColuna);
+                if (comando.indiceColuna == -1) throw new Exception("Coluna '" + comando.nomeColuna + "' não encontrada.");
+                // Converte o valor de busca para o tipo de dado correto da coluna.
+                comando.valoresConvertidos = new Object[] { converterValor(comando.valor, tabela.getColunaPorIndice(comando.indiceColuna)) };
+                break;
+
+            default: // SELECT
+                if (comando.nomeTabelaJoin != null) {
+                    Tabela t2 = banco.getTabela(comando.nomeTabelaJoin);
+                    if (t2 == null) throw new Exception("Tabela '" + comando.nomeTabelaJoin + "' não encontrada.");
+
+                    // Determina os índices de busca nas tabelas originais.
+                    comando.indiceJoin1 = tabela.getIndiceColunaPeloNome(comando.colunaJoin1);
+                    comando.indiceJoin2 = t2.getIndiceColunaPeloNome(comando.colunaJoin2);
+                    if (comando.indiceJoin1 == -1) throw new Exception("Coluna '" + comando.colunaJoin1 + "' não encontrada na tabela '" + tabela.getNome() + "'.");
+                    if (comando.indiceJoin2 == -1) throw new Exception("Coluna '" + comando.colunaJoin2 + "' não encontrada na tabela '" + t2.getNome() + "'.");
+
+                    // Distribuição do WHERE: [0] só T1, [1] só T2, [2] usa as duas (residual).
+                    comando.partesJoin = new Condicao[3];
+                    if (comando.condicao != null) {
+                        comando.condicao.resolver(tabela, t2);
+                        distribuirConjuncoes(comando.condicao, comando.partesJoin);
+                    }
+                    comando.tabelaJoin = t2;
+                    if (comando.isAgregacao()) {
+                        resolverAgregacao(comando, tabela, t2);
+                    }
+                    if (comando.ordenacao != null) {
+                        resolverOrdenacao(comando, tabela, t2);
+                    }
+                } else {
+                    if (comando.isAgregacao()) {
+                        resolverAgregacao(comando, tabela, null);
+                    } else if (comando.colunas != null) {
+                        // Mapeamento de Colunas: Determina quais índices da tabela original serão usados.
+                        comando.indicesColunas = new int[comando.colunas.length];
+                        for (int i = 0; i < comando.colunas.length; i++) {
+                            // Aceita também o nome qualificado pela própria tabela (ex: usuarios.nome).
+                            String nomeColuna = comando.colunas[i];
+                            String prefixo = tabela.getNome() + ".";
+                            if (nomeColuna.startsWith(prefixo)) {
+                                nomeColuna = nomeColuna.substring(prefixo.length());
+                            }
+                            int indice = tabela.getIndiceColunaPeloNome(nomeColuna);
+                            if (indice == -1) {
+                                throw new Exception("Coluna '" + comando.colunas[i] + "' não encontrada.");
+                            }
+                            comando.indicesColunas[i] = indice;
+                        }
+                    }
+                    if (comando.condicao != null) {
+                        comando.condicao.resolver(tabela, null);
+                    }
+                    if (comando.ordenacao != null) {
+                        resolverOrdenacao(comando, tabela, null);
+                    }
+                }
+                break;
         }
-        // Delega a adição da Linha à Tabela, onde ocorrerão as validações finais (PK, FK).
-        tabela.adicionarLinha(novaLinha);
+
+        comando.tabela = tabela;
+        comando.versaoCatalogo = banco.getVersaoCatalogo();
     }
 
     /**
-     * Decide se o comando SELECT é simples ou com JOIN e executa o método apropriado.
+     * Valida um literal (Integer ou String, já tipado pelo analisador) contra o tipo da coluna.
+     * Números informados para colunas STRING são aceitos como texto.
+     * Parâmetros '?' são mantidos para serem convertidos na execução.
      */
-    private Tabela processarSelect(String sql) throws Exception {
-        // Tenta fazer o match com o padrão de JOIN (mais complexo).
-        Pattern joinPattern = Pattern.compile("select (.+) from ([a-z0-9_]+) join ([a-z0-9_]+) on ([a-z0-9_]+\\.[a-z0-9_]+) = ([a-z0-9_]+\\.[a-z0-9_]+)");
-        Matcher joinMatcher = joinPattern.matcher(sql);
+    private Object converterValor(Object valor, Coluna coluna) throws Exception {
+        if (valor == null || valor instanceof Comando.Parametro) {
+            return valor;
+        }
 
-        // Padrão para SELECT simples.
-        Pattern simplePattern = Pattern.compile("select (.+) from ([a-z0-9_]+)");
-        Matcher simpleMatcher = simplePattern.matcher(sql);
+        // Conversão e validação de tipos.
+        if (coluna.getTipoDado().equals("INT")) {
+            if (!(valor instanceof Integer)) {
+                throw new Exception("Erro de tipo: O valor '" + valor + "' não é um INT para a coluna '" + coluna.getNome() + "'.");
+            }
+            return valor;
+        }
+        return valor.toString(); // STRING
+    }
 
-        if (joinMatcher.matches()) {
-            return executarJoin(joinMatcher);
-        } else if (simpleMatcher.matches()) {
-            String colunasStr = simpleMatcher.group(1).trim();
-            String nomeTabela = simpleMatcher.group(2).trim();
-            return executarSelectSimples(colunasStr, nomeTabela);
+    /**
+     * Obtém o valor final de um literal já convertido ou de um parâmetro,
+     * validando o tipo do valor informado para o parâmetro.
+     */
+    private Object vincularValor(Object valor, Object[] parametros, Coluna coluna) throws Exception {
+        if (!(valor instanceof Comando.Parametro)) {
+            return valor;
+        }
+        Object valorParametro = Comando.vincularValor(valor, parametros);
+        boolean ok = coluna.getTipoDado().equals("INT") ? valorParametro instanceof Integer : valorParametro instanceof String;
+        if (!ok) {
+            throw new Exception("Erro de tipo: O valor '" + valorParametro + "' não é um " + coluna.getTipoDado() + " para a coluna '" + coluna.getNome() + "'.");
         }
+        return valorParametro;
+    }
+
+    // --- Execução dos Comandos ---
 
-        throw new Exception("Sintaxe de SELECT inválida.");
+    /**
+     * Cria a Tabela a partir das definições analisadas e delega o registro ao BancoSimulado.
+     */
+    private void executarCreateTable(Comando comando) throws Exception {
+        Tabela novaTabela = new Tabela(comando.nomeTabela, comando.armazenamento);
+
+        // Cada execução recebe Colunas novas, para que tabelas não compartilhem definições.
+        for (int i = 0; i < comando.definicoes.length; i++) {
+            Coluna definicao = comando.definicoes[i];
+            Coluna novaColuna = new Coluna(definicao.getNome(), definicao.getTipoDado());
+            if (definicao.isPrimaryKey()) {
+                novaColuna.setAsPrimaryKey();
+            }
+            if (definicao.getFkConstraint() != null) {
+                novaColuna.setAsForeignKey(definicao.getFkConstraint().getTabelaReferenciada(), definicao.getFkConstraint().getColunaReferenciada());
+            }
+            novaTabela.adicionarColuna(novaColuna);
+        }
+        // Delega a persistência da nova tabela para o BancoSimulado.
+        banco.criarTabela(novaTabela);
     }
 
     /**
-     * Analisa o comando DELETE FROM e remove as linhas que atendem à condição WHERE.
+     * Monta a Linha do INSERT com os índices e valores já resolvidos e a insere na Tabela.
      */
-    private int processarDelete(String sql) throws Exception {
-        // Regex para extrair nome da tabela, coluna e valor da condição WHERE.
-        Pattern p = Pattern.compile("delete from ([a-z0-9_]+) where ([a-z0-9_]+) = (.+)");
-        Matcher m = p.matcher(sql);
+    private int executarInsert(Comando comando, Object[] parametros) throws Exception {
+        Tabela tabela = comando.tabela;
+        int numColunas = comando.indicesColunas.length;
+        int numLinhas = comando.getNumLinhasValores();
+        Linha[] novasLinhas = new Linha[numLinhas];
+
+        // EXPLAIN: a inserção tem duas etapas medidas, a conversão dos valores e as validações na Tabela.
+        Explicacao.Etapa conversao = null;
+        Explicacao.Etapa validacao = null;
+        if (explicacao != null) {
+            conversao = new Explicacao.Etapa("Conversão dos valores", numLinhas, null);
+            validacao = new Explicacao.Etapa(descreverValidacao(tabela), numLinhas, null);
+            explicacao.ultima = new Explicacao.Etapa("Inserção em " + tabela.getNome(), numLinhas,
+                    new Explicacao.Etapa[] { conversao, validacao });
+            if (!explicacao.analisar) {
+                return numLinhas; // EXPLAIN: apenas o plano.
+            }
+            conversao.iniciar();
+        }
+
+        for (int l = 0; l < numLinhas; l++) {
+            // Cria a linha, cujo array interno deve ter o tamanho total das colunas da tabela.
+            Linha novaLinha = new Linha(tabela.getNumColunas());
 
-        if (!m.matches()) {
-            throw new Exception("Sintaxe de DELETE FROM inválida. Use: DELETE FROM tabela WHERE coluna = valor");
+            // Mapeia os valores fornecidos para os índices corretos da tabela.
+            for (int i = 0; i < numColunas; i++) {
+                int indiceColuna = comando.indicesColunas[i];
+                Object valor = vincularValor(comando.valoresConvertidos[l * numColunas + i], parametros, tabela.getColunaPorIndice(indiceColuna));
+
+                // Define o dado no índice correto da Linha.
+                novaLinha.setDadoPorIndice(indiceColuna, valor);
+            }
+            novasLinhas[l] = novaLinha;
+        }
+        if (conversao != null) {
+            conversao.terminar();
+            conversao.linhas = numLinhas;
         }
 
-        String nomeTabela = m.group(1);
-        String nomeColuna = m.group(2).trim();
-        String valorStr = m.group(3).trim();
+        // Dentro de uma transação (ou com o log ativo), a inserção passa pela Transacao.
+        if (transacao != null || banco.getLog() != null) {
+            String sql = banco.getLog() != null ? gerarInsert(tabela, comando.indicesColunas, novasLinhas) : null;
+            if (transacao != null) {
+                transacao.adicionarInsercao(tabela, novasLinhas, sql);
+                return numLinhas;
+            }
+            Transacao unica = new Transacao();
+            unica.adicionarInsercao(tabela, novasLinhas, sql);
+            unica.medirValidacao(validacao);
+            int inseridas = unica.confirmar(banco.getLog())[0];
+            if (validacao != null) validacao.linhas = inseridas;
+            return inseridas;
+        }
 
-        Tabela tabela = banco.getTabela(nomeTabela);
-        if (tabela == null) throw new Exception("Tabela '" + nomeTabela + "' não encontrada.");
+        // Delega a adição à Tabela, onde ocorrerão as validações finais (PK, FK).
+        // Várias linhas são inseridas em lote: as restrições são verificadas uma vez para todas.
+        if (numLinhas == 1) {
+            tabela.adicionarLinha(novasLinhas[0], validacao);
+        } else {
+            tabela.adicionarLinhas(novasLinhas, numLinhas, 0, validacao);
+        }
+        if (validacao != null) validacao.linhas = numLinhas;
+        return numLinhas;
+    }
 
-        // Converte o valor de busca para o tipo de dado correto da coluna.
-        int indiceColuna = tabela.getIndiceColunaPeloNome(nomeColuna);
-        if (indiceColuna == -1) throw new Exception("Coluna '" + nomeColuna + "' não encontrada.");
+    /** Descreve as restrições verificadas pela inserção (ex: "Validação de restrições (PK id, FK id_cidade -> cidades.id)"). */
+    private static String descreverValidacao(Tabela tabela) {
+        StringBuilder restricoes = new StringBuilder();
+        for (int i = 0; i < tabela.getNumColunas(); i++) {
+            Coluna coluna = tabela.getColunaPorIndice(i);
+            if (coluna.isPrimaryKey()) {
+                if (restricoes.length() > 0) restricoes.append(", ");
+                restricoes.append("PK ").append(coluna.getNome());
+            }
+            ForeignKeyConstraint constraint = coluna.getFkConstraint();
+            if (constraint != null) {
+                if (restricoes.length() > 0) restricoes.append(", ");
+                restricoes.append("FK ").append(coluna.getNome()).append(" -> ")
+                        .append(constraint.getTabelaReferenciada()).append('.').append(constraint.getColunaReferenciada());
+            }
+        }
+        return "Validação de restrições (" + (restricoes.length() > 0 ? restricoes + ", por índice hash" : "nenhuma") + ")";
+    }
 
-        Coluna coluna = tabela.getColunaPorIndice(indiceColuna);
+    private int executarDelete(Comando comando, Object[] parametros) throws Exception {
+        Tabela tabela = comando.tabela;
+        Object valorBusca = vincularValor(comando.valoresConvertidos[0], parametros, tabela.getColunaPorIndice(comando.indiceColuna));
+        int threads = planejarExclusao(tabela, comando.indiceColuna, valorBusca);
+        if (explicacao != null && !explicacao.analisar) {
+            return 0; // EXPLAIN: apenas o plano.
+        }
 
-        Object valorBusca;
-        if (coluna.getTipoDado().equals("INT")) {
-            try {
-                valorBusca = Integer.parseInt(valorStr);
-            } catch (NumberFormatException e) {
-                throw new Exception("Erro de tipo: O valor '" + valorStr + "' não é um INT para a coluna '" + nomeColuna + "'.");
+        if (transacao != null || banco.getLog() != null) {
+            String sql = banco.getLog() != null ? "DELETE FROM " + tabela.getNome() + " WHERE "
+                    + tabela.getColunaPorIndice(comando.indiceColuna).getNome() + " = " + gerarLiteral(valorBusca) : null;
+            if (transacao != null) {
+                transacao.adicionarRemocao(tabela, comando.indiceColuna, valorBusca, threads, sql);
+                return 0;
             }
-        } else { // STRING
-            valorBusca = valorStr.replace("'", ""); // Remove aspas
+            Transacao unica = new Transacao();
+            unica.adicionarRemocao(tabela, comando.indiceColuna, valorBusca, threads, sql);
+            return unica.confirmar(banco.getLog())[0];
         }
 
         // Delega a lógica de remoção de linhas para a Tabela, retornando o número de linhas afetadas.
-        return tabela.removerLinhas(nomeColuna, valorBusca);
+        return tabela.removerLinhas(comando.indiceColuna, valorBusca, threads, 0, null);
+    }
+
+    /**
+     * Descreve em ultimoPlano como o DELETE localiza as linhas: pelo índice da coluna, se houver,
+     * ou por varredura. @return O número de threads da varredura (1 = sequencial ou por índice).
+     */
+    private int planejarExclusao(Tabela tabela, int indiceColuna, Object valor) {
+        String nomeColuna = tabela.getNome() + "." + tabela.getColunaPorIndice(indiceColuna).getNome();
+        ArvoreBMais indiceOrdenado = tabela.getIndiceOrdenado(indiceColuna);
+        int threads = 1;
+        int estimativa = -1;
+        String acesso;
+        if (tabela.getIndiceHash(indiceColuna) != null) {
+            acesso = "Busca por índice hash (" + nomeColuna + ")";
+        } else if (indiceOrdenado != null) {
+            acesso = "Busca por índice ordenado " + indiceOrdenado.getNome() + " (" + nomeColuna + ")";
+        } else {
+            threads = paralelismoPara(tabela);
+            estimativa = tabela.getNumLinhas();
+            acesso = prefixoVarredura(tabela) + tabela.getNome() + ", filtro: " + nomeColuna + " = " + gerarLiteral(valor)
+                    + descreverParalelismo(threads) + ")";
+        }
+        this.ultimoPlano = "Exclusão <- " + acesso;
+        if (explicacao != null) {
+            Explicacao.Etapa etapaAcesso = new Explicacao.Etapa(acesso, estimativa, null);
+            explicacao.ultima = new Explicacao.Etapa("Exclusão em " + tabela.getNome(), -1,
+                    new Explicacao.Etapa[] { etapaAcesso });
+        }
+        return threads;
     }
 
     /**
-     * Executa um SELECT sem JOIN. Cria uma Tabela de resultado com as colunas e linhas solicitadas.
+     * Aplica as operações da transação aberta (ver Transacao.confirmar). Com falha, a transação
+     * é encerrada sem nenhuma das suas escritas.
      */
-    private Tabela executarSelectSimples(String colunasStr, String nomeTabela) throws Exception {
-        Tabela tabelaOriginal = banco.getTabela(nomeTabela);
-        if (tabelaOriginal == null) throw new Exception("Tabela '" + nomeTabela + "' não encontrada.");
+    private String executarCommit() throws Exception {
+        if (transacao == null) {
+            throw new Exception("Não há transação em andamento.");
+        }
+        Transacao confirmada = transacao;
+        transacao = null;
+        int[] afetadas;
+        try {
+            afetadas = confirmada.confirmar(banco.getLog());
+        } catch (Exception e) {
+            throw new Exception("COMMIT falhou e a transação foi desfeita: " + e.getMessage());
+        }
+        int total = 0;
+        for (int i = 0; i < afetadas.length; i++) {
+            total += afetadas[i];
+        }
+        return "Transação confirmada! Operações: " + afetadas.length + ", linhas afetadas: " + total;
+    }
 
-        // Cria a tabela de resultado, que é temporária.
-        Tabela resultado = new Tabela("resultado_select");
+    /**
+     * COPY: exporta a tabela para um CSV ou importa um CSV para ela (ver ArquivoCsv).
+     * A exportação lê a tabela por um Cursor, no snapshot do início do comando. A importação
+     * insere as linhas em blocos, cada um confirmado como uma escrita (e, com o log ativo,
+     * registrado como um INSERT): se uma linha for recusada, os blocos anteriores permanecem.
+     */
+    private String executarCopy(Comando comando) throws Exception {
+        if (transacao != null) {
+            throw new Exception("O comando COPY não é permitido dentro de uma transação. Use COMMIT ou ROLLBACK antes.");
+        }
+        Tabela tabela = banco.getTabela(comando.nomeTabela);
+        if (tabela == null) {
+            throw new Exception("Tabela '" + comando.nomeTabela + "' não encontrada.");
+        }
+        int[] todasColunas = new int[tabela.getNumColunas()];
+        for (int i = 0; i < todasColunas.length; i++) {
+            todasColunas[i] = i;
+        }
 
-        if (colunasStr.equals("*")) {
-            // Seleção de todas as colunas: Copia todas as colunas e todas as linhas.
-            for (int i = 0; i < tabelaOriginal.getNumColunas(); i++) {
-                resultado.adicionarColuna(tabelaOriginal.getColunaPorIndice(i));
+        if (comando.paraArquivo) {
+            Coluna[] colunas = new Coluna[todasColunas.length];
+            for (int i = 0; i < colunas.length; i++) {
+                colunas[i] = tabela.getColunaPorIndice(i);
             }
+            Tabela[] consultadas = { tabela };
+            Cursor cursor;
+            Tabela.travarLeitura(consultadas);
+            try {
+                long snapshot = GerenciadorTransacoes.getInstancia().getSnapshot();
+                cursor = new Cursor("copia_" + tabela.getNome(), new Operador.Varredura(tabela, null, 0, snapshot),
+                        consultadas, colunas, new int[colunas.length], todasColunas);
+            } finally {
+                Tabela.destravarLeitura(consultadas);
+            }
+            long exportadas = ArquivoCsv.exportar(cursor, comando.arquivo);
+            return "COPY concluído: " + exportadas + " linha(s) exportada(s) para '" + comando.arquivo + "'.";
+        }
 
-            // Acesso ao Array de Linhas: Para percorrer os dados da tabela original.
-            for (int i = 0; i < tabelaOriginal.getNumLinhas(); i++) {
-                Linha linhaOriginal = tabelaOriginal.getLinhasArray()[i];
-
-                // Cria uma nova Linha e copia os dados.
-                Linha novaLinha = new Linha(tabelaOriginal.getNumColunas());
-                for (int j = 0; j < tabelaOriginal.getNumColunas(); j++) {
-                    novaLinha.setDadoPorIndice(j, linhaOriginal.getDadoPorIndice(j));
+        long importadas = 0;
+        try (ArquivoCsv.Leitor leitor = new ArquivoCsv.Leitor(comando.arquivo, tabela)) {
+            Linha[] bloco = new Linha[LINHAS_POR_BLOCO_COPY];
+            int quantidade;
+            while ((quantidade = leitor.lerBloco(bloco)) > 0) {
+                Linha[] linhas = bloco;
+                if (quantidade < bloco.length) {
+                    linhas = new Linha[quantidade];
+                    for (int j = 0; j < quantidade; j++) {
+                        linhas[j] = bloco[j];
+                    }
+                }
+                if (banco.getLog() != null) {
+                    Transacao unica = new Transacao();
+                    unica.adicionarInsercao(tabela, linhas, gerarInsert(tabela, todasColunas, linhas));
+                    unica.confirmar(banco.getLog());
+                } else {
+                    tabela.adicionarLinhas(linhas, quantidade);
                 }
-                resultado.adicionarLinha(novaLinha);
+                importadas += quantidade;
             }
+        } catch (Exception e) {
+            if (importadas == 0) {
+                throw e;
+            }
+            throw new Exception(e.getMessage() + " COPY interrompido: " + importadas + " linha(s) já importada(s).");
+        }
+        return "COPY concluído: " + importadas + " linha(s) importada(s) de '" + comando.arquivo + "'.";
+    }
+
+    // --- Texto SQL para o Log de Transações ---
+
+    /** Gera o INSERT com os valores já vinculados (sem parâmetros '?'), para o log. */
+    private static String gerarInsert(Tabela tabela, int[] indicesColunas, Linha[] novasLinhas) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tabela.getNome()).append(" (");
+        for (int i = 0; i < indicesColunas.length; i++) {
+            if (i > 0) sql.append(", ");
+            sql.append(tabela.getColunaPorIndice(indicesColunas[i]).getNome());
+        }
+        sql.append(") VALUES ");
+        for (int l = 0; l < novasLinhas.length; l++) {
+            sql.append(l > 0 ? ", (" : "(");
+            for (int i = 0; i < indicesColunas.length; i++) {
+                if (i > 0) sql.append(", ");
+                sql.append(gerarLiteral(novasLinhas[l].getDadoPorIndice(indicesColunas[i])));
+            }
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+
+    /** Escreve o valor como literal SQL: números como estão, textos entre aspas (com '' para a aspa), NULL. */
+    private static String gerarLiteral(Object valor) {
+        if (valor == null) {
+            return "NULL";
+        }
+        if (valor instanceof Integer) {
+            return valor.toString();
+        }
+        return "'" + valor.toString().replace("'", "''") + "'";
+    }
+
+    /**
+     * Executa um SELECT sem JOIN. Monta o pipeline de operadores (acesso -> limite) e o
+     * retorna como um Cursor: as linhas só são lidas da tabela à medida que o cursor avança,
+     * e a projeção lê os valores direto da tabela original, sem copiar nenhuma linha.
+     */
+    private Cursor executarSelectSimples(Comando comando, Object[] parametros, long snapshot) throws Exception {
+        Tabela tabelaOriginal = comando.tabela;
+
+        // Caminho de acesso com o WHERE (por índice ou varredura).
+        Condicao condicao = comando.condicao != null ? comando.condicao.vincular(parametros) : null;
+        Operador raiz = planejarAcesso(tabelaOriginal, condicao, 0, snapshot, lerTodasAsLinhas(comando));
+        this.ultimoPlano = descricaoAcesso;
+        raiz = registrarEtapa(raiz, descricaoAcesso, estimativaAcesso, null);
+        if (comando.isAgregacao()) {
+            // Entrada da agregação: as colunas são lidas pela Agregacao, não pela projeção do cursor.
+            return new Cursor("entrada_agregacao", raiz, new Tabela[] { tabelaOriginal }, new Coluna[0], new int[0], new int[0]);
+        }
+        raiz = aplicarOrdenacaoELimite(comando, raiz, new Tabela[] { tabelaOriginal });
+
+        // Projeção: índices já resolvidos no Comando, ou todas as colunas para '*'.
+        int[] indicesSelecionados = comando.indicesColunas;
+        if (comando.colunas == null) {
+            indicesSelecionados = new int[tabelaOriginal.getNumColunas()];
+            for (int i = 0; i < indicesSelecionados.length; i++) {
+                indicesSelecionados[i] = i;
+            }
+        }
+        Coluna[] colunas = new Coluna[indicesSelecionados.length];
+        for (int i = 0; i < indicesSelecionados.length; i++) {
+            colunas[i] = tabelaOriginal.getColunaPorIndice(indicesSelecionados[i]);
+        }
+        // Todas as colunas vêm da origem 0 (o array de int já nasce com zeros).
+        int[] origemDaColuna = new int[indicesSelecionados.length];
+
+        return new Cursor("resultado_select", raiz, new Tabela[] { tabelaOriginal }, colunas, origemDaColuna, indicesSelecionados);
+    }
+
+    /**
+     * Executa um JOIN entre duas tabelas (INNER JOIN), retornando um Cursor.
+     * As partes do WHERE que usam apenas uma das tabelas são empurradas para o acesso
+     * daquela tabela (predicate pushdown); o restante é um filtro sobre os pares do JOIN.
+     */
+    private Cursor executarJoin(Comando comando, Object[] parametros, long snapshot) throws Exception {
+        Tabela t1 = comando.tabela;
+        Tabela t2 = comando.tabelaJoin;
+        int indiceJoinT1 = comando.indiceJoin1;
+        int indiceJoinT2 = comando.indiceJoin2;
+
+        // 1. WHERE já distribuído na resolução: [0] só T1, [1] só T2, [2] residual.
+        Condicao condicaoT1 = comando.partesJoin[0] != null ? comando.partesJoin[0].vincular(parametros) : null;
+        Condicao condicaoT2 = comando.partesJoin[1] != null ? comando.partesJoin[1].vincular(parametros) : null;
+        Condicao residual = comando.partesJoin[2] != null ? comando.partesJoin[2].vincular(parametros) : null;
+
+        // 2. Acesso a cada lado, com o filtro daquele lado.
+        boolean podeParalelo = lerTodasAsLinhas(comando);
+        Operador acessoT1 = planejarAcesso(t1, condicaoT1, 0, snapshot, podeParalelo);
+        String descricaoT1 = descricaoAcesso;
+        int estimativaT1 = estimativaAcesso;
+        acessoT1 = registrarEtapa(acessoT1, descricaoT1, estimativaT1, null);
+        Explicacao.Etapa etapaT1 = ultimaEtapa();
+        Operador acessoT2 = planejarAcesso(t2, condicaoT2, 1, snapshot, podeParalelo);
+        String descricaoT2 = descricaoAcesso;
+        int estimativaT2 = estimativaAcesso;
+        acessoT2 = registrarEtapa(acessoT2, descricaoT2, estimativaT2, null);
+        Explicacao.Etapa etapaT2 = ultimaEtapa();
+
+        // 3. Escolha do algoritmo de JOIN, pelo número estimado de linhas de cada lado.
+        long comparacoes = (long) estimativaT1 * estimativaT2;
+        Operador raiz;
+        String algoritmo;
+        if (comparacoes <= LIMITE_NESTED_LOOP) {
+            // Entradas pequenas: o laço aninhado dispensa a construção da tabela hash.
+            raiz = new Operador.NestedLoopJoin(acessoT1, acessoT2, t1, indiceJoinT1, t2, indiceJoinT2);
+            algoritmo = "Nested Loop Join";
+        } else if (estimativaT1 <= estimativaT2) {
+            // A menor entrada é a de build, para que a tabela hash ocupe menos memória.
+            // A sondagem, pela entrada maior, é dividida entre as threads quando ela passa do limiar.
+            int threads = podeParalelo ? paralelismoPara(estimativaT2) : 1;
+            raiz = new Operador.HashJoin(acessoT1, t1, indiceJoinT1, acessoT2, t2, indiceJoinT2, 0, threads);
+            algoritmo = "Hash Join (build: " + t1.getNome() + ", probe: " + t2.getNome()
+                    + (threads > 1 ? ", sondagem paralela: " + threads + " threads" : "") + ")";
         } else {
-            // Seleção de colunas específicas.
-            String[] nomesColunasSelecionadas = colunasStr.split(",");
-
-            // 1. Mapeamento de Colunas: Determina quais índices da tabela original serão usados.
-            int[] indicesSelecionados = new int[nomesColunasSelecionadas.length];
-            for(int i = 0; i < nomesColunasSelecionadas.length; i++) {
-                String nome = nomesColunasSelecionadas[i].trim();
-                int indice = tabelaOriginal.getIndiceColunaPeloNome(nome);
-                if (indice == -1) {
-                    throw new Exception("Coluna '" + nome + "' não encontrada.");
-                }
-                indicesSelecionados[i] = indice;
-                // Adiciona a coluna correspondente à Tabela de resultado.
-                resultado.adicionarColuna(tabelaOriginal.getColunaPorIndice(indice));
+            int threads = podeParalelo ? paralelismoPara(estimativaT1) : 1;
+            raiz = new Operador.HashJoin(acessoT2, t2, indiceJoinT2, acessoT1, t1, indiceJoinT1, 1, threads);
+            algoritmo = "Hash Join (build: " + t2.getNome() + ", probe: " + t1.getNome()
+                    + (threads > 1 ? ", sondagem paralela: " + threads + " threads" : "") + ")";
+        }
+        raiz = registrarEtapa(raiz, algoritmo, -1, new Explicacao.Etapa[] { etapaT1, etapaT2 });
+        if (residual != null) {
+            raiz = new Operador.Filtro(raiz, residual, t1, t2);
+            raiz = registrarEtapa(raiz, "Filtro residual: " + residual, -1, new Explicacao.Etapa[] { ultimaEtapa() });
+        }
+        this.ultimoPlano = algoritmo + " [" + descricaoT1 + "; " + descricaoT2 + "]";
+        if (!comando.isAgregacao()) {
+            // Com agregação, a ordenação e o limite valem para os grupos.
+            raiz = aplicarOrdenacaoELimite(comando, raiz, new Tabela[] { t1, t2 });
+        }
+
+        // 4. Esquema do resultado: colunas de T1 seguidas das colunas de T2.
+        int numColunasT1 = t1.getNumColunas();
+        int total = numColunasT1 + t2.getNumColunas();
+        Coluna[] colunas = new Coluna[total];
+        int[] origemDaColuna = new int[total];
+        int[] colunaNaOrigem = new int[total];
+        for (int i = 0; i < total; i++) {
+            Tabela origem = i < numColunasT1 ? t1 : t2;
+            int indiceNaOrigem = i < numColunasT1 ? i : i - numColunasT1;
+            Coluna c = origem.getColunaPorIndice(indiceNaOrigem);
+            // Renomeia colunas para evitar conflitos (ex: t1.id, t2.id)
+            colunas[i] = new Coluna(origem.getNome() + "." + c.getNome(), c.getTipoDado());
+            origemDaColuna[i] = i < numColunasT1 ? 0 : 1;
+            colunaNaOrigem[i] = indiceNaOrigem;
+        }
+
+        return new Cursor("resultado_join", raiz, new Tabela[] { t1, t2 }, colunas, origemDaColuna, colunaNaOrigem);
+    }
+
+    /**
+     * Agrega as linhas do cursor de entrada (o SELECT sem a projeção) por hash (ver Agregacao)
+     * e retorna um Cursor sobre o resultado: uma tabela temporária, em memória, com uma linha
+     * por grupo e uma coluna por item da projeção. LIMIT e OFFSET valem para os grupos.
+     */
+    private Cursor executarAgregacao(Comando comando, Cursor entrada) throws Exception {
+        Tabela[] origens = comando.tabelaJoin != null
+                ? new Tabela[] { comando.tabela, comando.tabelaJoin } : new Tabela[] { comando.tabela };
+        int numItens = comando.colunas.length;
+
+        // Um agregado por item com função; os demais itens são colunas do GROUP BY.
+        int numAgregados = 0;
+        for (int i = 0; i < numItens; i++) {
+            if (comando.funcoes != null && comando.funcoes[i] != null) numAgregados++;
+        }
+        Agregacao.Funcao[] funcoes = new Agregacao.Funcao[numAgregados];
+        int[] origensAgregados = new int[numAgregados];
+        int[] colunasAgregados = new int[numAgregados];
+        int[] itemNaAgregacao = new int[numItens]; // Índice do agregado, ou da chave do GROUP BY
+        int a = 0;
+        for (int i = 0; i < numItens; i++) {
+            if (comando.funcoes != null && comando.funcoes[i] != null) {
+                funcoes[a] = comando.funcoes[i];
+                origensAgregados[a] = Math.max(comando.origensColunas[i], 0);
+                colunasAgregados[a] = comando.indicesColunas[i];
+                itemNaAgregacao[i] = a++;
+            } else {
+                itemNaAgregacao[i] = indiceNoAgrupamento(comando, comando.origensColunas[i], comando.indicesColunas[i]);
             }
+        }
 
-            // 2. Projeção de Linhas: Cria novas Linhas apenas com os dados selecionados.
-            for(int i = 0; i < tabelaOriginal.getNumLinhas(); i++) {
-                Linha linhaOriginal = tabelaOriginal.getLinhasArray()[i];
-                // A nova linha terá apenas o número de colunas selecionadas.
-                Linha novaLinha = new Linha(indicesSelecionados.length);
+        Agregacao agregacao = new Agregacao(origens, comando.origensAgrupamento, comando.indicesAgrupamento,
+                funcoes, origensAgregados, colunasAgregados);
+        Explicacao.Etapa etapaEntrada = ultimaEtapa();
+        boolean apenasPlano = explicacao != null && !explicacao.analisar;
+        long inicioNanos = explicacao != null ? System.nanoTime() : 0;
+        long inicioBytes = explicacao != null ? Explicacao.bytesAlocados() : 0;
+        if (apenasPlano) {
+            entrada.fechar(); // EXPLAIN: o plano é descrito sem ler as linhas.
+        } else {
+            entrada.agregar(agregacao);
+        }
 
-                for(int j = 0; j < indicesSelecionados.length; j++) {
-                    int indiceOriginal = indicesSelecionados[j];
-                    // Transfere o dado usando o índice mapeado.
-                    novaLinha.setDadoPorIndice(j, linhaOriginal.getDadoPorIndice(indiceOriginal));
-                }
-                resultado.adicionarLinha(novaLinha);
+        // Resultado: colunas com o nome do item (ex: "grupo", "count(*)", "sum(valor)").
+        Coluna[] colunas = new Coluna[numItens];
+        for (int i = 0; i < numItens; i++) {
+            Agregacao.Funcao funcao = comando.funcoes != null ? comando.funcoes[i] : null;
+            if (funcao != null) {
+                colunas[i] = new Coluna(descreverItem(funcao, comando.colunas[i]), agregacao.getTipoResultado(itemNaAgregacao[i]));
+            } else {
+                Coluna original = origens[comando.origensColunas[i]].getColunaPorIndice(comando.indicesColunas[i]);
+                colunas[i] = new Coluna(comando.colunas[i], original.getTipoDado());
+            }
+        }
+        int numGrupos = agregacao.getNumGrupos();
+        Linha[] linhas = new Linha[numGrupos];
+        for (int g = 0; g < numGrupos; g++) {
+            Linha linha = new Linha(numItens);
+            for (int i = 0; i < numItens; i++) {
+                boolean agregado = comando.funcoes != null && comando.funcoes[i] != null;
+                linha.setDadoPorIndice(i, agregado ? agregacao.getResultado(g, itemNaAgregacao[i])
+                        : agregacao.getChave(g, itemNaAgregacao[i]));
             }
+            linhas[g] = linha;
+        }
+        Tabela resultado = Tabela.criarResultado("resultado_agregacao", colunas, linhas, numGrupos);
+
+        String descricao = comando.agrupamento != null
+                ? "Agregação por hash (GROUP BY " + String.join(", ", comando.agrupamento)
+                        + (apenasPlano ? "" : ": " + numGrupos + " grupos") + ")"
+                : "Agregação (sem GROUP BY)";
+        this.ultimoPlano = descricao + " <- " + ultimoPlano;
+        Operador raiz = registrarEtapa(new Operador.Varredura(resultado, null, 0, Long.MAX_VALUE), descricao, -1,
+                new Explicacao.Etapa[] { etapaEntrada });
+        if (explicacao != null && explicacao.analisar) {
+            // A leitura e o agrupamento das linhas de entrada contam para a etapa da agregação.
+            explicacao.ultima.adicionar(System.nanoTime() - inicioNanos, Explicacao.bytesAlocados() - inicioBytes);
         }
-        return resultado;
+        raiz = aplicarOrdenacaoELimite(comando, raiz, new Tabela[] { resultado });
+        int[] origemDaColuna = new int[numItens];
+        int[] colunaNaOrigem = new int[numItens];
+        for (int i = 0; i < numItens; i++) {
+            colunaNaOrigem[i] = i;
+        }
+        return new Cursor("resultado_select", raiz, new Tabela[] { resultado }, colunas, origemDaColuna, colunaNaOrigem);
+    }
+
+    /**
+     * Indica se o SELECT lê todas as linhas da entrada antes de produzir a primeira (agregação
+     * ou ORDER BY) ou não tem LIMIT: só então vale dividir as varreduras entre as threads.
+     */
+    private static boolean lerTodasAsLinhas(Comando comando) {
+        return comando.limite == -1 || comando.isAgregacao() || comando.ordenacao != null;
     }
 
     /**
-     * Executa um JOIN entre duas tabelas (INNER JOIN).
+     * Coloca a ordenação do ORDER BY (ver Ordenador) e o LIMIT/OFFSET no topo do pipeline.
+     * Com LIMIT, as LIMIT + OFFSET primeiras linhas são escolhidas por um heap (top-N), se não
+     * passarem de MAXIMO_LINHAS_TOP_N; senão, todas são ordenadas pela ordenação externa, que
+     * grava em arquivos temporários o que passar da memória da sessão (SORT_MEMORY).
+     * @param origens As tabelas lidas pelo pipeline (a origem de cada item do ORDER BY).
      */
-    private Tabela executarJoin(Matcher matcher) throws Exception {
-        String colunasStr = matcher.group(1).trim();
-        String nomeTabela1 = matcher.group(2);
-        String nomeTabela2 = matcher.group(3);
-        String condicao1 = matcher.group(4); // e.g., 't1.id'
-        String condicao2 = matcher.group(5); // e.g., 't2.ref_id'
+    private Operador aplicarOrdenacaoELimite(Comando comando, Operador raiz, Tabela[] origens) {
+        if (comando.ordenacao != null) {
+            long pedidas = comando.limite == -1 ? -1 : (long) comando.limite + comando.deslocamento;
+            boolean topN = pedidas != -1 && pedidas <= MAXIMO_LINHAS_TOP_N;
+            Ordenador ordenador = new Ordenador(origens, comando.origensOrdenacao, comando.indicesOrdenacao,
+                    comando.ordemDecrescente, topN ? (int) pedidas : -1, memoriaOrdenacaoKb * 1024L);
+
+            StringBuilder itens = new StringBuilder();
+            for (int k = 0; k < comando.ordenacao.length; k++) {
+                if (k > 0) itens.append(", ");
+                itens.append(descreverItem(comando.funcoesOrdenacao[k], comando.ordenacao[k]));
+                if (comando.ordemDecrescente[k]) itens.append(" DESC");
+            }
+            String descricao = (topN ? "Ordenação top-N (" + pedidas + " linhas, por " + itens
+                    : "Ordenação externa (por " + itens + ", memória: " + memoriaOrdenacaoKb + " KB") + ")";
+            this.ultimoPlano = descricao + " <- " + ultimoPlano;
+            raiz = registrarEtapa(new Operador.Ordenacao(raiz, ordenador), descricao, -1,
+                    new Explicacao.Etapa[] { ultimaEtapa() });
+            if (explicacao != null && !topN) {
+                explicacao.ultima.ordenador = ordenador;
+            }
+        }
+        return aplicarLimite(comando, raiz);
+    }
 
-        Tabela t1 = banco.getTabela(nomeTabela1);
-        if (t1 == null) throw new Exception("Tabela '" + nomeTabela1 + "' não encontrada.");
-        Tabela t2 = banco.getTabela(nomeTabela2);
-        if (t2 == null) throw new Exception("Tabela '" + nomeTabela2 + "' não encontrada.");
+    /** Coloca o operador de LIMIT/OFFSET no topo do pipeline, se o comando tiver um. */
+    private Operador aplicarLimite(Comando comando, Operador raiz) {
+        if (comando.limite == -1 && comando.deslocamento == 0) {
+            return raiz;
+        }
+        String descricao = "Limite (" + (comando.limite == -1 ? "sem limite" : comando.limite + " linhas")
+                + (comando.deslocamento > 0 ? ", deslocamento " + comando.deslocamento : "") + ")";
+        this.ultimoPlano = descricao + " <- " + ultimoPlano;
+        return registrarEtapa(new Operador.Limite(raiz, comando.limite, comando.deslocamento), descricao, -1,
+                new Explicacao.Etapa[] { ultimaEtapa() });
+    }
 
-        String[] c1_parts = condicao1.split("\\.");
-        String[] c2_parts = condicao2.split("\\.");
+    /**
+     * Resolve a projeção e o GROUP BY de um SELECT com agregação (simples ou com JOIN): cada
+     * coluna vira (origem, índice). As colunas sem função precisam estar no GROUP BY, e SUM e
+     * AVG exigem colunas INT.
+     */
+    private void resolverAgregacao(Comando comando, Tabela t1, Tabela t2) throws Exception {
+        if (comando.colunas == null) {
+            throw new Exception("SELECT * não pode ser usado com GROUP BY. Informe as colunas e as funções de agregação.");
+        }
+        int numAgrupamento = comando.agrupamento != null ? comando.agrupamento.length : 0;
+        comando.origensAgrupamento = new int[numAgrupamento];
+        comando.indicesAgrupamento = new int[numAgrupamento];
+        for (int k = 0; k < numAgrupamento; k++) {
+            int[] referencia = resolverReferencia(comando.agrupamento[k], t1, t2);
+            comando.origensAgrupamento[k] = referencia[0];
+            comando.indicesAgrupamento[k] = referencia[1];
+        }
 
-        // Simplesmente extraímos o nome da coluna ignorando o prefixo da tabela (que é o que a regex extraiu)
-        String colNameT1 = c1_parts[1];
-        String colNameT2 = c2_parts[1];
+        int numItens = comando.colunas.length;
+        comando.origensColunas = new int[numItens];
+        comando.indicesColunas = new int[numItens];
+        for (int i = 0; i < numItens; i++) {
+            Agregacao.Funcao funcao = comando.funcoes != null ? comando.funcoes[i] : null;
+            if (comando.colunas[i].equals("*")) { // COUNT(*)
+                comando.origensColunas[i] = -1;
+                comando.indicesColunas[i] = -1;
+                continue;
+            }
+            int[] referencia = resolverReferencia(comando.colunas[i], t1, t2);
+            comando.origensColunas[i] = referencia[0];
+            comando.indicesColunas[i] = referencia[1];
+            Tabela origem = referencia[0] == 0 ? t1 : t2;
+            if (funcao == null && indiceNoAgrupamento(comando, referencia[0], referencia[1]) == -1) {
+                throw new Exception("A coluna '" + comando.colunas[i] + "' deve aparecer no GROUP BY ou dentro de uma função de agregação.");
+            }
+            if ((funcao == Agregacao.Funcao.SUM || funcao == Agregacao.Funcao.AVG)
+                    && !origem.getColunaPorIndice(referencia[1]).getTipoDado().equals("INT")) {
+                throw new Exception(funcao + " exige uma coluna INT, mas '" + comando.colunas[i] + "' é "
+                        + origem.getColunaPorIndice(referencia[1]).getTipoDado() + ".");
+            }
+        }
+    }
 
-        // Determina os índices de busca nas tabelas originais.
-        int indiceJoinT1 = t1.getIndiceColunaPeloNome(colNameT1);
-        int indiceJoinT2 = t2.getIndiceColunaPeloNome(colNameT2);
+    /**
+     * Resolve os itens do ORDER BY. Sem agregação, cada item é uma coluna das tabelas (que não
+     * precisa estar na projeção); com agregação, um item da lista do SELECT (coluna do GROUP BY
+     * ou função), que vira o índice da coluna no resultado.
+     */
+    private void resolverOrdenacao(Comando comando, Tabela t1, Tabela t2) throws Exception {
+        int numItens = comando.ordenacao.length;
+        comando.origensOrdenacao = new int[numItens];
+        comando.indicesOrdenacao = new int[numItens];
+        for (int k = 0; k < numItens; k++) {
+            Agregacao.Funcao funcao = comando.funcoesOrdenacao[k];
+            if (!comando.isAgregacao()) {
+                if (funcao != null) {
+                    throw new Exception("Funções de agregação no ORDER BY exigem GROUP BY ou funções de agregação no SELECT.");
+                }
+                int[] referencia = resolverReferencia(comando.ordenacao[k], t1, t2);
+                comando.origensOrdenacao[k] = referencia[0];
+                comando.indicesOrdenacao[k] = referencia[1];
+                continue;
+            }
+            int[] referencia = comando.ordenacao[k].equals("*") ? new int[] { -1, -1 }
+                    : resolverReferencia(comando.ordenacao[k], t1, t2);
+            int item = -1;
+            for (int i = 0; i < comando.colunas.length && item == -1; i++) {
+                Agregacao.Funcao funcaoItem = comando.funcoes != null ? comando.funcoes[i] : null;
+                if (funcaoItem == funcao && comando.origensColunas[i] == referencia[0]
+                        && comando.indicesColunas[i] == referencia[1]) {
+                    item = i;
+                }
+            }
+            if (item == -1) {
+                throw new Exception("O item '" + descreverItem(funcao, comando.ordenacao[k])
+                        + "' do ORDER BY deve aparecer na lista do SELECT.");
+            }
+            comando.origensOrdenacao[k] = 0; // Coluna do resultado da agregação
+            comando.indicesOrdenacao[k] = item;
+        }
+    }
 
-        if (indiceJoinT1 == -1) throw new Exception("Coluna '" + colNameT1 + "' não encontrada na tabela '" + t1.getNome() + "'.");
-        if (indiceJoinT2 == -1) throw new Exception("Coluna '" + colNameT2 + "' não encontrada na tabela '" + t2.getNome() + "'.");
+    /** Texto de um item do SELECT ou do ORDER BY (ex: "nome", "COUNT(*)"). */
+    private static String descreverItem(Agregacao.Funcao funcao, String referencia) {
+        return funcao != null ? funcao.name() + "(" + referencia + ")" : referencia;
+    }
 
-        Tabela resultado = new Tabela("resultado_join");
+    /** Posição da coluna (origem, índice) na lista do GROUP BY, ou -1. */
+    private static int indiceNoAgrupamento(Comando comando, int origem, int indice) {
+        for (int k = 0; k < comando.indicesAgrupamento.length; k++) {
+            if (comando.origensAgrupamento[k] == origem && comando.indicesAgrupamento[k] == indice) {
+                return k;
+            }
+        }
+        return -1;
+    }
 
-        // 1. Definição do Esquema de Resultado (Colunas de T1 + Colunas de T2)
-        int numColunasT1 = t1.getNumColunas();
-        for (int i = 0; i < numColunasT1; i++) {
-            Coluna c = t1.getColunaPorIndice(i);
-            // Renomeia colunas para evitar conflitos (ex: t1.id, t2.id)
-            resultado.adicionarColuna(new Coluna(t1.getNome() + "." + c.getNome(), c.getTipoDado()));
+    /**
+     * Resolve uma referência de coluna (coluna ou tabela.coluna) contra as tabelas da consulta.
+     * @return {origem (0 = t1, 1 = t2), índice da coluna na origem}
+     */
+    private static int[] resolverReferencia(String referencia, Tabela t1, Tabela t2) throws Exception {
+        String nomeTabela = null;
+        String coluna = referencia;
+        int ponto = referencia.indexOf('.');
+        if (ponto != -1) {
+            nomeTabela = referencia.substring(0, ponto);
+            coluna = referencia.substring(ponto + 1);
         }
-        int numColunasT2 = t2.getNumColunas();
-        for (int i = 0; i < numColunasT2; i++) {
-            Coluna c = t2.getColunaPorIndice(i);
-            resultado.adicionarColuna(new Coluna(t2.getNome() + "." + c.getNome(), c.getTipoDado()));
+        int indiceT1 = -1;
+        int indiceT2 = -1;
+        if (nomeTabela == null || nomeTabela.equals(t1.getNome())) {
+            indiceT1 = t1.getIndiceColunaPeloNome(coluna);
         }
-        int totalColunas = resultado.getNumColunas();
+        if (t2 != null && (nomeTabela == null || nomeTabela.equals(t2.getNome()))) {
+            indiceT2 = t2.getIndiceColunaPeloNome(coluna);
+        }
+        if (indiceT1 != -1 && indiceT2 != -1) {
+            throw new Exception("Coluna '" + referencia + "' é ambígua. Use tabela.coluna.");
+        }
+        if (indiceT1 == -1 && indiceT2 == -1) {
+            throw new Exception("Coluna '" + referencia + "' não encontrada.");
+        }
+        return indiceT1 != -1 ? new int[] { 0, indiceT1 } : new int[] { 1, indiceT2 };
+    }
 
-        // 2. Execução do Loop de JOIN (Nested Loop Join)
-        Linha[] linhasT1 = t1.getLinhasArray();
-        Linha[] linhasT2 = t2.getLinhasArray();
+    /**
+     * Separa as conjunções (partes ligadas por AND no nível mais alto) de uma condição
+     * resolvida conforme as tabelas que cada uma usa.
+     */
+    private void distribuirConjuncoes(Condicao condicao, Condicao[] partes) {
+        if (condicao.getTipo() == Condicao.Tipo.E) {
+            distribuirConjuncoes(condicao.getEsquerda(), partes);
+            distribuirConjuncoes(condicao.getDireita(), partes);
+            return;
+        }
+        switch (condicao.getLadosReferenciados()) {
+            case 1: partes[0] = Condicao.juntarComE(partes[0], condicao); break;
+            case 2: partes[1] = Condicao.juntarComE(partes[1], condicao); break;
+            default: partes[2] = Condicao.juntarComE(partes[2], condicao); break;
+        }
+    }
 
-        // Itera sobre as linhas da Tabela 1 (Loop Externo)
-        for (int i = 0; i < t1.getNumLinhas(); i++) {
-            Linha l1 = linhasT1[i];
+    // --- Caminho de Acesso (Índice vs Varredura) ---
 
-            // Itera sobre as linhas da Tabela 2 (Loop Interno)
-            for (int j = 0; j < t2.getNumLinhas(); j++) {
-                Linha l2 = linhasT2[j];
+    /**
+     * Monta o operador de acesso à tabela para a condição (já resolvida), ou uma varredura
+     * de todas as linhas se não há condição.
+     * Se alguma parte da condição pode ser respondida por um índice (hash ou árvore B+),
+     * apenas as linhas candidatas do índice são verificadas; caso contrário, a condição
+     * é avaliada durante a varredura sequencial.
+     * @param lado 0 se a condição lê a tabela como primeira (t1), 1 como segunda (t2).
+     * @param snapshot O snapshot da consulta, usado pelas varreduras (as posições vindas dos
+     *                 índices já correspondem a ele, pois foram buscadas com a tabela travada).
+     * @param podeParalelo Se a varredura com filtro pode ser dividida entre as threads da sessão.
+     *                     Com LIMIT não pode: a varredura sequencial para assim que as linhas pedidas
+     *                     são produzidas, enquanto a paralela filtra a tabela inteira de uma vez.
+     */
+    private Operador planejarAcesso(Tabela tabela, Condicao condicao, int lado, long snapshot, boolean podeParalelo) {
+        String varredura = prefixoVarredura(tabela);
+        estimativaAcesso = tabela.getNumLinhas();
+        if (condicao == null) {
+            descricaoAcesso = varredura + tabela.getNome() + ")";
+            return new Operador.Varredura(tabela, null, lado, snapshot);
+        }
 
-                // Compara os valores nas colunas de JOIN (condição ON)
-                Object valor1 = l1.getDadoPorIndice(indiceJoinT1);
-                Object valor2 = l2.getDadoPorIndice(indiceJoinT2);
+        descricaoAcesso = null;
+        ListaPosicoes candidatas = buscarPorIndice(tabela, condicao);
+        if (candidatas != null) {
+            // Acesso por índice: verifica a condição completa só nas candidatas.
+            candidatas.ordenarSemRepeticoes();
+            estimativaAcesso = candidatas.getTamanho();
+            return new Operador.Filtro(new Operador.PosicoesIndice(candidatas), condicao,
+                    lado == 0 ? tabela : null, lado == 1 ? tabela : null);
+        }
 
-                if (valor1 != null && valor1.equals(valor2)) {
-                    // Match encontrado: Cria a linha de resultado combinada.
-                    Linha novaLinha = new Linha(totalColunas);
-                    int indiceResultado = 0;
+        // Varredura sequencial com o filtro aplicado linha a linha
+        // (ou coluna a coluna, sobre os arrays primitivos, no formato colunar).
+        int threads = podeParalelo ? paralelismoPara(tabela) : 1;
+        descricaoAcesso = varredura + tabela.getNome() + ", filtro: " + condicao + descreverParalelismo(threads) + ")";
+        return new Operador.Varredura(tabela, condicao, lado, snapshot, threads);
+    }
 
-                    // Copia todos os dados da Tabela 1
-                    for (int k = 0; k < numColunasT1; k++) {
-                        novaLinha.setDadoPorIndice(indiceResultado++, l1.getDadoPorIndice(k));
-                    }
+    private static String prefixoVarredura(Tabela tabela) {
+        return tabela.isColunar() ? "Varredura colunar ("
+                : tabela.isPaginada() ? "Varredura paginada (" : "Varredura sequencial (";
+    }
 
-                    // Copia todos os dados da Tabela 2
-                    for (int k = 0; k < numColunasT2; k++) {
-                        novaLinha.setDadoPorIndice(indiceResultado++, l2.getDadoPorIndice(k));
-                    }
+    /**
+     * Threads para varrer a tabela: as da sessão, se ela tiver ao menos limiarParalelismo linhas,
+     * limitadas ao número de partes em que ela é dividida (ver ExecucaoParalela); senão, 1.
+     */
+    private int paralelismoPara(Tabela tabela) {
+        return paralelismoPara(tabela.getNumLinhas());
+    }
 
-                    resultado.adicionarLinha(novaLinha);
+    private int paralelismoPara(int numLinhas) {
+        if (paralelismo == 1 || numLinhas < limiarParalelismo) {
+            return 1;
+        }
+        return Math.min(paralelismo, ExecucaoParalela.calcularNumPartes(numLinhas, paralelismo));
+    }
+
+    private static String descreverParalelismo(int threads) {
+        return threads > 1 ? ", paralela: " + threads + " threads" : "";
+    }
+
+    /**
+     * Tenta responder a condição (ou parte dela) por índices. Retorna as posições candidatas
+     * (um superconjunto das que atendem à condição) ou null se for preciso varrer a tabela.
+     * - AND: basta um dos lados ser indexável.
+     * - OR: os dois lados precisam ser indexáveis (as posições são unidas).
+     */
+    private ListaPosicoes buscarPorIndice(Tabela tabela, Condicao condicao) {
+        if (condicao.getTipo() == Condicao.Tipo.E) {
+            ListaPosicoes candidatas = buscarPorIndice(tabela, condicao.getEsquerda());
+            return candidatas != null ? candidatas : buscarPorIndice(tabela, condicao.getDireita());
+        }
+        if (condicao.getTipo() == Condicao.Tipo.OU) {
+            String descricaoAnterior = descricaoAcesso;
+            ListaPosicoes esquerda = buscarPorIndice(tabela, condicao.getEsquerda());
+            if (esquerda == null) return null;
+            String descricaoEsquerda = descricaoAcesso;
+            ListaPosicoes direita = buscarPorIndice(tabela, condicao.getDireita());
+            if (direita == null) {
+                descricaoAcesso = descricaoAnterior;
+                return null;
+            }
+            for (int i = 0; i < direita.getTamanho(); i++) {
+                esquerda.adicionar(direita.get(i));
+            }
+            descricaoAcesso = descricaoEsquerda + " + " + descricaoAcesso;
+            return esquerda;
+        }
+
+        int indiceColuna = condicao.getIndiceColuna();
+        String nomeColuna = tabela.getNome() + "." + tabela.getColunaPorIndice(indiceColuna).getNome();
+
+        // 1. Igualdade com índice hash (ex: chave primária): tempo constante.
+        IndiceHash indiceHash = tabela.getIndiceHash(indiceColuna);
+        if (condicao.getTipo() == Condicao.Tipo.IGUAL && indiceHash != null) {
+            ListaPosicoes candidatas = new ListaPosicoes();
+            IndiceHash.Entrada entrada = indiceHash.buscarEntrada(condicao.getValor());
+            if (entrada != null) {
+                for (int i = 0; i < entrada.numPosicoes; i++) {
+                    candidatas.adicionar(entrada.posicoes[i]);
                 }
             }
+            descricaoAcesso = "Busca por índice hash (" + nomeColuna + ")";
+            return candidatas;
         }
 
-        // A implementação não filtra as colunas selecionadas em 'colunasStr', apenas retorna o JOIN completo.
+        // 2. Igualdade ou intervalo com índice ordenado (árvore B+).
+        ArvoreBMais indiceOrdenado = tabela.getIndiceOrdenado(indiceColuna);
+        if (indiceOrdenado != null) {
+            ListaPosicoes candidatas = new ListaPosicoes();
+            Object valor = condicao.getValor();
+            switch (condicao.getTipo()) {
+                case IGUAL: indiceOrdenado.buscar(valor, candidatas); break;
+                case MENOR: indiceOrdenado.buscarIntervalo(null, false, valor, false, candidatas); break;
+                case MENOR_IGUAL: indiceOrdenado.buscarIntervalo(null, false, valor, true, candidatas); break;
+                case MAIOR: indiceOrdenado.buscarIntervalo(valor, false, null, false, candidatas); break;
+                case MAIOR_IGUAL: indiceOrdenado.buscarIntervalo(valor, true, null, false, candidatas); break;
+                default: indiceOrdenado.buscarIntervalo(valor, true, condicao.getValorAte(), true, candidatas); break;
+            }
+            descricaoAcesso = "Busca por índice ordenado " + indiceOrdenado.getNome() + " (" + nomeColuna + ")";
+            return candidatas;
+        }
 
-        return resultado;
+        return null;
     }
-}
\ No newline at end of file
+}
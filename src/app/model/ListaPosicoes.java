@@ -0,0 +1,91 @@
+package app.model;
+
+import java.util.Arrays;
+
+/**
+ * Lista de posições de linhas (índices no array de linhas de uma Tabela),
+ * armazenada em um array clássico de int que cresce sob demanda.
+ * Usada como saída das buscas nos índices.
+ */
+public class ListaPosicoes {
+    private static final int CAPACIDADE_INICIAL = 8;
+
+    private int[] posicoes;
+    private int tamanho;
+
+    public ListaPosicoes() {
+        this.posicoes = new int[CAPACIDADE_INICIAL];
+        this.tamanho = 0;
+    }
+
+    /** Lista com o array já do tamanho esperado (ex: a junção das partes de uma varredura paralela). */
+    public ListaPosicoes(int capacidade) {
+        this.posicoes = new int[Math.max(capacidade, 1)];
+        this.tamanho = 0;
+    }
+
+    /** Adiciona uma posição ao final da lista, dobrando o array quando necessário. */
+    public void adicionar(int posicao) {
+        if (tamanho == posicoes.length) {
+            int[] novoPosicoes = new int[posicoes.length * 2];
+            for (int i = 0; i < tamanho; i++) {
+                novoPosicoes[i] = posicoes[i];
+            }
+            posicoes = novoPosicoes;
+        }
+        posicoes[tamanho] = posicao;
+        tamanho++;
+    }
+
+    /** Adiciona ao final, na ordem, todas as posições da outra lista. */
+    public void adicionarTodas(ListaPosicoes outra) {
+        if (tamanho + outra.tamanho > posicoes.length) {
+            posicoes = Arrays.copyOf(posicoes, Math.max(posicoes.length * 2, tamanho + outra.tamanho));
+        }
+        System.arraycopy(outra.posicoes, 0, posicoes, tamanho, outra.tamanho);
+        tamanho += outra.tamanho;
+    }
+
+    public int get(int indice) {
+        if (indice < 0 || indice >= tamanho) {
+            throw new ArrayIndexOutOfBoundsException("Índice fora do limite da lista de posições.");
+        }
+        return posicoes[indice];
+    }
+
+    public int getTamanho() { return tamanho; }
+
+    /** Substitui a posição guardada no índice informado (usado para filtrar a lista no próprio array). */
+    public void set(int indice, int posicao) {
+        if (indice < 0 || indice >= tamanho) {
+            throw new ArrayIndexOutOfBoundsException("Índice fora do limite da lista de posições.");
+        }
+        posicoes[indice] = posicao;
+    }
+
+    /** Descarta as posições a partir de 'novoTamanho', mantendo as anteriores. */
+    public void truncar(int novoTamanho) {
+        if (novoTamanho < tamanho) {
+            tamanho = Math.max(novoTamanho, 0);
+        }
+    }
+
+    /**
+     * Ordena as posições e elimina as repetidas. Deixa as linhas na mesma ordem
+     * de uma varredura sequencial, mesmo quando vieram de mais de um índice.
+     */
+    public void ordenarSemRepeticoes() {
+        Arrays.sort(posicoes, 0, tamanho);
+        int novoTamanho = 0;
+        for (int i = 0; i < tamanho; i++) {
+            if (novoTamanho == 0 || posicoes[novoTamanho - 1] != posicoes[i]) {
+                posicoes[novoTamanho] = posicoes[i];
+                novoTamanho++;
+            }
+        }
+        tamanho = novoTamanho;
+    }
+
+    /** Esvazia a lista, mantendo a capacidade do array. */
+    public void limpar() { tamanho = 0; }
+}
@@ -0,0 +1,273 @@
+package app.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Log de transações (write-ahead log): arquivo em que cada transação confirmada é acrescentada
+ * ao final, antes de o COMMIT ser dado como concluído. Ao abrir o banco, o log é lido e as
+ * transações são executadas de novo (ver BancoSimulado.abrirLog), recuperando os dados.
+ *
+ * Formato do arquivo:
+ *   cabeçalho  := MAGICO (int) | geração (long)
+ *   registro   := tamanho (int) | crc32 do conteúdo (int) | conteúdo
+ *   conteúdo   := número da transação (long) | quantidade de comandos (int) | comando*
+ *   comando    := tamanho em bytes (int) | texto SQL em UTF-8
+ * Uma transação inteira ocupa um único registro, então ela é recuperada por completo ou não é
+ * recuperada. Um registro incompleto ou com checksum inválido (gravação interrompida por uma
+ * queda) encerra a leitura, e o arquivo é truncado nele.
+ *
+ * Geração: a cada CHECKPOINT (ver ArquivoCheckpoint), o conteúdo do log passa a estar no
+ * checkpoint e o log é reiniciado vazio, com a geração seguinte. O checkpoint guarda a geração
+ * que contém; ao abrir o banco, um log de geração igual ou anterior já está no checkpoint
+ * (a queda aconteceu entre gravar o checkpoint e reiniciar o log) e não é executado de novo.
+ *
+ * Confirmação em grupo (group commit): a gravação em disco (force/fsync) é a parte cara do COMMIT.
+ * As sessões acrescentam os seus registros a um buffer em memória e esperam que ele chegue ao
+ * disco; a primeira sessão que espera grava, com uma única sincronização, todos os registros
+ * acumulados até ali, inclusive os das sessões que chegaram durante a gravação anterior.
+ */
+public class LogTransacoes {
+
+    // "SGBL": identifica o arquivo como um log do simulador.
+    private static final int MAGICO = 0x5347424C;
+    private static final int TAMANHO_CABECALHO = 4 + 8;
+
+    private final FileChannel canal;
+    private long geracao;
+
+    // Registros acrescentados e ainda não gravados (protegidos pelo monitor do log).
+    private ByteArrayOutputStream pendentes = new ByteArrayOutputStream();
+    // Bytes acrescentados desde a abertura e bytes já gravados com sincronização.
+    private long totalAcrescentado;
+    private long totalGravado;
+    private boolean gravando;
+    private IOException falha;
+
+    // Métricas da confirmação em grupo.
+    private long numConfirmacoes;
+    private long numSincronizacoes;
+
+    /** Abre (ou cria) o log. Leia as transações existentes com recuperar() antes de acrescentar outras. */
+    public LogTransacoes(String caminho) throws IOException {
+        this.canal = FileChannel.open(Paths.get(caminho),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Lê as transações gravadas no log, na ordem em que foram confirmadas, e posiciona o arquivo
+     * no fim do último registro válido (descartando um final incompleto).
+     * @return Os comandos SQL de cada transação.
+     */
+    public synchronized String[][] recuperar() throws Exception {
+        long tamanhoArquivo = canal.size();
+        if (tamanhoArquivo == 0) {
+            gravarCabecalho(1);
+            return new String[0][];
+        }
+
+        ByteBuffer conteudoArquivo = ByteBuffer.allocate((int) tamanhoArquivo);
+        while (conteudoArquivo.hasRemaining() && canal.read(conteudoArquivo, conteudoArquivo.position()) > 0) {
+        }
+        conteudoArquivo.flip();
+        if (conteudoArquivo.remaining() < TAMANHO_CABECALHO || conteudoArquivo.getInt() != MAGICO) {
+            throw new Exception("O arquivo de log não é um log do simulador.");
+        }
+        this.geracao = conteudoArquivo.getLong();
+
+        // Array clássico que cresce conforme as transações são lidas.
+        String[][] transacoes = new String[16][];
+        int numTransacoes = 0;
+        int fimValido = conteudoArquivo.position();
+        while (conteudoArquivo.remaining() >= 8) {
+            int tamanho = conteudoArquivo.getInt();
+            int checksum = conteudoArquivo.getInt();
+            if (tamanho < 12 || tamanho > conteudoArquivo.remaining()) break;
+
+            byte[] conteudo = new byte[tamanho];
+            conteudoArquivo.get(conteudo);
+            if (calcularChecksum(conteudo) != checksum) break;
+
+            if (numTransacoes == transacoes.length) {
+                String[][] novoTransacoes = new String[transacoes.length * 2][];
+                for (int i = 0; i < numTransacoes; i++) {
+                    novoTransacoes[i] = transacoes[i];
+                }
+                transacoes = novoTransacoes;
+            }
+            transacoes[numTransacoes++] = lerComandos(conteudo);
+            fimValido = conteudoArquivo.position();
+        }
+
+        // Descarta o final incompleto (se houver) e continua a gravação a partir dele.
+        if (fimValido < tamanhoArquivo) {
+            canal.truncate(fimValido);
+            canal.force(true);
+        }
+        canal.position(fimValido);
+
+        String[][] resultado = new String[numTransacoes][];
+        for (int i = 0; i < numTransacoes; i++) {
+            resultado[i] = transacoes[i];
+        }
+        return resultado;
+    }
+
+    /** Grava o cabeçalho de um log vazio, com a geração informada, e posiciona o arquivo depois dele. */
+    private void gravarCabecalho(long novaGeracao) throws IOException {
+        ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO).putInt(MAGICO).putLong(novaGeracao);
+        cabecalho.flip();
+        while (cabecalho.hasRemaining()) {
+            canal.write(cabecalho, cabecalho.position());
+        }
+        canal.force(true);
+        canal.position(TAMANHO_CABECALHO);
+        this.geracao = novaGeracao;
+    }
+
+    /** A geração do log (ver o comentário da classe). */
+    public synchronized long getGeracao() { return geracao; }
+
+    /**
+     * Esvazia o log e passa para a geração informada, depois de gravar o que estiver pendente.
+     * Usado pelo CHECKPOINT, quando tudo o que está no log já foi gravado no checkpoint. Deve ser
+     * chamado sem COMMITs em andamento (com as travas do catálogo e de todas as tabelas).
+     */
+    public void reiniciar(long novaGeracao) throws IOException {
+        long fim;
+        synchronized (this) {
+            fim = totalAcrescentado;
+        }
+        aguardarGravacao(fim);
+        synchronized (this) {
+            canal.truncate(0);
+            gravarCabecalho(novaGeracao);
+        }
+    }
+
+    private static String[] lerComandos(byte[] conteudo) {
+        ByteBuffer leitor = ByteBuffer.wrap(conteudo);
+        leitor.getLong(); // Número da transação (informativo)
+        String[] comandos = new String[leitor.getInt()];
+        for (int i = 0; i < comandos.length; i++) {
+            byte[] texto = new byte[leitor.getInt()];
+            leitor.get(texto);
+            comandos[i] = new String(texto, StandardCharsets.UTF_8);
+        }
+        return comandos;
+    }
+
+    private static int calcularChecksum(byte[] conteudo) {
+        CRC32 crc = new CRC32();
+        crc.update(conteudo, 0, conteudo.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Acrescenta o registro da transação ao buffer do log (ainda sem gravar em disco).
+     * Deve ser chamado com as travas das tabelas alteradas, para que a ordem do log seja
+     * a mesma em que as escritas foram aplicadas.
+     * @return A posição do fim do registro, para aguardarGravacao.
+     */
+    public long acrescentar(long numeroTransacao, String[] comandos) throws IOException {
+        ByteArrayOutputStream bytesConteudo = new ByteArrayOutputStream();
+        DataOutputStream conteudo = new DataOutputStream(bytesConteudo);
+        conteudo.writeLong(numeroTransacao);
+        conteudo.writeInt(comandos.length);
+        for (int i = 0; i < comandos.length; i++) {
+            byte[] texto = comandos[i].getBytes(StandardCharsets.UTF_8);
+            conteudo.writeInt(texto.length);
+            conteudo.write(texto);
+        }
+        byte[] bytes = bytesConteudo.toByteArray();
+
+        synchronized (this) {
+            DataOutputStream registro = new DataOutputStream(pendentes);
+            registro.writeInt(bytes.length);
+            registro.writeInt(calcularChecksum(bytes));
+            registro.write(bytes);
+            totalAcrescentado += 8 + bytes.length;
+            numConfirmacoes++;
+            return totalAcrescentado;
+        }
+    }
+
+    /**
+     * Espera até que o log esteja gravado em disco até a posição informada. Se nenhuma gravação
+     * estiver em andamento, esta sessão grava todos os registros pendentes (os seus e os das
+     * outras sessões) com uma única sincronização; senão, espera a gravação em andamento.
+     * Deve ser chamado sem as travas das tabelas.
+     */
+    public void aguardarGravacao(long posicao) throws IOException {
+        while (true) {
+            byte[] lote;
+            long fimLote;
+            synchronized (this) {
+                while (totalGravado < posicao && gravando) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Espera pela gravação do log interrompida.");
+                    }
+                }
+                if (falha != null) {
+                    throw falha;
+                }
+                if (totalGravado >= posicao) {
+                    return;
+                }
+                // Esta sessão passa a ser a responsável pela próxima gravação.
+                gravando = true;
+                lote = pendentes.toByteArray();
+                pendentes = new ByteArrayOutputStream();
+                fimLote = totalAcrescentado;
+            }
+
+            IOException erro = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(lote);
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+                canal.force(false);
+            } catch (IOException e) {
+                erro = e;
+            }
+
+            synchronized (this) {
+                gravando = false;
+                if (erro != null) {
+                    falha = erro;
+                } else {
+                    totalGravado = fimLote;
+                    numSincronizacoes++;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /** Quantidade de transações acrescentadas ao log desde a abertura. */
+    public synchronized long getNumConfirmacoes() { return numConfirmacoes; }
+
+    /** Quantidade de sincronizações com o disco (cada uma grava um grupo de transações). */
+    public synchronized long getNumSincronizacoes() { return numSincronizacoes; }
+
+    /** Grava os registros pendentes e fecha o arquivo. */
+    public void fechar() throws IOException {
+        long fim;
+        synchronized (this) {
+            fim = totalAcrescentado;
+        }
+        aguardarGravacao(fim);
+        canal.close();
+    }
+}
@@ -0,0 +1,234 @@
+package app.model;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas do motor, por tipo de comando: execuções, erros, latência (ver HistogramaLatencia),
+ * linhas lidas, linhas retornadas, verificações de restrições e redimensionamentos de arrays.
+ * Expostas por JMX (ver MetricasMotorMXBean) depois de registrar(), junto com os contadores
+ * do buffer pool (GerenciadorBuffer), do log de transações (LogTransacoes) e do cache de
+ * resultados (CacheResultados).
+ *
+ * O custo por comando é pequeno: os contadores são LongAdder e os pontos mais frequentes
+ * (varreduras, validações de PK/FK) somam em variáveis locais e registram uma vez por chamada.
+ *
+ * O comando em execução em cada thread é marcado por iniciar/terminar (ver
+ * InterpretadorSQL.executarComando): a Tabela e o BancoSimulado registram nos contadores do
+ * comando atual da thread, sem recebê-lo como parâmetro. Fora de um comando (ex: chamadas
+ * diretas à Tabela), os registros vão para o tipo "(fora de comandos)".
+ *
+ * - linhas lidas: posições percorridas pelas varreduras e candidatas lidas dos índices, no
+ *   SELECT (e no COPY ... TO), e as linhas examinadas pelo DELETE;
+ * - linhas retornadas: as produzidas pelo Cursor de um SELECT, ou as afetadas por INSERT e DELETE;
+ * - latência: de executarComando até o fim do comando; no SELECT, até o Cursor ser fechado
+ *   (as linhas são produzidas sob demanda, ver Cursor).
+ */
+public class MetricasMotor implements MetricasMotorMXBean {
+
+    static final String NOME_JMX = "app.model:type=MetricasMotor";
+
+    // Tipos além dos de Comando.Tipo: EXPLAIN (que não executa o comando, ou o mede) e
+    // os registros feitos fora de um comando.
+    static final int EXPLAIN = Comando.Tipo.values().length;
+    static final int FORA_DE_COMANDOS = EXPLAIN + 1;
+
+    // Instância criada com a classe: os pontos de registro não passam por um getInstancia sincronizado.
+    private static final MetricasMotor INSTANCIA = new MetricasMotor();
+
+    /** Contadores de um tipo de comando. */
+    static class Contadores {
+        final String tipo;
+        final LongAdder execucoes = new LongAdder();
+        final LongAdder erros = new LongAdder();
+        final LongAdder linhasLidas = new LongAdder();
+        final LongAdder linhasRetornadas = new LongAdder();
+        final LongAdder verificacoes = new LongAdder();
+        final LongAdder redimensionamentos = new LongAdder();
+        final HistogramaLatencia latencia = new HistogramaLatencia();
+
+        Contadores(String tipo) {
+            this.tipo = tipo;
+        }
+
+        /** Registra o fim de uma execução, com a sua duração. */
+        void registrarExecucao(long nanos, boolean erro) {
+            execucoes.increment();
+            if (erro) erros.increment();
+            latencia.registrar(nanos);
+        }
+
+        void zerar() {
+            execucoes.reset();
+            erros.reset();
+            linhasLidas.reset();
+            linhasRetornadas.reset();
+            verificacoes.reset();
+            redimensionamentos.reset();
+            latencia.zerar();
+        }
+    }
+
+    private final Contadores[] porTipo;
+    // Contadores do comando em execução em cada thread.
+    private final ThreadLocal<Contadores> atual;
+    private boolean registrado;
+
+    private MetricasMotor() {
+        Comando.Tipo[] tipos = Comando.Tipo.values();
+        this.porTipo = new Contadores[FORA_DE_COMANDOS + 1];
+        for (int i = 0; i < tipos.length; i++) {
+            porTipo[i] = new Contadores(tipos[i].name());
+        }
+        porTipo[EXPLAIN] = new Contadores("EXPLAIN");
+        porTipo[FORA_DE_COMANDOS] = new Contadores("(fora de comandos)");
+        Contadores fora = porTipo[FORA_DE_COMANDOS];
+        this.atual = ThreadLocal.withInitial(() -> fora);
+    }
+
+    public static MetricasMotor getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Registra as métricas no servidor de MBeans da plataforma (nome NOME_JMX), para leitura
+     * pelo jconsole. Chamadas repetidas não têm efeito.
+     */
+    public synchronized void registrar() throws JMException {
+        if (registrado) {
+            return;
+        }
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(NOME_JMX));
+        registrado = true;
+    }
+
+    // --- Registro ---
+
+    /**
+     * Marca o início de um comando do tipo informado (um Comando.Tipo.ordinal(), EXPLAIN ou
+     * FORA_DE_COMANDOS) na thread atual.
+     * @return Os contadores do comando anterior da thread, a serem restaurados por terminar.
+     */
+    Contadores iniciar(int tipo) {
+        Contadores anterior = atual.get();
+        atual.set(porTipo[tipo]);
+        return anterior;
+    }
+
+    /** Marca o fim do comando atual da thread, restaurando os contadores anteriores. */
+    void terminar(Contadores anterior) {
+        atual.set(anterior);
+    }
+
+    /** Os contadores do comando em execução na thread atual. */
+    static Contadores atuais() {
+        return INSTANCIA.atual.get();
+    }
+
+    // --- Leitura (JMX) ---
+
+    @Override
+    public EstatisticasComando[] getComandos() {
+        EstatisticasComando[] estatisticas = new EstatisticasComando[porTipo.length];
+        for (int i = 0; i < porTipo.length; i++) {
+            Contadores c = porTipo[i];
+            estatisticas[i] = new EstatisticasComando(c.tipo, c.execucoes.sum(), c.erros.sum(), c.linhasLidas.sum(),
+                    c.linhasRetornadas.sum(), c.verificacoes.sum(), c.redimensionamentos.sum(), c.latencia);
+        }
+        return estatisticas;
+    }
+
+    @Override
+    public long getComandosExecutados() {
+        long total = 0;
+        for (int i = 0; i < porTipo.length; i++) total += porTipo[i].execucoes.sum();
+        return total;
+    }
+
+    @Override
+    public long getErros() {
+        long total = 0;
+        for (int i = 0; i < porTipo.length; i++) total += porTipo[i].erros.sum();
+        return total;
+    }
+
+    @Override
+    public long getLinhasLidas() {
+        long total = 0;
+        for (int i = 0; i < porTipo.length; i++) total += porTipo[i].linhasLidas.sum();
+        return total;
+    }
+
+    @Override
+    public long getLinhasRetornadas() {
+        long total = 0;
+        for (int i = 0; i < porTipo.length; i++) total += porTipo[i].linhasRetornadas.sum();
+        return total;
+    }
+
+    @Override
+    public long getVerificacoesRestricoes() {
+        long total = 0;
+        for (int i = 0; i < porTipo.length; i++) total += porTipo[i].verificacoes.sum();
+        return total;
+    }
+
+    @Override
+    public long getRedimensionamentos() {
+        long total = 0;
+        for (int i = 0; i < porTipo.length; i++) total += porTipo[i].redimensionamentos.sum();
+        return total;
+    }
+
+    @Override
+    public long getBufferAcertos() { return GerenciadorBuffer.getInstancia().getNumAcertos(); }
+
+    @Override
+    public long getBufferFaltas() { return GerenciadorBuffer.getInstancia().getNumFaltas(); }
+
+    @Override
+    public long getBufferGravacoes() { return GerenciadorBuffer.getInstancia().getNumGravacoes(); }
+
+    @Override
+    public double getBufferTaxaAcertos() { return GerenciadorBuffer.getInstancia().getTaxaAcertos(); }
+
+    @Override
+    public long getLogConfirmacoes() {
+        LogTransacoes log = BancoSimulado.getInstancia().getLog();
+        return log != null ? log.getNumConfirmacoes() : 0;
+    }
+
+    @Override
+    public long getLogSincronizacoes() {
+        LogTransacoes log = BancoSimulado.getInstancia().getLog();
+        return log != null ? log.getNumSincronizacoes() : 0;
+    }
+
+    @Override
+    public long getCacheResultadosAcertos() { return BancoSimulado.getInstancia().getCacheResultados().getAcertos(); }
+
+    @Override
+    public long getCacheResultadosFalhas() { return BancoSimulado.getInstancia().getCacheResultados().getFalhas(); }
+
+    @Override
+    public long getCacheResultadosInvalidacoes() { return BancoSimulado.getInstancia().getCacheResultados().getInvalidacoes(); }
+
+    @Override
+    public long getCacheResultadosDescartes() { return BancoSimulado.getInstancia().getCacheResultados().getDescartes(); }
+
+    @Override
+    public double getCacheResultadosTaxaAcertos() { return BancoSimulado.getInstancia().getCacheResultados().getTaxaAcertos(); }
+
+    @Override
+    public long getCacheResultadosBytesUsados() { return BancoSimulado.getInstancia().getCacheResultados().getBytesUsados(); }
+
+    @Override
+    public void zerar() {
+        for (int i = 0; i < porTipo.length; i++) {
+            porTipo[i].zerar();
+        }
+        GerenciadorBuffer.getInstancia().zerarContadores();
+    }
+}
@@ -0,0 +1,71 @@
+package app.model;
+
+/**
+ * Interface de gerenciamento (JMX) das métricas do motor (ver MetricasMotor), registrada no
+ * servidor de MBeans da plataforma como "app.model:type=MetricasMotor". Pode ser lida
+ * localmente com o jconsole (aba MBeans).
+ */
+public interface MetricasMotorMXBean {
+
+    /** As métricas de cada tipo de comando, incluindo os que ainda não foram executados. */
+    EstatisticasComando[] getComandos();
+
+    long getComandosExecutados();
+
+    long getErros();
+
+    long getLinhasLidas();
+
+    long getLinhasRetornadas();
+
+    long getVerificacoesRestricoes();
+
+    long getRedimensionamentos();
+
+    // --- Buffer pool (ver GerenciadorBuffer) ---
+
+    /** Acessos a páginas que já estavam no buffer. */
+    long getBufferAcertos();
+
+    /** Acessos a páginas que precisaram ser lidas do arquivo. */
+    long getBufferFaltas();
+
+    /** Páginas alteradas gravadas no arquivo. */
+    long getBufferGravacoes();
+
+    /** Fração dos acessos atendidos pelo buffer (0 a 1). */
+    double getBufferTaxaAcertos();
+
+    // --- Log de transações (ver LogTransacoes; 0 se o banco funciona apenas em memória) ---
+
+    /** Transações confirmadas no log. */
+    long getLogConfirmacoes();
+
+    /** Sincronizações com o disco (cada uma grava um grupo de transações). */
+    long getLogSincronizacoes();
+
+    // --- Cache de resultados (ver CacheResultados) ---
+
+    /** SELECTs atendidos pelo cache. */
+    long getCacheResultadosAcertos();
+
+    /** SELECTs não encontrados no cache (incluindo os invalidados). */
+    long getCacheResultadosFalhas();
+
+    /** Entradas encontradas, mas descartadas porque uma das tabelas mudou. */
+    long getCacheResultadosInvalidacoes();
+
+    /** Entradas descartadas para liberar espaço (LRU). */
+    long getCacheResultadosDescartes();
+
+    /** Fração das buscas atendidas pelo cache (0 a 1). */
+    double getCacheResultadosTaxaAcertos();
+
+    long getCacheResultadosBytesUsados();
+
+    /**
+     * Zera os contadores e histogramas dos comandos e os do buffer pool. Os do log e do cache
+     * de resultados são cumulativos.
+     */
+    void zerar();
+}
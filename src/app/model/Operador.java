@@ -0,0 +1,586 @@
+package app.model;
+
+/**
+ * Operador do pipeline de execução de consultas (modelo iterador, ou "Volcano").
+ *
+ * Cada operador produz uma linha por vez quando o operador acima dele pede (proximo()),
+ * puxando linhas dos operadores abaixo apenas quando precisa delas. Assim, uma consulta
+ * com LIMIT 10 para de varrer a tabela assim que as 10 linhas foram produzidas.
+ *
+ * Nenhum operador copia dados: a linha atual é identificada pela posição em cada tabela
+ * de origem (origem 0 = primeira tabela do FROM, origem 1 = tabela do JOIN), e os valores
+ * são lidos das tabelas só quando alguém pede (ver Cursor).
+ *
+ * Pipeline de um SELECT:
+ *   Limite -> [Ordenacao] -> [Filtro residual] -> Join (Nested Loop ou Hash) -> Varredura / Filtro(PosicoesIndice)
+ */
+public abstract class Operador {
+
+    /** Avança para a próxima linha. @return false quando não há mais linhas. */
+    public abstract boolean proximo();
+
+    /** Posição, na tabela de origem informada, da linha atual. */
+    public abstract int getPosicao(int origem);
+
+    /**
+     * Libera os recursos do operador (ex: os arquivos temporários da ordenação externa); as
+     * folhas registram as linhas lidas nas métricas (ver MetricasMotor).
+     * Chamado pelo Cursor ao ser fechado; os operadores com entrada repassam a chamada.
+     */
+    void fechar() {}
+
+    // --- Folhas (Acesso às Tabelas) ---
+
+    /**
+     * Varredura sequencial de uma tabela, com um filtro opcional (já resolvido e vinculado).
+     * As linhas são filtradas em blocos de TAMANHO_BLOCO posições: no formato colunar, o
+     * filtro de cada bloco é avaliado sobre os arrays primitivos (ver Tabela.filtrar).
+     * São vistas apenas as linhas visíveis no snapshot da consulta (ver GerenciadorTransacoes):
+     * as inseridas ou removidas depois do início da consulta não mudam o resultado.
+     *
+     * Com paralelismo maior que 1, a primeira chamada filtra a tabela inteira de uma vez,
+     * dividida entre as threads (ver ExecucaoParalela); as posições aceitas, na mesma ordem
+     * da varredura sequencial, são então percorridas como um único bloco.
+     */
+    static class Varredura extends Operador {
+        // Múltiplo de 64, para que cada bloco ocupe palavras inteiras dos bitmaps colunares.
+        private static final int TAMANHO_BLOCO = 1024;
+
+        private final Tabela tabela;
+        private final Condicao condicao;
+        private final int lado;
+        private final int numPosicoes;
+        private final long snapshot;
+        private final int paralelismo;
+
+        private ListaPosicoes bloco;
+        private int proximoInicioBloco;
+        private int indiceNoBloco;
+        private int posicaoAtual;
+        // Métricas do comando que planejou a varredura: recebem as posições lidas em fechar().
+        private MetricasMotor.Contadores contadores;
+
+        /** @param lado O lado da condição que corresponde a esta tabela (0 ou 1, ver Condicao). */
+        Varredura(Tabela tabela, Condicao condicao, int lado, long snapshot) {
+            this(tabela, condicao, lado, snapshot, 1);
+        }
+
+        /** @param paralelismo Número de threads do filtro (1 = sequencial, bloco a bloco). */
+        Varredura(Tabela tabela, Condicao condicao, int lado, long snapshot, int paralelismo) {
+            this.tabela = tabela;
+            this.condicao = condicao;
+            this.lado = lado;
+            this.numPosicoes = tabela.getNumPosicoes();
+            this.snapshot = snapshot;
+            this.paralelismo = paralelismo;
+            this.bloco = new ListaPosicoes();
+            this.proximoInicioBloco = 0;
+            this.indiceNoBloco = 0;
+            this.posicaoAtual = -1;
+            this.contadores = MetricasMotor.atuais();
+        }
+
+        @Override
+        public boolean proximo() {
+            // Sem filtro, as posições são simplesmente 0, 1, 2, ... (exceto as não visíveis).
+            if (condicao == null) {
+                do {
+                    if (posicaoAtual + 1 >= numPosicoes) return false;
+                    posicaoAtual++;
+                } while (!tabela.isVisivel(posicaoAtual, snapshot));
+                return true;
+            }
+
+            if (paralelismo > 1 && proximoInicioBloco == 0 && numPosicoes > 0) {
+                bloco = ExecucaoParalela.filtrar(tabela, condicao, lado, numPosicoes, snapshot, paralelismo);
+                proximoInicioBloco = numPosicoes;
+            }
+
+            // Com filtro, busca o próximo bloco que tenha alguma linha aceita.
+            while (indiceNoBloco >= bloco.getTamanho()) {
+                if (proximoInicioBloco >= numPosicoes) return false;
+                int fimBloco = Math.min(proximoInicioBloco + TAMANHO_BLOCO, numPosicoes);
+                bloco.limpar();
+                tabela.filtrar(condicao, lado, proximoInicioBloco, fimBloco, bloco, snapshot);
+                proximoInicioBloco = fimBloco;
+                indiceNoBloco = 0;
+            }
+            posicaoAtual = bloco.get(indiceNoBloco++);
+            return true;
+        }
+
+        @Override
+        public int getPosicao(int origem) { return posicaoAtual; }
+
+        @Override
+        void fechar() {
+            if (contadores != null) {
+                // Sem filtro, as posições até a atual; com filtro, os blocos já filtrados.
+                contadores.linhasLidas.add(condicao == null ? Math.min(posicaoAtual + 1, numPosicoes) : proximoInicioBloco);
+                contadores = null;
+            }
+        }
+    }
+
+    /** Percorre uma lista de posições já calculada (ex: as candidatas de um índice). */
+    static class PosicoesIndice extends Operador {
+        private final ListaPosicoes posicoes;
+        private int indiceAtual;
+        private MetricasMotor.Contadores contadores;
+
+        PosicoesIndice(ListaPosicoes posicoes) {
+            this.posicoes = posicoes;
+            this.indiceAtual = -1;
+            this.contadores = MetricasMotor.atuais();
+        }
+
+        @Override
+        public boolean proximo() {
+            if (indiceAtual + 1 >= posicoes.getTamanho()) return false;
+            indiceAtual++;
+            return true;
+        }
+
+        @Override
+        public int getPosicao(int origem) { return posicoes.get(indiceAtual); }
+
+        @Override
+        void fechar() {
+            if (contadores != null) {
+                contadores.linhasLidas.add(Math.min(indiceAtual + 1, posicoes.getTamanho()));
+                contadores = null;
+            }
+        }
+    }
+
+    // --- Filtro e Limite ---
+
+    /**
+     * Deixa passar apenas as linhas da entrada que atendem à condição.
+     * t1/t2 são as tabelas lidas pela condição (null se a condição não usa aquele lado).
+     */
+    static class Filtro extends Operador {
+        private final Operador entrada;
+        private final Condicao condicao;
+        private final Tabela t1;
+        private final Tabela t2;
+
+        Filtro(Operador entrada, Condicao condicao, Tabela t1, Tabela t2) {
+            this.entrada = entrada;
+            this.condicao = condicao;
+            this.t1 = t1;
+            this.t2 = t2;
+        }
+
+        @Override
+        public boolean proximo() {
+            while (entrada.proximo()) {
+                int p1 = t1 != null ? entrada.getPosicao(0) : -1;
+                int p2 = t2 != null ? entrada.getPosicao(1) : -1;
+                if (condicao.avaliar(t1, p1, t2, p2)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int getPosicao(int origem) { return entrada.getPosicao(origem); }
+
+        @Override
+        void fechar() { entrada.fechar(); }
+    }
+
+    /**
+     * LIMIT/OFFSET: descarta as primeiras 'deslocamento' linhas e para depois de 'limite'
+     * linhas (-1 = sem limite), sem pedir nenhuma linha a mais para a entrada.
+     */
+    static class Limite extends Operador {
+        private final Operador entrada;
+        private final int limite;
+        private int aDescartar;
+        private int produzidas;
+
+        Limite(Operador entrada, int limite, int deslocamento) {
+            this.entrada = entrada;
+            this.limite = limite;
+            this.aDescartar = deslocamento;
+            this.produzidas = 0;
+        }
+
+        @Override
+        public boolean proximo() {
+            if (limite != -1 && produzidas >= limite) {
+                return false;
+            }
+            while (aDescartar > 0) {
+                if (!entrada.proximo()) return false;
+                aDescartar--;
+            }
+            if (!entrada.proximo()) {
+                return false;
+            }
+            produzidas++;
+            return true;
+        }
+
+        @Override
+        public int getPosicao(int origem) { return entrada.getPosicao(origem); }
+
+        @Override
+        void fechar() { entrada.fechar(); }
+    }
+
+    /**
+     * ORDER BY: na primeira chamada, lê toda a entrada e a ordena (ver Ordenador: top-N com
+     * LIMIT, ou ordenação externa, com runs em arquivos temporários quando passa do orçamento
+     * de memória). Depois, produz as linhas na ordem, uma por chamada.
+     */
+    static class Ordenacao extends Operador {
+        private final Operador entrada;
+        private final Ordenador ordenador;
+        private boolean ordenada;
+
+        Ordenacao(Operador entrada, Ordenador ordenador) {
+            this.entrada = entrada;
+            this.ordenador = ordenador;
+        }
+
+        @Override
+        public boolean proximo() {
+            if (!ordenada) {
+                try {
+                    while (entrada.proximo()) {
+                        ordenador.adicionar(entrada);
+                    }
+                    ordenador.terminar();
+                } catch (RuntimeException e) {
+                    ordenador.fechar(); // Apaga as runs gravadas até o erro.
+                    throw e;
+                }
+                ordenada = true;
+            }
+            return ordenador.proximo();
+        }
+
+        @Override
+        public int getPosicao(int origem) { return ordenador.getPosicao(origem); }
+
+        @Override
+        void fechar() {
+            ordenador.fechar();
+            entrada.fechar();
+        }
+    }
+
+    // --- Medição (EXPLAIN ANALYZE) ---
+
+    /**
+     * Repassa as chamadas ao operador medido, somando à etapa do plano (ver Explicacao) as
+     * linhas produzidas e o tempo e a memória alocada em cada chamada (incluindo os das
+     * entradas que ele puxa). Usado apenas no EXPLAIN ANALYZE.
+     */
+    static class Medido extends Operador {
+        private final Operador operador;
+        private final Explicacao.Etapa etapa;
+
+        Medido(Operador operador, Explicacao.Etapa etapa) {
+            this.operador = operador;
+            this.etapa = etapa;
+            etapa.linhas = 0;
+        }
+
+        @Override
+        public boolean proximo() {
+            long inicioNanos = System.nanoTime();
+            long inicioBytes = Explicacao.bytesAlocados();
+            boolean temLinha = operador.proximo();
+            etapa.adicionar(System.nanoTime() - inicioNanos, Explicacao.bytesAlocados() - inicioBytes);
+            if (temLinha) {
+                etapa.linhas++;
+            }
+            return temLinha;
+        }
+
+        @Override
+        public int getPosicao(int origem) { return operador.getPosicao(origem); }
+
+        @Override
+        void fechar() { operador.fechar(); }
+    }
+
+    // --- Algoritmos de JOIN ---
+
+    /**
+     * Nested Loop Join: para cada linha de T1 (externa, lida sob demanda), compara com
+     * cada linha de T2 (interna). A entrada interna é lida uma única vez e guardada como
+     * lista de posições, pois é percorrida de novo para cada linha externa.
+     * Usado apenas para entradas pequenas.
+     */
+    static class NestedLoopJoin extends Operador {
+        private final Operador externa;
+        private final Operador interna;
+        private final Tabela t1;
+        private final Tabela t2;
+        private final int indiceJoinT1;
+        private final int indiceJoinT2;
+
+        private ListaPosicoes posicoesInternas;
+        private int indiceInterno;
+        private boolean temExterna;
+
+        NestedLoopJoin(Operador externa, Operador interna, Tabela t1, int indiceJoinT1, Tabela t2, int indiceJoinT2) {
+            this.externa = externa;
+            this.interna = interna;
+            this.t1 = t1;
+            this.t2 = t2;
+            this.indiceJoinT1 = indiceJoinT1;
+            this.indiceJoinT2 = indiceJoinT2;
+            this.temExterna = false;
+        }
+
+        @Override
+        public boolean proximo() {
+            if (posicoesInternas == null) {
+                posicoesInternas = new ListaPosicoes();
+                while (interna.proximo()) {
+                    posicoesInternas.adicionar(interna.getPosicao(1));
+                }
+            }
+
+            while (true) {
+                if (!temExterna) {
+                    if (!externa.proximo()) return false;
+                    temExterna = true;
+                    indiceInterno = 0;
+                }
+                // Compara os valores nas colunas de JOIN (condição ON)
+                Object valor1 = t1.getValor(externa.getPosicao(0), indiceJoinT1);
+                while (indiceInterno < posicoesInternas.getTamanho()) {
+                    int p2 = posicoesInternas.get(indiceInterno++);
+                    if (valor1 != null && valor1.equals(t2.getValor(p2, indiceJoinT2))) {
+                        return true;
+                    }
+                }
+                temExterna = false;
+            }
+        }
+
+        @Override
+        public int getPosicao(int origem) {
+            return origem == 0 ? externa.getPosicao(0) : posicoesInternas.get(indiceInterno - 1);
+        }
+
+        @Override
+        void fechar() {
+            externa.fechar();
+            interna.fechar();
+        }
+    }
+
+    /**
+     * Hash Join: na primeira chamada, lê toda a entrada de build e monta a tabela hash
+     * (valor da coluna de JOIN -> posições). Depois, cada linha da entrada de probe é lida
+     * sob demanda e consulta a tabela em tempo constante. Custo O(n + m) em vez de O(n * m).
+     *
+     * Colunas de junção INT usam a TabelaHashInteiros (sem objetos por entrada e, no formato
+     * colunar, lendo direto dos arrays int[]); as demais, o IndiceHash.
+     *
+     * Com paralelismo maior que 1, a sondagem é feita de uma vez logo após o build: as posições
+     * de probe são divididas entre as threads (ver ExecucaoParalela), que consultam a tabela
+     * hash, já apenas lida, ao mesmo tempo. Os pares encontrados ficam na mesma ordem da
+     * sondagem sequencial.
+     */
+    static class HashJoin extends Operador {
+        private final Operador build;
+        private final Operador probe;
+        private final Tabela tabelaBuild;
+        private final Tabela tabelaProbe;
+        private final int indiceJoinBuild;
+        private final int indiceJoinProbe;
+        private final int origemBuild;
+        private final int origemProbe;
+        private final boolean chavesInteiras;
+        private final int paralelismo;
+
+        private boolean construida;
+        private TabelaHashInteiros tabelaHashInteiros;
+        private IndiceHash tabelaHash;
+
+        // Correspondências da linha de probe atual.
+        private int chaveAtual;
+        private int entradaAtual;             // TabelaHashInteiros: entrada atual, ou -1
+        private IndiceHash.Entrada posicoesAtuais; // IndiceHash: posições da chave atual, ou null
+        private int indicePosicaoAtual;
+        private int posicaoBuild;
+
+        // Sondagem paralela: os pares (probe, build) encontrados, ou null na sondagem sequencial.
+        private ListaPosicoes paresProbe;
+        private ListaPosicoes paresBuild;
+        private int indicePar;
+
+        /** @param origemBuild A origem (0 ou 1) da entrada de build; a de probe é a outra. */
+        HashJoin(Operador build, Tabela tabelaBuild, int indiceJoinBuild, Operador probe, Tabela tabelaProbe,
+                 int indiceJoinProbe, int origemBuild) {
+            this(build, tabelaBuild, indiceJoinBuild, probe, tabelaProbe, indiceJoinProbe, origemBuild, 1);
+        }
+
+        /** @param paralelismo Número de threads da sondagem (1 = sequencial, sob demanda). */
+        HashJoin(Operador build, Tabela tabelaBuild, int indiceJoinBuild, Operador probe, Tabela tabelaProbe,
+                 int indiceJoinProbe, int origemBuild, int paralelismo) {
+            this.build = build;
+            this.probe = probe;
+            this.tabelaBuild = tabelaBuild;
+            this.tabelaProbe = tabelaProbe;
+            this.indiceJoinBuild = indiceJoinBuild;
+            this.indiceJoinProbe = indiceJoinProbe;
+            this.origemBuild = origemBuild;
+            this.origemProbe = 1 - origemBuild;
+            this.chavesInteiras = tabelaBuild.getColunaPorIndice(indiceJoinBuild).getTipoDado().equals("INT")
+                    && tabelaProbe.getColunaPorIndice(indiceJoinProbe).getTipoDado().equals("INT");
+            this.paralelismo = paralelismo;
+            this.construida = false;
+            this.entradaAtual = -1;
+        }
+
+        /** Fase de Build: valor da coluna de JOIN -> posições das linhas na tabela de build. */
+        private void construir() {
+            // As posições de build são lidas primeiro, para que a tabela hash tenha o tamanho exato.
+            ListaPosicoes posicoes = new ListaPosicoes();
+            while (build.proximo()) {
+                posicoes.adicionar(build.getPosicao(origemBuild));
+            }
+
+            if (chavesInteiras) {
+                tabelaHashInteiros = new TabelaHashInteiros(posicoes.getTamanho());
+                for (int i = 0; i < posicoes.getTamanho(); i++) {
+                    int posicao = posicoes.get(i);
+                    if (!tabelaBuild.isNulo(posicao, indiceJoinBuild)) {
+                        tabelaHashInteiros.inserir(tabelaBuild.getInt(posicao, indiceJoinBuild), posicao);
+                    }
+                }
+            } else {
+                tabelaHash = new IndiceHash(posicoes.getTamanho());
+                for (int i = 0; i < posicoes.getTamanho(); i++) {
+                    int posicao = posicoes.get(i);
+                    tabelaHash.inserir(tabelaBuild.getValor(posicao, indiceJoinBuild), posicao);
+                }
+            }
+            construida = true;
+        }
+
+        @Override
+        public boolean proximo() {
+            if (!construida) {
+                construir();
+                if (paralelismo > 1) {
+                    sondarEmParalelo();
+                }
+            }
+            if (paresProbe != null) {
+                if (indicePar >= paresProbe.getTamanho()) {
+                    return false;
+                }
+                posicaoBuild = paresBuild.get(indicePar++);
+                return true;
+            }
+
+            // Fase de Probe: esgota as correspondências da linha atual antes de ler a próxima.
+            while (true) {
+                if (chavesInteiras) {
+                    if (entradaAtual != -1) {
+                        posicaoBuild = tabelaHashInteiros.getPosicao(entradaAtual);
+                        entradaAtual = tabelaHashInteiros.buscarProxima(entradaAtual, chaveAtual);
+                        return true;
+                    }
+                } else if (posicoesAtuais != null && indicePosicaoAtual < posicoesAtuais.numPosicoes) {
+                    posicaoBuild = posicoesAtuais.posicoes[indicePosicaoAtual++];
+                    return true;
+                }
+
+                if (!probe.proximo()) {
+                    return false;
+                }
+                int posicaoProbe = probe.getPosicao(origemProbe);
+                if (chavesInteiras) {
+                    if (tabelaProbe.isNulo(posicaoProbe, indiceJoinProbe)) continue;
+                    chaveAtual = tabelaProbe.getInt(posicaoProbe, indiceJoinProbe);
+                    entradaAtual = tabelaHashInteiros.buscarPrimeira(chaveAtual);
+                } else {
+                    posicoesAtuais = tabelaHash.buscarEntrada(tabelaProbe.getValor(posicaoProbe, indiceJoinProbe));
+                    indicePosicaoAtual = 0;
+                }
+            }
+        }
+
+        /**
+         * Lê todas as posições de probe e procura as correspondências de cada parte delas em
+         * uma thread; as saídas das partes são juntadas na ordem das partes.
+         */
+        private void sondarEmParalelo() {
+            ListaPosicoes posicoesProbe = new ListaPosicoes();
+            while (probe.proximo()) {
+                posicoesProbe.adicionar(probe.getPosicao(origemProbe));
+            }
+            int total = posicoesProbe.getTamanho();
+            Sondagem sondagem = new Sondagem(posicoesProbe, ExecucaoParalela.calcularNumPartes(total, paralelismo));
+            ExecucaoParalela.executar(sondagem, total, sondagem.saidasProbe.length, paralelismo);
+            paresProbe = ExecucaoParalela.concatenar(sondagem.saidasProbe);
+            paresBuild = ExecucaoParalela.concatenar(sondagem.saidasBuild);
+            indicePar = 0;
+        }
+
+        /** Sondagem de uma parte das posições de probe (a tabela hash não muda depois do build). */
+        private class Sondagem extends ExecucaoParalela.Trabalho {
+            private final ListaPosicoes posicoesProbe;
+            final ListaPosicoes[] saidasProbe;
+            final ListaPosicoes[] saidasBuild;
+
+            Sondagem(ListaPosicoes posicoesProbe, int numPartes) {
+                this.posicoesProbe = posicoesProbe;
+                this.saidasProbe = new ListaPosicoes[numPartes];
+                this.saidasBuild = new ListaPosicoes[numPartes];
+            }
+
+            @Override
+            void processar(int parte, int inicio, int fim) {
+                ListaPosicoes saidaProbe = new ListaPosicoes();
+                ListaPosicoes saidaBuild = new ListaPosicoes();
+                for (int i = inicio; i < fim; i++) {
+                    int posicaoProbe = posicoesProbe.get(i);
+                    if (chavesInteiras) {
+                        if (tabelaProbe.isNulo(posicaoProbe, indiceJoinProbe)) continue;
+                        int chave = tabelaProbe.getInt(posicaoProbe, indiceJoinProbe);
+                        for (int e = tabelaHashInteiros.buscarPrimeira(chave); e != -1; e = tabelaHashInteiros.buscarProxima(e, chave)) {
+                            saidaProbe.adicionar(posicaoProbe);
+                            saidaBuild.adicionar(tabelaHashInteiros.getPosicao(e));
+                        }
+                    } else {
+                        IndiceHash.Entrada entrada = tabelaHash.buscarEntrada(tabelaProbe.getValor(posicaoProbe, indiceJoinProbe));
+                        if (entrada == null) continue;
+                        for (int k = 0; k < entrada.numPosicoes; k++) {
+                            saidaProbe.adicionar(posicaoProbe);
+                            saidaBuild.adicionar(entrada.posicoes[k]);
+                        }
+                    }
+                }
+                saidasProbe[parte] = saidaProbe;
+                saidasBuild[parte] = saidaBuild;
+            }
+        }
+
+        @Override
+        public int getPosicao(int origem) {
+            if (origem == origemBuild) {
+                return posicaoBuild;
+            }
+            return paresProbe != null ? paresProbe.get(indicePar - 1) : probe.getPosicao(origem);
+        }
+
+        @Override
+        void fechar() {
+            build.fechar();
+            probe.fechar();
+        }
+    }
+}
@@ -0,0 +1,668 @@
+package app.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Ordenação das linhas de uma consulta (ORDER BY) por uma ou mais colunas.
+ *
+ * Cada linha é guardada como as suas posições nas tabelas de origem e os valores das colunas
+ * de ordenação, lidos uma única vez, na entrada. Há dois modos:
+ *
+ * - Top-N (ORDER BY com LIMIT): um heap com as 'maximoLinhas' melhores linhas vistas até o
+ *   momento, com a pior delas na raiz; cada nova linha só entra no lugar da pior. A memória
+ *   é proporcional ao LIMIT, e não ao tamanho da entrada.
+ *
+ * - Ordenação externa: as linhas são acumuladas em um bloco até o orçamento de memória; o
+ *   bloco é então ordenado e gravado em um arquivo temporário (uma "run"). No fim, as runs
+ *   gravadas e o último bloco, ainda em memória, são intercaladas (merge de k vias, com um
+ *   heap das runs) enquanto as linhas são lidas. Com mais de MAXIMO_RUNS_MERGE runs, elas são
+ *   antes intercaladas em grupos, em novas runs. Se tudo couber no orçamento, nenhum arquivo
+ *   é criado.
+ *
+ * A ordenação é estável: linhas com os mesmos valores saem na ordem da entrada. NULL vem depois
+ * de qualquer valor em ASC e antes em DESC.
+ */
+class Ordenador {
+
+    // Maior número de runs intercaladas de uma vez (cada uma com um buffer de leitura).
+    private static final int MAXIMO_RUNS_MERGE = 64;
+
+    private static final int TAMANHO_BUFFER_ARQUIVO = 32 * 1024;
+
+    private static final int CAPACIDADE_INICIAL = 1024;
+
+    // Valores gravados nas runs: marcador do tipo seguido do valor.
+    private static final byte VALOR_NULO = 0;
+    private static final byte VALOR_INT = 1;
+    private static final byte VALOR_LONG = 2;
+    private static final byte VALOR_DOUBLE = 3;
+    private static final byte VALOR_TEXTO = 4;
+
+    private final Tabela[] origens;
+    private final int numOrigens;
+
+    // Colunas de ordenação (arrays paralelos, um elemento por coluna do ORDER BY).
+    private final int numChaves;
+    private final int[] origensChaves;
+    private final int[] colunasChaves;
+    private final boolean[] decrescente;
+
+    private final int maximoLinhas;   // Top-N: tamanho do heap; -1 = ordenação externa
+    private final long memoriaBytes;  // Ordenação externa: orçamento do bloco em memória
+
+    // Bloco em memória (arrays paralelos por linha: numOrigens posições e numChaves valores).
+    private int[] posicoes;
+    private Object[] chaves;
+    private long[] sequencias;        // Top-N: ordem de chegada, para o desempate estável
+    private int numLinhas;
+    private int capacidade;
+    private long bytesBloco;
+    private long linhasLidas;
+
+    // Top-N: heap de linhas do bloco, com a pior na raiz.
+    private int[] heap;
+
+    // Runs gravadas, na ordem da entrada.
+    private Path[] arquivos;
+    private long[] linhasPorArquivo;
+    private int numArquivos;
+    private int totalRunsGravadas;
+
+    // Saída: as runs sendo intercaladas e a linha atual.
+    private Intercalacao saida;
+    private boolean fechado;
+
+    /**
+     * @param origensChaves/colunasChaves As colunas do ORDER BY (origem e índice na origem).
+     * @param maximoLinhas Top-N: número de linhas pedidas (LIMIT + OFFSET); -1 para ordenar todas.
+     * @param memoriaBytes Orçamento de memória do bloco antes de gravá-lo em uma run.
+     */
+    Ordenador(Tabela[] origens, int[] origensChaves, int[] colunasChaves, boolean[] decrescente,
+              int maximoLinhas, long memoriaBytes) {
+        this.origens = origens;
+        this.numOrigens = origens.length;
+        this.numChaves = colunasChaves.length;
+        this.origensChaves = origensChaves;
+        this.colunasChaves = colunasChaves;
+        this.decrescente = decrescente;
+        this.maximoLinhas = maximoLinhas;
+        this.memoriaBytes = memoriaBytes;
+
+        this.capacidade = maximoLinhas != -1 ? Math.max(Math.min(maximoLinhas, CAPACIDADE_INICIAL), 1) : CAPACIDADE_INICIAL;
+        this.posicoes = new int[capacidade * numOrigens];
+        this.chaves = new Object[capacidade * numChaves];
+        if (maximoLinhas != -1) {
+            this.sequencias = new long[capacidade];
+            this.heap = new int[capacidade];
+        }
+        this.arquivos = new Path[4];
+        this.linhasPorArquivo = new long[4];
+    }
+
+    /** Número de runs gravadas a partir da entrada (0 se a ordenação coube na memória). */
+    int getNumRunsGravadas() { return totalRunsGravadas; }
+
+    // --- Entrada ---
+
+    /** Acrescenta a linha atual do operador. */
+    void adicionar(Operador entrada) {
+        if (maximoLinhas != -1) {
+            adicionarTopN(entrada);
+            return;
+        }
+        if (numLinhas == capacidade) {
+            crescer();
+        }
+        long bytes = copiarLinha(entrada, numLinhas);
+        numLinhas++;
+        bytesBloco += bytes;
+        if (bytesBloco >= memoriaBytes) {
+            gravarRun();
+        }
+    }
+
+    private void adicionarTopN(Operador entrada) {
+        long sequencia = linhasLidas++;
+        if (maximoLinhas == 0) {
+            return;
+        }
+        if (numLinhas < maximoLinhas) {
+            if (numLinhas == capacidade) {
+                crescer();
+            }
+            copiarLinha(entrada, numLinhas);
+            sequencias[numLinhas] = sequencia;
+            heap[numLinhas] = numLinhas;
+            subirNoHeap(numLinhas);
+            numLinhas++;
+            return;
+        }
+        // Heap cheio: a linha só entra se for melhor que a pior (a raiz). No empate, a raiz,
+        // que chegou antes, fica.
+        int pior = heap[0];
+        if (compararComEntrada(pior, entrada) <= 0) {
+            return;
+        }
+        copiarLinha(entrada, pior);
+        sequencias[pior] = sequencia;
+        descerNoHeap(0);
+    }
+
+    /** Copia as posições e os valores de ordenação da linha atual para a linha 'destino' do bloco. */
+    private long copiarLinha(Operador entrada, int destino) {
+        for (int o = 0; o < numOrigens; o++) {
+            posicoes[destino * numOrigens + o] = entrada.getPosicao(o);
+        }
+        long bytes = 4L * numOrigens + 16;
+        for (int k = 0; k < numChaves; k++) {
+            int origem = origensChaves[k];
+            Object valor = origens[origem].getValor(entrada.getPosicao(origem), colunasChaves[k]);
+            chaves[destino * numChaves + k] = valor;
+            bytes += tamanhoEstimado(valor);
+        }
+        return bytes;
+    }
+
+    /** Memória aproximada de um valor guardado no bloco (referência + objeto). */
+    private static long tamanhoEstimado(Object valor) {
+        if (valor == null) return 8;
+        if (valor instanceof String) return 48 + ((String) valor).length();
+        if (valor instanceof Integer) return 24;
+        return 32;
+    }
+
+    private void crescer() {
+        int novaCapacidade = capacidade * 2;
+        if (maximoLinhas != -1) {
+            novaCapacidade = Math.min(novaCapacidade, maximoLinhas);
+        }
+        int[] novasPosicoes = new int[novaCapacidade * numOrigens];
+        System.arraycopy(posicoes, 0, novasPosicoes, 0, numLinhas * numOrigens);
+        posicoes = novasPosicoes;
+        Object[] novasChaves = new Object[novaCapacidade * numChaves];
+        System.arraycopy(chaves, 0, novasChaves, 0, numLinhas * numChaves);
+        chaves = novasChaves;
+        if (sequencias != null) {
+            long[] novasSequencias = new long[novaCapacidade];
+            System.arraycopy(sequencias, 0, novasSequencias, 0, numLinhas);
+            sequencias = novasSequencias;
+            int[] novoHeap = new int[novaCapacidade];
+            System.arraycopy(heap, 0, novoHeap, 0, numLinhas);
+            heap = novoHeap;
+        }
+        capacidade = novaCapacidade;
+    }
+
+    /**
+     * Termina a entrada: ordena o bloco em memória e prepara a intercalação com as runs
+     * gravadas. Depois, as linhas são lidas em ordem com proximo().
+     */
+    void terminar() {
+        int[] ordem = ordenarBloco();
+        if (numArquivos + 1 > MAXIMO_RUNS_MERGE) {
+            reduzirRuns();
+        }
+        Run[] runs = new Run[numArquivos + 1];
+        saida = new Intercalacao(runs); // Criada antes: fechar() fecha as runs já abertas em caso de erro.
+        for (int r = 0; r < numArquivos; r++) {
+            runs[r] = new RunArquivo(arquivos[r], linhasPorArquivo[r]);
+        }
+        runs[numArquivos] = new RunMemoria(ordem);
+    }
+
+    // --- Saída ---
+
+    /** Avança para a próxima linha, na ordem. @return false no fim (e então apaga as runs). */
+    boolean proximo() {
+        if (fechado) {
+            return false;
+        }
+        if (!saida.proximo()) {
+            fechar();
+            return false;
+        }
+        return true;
+    }
+
+    int getPosicao(int origem) { return saida.atual.posicoes[origem]; }
+
+    /** Fecha e apaga as runs gravadas. Chamadas repetidas não têm efeito. */
+    void fechar() {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+        if (saida != null) {
+            saida.fechar();
+        }
+        for (int r = 0; r < numArquivos; r++) {
+            apagar(arquivos[r]);
+        }
+        numArquivos = 0;
+        posicoes = null;
+        chaves = null;
+    }
+
+    // --- Comparação ---
+
+    /** Compara os valores de ordenação de duas linhas (em arrays de valores, a partir de 'inicioA' e 'inicioB'). */
+    private int compararChaves(Object[] a, int inicioA, Object[] b, int inicioB) {
+        for (int k = 0; k < numChaves; k++) {
+            int resultado = compararValores(a[inicioA + k], b[inicioB + k]);
+            if (resultado != 0) {
+                return decrescente[k] ? -resultado : resultado;
+            }
+        }
+        return 0;
+    }
+
+    /** Compara dois valores da mesma coluna; NULL é maior que qualquer valor. */
+    @SuppressWarnings("unchecked")
+    static int compararValores(Object a, Object b) {
+        if (a == null) return b == null ? 0 : 1;
+        if (b == null) return -1;
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    /** Compara duas linhas do bloco, desempatando pela ordem de chegada. */
+    private int compararLinhas(int a, int b) {
+        int resultado = compararChaves(chaves, a * numChaves, chaves, b * numChaves);
+        if (resultado != 0) {
+            return resultado;
+        }
+        return sequencias != null ? Long.compare(sequencias[a], sequencias[b]) : Integer.compare(a, b);
+    }
+
+    /** Compara a linha do bloco com a linha atual da entrada (ainda não copiada). */
+    private int compararComEntrada(int linha, Operador entrada) {
+        for (int k = 0; k < numChaves; k++) {
+            int origem = origensChaves[k];
+            Object valor = origens[origem].getValor(entrada.getPosicao(origem), colunasChaves[k]);
+            int resultado = compararValores(chaves[linha * numChaves + k], valor);
+            if (resultado != 0) {
+                return decrescente[k] ? -resultado : resultado;
+            }
+        }
+        return 0;
+    }
+
+    // --- Heap do Top-N (a pior linha na raiz) ---
+
+    private void subirNoHeap(int i) {
+        int linha = heap[i];
+        while (i > 0) {
+            int pai = (i - 1) >>> 1;
+            if (compararLinhas(heap[pai], linha) >= 0) break;
+            heap[i] = heap[pai];
+            i = pai;
+        }
+        heap[i] = linha;
+    }
+
+    private void descerNoHeap(int i) {
+        int linha = heap[i];
+        while (true) {
+            int filho = 2 * i + 1;
+            if (filho >= numLinhas) break;
+            if (filho + 1 < numLinhas && compararLinhas(heap[filho + 1], heap[filho]) > 0) {
+                filho++;
+            }
+            if (compararLinhas(heap[filho], linha) <= 0) break;
+            heap[i] = heap[filho];
+            i = filho;
+        }
+        heap[i] = linha;
+    }
+
+    // --- Ordenação do Bloco e Runs ---
+
+    /** Ordena as linhas do bloco (merge sort estável sobre os números das linhas). */
+    private int[] ordenarBloco() {
+        int[] ordem = new int[numLinhas];
+        for (int i = 0; i < numLinhas; i++) {
+            ordem[i] = i;
+        }
+        int[] auxiliar = new int[numLinhas];
+        for (int largura = 1; largura < numLinhas; largura *= 2) {
+            for (int inicio = 0; inicio < numLinhas - largura; inicio += 2 * largura) {
+                int meio = inicio + largura;
+                int fim = Math.min(inicio + 2 * largura, numLinhas);
+                if (compararLinhas(ordem[meio - 1], ordem[meio]) <= 0) {
+                    continue; // Já em ordem
+                }
+                int i = inicio;
+                int j = meio;
+                int k = inicio;
+                while (i < meio && j < fim) {
+                    auxiliar[k++] = compararLinhas(ordem[j], ordem[i]) < 0 ? ordem[j++] : ordem[i++];
+                }
+                while (i < meio) auxiliar[k++] = ordem[i++];
+                while (j < fim) auxiliar[k++] = ordem[j++];
+                System.arraycopy(auxiliar, inicio, ordem, inicio, fim - inicio);
+            }
+        }
+        return ordem;
+    }
+
+    /** Ordena o bloco, grava-o como uma nova run e esvazia o bloco. */
+    private void gravarRun() {
+        int[] ordem = ordenarBloco();
+        Path caminho = criarArquivo();
+        try (DataOutputStream arquivo = abrirParaGravar(caminho)) {
+            for (int i = 0; i < numLinhas; i++) {
+                int linha = ordem[i];
+                gravarLinha(arquivo, posicoes, linha * numOrigens, chaves, linha * numChaves);
+            }
+        } catch (IOException e) {
+            apagar(caminho);
+            throw new UncheckedIOException("Erro ao gravar a run da ordenação externa.", e);
+        }
+        adicionarArquivo(caminho, numLinhas);
+        totalRunsGravadas++;
+        for (int i = 0; i < numLinhas * numChaves; i++) {
+            chaves[i] = null;
+        }
+        numLinhas = 0;
+        bytesBloco = 0;
+    }
+
+    /**
+     * Intercala as runs gravadas em grupos consecutivos de MAXIMO_RUNS_MERGE, até que elas
+     * (mais o bloco em memória) caibam em uma única intercalação. Os grupos são consecutivos
+     * para que as runs continuem na ordem da entrada (ordenação estável).
+     */
+    private void reduzirRuns() {
+        while (numArquivos + 1 > MAXIMO_RUNS_MERGE) {
+            Path[] anteriores = arquivos;
+            long[] linhasAnteriores = linhasPorArquivo;
+            int numAnteriores = numArquivos;
+            arquivos = new Path[numAnteriores / MAXIMO_RUNS_MERGE + 2];
+            linhasPorArquivo = new long[arquivos.length];
+            numArquivos = 0;
+            // Primeira run anterior ainda não intercalada: em caso de erro, ela e as seguintes,
+            // que já não estão em 'arquivos', são apagadas aqui (as novas runs, por fechar()).
+            int naoIntercaladas = 0;
+            try {
+                for (int inicio = 0; inicio < numAnteriores; inicio += MAXIMO_RUNS_MERGE) {
+                    int fim = Math.min(inicio + MAXIMO_RUNS_MERGE, numAnteriores);
+                    Run[] grupo = new Run[fim - inicio];
+                    Intercalacao intercalacao = new Intercalacao(grupo);
+                    Path caminho = null;
+                    long linhas = 0;
+                    try {
+                        for (int r = inicio; r < fim; r++) {
+                            grupo[r - inicio] = new RunArquivo(anteriores[r], linhasAnteriores[r]);
+                        }
+                        caminho = criarArquivo();
+                        try (DataOutputStream arquivo = abrirParaGravar(caminho)) {
+                            while (intercalacao.proximo()) {
+                                gravarLinha(arquivo, intercalacao.atual.posicoes, 0, intercalacao.atual.chaves, 0);
+                                linhas++;
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Erro ao gravar a run da ordenação externa.", e);
+                        }
+                    } catch (RuntimeException e) {
+                        if (caminho != null) apagar(caminho);
+                        throw e;
+                    } finally {
+                        intercalacao.fechar();
+                    }
+                    for (int r = inicio; r < fim; r++) {
+                        apagar(anteriores[r]);
+                    }
+                    naoIntercaladas = fim;
+                    adicionarArquivo(caminho, linhas);
+                }
+            } finally {
+                for (int r = naoIntercaladas; r < numAnteriores; r++) {
+                    apagar(anteriores[r]);
+                }
+            }
+        }
+    }
+
+    private void adicionarArquivo(Path caminho, long linhas) {
+        if (numArquivos == arquivos.length) {
+            Path[] novosArquivos = new Path[arquivos.length * 2];
+            long[] novasLinhas = new long[arquivos.length * 2];
+            for (int r = 0; r < numArquivos; r++) {
+                novosArquivos[r] = arquivos[r];
+                novasLinhas[r] = linhasPorArquivo[r];
+            }
+            arquivos = novosArquivos;
+            linhasPorArquivo = novasLinhas;
+        }
+        arquivos[numArquivos] = caminho;
+        linhasPorArquivo[numArquivos] = linhas;
+        numArquivos++;
+    }
+
+    private static Path criarArquivo() {
+        try {
+            Path caminho = Files.createTempFile("simulador_ordenacao_", ".run");
+            caminho.toFile().deleteOnExit();
+            return caminho;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o arquivo temporário da ordenação externa.", e);
+        }
+    }
+
+    private static DataOutputStream abrirParaGravar(Path caminho) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(caminho), TAMANHO_BUFFER_ARQUIVO));
+    }
+
+    private static void apagar(Path caminho) {
+        try {
+            Files.deleteIfExists(caminho);
+        } catch (IOException e) {
+            // O arquivo também é apagado ao fim do programa (deleteOnExit).
+        }
+    }
+
+    // --- Formato das Runs: posições (int) seguidas dos valores (marcador + valor) ---
+
+    private void gravarLinha(DataOutputStream arquivo, int[] posicoesLinha, int inicioPosicoes,
+                             Object[] chavesLinha, int inicioChaves) throws IOException {
+        for (int o = 0; o < numOrigens; o++) {
+            arquivo.writeInt(posicoesLinha[inicioPosicoes + o]);
+        }
+        for (int k = 0; k < numChaves; k++) {
+            Object valor = chavesLinha[inicioChaves + k];
+            if (valor == null) {
+                arquivo.writeByte(VALOR_NULO);
+            } else if (valor instanceof Integer) {
+                arquivo.writeByte(VALOR_INT);
+                arquivo.writeInt((Integer) valor);
+            } else if (valor instanceof Long) {
+                arquivo.writeByte(VALOR_LONG);
+                arquivo.writeLong((Long) valor);
+            } else if (valor instanceof Double) {
+                arquivo.writeByte(VALOR_DOUBLE);
+                arquivo.writeDouble((Double) valor);
+            } else {
+                byte[] bytes = ((String) valor).getBytes(StandardCharsets.UTF_8);
+                arquivo.writeByte(VALOR_TEXTO);
+                arquivo.writeInt(bytes.length);
+                arquivo.write(bytes);
+            }
+        }
+    }
+
+    private void lerLinha(DataInputStream arquivo, int[] posicoesLinha, Object[] chavesLinha) throws IOException {
+        for (int o = 0; o < numOrigens; o++) {
+            posicoesLinha[o] = arquivo.readInt();
+        }
+        for (int k = 0; k < numChaves; k++) {
+            byte tipo = arquivo.readByte();
+            switch (tipo) {
+                case VALOR_NULO: chavesLinha[k] = null; break;
+                case VALOR_INT: chavesLinha[k] = arquivo.readInt(); break;
+                case VALOR_LONG: chavesLinha[k] = arquivo.readLong(); break;
+                case VALOR_DOUBLE: chavesLinha[k] = arquivo.readDouble(); break;
+                default:
+                    byte[] bytes = new byte[arquivo.readInt()];
+                    arquivo.readFully(bytes);
+                    chavesLinha[k] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    // --- Intercalação (merge de k vias) ---
+
+    /** Uma sequência ordenada de linhas: o bloco em memória ou uma run gravada. */
+    private abstract class Run {
+        final int[] posicoes = new int[numOrigens];
+        final Object[] chaves = new Object[numChaves];
+
+        /** Carrega a próxima linha em posicoes/chaves. @return false no fim da run. */
+        abstract boolean avancar();
+
+        void fechar() {}
+    }
+
+    private class RunMemoria extends Run {
+        private final int[] ordem;
+        private int indice;
+
+        RunMemoria(int[] ordem) {
+            this.ordem = ordem;
+        }
+
+        @Override
+        boolean avancar() {
+            if (indice >= ordem.length) return false;
+            int linha = ordem[indice++];
+            for (int o = 0; o < numOrigens; o++) {
+                posicoes[o] = Ordenador.this.posicoes[linha * numOrigens + o];
+            }
+            for (int k = 0; k < numChaves; k++) {
+                chaves[k] = Ordenador.this.chaves[linha * numChaves + k];
+            }
+            return true;
+        }
+    }
+
+    private class RunArquivo extends Run {
+        private final DataInputStream arquivo;
+        private long restantes;
+
+        RunArquivo(Path caminho, long linhas) {
+            try {
+                this.arquivo = new DataInputStream(new BufferedInputStream(Files.newInputStream(caminho), TAMANHO_BUFFER_ARQUIVO));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao abrir a run da ordenação externa.", e);
+            }
+            this.restantes = linhas;
+        }
+
+        @Override
+        boolean avancar() {
+            if (restantes == 0) return false;
+            try {
+                lerLinha(arquivo, posicoes, chaves);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao ler a run da ordenação externa.", e);
+            }
+            restantes--;
+            return true;
+        }
+
+        @Override
+        void fechar() {
+            try {
+                arquivo.close();
+            } catch (IOException e) {
+                // Só leitura: nada a perder.
+            }
+        }
+    }
+
+    /**
+     * Intercala runs ordenadas: um heap com a linha atual de cada run, com a menor na raiz.
+     * No empate, vence a run anterior (a que veio antes na entrada).
+     */
+    private class Intercalacao {
+        private final Run[] runs;
+        private final int[] heapRuns;
+        private int tamanhoHeap;
+        private boolean iniciada;
+        Run atual;
+
+        Intercalacao(Run[] runs) {
+            this.runs = runs;
+            this.heapRuns = new int[runs.length];
+        }
+
+        boolean proximo() {
+            if (!iniciada) {
+                iniciada = true;
+                for (int r = 0; r < runs.length; r++) {
+                    if (runs[r].avancar()) {
+                        heapRuns[tamanhoHeap] = r;
+                        subir(tamanhoHeap++);
+                    }
+                }
+            } else if (atual != null) {
+                // A run da linha anterior avança; se acabou, sai do heap.
+                if (!atual.avancar()) {
+                    heapRuns[0] = heapRuns[--tamanhoHeap];
+                }
+                if (tamanhoHeap > 0) {
+                    descer(0);
+                }
+            }
+            if (tamanhoHeap == 0) {
+                atual = null;
+                return false;
+            }
+            atual = runs[heapRuns[0]];
+            return true;
+        }
+
+        private int comparar(int runA, int runB) {
+            int resultado = compararChaves(runs[runA].chaves, 0, runs[runB].chaves, 0);
+            return resultado != 0 ? resultado : Integer.compare(runA, runB);
+        }
+
+        private void subir(int i) {
+            int run = heapRuns[i];
+            while (i > 0) {
+                int pai = (i - 1) >>> 1;
+                if (comparar(heapRuns[pai], run) <= 0) break;
+                heapRuns[i] = heapRuns[pai];
+                i = pai;
+            }
+            heapRuns[i] = run;
+        }
+
+        private void descer(int i) {
+            int run = heapRuns[i];
+            while (true) {
+                int filho = 2 * i + 1;
+                if (filho >= tamanhoHeap) break;
+                if (filho + 1 < tamanhoHeap && comparar(heapRuns[filho + 1], heapRuns[filho]) < 0) {
+                    filho++;
+                }
+                if (comparar(heapRuns[filho], run) >= 0) break;
+                heapRuns[i] = heapRuns[filho];
+                i = filho;
+            }
+            heapRuns[i] = run;
+        }
+
+        void fechar() {
+            for (int r = 0; r < runs.length; r++) {
+                if (runs[r] != null) runs[r].fechar(); // null: run que não chegou a ser aberta
+            }
+        }
+    }
+}
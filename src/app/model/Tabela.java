@@ -1,14 +1,45 @@
 package app.model;
 
 // Removendo imports de Collections e Stream API
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Representa uma tabela no banco de dados, contendo a definição das colunas e os dados (linhas).
  * Gerencia o armazenamento de dados usando arrays clássicos (Arrays de Java).
+ *
+ * Concorrência: cada tabela tem a sua trava de leitura/escrita. Os métodos que alteram a tabela
+ * (inserção, remoção, compactação, índices) obtêm a trava de escrita, então as escritas em uma
+ * mesma tabela acontecem uma de cada vez; leituras (cursores, visões) podem ocorrer em paralelo.
+ * Quem ler as posições diretamente (getValor, getLinhasArray...) de uma tabela que outras threads
+ * alteram deve envolver a leitura em travarLeitura()/destravarLeitura().
+ *
+ * Versões (MVCC): cada posição guarda o número da escrita que criou a linha e o da escrita que
+ * a removeu (ver GerenciadorTransacoes). As consultas leem as linhas visíveis no seu snapshot
+ * (isVisivel), então um SELECT longo não vê as escritas feitas durante ele, nem as impede.
  */
 public class Tabela {
     private static final int CAPACIDADE_INICIAL = 10;
 
+    // Fração padrão de linhas removidas (marcadas) que dispara a compactação do armazenamento.
+    public static final double LIMIAR_COMPACTACAO_PADRAO = 0.25;
+
+    // Thread que faz as compactações agendadas pelo DELETE (ver agendarCompactacao), criada na
+    // primeira vez em que é usada e compartilhada pelas tabelas (uma compactação de cada vez).
+    private static ExecutorService compactador;
+
+    /**
+     * Formato de armazenamento dos dados:
+     * - LINHAS: array de objetos Linha (padrão).
+     * - COLUNAR: arrays primitivos por coluna (ver ArmazenamentoColunar).
+     * - PAGINADO: páginas em um arquivo, lidas pelo buffer pool (ver ArmazenamentoPaginado).
+     */
+    public enum TipoArmazenamento { LINHAS, COLUNAR, PAGINADO }
+
     private String nome;
 
     // --- Armazenamento de Estrutura (Colunas) ---
@@ -21,22 +52,323 @@ public class Tabela {
     // Usado para buscas rápidas (ex: getIndiceColunaPeloNome).
     private String[] nomesColunas;
 
+    // Array Clássico: Índices hash por coluna, paralelo ao array 'colunas'.
+    // Colunas de chave primária sempre possuem um índice; as demais ficam com null.
+    private IndiceHash[] indicesHash;
+
+    // Array Clássico: Índices ordenados (árvore B+) criados com CREATE INDEX, paralelo
+    // ao array 'colunas'. O nome do índice fica na própria árvore; null = sem índice.
+    private ArvoreBMais[] indicesOrdenados;
+
     // --- Armazenamento de Dados (Linhas) ---
     // Array Clássico: Armazena os registros de dados (objetos Linha).
     private Linha[] linhas;
-    // Contador: Rastreia o número real de linhas utilizadas no array 'linhas'.
+    // Contador: Rastreia o número de posições utilizadas no array 'linhas',
+    // incluindo as linhas removidas que ainda não foram compactadas.
     private int numLinhas;
 
+    // --- Remoção com Marcação (Tombstones) ---
+    // Bitmap (um bit por posição): bit ligado = linha removida, ainda ocupando sua posição.
+    // O DELETE apenas marca as linhas; varreduras e índices as ignoram. Quando a fração de
+    // posições marcadas passa do limiar, o armazenamento é compactado de uma só vez, em segundo plano.
+    private long[] removidas;
+    private int numRemovidas;
+    private double limiarCompactacao;
+    // Há uma compactação agendada e ainda não iniciada (evita agendar a mesma tabela várias vezes).
+    private final AtomicBoolean compactacaoAgendada = new AtomicBoolean();
+
+    // --- Versões das Linhas (MVCC) ---
+    // Arrays paralelos às posições: número da escrita que criou a linha e da que a removeu
+    // (0 = não removida). Uma linha removida continua visível para os snapshots anteriores à
+    // remoção, até a compactação, que só acontece quando nenhum cursor está lendo a tabela.
+    // No armazenamento paginado, as versões ficam nos registros em disco e os arrays são null.
+    private long[] criadaEm;
+    private long[] removidaEm;
+    // Número da última escrita na tabela: se não é maior que o snapshot de uma consulta,
+    // a tabela não mudou desde o início dela, e a verificação de versões pode ser dispensada.
+    private long ultimaEscrita;
+    // Cursores abertos sobre a tabela (ver Cursor). Enquanto houver algum, as posições das
+    // linhas não podem mudar, então a compactação das versões antigas é adiada.
+    private final AtomicInteger leitoresAtivos = new AtomicInteger();
+
+    // Marcada pelo DROP TABLE (com a trava de escrita): um COMMIT que chegue depois à tabela
+    // removida é recusado, em vez de gravar no log escritas em uma tabela que já não existe.
+    private volatile boolean excluida;
+
+    // Armazenamento colunar: quando não é null, os dados ficam nele e o array 'linhas' não é usado.
+    // Em ambos os formatos as linhas são identificadas pela posição (0 a numLinhas-1).
+    private final ArmazenamentoColunar armazenamentoColunar;
+
+    // Armazenamento paginado (em disco): quando não é null, os dados e as versões ficam nele.
+    private final ArmazenamentoPaginado armazenamentoPaginado;
+
+    // Visão somente leitura (resultado de SELECT/JOIN): quando não é null, os dados são lidos
+    // das tabelas de origem por meio dela e a tabela não guarda linhas próprias.
+    private final Visao visao;
+
+    // Versão das posições das linhas: muda quando a compactação do armazenamento move as linhas,
+    // invalidando as visões e cursores criados antes dela.
+    private int versaoPosicoes;
+
+    // Versão dos dados: muda a cada escrita que insere, remove ou desfaz linhas (sempre com a
+    // trava de escrita). Um resultado guardado com a versão lida sob a trava de leitura continua
+    // válido enquanto ela não mudar (ver CacheResultados).
+    private long versaoDados;
+
+    // --- Trava de Leitura/Escrita ---
+    // Reentrante: um método que já tem a trava de escrita pode chamar outros que também a obtêm
+    // (ex: removerLinhas -> compactar) e pode ler a própria tabela.
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    // Número da trava na ordem global: quando uma operação precisa de várias tabelas (JOIN,
+    // INSERT com FK), as travas são obtidas em ordem crescente deste número, evitando deadlocks.
+    private static final AtomicLong proximoNumeroTrava = new AtomicLong();
+    private final long numeroTrava = proximoNumeroTrava.getAndIncrement();
+
     public Tabela(String nome) {
+        this(nome, TipoArmazenamento.LINHAS);
+    }
+
+    public Tabela(String nome, TipoArmazenamento tipoArmazenamento) {
         this.nome = nome.toLowerCase();
+        this.armazenamentoColunar = tipoArmazenamento == TipoArmazenamento.COLUNAR ? new ArmazenamentoColunar() : null;
+        this.armazenamentoPaginado = tipoArmazenamento == TipoArmazenamento.PAGINADO ? new ArmazenamentoPaginado(this.nome) : null;
+        this.visao = null;
 
         // Inicializando todos os arrays clássicos com capacidade fixa inicial
         this.colunas = new Coluna[CAPACIDADE_INICIAL];
-        this.linhas = new Linha[CAPACIDADE_INICIAL];
+        this.linhas = tipoArmazenamento == TipoArmazenamento.LINHAS ? new Linha[CAPACIDADE_INICIAL] : null;
         this.nomesColunas = new String[CAPACIDADE_INICIAL];
+        this.indicesHash = new IndiceHash[CAPACIDADE_INICIAL];
+        this.indicesOrdenados = new ArvoreBMais[CAPACIDADE_INICIAL];
 
         this.numColunas = 0;
         this.numLinhas = 0;
+        this.removidas = new long[1];
+        this.numRemovidas = 0;
+        this.limiarCompactacao = LIMIAR_COMPACTACAO_PADRAO;
+        if (armazenamentoPaginado == null) {
+            this.criadaEm = new long[CAPACIDADE_INICIAL];
+            this.removidaEm = new long[CAPACIDADE_INICIAL];
+        }
+    }
+
+    /** Cria uma tabela-visão com as colunas informadas, sem arrays de linhas nem índices. */
+    private Tabela(String nome, Visao visao, Coluna[] colunasVisao) {
+        this.nome = nome.toLowerCase();
+        this.armazenamentoColunar = null;
+        this.armazenamentoPaginado = null;
+        this.visao = visao;
+
+        this.colunas = colunasVisao;
+        this.numColunas = colunasVisao.length;
+        this.nomesColunas = new String[numColunas];
+        for (int i = 0; i < numColunas; i++) {
+            this.nomesColunas[i] = colunasVisao[i].getNome();
+        }
+        this.indicesHash = new IndiceHash[numColunas];
+        this.indicesOrdenados = new ArvoreBMais[numColunas];
+
+        this.linhas = null;
+        this.numLinhas = visao.getNumLinhas();
+        this.removidas = new long[1];
+        this.numRemovidas = 0;
+        this.limiarCompactacao = LIMIAR_COMPACTACAO_PADRAO;
+    }
+
+    // --- Travas ---
+
+    /** Obtém a trava de leitura: enquanto a tiver, nenhuma outra thread altera a tabela. */
+    public void travarLeitura() { trava.readLock().lock(); }
+
+    public void destravarLeitura() { trava.readLock().unlock(); }
+
+    /** Trava de escrita, para aplicar várias operações de uma vez (ver Transacao). */
+    void travarEscrita() { trava.writeLock().lock(); }
+
+    void destravarEscrita() { trava.writeLock().unlock(); }
+
+    /** Retorna uma cópia do array com as tabelas na ordem global das travas (sem repetições nem nulls). */
+    static Tabela[] ordenarPorTrava(Tabela[] tabelas) {
+        Tabela[] ordenadas = new Tabela[tabelas.length];
+        int quantidade = 0;
+        // Ordenação por inserção: os arrays têm poucas tabelas (1 ou 2).
+        for (int i = 0; i < tabelas.length; i++) {
+            Tabela tabela = tabelas[i];
+            int j = quantidade;
+            boolean repetida = false;
+            for (int k = 0; k < quantidade; k++) {
+                if (ordenadas[k] == tabela) repetida = true;
+            }
+            if (tabela == null || repetida) continue;
+            while (j > 0 && ordenadas[j - 1].numeroTrava > tabela.numeroTrava) {
+                ordenadas[j] = ordenadas[j - 1];
+                j--;
+            }
+            ordenadas[j] = tabela;
+            quantidade++;
+        }
+        if (quantidade == tabelas.length) {
+            return ordenadas;
+        }
+        Tabela[] semRepeticoes = new Tabela[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            semRepeticoes[i] = ordenadas[i];
+        }
+        return semRepeticoes;
+    }
+
+    /** Trava as tabelas para leitura. @param tabelas Na ordem de ordenarPorTrava. */
+    static void travarLeitura(Tabela[] tabelas) {
+        for (int i = 0; i < tabelas.length; i++) {
+            tabelas[i].trava.readLock().lock();
+        }
+    }
+
+    static void destravarLeitura(Tabela[] tabelas) {
+        for (int i = tabelas.length - 1; i >= 0; i--) {
+            tabelas[i].trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Resolve as tabelas referenciadas pelas FKs que recebem algum valor não nulo nas linhas.
+     * É feita antes de travar esta tabela, pois a primeira resolução de uma FK pode criar
+     * um índice (e obter a trava de escrita) na tabela referenciada.
+     * @return Array paralelo às colunas: a tabela referenciada pela FK da coluna, ou null
+     *         (coluna sem FK ou apenas com valores nulos).
+     */
+    Tabela[] resolverReferenciadas(Linha[] novasLinhas, int quantidade) throws Exception {
+        Tabela[] referenciadas = new Tabela[numColunas];
+        for (int i = 0; i < numColunas; i++) {
+            ForeignKeyConstraint constraint = colunas[i].getFkConstraint();
+            if (constraint == null) continue;
+
+            boolean temValor = false;
+            for (int j = 0; j < quantidade && !temValor; j++) {
+                temValor = novasLinhas[j].getDadoPorIndice(i) != null;
+            }
+            if (temValor) {
+                referenciadas[i] = constraint.getTabelaResolvida();
+            }
+        }
+        return referenciadas;
+    }
+
+    /**
+     * Obtém a trava de escrita desta tabela e as de leitura das tabelas referenciadas
+     * (para consultar os seus índices na validação das FKs), todas na ordem global.
+     * @return As tabelas travadas, para destravarParaInsercao.
+     */
+    private Tabela[] travarParaInsercao(Tabela[] referenciadas) {
+        Tabela[] envolvidas = new Tabela[referenciadas.length + 1];
+        envolvidas[0] = this;
+        for (int i = 0; i < referenciadas.length; i++) {
+            envolvidas[i + 1] = referenciadas[i];
+        }
+        Tabela[] travadas = ordenarPorTrava(envolvidas);
+        for (int i = 0; i < travadas.length; i++) {
+            if (travadas[i] == this) {
+                trava.writeLock().lock();
+            } else {
+                travadas[i].trava.readLock().lock();
+            }
+        }
+        return travadas;
+    }
+
+    private void destravarParaInsercao(Tabela[] travadas) {
+        for (int i = travadas.length - 1; i >= 0; i--) {
+            if (travadas[i] == this) {
+                trava.writeLock().unlock();
+            } else {
+                travadas[i].trava.readLock().unlock();
+            }
+        }
+    }
+
+    // --- Visões (Resultados de Consulta sem Cópia) ---
+
+    /**
+     * Cria uma visão somente leitura sobre as tabelas de origem (ver Visao). Nenhuma linha é
+     * copiada: a visão guarda apenas as posições e, para cada coluna, a origem e o índice nela.
+     * A visão assume um registro de leitor em cada origem, feito por quem leu as posições.
+     * @param posicoes As posições selecionadas em cada origem (listas paralelas).
+     * @param versoesOrigens A versão das posições de cada origem quando elas foram lidas.
+     */
+    static Tabela criarVisao(String nome, Tabela[] origens, ListaPosicoes[] posicoes, int[] versoesOrigens,
+                             Coluna[] colunasVisao, int[] origemDaColuna, int[] colunaNaOrigem) {
+        Visao visao = new Visao(origens, posicoes, versoesOrigens, origemDaColuna, colunaNaOrigem);
+        return new Tabela(nome, visao, colunasVisao);
+    }
+
+    /**
+     * Fecha a visão (ver Visao.fechar): as tabelas de origem deixam de esperar por ela para
+     * compactar, e as leituras passam a ser recusadas. Em tabelas que não são visões, não tem efeito.
+     */
+    public void fecharVisao() {
+        if (visao != null) {
+            visao.fechar();
+        }
+    }
+
+    /**
+     * Copia os dados para uma nova tabela independente (formato de linhas), por exemplo para
+     * guardar o resultado de uma visão depois que as tabelas de origem mudarem.
+     * As colunas da cópia não têm restrições, então as linhas não passam por validação.
+     */
+    public Tabela materializar() {
+        trava.readLock().lock();
+        try {
+            Tabela copia = new Tabela(nome);
+            for (int j = 0; j < numColunas; j++) {
+                copia.adicionarColuna(new Coluna(colunas[j].getNome(), colunas[j].getTipoDado()));
+            }
+            copia.garantirCapacidadeLinhas(getNumLinhas());
+            copia.garantirCapacidadeVersoes(getNumLinhas());
+            for (int i = 0; i < numLinhas; i++) {
+                if (isRemovida(i)) continue;
+                Linha linha = new Linha(numColunas);
+                for (int j = 0; j < numColunas; j++) {
+                    linha.setDadoPorIndice(j, getValor(i, j));
+                }
+                copia.linhas[copia.numLinhas++] = linha;
+            }
+            return copia;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cria uma tabela temporária (formato de linhas, sem restrições nem índices) com as linhas
+     * informadas, como o resultado de uma agregação. As linhas são visíveis em qualquer snapshot.
+     */
+    static Tabela criarResultado(String nome, Coluna[] colunasResultado, Linha[] novasLinhas, int quantidade) {
+        Tabela resultado = new Tabela(nome);
+        for (int j = 0; j < colunasResultado.length; j++) {
+            resultado.adicionarColuna(colunasResultado[j]);
+        }
+        resultado.garantirCapacidadeLinhas(quantidade);
+        resultado.garantirCapacidadeVersoes(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            resultado.linhas[resultado.numLinhas++] = novasLinhas[i];
+        }
+        return resultado;
+    }
+
+    public boolean isVisao() { return visao != null; }
+
+    /** Versão das posições das linhas (ver Visao). */
+    int getVersaoPosicoes() { return versaoPosicoes; }
+
+    /** Versão dos dados da tabela (ver versaoDados). Deve ser lida com a trava de leitura. */
+    long getVersaoDados() { return versaoDados; }
+
+    /** Visões são somente leitura: qualquer alteração é recusada. */
+    private void verificarEscrita() {
+        if (visao != null) {
+            throw new IllegalStateException("O resultado de consulta '" + nome + "' é somente leitura. Use materializar() para obter uma cópia alterável.");
+        }
     }
 
     // --- Lógica de Redimensionamento (Colunas) ---
@@ -63,22 +395,59 @@ public class Tabela {
             novoNomesColunas[i] = this.nomesColunas[i];
         }
         this.nomesColunas = novoNomesColunas; // Substitui a referência para o novo array
+
+        // 3. Redimensiona o array de Índices Hash
+        IndiceHash[] novoIndicesHash = new IndiceHash[novaCapacidade];
+        for (int i = 0; i < numColunas; i++) {
+            novoIndicesHash[i] = this.indicesHash[i];
+        }
+        this.indicesHash = novoIndicesHash;
+
+        // 4. Redimensiona o array de Índices Ordenados
+        ArvoreBMais[] novoIndicesOrdenados = new ArvoreBMais[novaCapacidade];
+        for (int i = 0; i < numColunas; i++) {
+            novoIndicesOrdenados[i] = this.indicesOrdenados[i];
+        }
+        this.indicesOrdenados = novoIndicesOrdenados;
     }
 
     /**
      * Adiciona uma nova coluna à estrutura da tabela.
      */
     public void adicionarColuna(Coluna coluna) {
-        if (numColunas == colunas.length) {
-            // Verifica se o array clássico atingiu o limite e redimensiona.
-            redimensionarColunas();
-        }
+        verificarEscrita();
+        trava.writeLock().lock();
+        try {
+            if (numColunas == colunas.length) {
+                // Verifica se o array clássico atingiu o limite e redimensiona.
+                redimensionarColunas();
+            }
+
+            // Adiciona o elemento ao final dos arrays e incrementa o contador.
+            this.colunas[numColunas] = coluna;
+            this.nomesColunas[numColunas] = coluna.getNome();
+            if (armazenamentoColunar != null) {
+                armazenamentoColunar.adicionarColuna(coluna.getTipoDado());
+            }
+            if (armazenamentoPaginado != null) {
+                armazenamentoPaginado.adicionarColuna(coluna.getTipoDado());
+            }
 
-        // Adiciona o elemento ao final dos arrays e incrementa o contador.
-        this.colunas[numColunas] = coluna;
-        this.nomesColunas[numColunas] = coluna.getNome();
+            // Colunas de chave primária ganham um índice hash, mantido a cada inserção/remoção.
+            if (coluna.isPrimaryKey()) {
+                IndiceHash indice = new IndiceHash();
+                for (int i = 0; i < numLinhas; i++) {
+                    if (!isRemovida(i)) {
+                        indice.inserir(getValor(i, numColunas), i);
+                    }
+                }
+                this.indicesHash[numColunas] = indice;
+            }
 
-        this.numColunas++;
+            this.numColunas++;
+        } finally {
+            trava.writeLock().unlock();
+        }
     }
 
     // --- Lógica de Redimensionamento (Linhas) ---
@@ -88,6 +457,7 @@ public class Tabela {
      * Envolve a criação de um novo array de tamanho maior e a cópia manual de elementos.
      */
     private void redimensionarLinhas() {
+        MetricasMotor.atuais().redimensionamentos.increment();
         int novaCapacidade = linhas.length * 2;
         Linha[] novoLinhas = new Linha[novaCapacidade];
 
@@ -98,80 +468,325 @@ public class Tabela {
         this.linhas = novoLinhas; // Substitui a referência para o novo array
     }
 
+    /**
+     * Garante espaço para 'capacidadeNecessaria' linhas com um único redimensionamento
+     * (usado na carga em lote, em vez de dobrar o array várias vezes).
+     */
+    private void garantirCapacidadeLinhas(int capacidadeNecessaria) {
+        if (armazenamentoColunar != null) {
+            armazenamentoColunar.garantirCapacidade(capacidadeNecessaria);
+            return;
+        }
+        if (armazenamentoPaginado != null) {
+            return; // As páginas são alocadas conforme as linhas são acrescentadas.
+        }
+        if (capacidadeNecessaria <= linhas.length) {
+            return;
+        }
+        MetricasMotor.atuais().redimensionamentos.increment();
+        int novaCapacidade = Math.max(linhas.length * 2, capacidadeNecessaria);
+        Linha[] novoLinhas = new Linha[novaCapacidade];
+        for (int i = 0; i < numLinhas; i++) {
+            novoLinhas[i] = this.linhas[i];
+        }
+        this.linhas = novoLinhas;
+    }
+
     /**
      * Adiciona uma nova linha (registro) à tabela, após validações de restrições.
      */
     public void adicionarLinha(Linha linha) throws Exception {
+        adicionarLinha(linha, null);
+    }
+
+    /** Inserção de uma linha, somando o tempo das validações (PK, FK) à etapa, se houver (EXPLAIN ANALYZE). */
+    void adicionarLinha(Linha linha, Explicacao.Etapa validacao) throws Exception {
+        verificarEscrita();
         // O método no InterpretadorSQL deve garantir que a Linha refatorada
         // já tenha seus dados preenchidos nos índices corretos.
 
-        // 1. Validar Chave Primária (Unicidade)
-        for (int i = 0; i < numColunas; i++) {
-            Coluna pkColuna = colunas[i];
-            if (pkColuna.isPrimaryKey()) {
-                int pkIndice = i;
-                Object novoValor = linha.getDadoPorIndice(pkIndice);
+        if (armazenamentoPaginado != null) {
+            armazenamentoPaginado.verificarTamanho(linha);
+        }
 
-                if (novoValor == null) {
-                    throw new Exception("Erro de violação de chave primária: valor não pode ser nulo para a coluna '" + pkColuna.getNome() + "'.");
-                }
+        // Resolve as FKs antes de travar (ver resolverReferenciadas).
+        Tabela[] referenciadas = resolverReferenciadas(new Linha[] { linha }, 1);
+        Tabela[] travadas = travarParaInsercao(referenciadas);
+        int verificacoes = 0; // Consultas aos índices para validar PK e FK (ver MetricasMotor)
+        try {
+            if (validacao != null) validacao.iniciar();
 
-                // Busca manual (loop for) em todo o array de linhas para checar duplicatas de PK.
-                for (int j = 0; j < numLinhas; j++) {
-                    Linha linhaExistente = linhas[j];
-                    if (linhaExistente.getDadoPorIndice(pkIndice).equals(novoValor)) {
+            // 1. Validar Chave Primária (Unicidade)
+            for (int i = 0; i < numColunas; i++) {
+                Coluna pkColuna = colunas[i];
+                if (pkColuna.isPrimaryKey()) {
+                    int pkIndice = i;
+                    Object novoValor = linha.getDadoPorIndice(pkIndice);
+
+                    if (novoValor == null) {
+                        throw new Exception("Erro de violação de chave primária: valor não pode ser nulo para a coluna '" + pkColuna.getNome() + "'.");
+                    }
+
+                    // Consulta ao índice hash da PK: checagem de duplicata em tempo constante.
+                    verificacoes++;
+                    if (indicesHash[pkIndice].contem(novoValor)) {
                         throw new Exception("Erro de violação de chave primária: valor '" + novoValor + "' já existe para a coluna '" + pkColuna.getNome() + "'.");
                     }
                 }
             }
+
+            // 2. Validar Chave Estrangeira (Existência)
+            for (int i = 0; i < numColunas; i++) {
+                Coluna fkColuna = colunas[i];
+                if (fkColuna.getFkConstraint() != null) {
+                    int fkIndice = i;
+                    Object valorFk = linha.getDadoPorIndice(fkIndice);
+
+                    // Permite FKs nulas
+                    if (valorFk == null) continue;
+
+                    ForeignKeyConstraint constraint = fkColuna.getFkConstraint();
+
+                    // A constraint guarda em cache a tabela e o índice da coluna referenciados
+                    // (a tabela já foi resolvida e travada para leitura).
+                    Tabela tabelaReferenciada = referenciadas[fkIndice];
+                    int indiceColunaReferenciada = constraint.getIndiceColunaResolvida();
+
+                    // Consulta ao índice hash da coluna referenciada (em vez de varrer suas linhas).
+                    verificacoes++;
+                    if (!tabelaReferenciada.indicesHash[indiceColunaReferenciada].contem(valorFk)) {
+                        throw new Exception("Erro de violação de chave estrangeira: o valor '" + valorFk + "' não existe na tabela '" + constraint.getTabelaReferenciada() + "'.");
+                    }
+                }
+            }
+            if (validacao != null) validacao.terminar();
+
+            // 3. Insere a linha no array clássico, redimensionando se necessário
+            //    (no formato colunar, os valores são copiados para os arrays de cada coluna).
+            //    A versão da linha é marcada com o número desta escrita.
+            long transacao = GerenciadorTransacoes.getInstancia().novaTransacao();
+            garantirCapacidadeVersoes(numLinhas + 1);
+            this.ultimaEscrita = transacao;
+            this.versaoDados++;
+            guardarLinha(linha, transacao);
+
+            // 4. Atualiza os índices (hash e ordenados) com a posição da nova linha.
+            for (int i = 0; i < numColunas; i++) {
+                if (indicesHash[i] != null) {
+                    indicesHash[i].inserir(linha.getDadoPorIndice(i), numLinhas);
+                }
+                if (indicesOrdenados[i] != null) {
+                    indicesOrdenados[i].inserir(linha.getDadoPorIndice(i), numLinhas);
+                }
+            }
+            this.numLinhas++;
+        } finally {
+            destravarParaInsercao(travadas);
+            MetricasMotor.atuais().verificacoes.add(verificacoes);
         }
+    }
 
-        // 2. Validar Chave Estrangeira (Existência)
-        for (int i = 0; i < numColunas; i++) {
-            Coluna fkColuna = colunas[i];
-            if (fkColuna.getFkConstraint() != null) {
-                int fkIndice = i;
-                Object valorFk = linha.getDadoPorIndice(fkIndice);
+    // --- Carga em Lote ---
+
+    /**
+     * Adiciona as primeiras 'quantidade' linhas do array de uma só vez (carga em lote).
+     *
+     * As restrições são verificadas uma vez para o lote inteiro, antes de as linhas entrarem na tabela:
+     * - FK: cada valor distinto do lote é consultado uma única vez no índice da tabela
+     *   referenciada. Em uma FK para a própria tabela, valores inseridos no mesmo lote também valem.
+     * - PK: os valores do lote são unidos ao índice hash da PK; um valor repetido (no lote
+     *   ou na tabela) desfaz a união e cancela o lote.
+     * Se alguma restrição falhar, nenhuma linha do lote é inserida.
+     *
+     * O array de linhas cresce no máximo uma vez por lote.
+     */
+    public void adicionarLinhas(Linha[] novasLinhas, int quantidade) throws Exception {
+        adicionarLinhas(novasLinhas, quantidade, 0);
+    }
+
+    /**
+     * Carga em lote com o número de escrita informado (0 = um número novo). O COMMIT de uma
+     * transação aplica todas as suas operações com o mesmo número (ver Transacao).
+     */
+    void adicionarLinhas(Linha[] novasLinhas, int quantidade, long transacao) throws Exception {
+        adicionarLinhas(novasLinhas, quantidade, transacao, null);
+    }
 
-                // Permite FKs nulas
-                if (valorFk == null) continue;
+    /** Carga em lote, somando o tempo das validações (PK, FK) à etapa, se houver (EXPLAIN ANALYZE). */
+    void adicionarLinhas(Linha[] novasLinhas, int quantidade, long transacao, Explicacao.Etapa validacao) throws Exception {
+        verificarEscrita();
+        if (quantidade < 0 || quantidade > novasLinhas.length) {
+            throw new Exception("Quantidade de linhas inválida para a carga em lote: " + quantidade + ".");
+        }
+        if (quantidade == 0) {
+            return;
+        }
 
-                ForeignKeyConstraint constraint = fkColuna.getFkConstraint();
+        if (armazenamentoPaginado != null) {
+            for (int j = 0; j < quantidade; j++) {
+                armazenamentoPaginado.verificarTamanho(novasLinhas[j]);
+            }
+        }
 
-                Tabela tabelaReferenciada = BancoSimulado.getInstancia()
-                        .getTabela(constraint.getTabelaReferenciada()); // Chamará o novo getTabela refatorado
+        // Resolve as FKs antes de travar (ver resolverReferenciadas).
+        Tabela[] referenciadas = resolverReferenciadas(novasLinhas, quantidade);
+        Tabela[] travadas = travarParaInsercao(referenciadas);
+        int verificacoes = 0; // Consultas aos índices para validar PK e FK (ver MetricasMotor)
+        try {
+            if (validacao != null) validacao.iniciar();
 
-                if (tabelaReferenciada == null) {
-                    throw new Exception("Tabela referenciada '" + constraint.getTabelaReferenciada() + "' não existe.");
+            // 1. Validar Chave Estrangeira (Existência), uma consulta por valor distinto
+            for (int i = 0; i < numColunas; i++) {
+                ForeignKeyConstraint constraint = colunas[i].getFkConstraint();
+                // Sem FK, ou apenas valores nulos no lote (FKs nulas são permitidas).
+                Tabela tabelaReferenciada = referenciadas[i];
+                if (tabelaReferenciada == null) continue;
+                int indiceColunaReferenciada = constraint.getIndiceColunaResolvida();
+
+                // FK para a própria tabela: a coluna referenciada também recebe valores do lote.
+                IndiceHash referenciadosNoLote = null;
+                if (tabelaReferenciada == this) {
+                    referenciadosNoLote = new IndiceHash(quantidade);
+                    for (int j = 0; j < quantidade; j++) {
+                        referenciadosNoLote.inserir(novasLinhas[j].getDadoPorIndice(indiceColunaReferenciada), j);
+                    }
                 }
 
-                // Busca o índice na tabela referenciada
-                int indiceColunaReferenciada = tabelaReferenciada.getIndiceColunaPeloNome(constraint.getColunaReferenciada());
+                // Conjunto dos valores já verificados: repetições não são consultadas de novo.
+                IndiceHash verificados = new IndiceHash();
+                for (int j = 0; j < quantidade; j++) {
+                    Object valorFk = novasLinhas[j].getDadoPorIndice(i);
 
-                // Busca manual (loop for) em todo o array de linhas da tabela referenciada.
-                boolean referenciaEncontrada = false;
-                for (int j = 0; j < tabelaReferenciada.numLinhas; j++) {
-                    Linha linhaReferenciada = tabelaReferenciada.linhas[j];
-                    Object valorReferenciado = linhaReferenciada.getDadoPorIndice(indiceColunaReferenciada);
+                    // Permite FKs nulas
+                    if (valorFk == null || verificados.contem(valorFk)) continue;
 
-                    if (valorReferenciado != null && valorReferenciado.equals(valorFk)) {
-                        referenciaEncontrada = true;
-                        break;
+                    verificacoes++;
+                    boolean existe = tabelaReferenciada.indicesHash[indiceColunaReferenciada].contem(valorFk)
+                            || (referenciadosNoLote != null && referenciadosNoLote.contem(valorFk));
+                    if (!existe) {
+                        throw new Exception("Erro de violação de chave estrangeira: o valor '" + valorFk + "' não existe na tabela '" + constraint.getTabelaReferenciada() + "'.");
                     }
+                    verificados.inserir(valorFk, j);
                 }
+            }
+
+            // 2. Validar Chave Primária (Unicidade), unindo o lote ao índice hash da PK
+            for (int i = 0; i < numColunas; i++) {
+                Coluna pkColuna = colunas[i];
+                if (!pkColuna.isPrimaryKey()) continue;
+
+                for (int j = 0; j < quantidade; j++) {
+                    Object novoValor = novasLinhas[j].getDadoPorIndice(i);
+                    boolean nulo = novoValor == null;
+                    verificacoes++;
+                    if (nulo || indicesHash[i].contem(novoValor)) {
+                        desfazerChavesDoLote(novasLinhas, quantidade, i, j);
+                        if (nulo) {
+                            throw new Exception("Erro de violação de chave primária: valor não pode ser nulo para a coluna '" + pkColuna.getNome() + "'.");
+                        }
+                        throw new Exception("Erro de violação de chave primária: valor '" + novoValor + "' já existe para a coluna '" + pkColuna.getNome() + "'.");
+                    }
+                    indicesHash[i].inserir(novoValor, numLinhas + j);
+                }
+            }
+            if (validacao != null) validacao.terminar();
 
-                if (!referenciaEncontrada) {
-                    throw new Exception("Erro de violação de chave estrangeira: o valor '" + valorFk + "' não existe na tabela '" + constraint.getTabelaReferenciada() + "'.");
+            // 3. Insere as linhas no array clássico, com no máximo um redimensionamento
+            //    (todas as linhas do lote são versões da mesma escrita).
+            if (transacao == 0) {
+                transacao = GerenciadorTransacoes.getInstancia().novaTransacao();
+            }
+            garantirCapacidadeLinhas(numLinhas + quantidade);
+            garantirCapacidadeVersoes(numLinhas + quantidade);
+            this.ultimaEscrita = transacao;
+            this.versaoDados++;
+            for (int j = 0; j < quantidade; j++) {
+                Linha linha = novasLinhas[j];
+                guardarLinha(linha, transacao);
+
+                // 4. Atualiza os demais índices (os das PKs já receberam o lote no passo 2).
+                for (int i = 0; i < numColunas; i++) {
+                    if (indicesHash[i] != null && !colunas[i].isPrimaryKey()) {
+                        indicesHash[i].inserir(linha.getDadoPorIndice(i), numLinhas);
+                    }
+                    if (indicesOrdenados[i] != null) {
+                        indicesOrdenados[i].inserir(linha.getDadoPorIndice(i), numLinhas);
+                    }
                 }
+                this.numLinhas++;
             }
+        } finally {
+            destravarParaInsercao(travadas);
+            MetricasMotor.atuais().verificacoes.add(verificacoes);
         }
+    }
 
-        // 3. Insere a linha no array clássico, redimensionando se necessário
-        if (numLinhas == linhas.length) {
-            redimensionarLinhas();
+    /**
+     * Carga das linhas de um checkpoint (ver ArquivoCheckpoint). As linhas vêm de um estado já
+     * validado, então as restrições não são verificadas de novo (um DELETE pode ter deixado
+     * valores de FK sem correspondente, que a verificação recusaria); apenas os índices são
+     * atualizados. Usada na inicialização, antes de as sessões usarem o banco.
+     */
+    void carregarLinhas(Linha[] novasLinhas, int quantidade) {
+        verificarEscrita();
+        trava.writeLock().lock();
+        try {
+            long transacao = GerenciadorTransacoes.getInstancia().novaTransacao();
+            garantirCapacidadeLinhas(numLinhas + quantidade);
+            garantirCapacidadeVersoes(numLinhas + quantidade);
+            this.ultimaEscrita = transacao;
+            this.versaoDados++;
+            for (int j = 0; j < quantidade; j++) {
+                Linha linha = novasLinhas[j];
+                guardarLinha(linha, transacao);
+                for (int i = 0; i < numColunas; i++) {
+                    if (indicesHash[i] != null) {
+                        indicesHash[i].inserir(linha.getDadoPorIndice(i), numLinhas);
+                    }
+                    if (indicesOrdenados[i] != null) {
+                        indicesOrdenados[i].inserir(linha.getDadoPorIndice(i), numLinhas);
+                    }
+                }
+                this.numLinhas++;
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Guarda a linha na posição numLinhas, no formato de armazenamento da tabela, com a versão
+     * criada pela escrita informada (a capacidade dos arrays já foi garantida pelo chamador).
+     */
+    private void guardarLinha(Linha linha, long transacao) {
+        if (armazenamentoPaginado != null) {
+            armazenamentoPaginado.adicionar(linha, transacao);
+            return;
+        }
+        criadaEm[numLinhas] = transacao;
+        if (armazenamentoColunar != null) {
+            armazenamentoColunar.adicionar(linha);
+        } else {
+            if (numLinhas == linhas.length) {
+                redimensionarLinhas();
+            }
+            this.linhas[numLinhas] = linha;
+        }
+    }
+
+    /**
+     * Remove dos índices das PKs as chaves do lote inseridas antes de uma violação:
+     * as 'quantidade' linhas nas colunas anteriores a 'colunaFalha' e as linhas
+     * anteriores a 'linhaFalha' na própria coluna.
+     */
+    private void desfazerChavesDoLote(Linha[] novasLinhas, int quantidade, int colunaFalha, int linhaFalha) {
+        for (int i = 0; i <= colunaFalha; i++) {
+            if (!colunas[i].isPrimaryKey()) continue;
+            int limite = i < colunaFalha ? quantidade : linhaFalha;
+            for (int j = 0; j < limite; j++) {
+                indicesHash[i].remover(novasLinhas[j].getDadoPorIndice(i), numLinhas + j);
+            }
         }
-        this.linhas[numLinhas] = linha;
-        this.numLinhas++;
     }
 
     // --- Métodos de Manipulação (DELETE) ---
@@ -185,53 +800,683 @@ public class Tabela {
         if (indiceBusca == -1) {
             throw new Exception("Coluna de busca '" + nomeColuna + "' não encontrada.");
         }
+        return removerLinhas(indiceBusca, valor);
+    }
 
-        // A remoção eficiente em array é feita copiando apenas os elementos desejados
-        // para um novo array (ou movendo-os internamente). Aqui, criamos um novo array.
-        Linha[] novoArrayLinhas = new Linha[linhas.length];
-        int novoNumLinhas = 0;
-        int linhasRemovidas = 0;
+    /**
+     * Remove linhas da tabela que satisfazem a condição (coluna = valor), com a coluna
+     * informada pelo índice (já resolvido pelo chamador).
+     * As linhas são apenas marcadas como removidas (sem copiar o array) e retiradas dos
+     * índices; a compactação acontece quando a fração de linhas marcadas passa do limiar.
+     * @return O número de linhas removidas.
+     */
+    public int removerLinhas(int indiceBusca, Object valor) throws Exception {
+        return removerLinhas(indiceBusca, valor, 1, 0, null);
+    }
 
-        // Loop for: Itera sobre o array de linhas original
-        for (int i = 0; i < numLinhas; i++) {
-            Linha linhaAtual = linhas[i];
-            Object valorNaLinha = linhaAtual.getDadoPorIndice(indiceBusca);
-
-            // Verifica a condição: Manter se o valor for diferente do valor de busca
-            if (valorNaLinha == null || !valorNaLinha.equals(valor)) {
-                // Copia a linha que DEVE ser mantida para o novo array
-                novoArrayLinhas[novoNumLinhas] = linhaAtual;
-                novoNumLinhas++;
+    /**
+     * Remoção com o número de escrita informado (0 = um número novo), como em adicionarLinhas.
+     * @param paralelismo Número de threads da varredura, quando a coluna não tem índice (1 = sequencial).
+     * @param removidasSaida Se não for null, recebe as posições das linhas removidas (para desfazer).
+     */
+    int removerLinhas(int indiceBusca, Object valor, int paralelismo, long transacao, ListaPosicoes removidasSaida) throws Exception {
+        if (indiceBusca < 0 || indiceBusca >= numColunas) {
+            throw new Exception("Coluna de busca de índice " + indiceBusca + " não encontrada.");
+        }
+        verificarEscrita();
+
+        trava.writeLock().lock();
+        try {
+            // 1. Localiza as posições a remover: pelo índice da coluna, se houver, ou por varredura
+            //    (dividida entre as threads, com paralelismo; a trava de escrita já exclui as outras sessões).
+            ListaPosicoes alvo = new ListaPosicoes();
+            if (indicesHash[indiceBusca] != null) {
+                IndiceHash.Entrada entrada = indicesHash[indiceBusca].buscarEntrada(valor);
+                if (entrada != null) {
+                    for (int i = 0; i < entrada.numPosicoes; i++) {
+                        alvo.adicionar(entrada.posicoes[i]);
+                    }
+                }
+            } else if (indicesOrdenados[indiceBusca] != null) {
+                indicesOrdenados[indiceBusca].buscar(valor, alvo);
+            } else if (paralelismo > 1) {
+                alvo = ExecucaoParalela.buscarIguais(this, indiceBusca, valor, numLinhas, paralelismo);
             } else {
-                // Linha será descartada
+                buscarIguais(indiceBusca, valor, 0, numLinhas, alvo);
+            }
+            // Linhas examinadas: as candidatas do índice, ou a tabela inteira na varredura.
+            boolean porIndice = indicesHash[indiceBusca] != null || indicesOrdenados[indiceBusca] != null;
+            MetricasMotor.atuais().linhasLidas.add(porIndice ? alvo.getTamanho() : numLinhas);
+
+            // 2. Marca as linhas como removidas (os índices já não contêm linhas marcadas),
+            //    guardando o número desta escrita: snapshots anteriores ainda veem as linhas.
+            int linhasRemovidas = 0;
+            garantirCapacidadeRemovidas(numLinhas);
+            for (int i = 0; i < alvo.getTamanho(); i++) {
+                int posicao = alvo.get(i);
+                if (isRemovida(posicao)) continue;
+                if (transacao == 0) {
+                    transacao = GerenciadorTransacoes.getInstancia().novaTransacao();
+                }
+                this.ultimaEscrita = transacao;
+                removidas[posicao >>> 6] |= 1L << posicao;
+                definirRemovidaEm(posicao, transacao);
+                if (removidasSaida != null) {
+                    removidasSaida.adicionar(posicao);
+                }
                 linhasRemovidas++;
             }
+            if (linhasRemovidas == 0) {
+                return 0;
+            }
+            this.numRemovidas += linhasRemovidas;
+            this.versaoDados++;
+
+            // 3. Retira dos índices apenas as linhas marcadas.
+            //    No índice da própria coluna do DELETE, a chave sai inteira de uma vez.
+            for (int i = 0; i < numColunas; i++) {
+                if (indicesHash[i] == null && indicesOrdenados[i] == null) continue;
+                if (i == indiceBusca) {
+                    if (indicesHash[i] != null) indicesHash[i].removerChave(valor);
+                    if (indicesOrdenados[i] != null) indicesOrdenados[i].removerChave(valor);
+                    continue;
+                }
+                for (int j = 0; j < alvo.getTamanho(); j++) {
+                    int posicao = alvo.get(j);
+                    Object valorNaLinha = getValor(posicao, i);
+                    if (indicesHash[i] != null) indicesHash[i].remover(valorNaLinha, posicao);
+                    if (indicesOrdenados[i] != null) indicesOrdenados[i].remover(valorNaLinha, posicao);
+                }
+            }
+
+            // 4. Muitas linhas marcadas: a compactação (O(n)) é feita em segundo plano, e não por
+            //    este DELETE, que já tem a trava de escrita e só paga as marcações.
+            if (numRemovidas > limiarCompactacao * numLinhas) {
+                agendarCompactacao();
+            }
+            return linhasRemovidas;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adiciona à lista, em ordem crescente, as posições no intervalo [inicio, fim) com o valor na
+     * coluna (incluindo as marcadas como removidas), varrendo o armazenamento sem usar os índices.
+     */
+    void buscarIguais(int indiceBusca, Object valor, int inicio, int fim, ListaPosicoes saida) {
+        if (armazenamentoColunar != null) {
+            // Formato colunar: a comparação é feita sobre os arrays primitivos.
+            armazenamentoColunar.buscarIguais(indiceBusca, valor, inicio, fim, saida);
+        } else if (armazenamentoPaginado != null) {
+            // Formato paginado: uma leitura de cada página pelo buffer pool.
+            armazenamentoPaginado.buscarIguais(indiceBusca, valor, inicio, fim, saida);
+        } else {
+            for (int i = inicio; i < fim; i++) {
+                Object valorNaLinha = linhas[i].getDadoPorIndice(indiceBusca);
+                if (valorNaLinha != null && valorNaLinha.equals(valor)) {
+                    saida.adicionar(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compacta o armazenamento: descarta as linhas marcadas como removidas, movendo as demais
+     * para o início (mantendo a ordem), e reconstrói os índices, pois as posições mudam.
+     * É agendada automaticamente (ver agendarCompactacao) quando a fração de linhas marcadas
+     * passa do limiar, de modo que o custo O(n) da compactação não recai sobre os DELETEs.
+     *
+     * É também a coleta das versões antigas (MVCC): as linhas removidas só são descartadas
+     * quando nenhum cursor ou visão está lendo a tabela, pois os cursores e as visões abertos
+     * dependem das posições e podem ter snapshots anteriores às remoções (ver Visao).
+     * @return false se a compactação foi adiada por haver cursores ou visões abertos sobre a tabela.
+     */
+    public boolean compactar() {
+        verificarEscrita();
+        trava.writeLock().lock();
+        try {
+            if (leitoresAtivos.get() > 0) {
+                return false;
+            }
+            if (numRemovidas == 0) {
+                return true;
+            }
+
+            if (armazenamentoPaginado != null) {
+                // As versões das linhas mantidas são copiadas junto com os registros.
+                armazenamentoPaginado.compactar(removidas);
+            } else if (armazenamentoColunar != null) {
+                armazenamentoColunar.compactar(removidas);
+            } else {
+                // Compactação no próprio array clássico, sem alocar um novo.
+                int destino = 0;
+                for (int i = 0; i < numLinhas; i++) {
+                    if (!isRemovida(i)) {
+                        linhas[destino++] = linhas[i];
+                    }
+                }
+                for (int i = destino; i < numLinhas; i++) {
+                    linhas[i] = null; // Libera as linhas removidas para a coleta de lixo.
+                }
+            }
+            // As versões acompanham as linhas; nenhuma das que ficam está removida.
+            if (criadaEm != null) {
+                int destinoVersao = 0;
+                for (int i = 0; i < numLinhas; i++) {
+                    if (!isRemovida(i)) {
+                        criadaEm[destinoVersao++] = criadaEm[i];
+                    }
+                }
+                for (int i = 0; i < numLinhas; i++) {
+                    removidaEm[i] = 0;
+                }
+            }
+
+            this.numLinhas -= numRemovidas;
+            this.numRemovidas = 0;
+            for (int p = 0; p < removidas.length; p++) {
+                removidas[p] = 0;
+            }
+            this.versaoPosicoes++;
+            reconstruirIndices();
+            return true;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Agenda a compactação na thread do compactador. Ela obtém a trava de escrita, como qualquer
+     * escrita, e verifica de novo o limiar: entre o agendamento e a execução, a tabela pode ter
+     * sido compactada, recebido inserções ou sido removida. Com cursores ou visões abertos, a
+     * compactação é adiada até o último ser fechado (ver liberarLeitor).
+     */
+    private void agendarCompactacao() {
+        if (!compactacaoAgendada.compareAndSet(false, true)) {
+            return;
+        }
+        getCompactador().execute(this::compactarAgendada);
+    }
+
+    /** Executada pela thread do compactador. */
+    private void compactarAgendada() {
+        compactacaoAgendada.set(false);
+        trava.writeLock().lock();
+        try {
+            if (!excluida && numRemovidas > limiarCompactacao * numLinhas) {
+                compactar();
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    private static synchronized ExecutorService getCompactador() {
+        if (compactador == null) {
+            compactador = Executors.newSingleThreadExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "compactador-tabelas");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return compactador;
+    }
+
+    // --- Desfazer (COMMIT com falha, ver Transacao) ---
+    // Chamados com a trava de escrita e com a tabela registrada como lida (sem compactação),
+    // para que as posições aplicadas continuem as mesmas.
+
+    /**
+     * Desfaz a inserção das posições [inicio, fim): as linhas são marcadas como removidas pela
+     * mesma escrita que as criou, então nenhum snapshot as enxerga, e saem dos índices.
+     */
+    void desfazerInsercao(int inicio, int fim, long transacao) {
+        garantirCapacidadeRemovidas(numLinhas);
+        this.versaoDados++;
+        for (int posicao = inicio; posicao < fim; posicao++) {
+            if (isRemovida(posicao)) continue;
+            for (int i = 0; i < numColunas; i++) {
+                Object valor = getValor(posicao, i);
+                if (indicesHash[i] != null) indicesHash[i].remover(valor, posicao);
+                if (indicesOrdenados[i] != null) indicesOrdenados[i].remover(valor, posicao);
+            }
+            removidas[posicao >>> 6] |= 1L << posicao;
+            definirRemovidaEm(posicao, transacao);
+            numRemovidas++;
+        }
+    }
+
+    /** Desfaz a remoção das posições: as linhas voltam a ser visíveis e aos índices. */
+    void desfazerRemocao(ListaPosicoes posicoes) {
+        this.versaoDados++;
+        for (int j = 0; j < posicoes.getTamanho(); j++) {
+            int posicao = posicoes.get(j);
+            removidas[posicao >>> 6] &= ~(1L << posicao);
+            definirRemovidaEm(posicao, 0);
+            numRemovidas--;
+            for (int i = 0; i < numColunas; i++) {
+                Object valor = getValor(posicao, i);
+                if (indicesHash[i] != null) indicesHash[i].inserir(valor, posicao);
+                if (indicesOrdenados[i] != null) indicesOrdenados[i].inserir(valor, posicao);
+            }
+        }
+    }
+
+    /**
+     * Marca a tabela como removida do catálogo (DROP TABLE). Chamado com a trava de escrita.
+     * O arquivo de uma tabela paginada é apagado se nenhum cursor a estiver lendo; senão, fica
+     * até o fim da execução (os arquivos de dados são temporários).
+     */
+    void marcarExcluida() {
+        this.excluida = true;
+        if (armazenamentoPaginado != null && leitoresAtivos.get() == 0) {
+            armazenamentoPaginado.liberar();
+            this.numLinhas = 0;
+            this.numRemovidas = 0;
+            this.versaoPosicoes++;
+        }
+    }
+
+    boolean isExcluida() { return excluida; }
+
+    /** Garante espaço nos arrays de versões para as posições 0 a numPosicoes-1. */
+    private void garantirCapacidadeVersoes(int numPosicoes) {
+        if (criadaEm == null || numPosicoes <= criadaEm.length) {
+            return;
+        }
+        int novaCapacidade = Math.max(criadaEm.length * 2, numPosicoes);
+        long[] novoCriadaEm = new long[novaCapacidade];
+        long[] novoRemovidaEm = new long[novaCapacidade];
+        for (int i = 0; i < numLinhas; i++) {
+            novoCriadaEm[i] = criadaEm[i];
+            novoRemovidaEm[i] = removidaEm[i];
+        }
+        this.criadaEm = novoCriadaEm;
+        this.removidaEm = novoRemovidaEm;
+    }
+
+    /**
+     * Verifica se a versão da linha na posição é visível para o snapshot (ver GerenciadorTransacoes):
+     * criada até o snapshot e não removida até ele. Nas visões, todas as linhas são visíveis.
+     */
+    public boolean isVisivel(int posicao, long snapshot) {
+        if (visao != null) {
+            return true;
+        }
+        if (armazenamentoPaginado != null) {
+            return armazenamentoPaginado.isVisivel(posicao, snapshot);
+        }
+        long removida = removidaEm[posicao];
+        return criadaEm[posicao] <= snapshot && (removida == 0 || removida > snapshot);
+    }
+
+    /** Grava o número da escrita que removeu a linha na posição (0 = não removida). */
+    private void definirRemovidaEm(int posicao, long transacao) {
+        if (armazenamentoPaginado != null) {
+            armazenamentoPaginado.definirRemovidaEm(posicao, transacao);
+        } else {
+            removidaEm[posicao] = transacao;
+        }
+    }
+
+    /**
+     * Registra um cursor ou uma visão aberta sobre a tabela (a compactação fica adiada até ele
+     * ser fechado).
+     */
+    void registrarLeitor() {
+        leitoresAtivos.incrementAndGet();
+    }
+
+    /**
+     * Retira o registro de um cursor ou de uma visão. Se era o último e a compactação ficou adiada, ela é agendada
+     * agora, desde que a trava de escrita esteja livre (senão, fica para o próximo DELETE).
+     * Deve ser chamado sem as travas da tabela.
+     */
+    void liberarLeitor() {
+        if (leitoresAtivos.decrementAndGet() > 0 || visao != null) {
+            return;
+        }
+        if (trava.writeLock().tryLock()) {
+            try {
+                if (excluida) {
+                    // DROP TABLE com cursores abertos: o arquivo paginado é apagado pelo último deles.
+                    marcarExcluida();
+                } else if (numRemovidas > limiarCompactacao * numLinhas) {
+                    agendarCompactacao();
+                }
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Garante que o bitmap de removidas cubra as posições 0 a numPosicoes-1. */
+    private void garantirCapacidadeRemovidas(int numPosicoes) {
+        int palavras = (numPosicoes + 63) >>> 6;
+        if (palavras <= removidas.length) {
+            return;
+        }
+        long[] novoRemovidas = new long[Math.max(removidas.length * 2, palavras)];
+        for (int p = 0; p < removidas.length; p++) {
+            novoRemovidas[p] = removidas[p];
+        }
+        this.removidas = novoRemovidas;
+    }
+
+    /** Verifica se a linha na posição foi removida (marcada e ainda não compactada). */
+    public boolean isRemovida(int posicao) {
+        return numRemovidas > 0 && (posicao >>> 6) < removidas.length
+                && (removidas[posicao >>> 6] & (1L << posicao)) != 0;
+    }
+
+    public int getNumRemovidas() { return numRemovidas; }
+
+    public double getLimiarCompactacao() { return limiarCompactacao; }
+
+    /**
+     * Define a fração de linhas removidas (entre 0 e 1) a partir da qual o armazenamento é
+     * compactado. Valores menores liberam memória mais cedo; maiores tornam o DELETE mais barato.
+     */
+    public void setLimiarCompactacao(double limiar) throws Exception {
+        if (!(limiar > 0 && limiar <= 1)) {
+            throw new Exception("Limiar de compactação inválido: " + limiar + ". Use um valor maior que 0 e até 1.");
+        }
+        trava.writeLock().lock();
+        try {
+            this.limiarCompactacao = limiar;
+            if (numRemovidas > limiarCompactacao * numLinhas) {
+                compactar();
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recria todos os índices (hash e ordenados) a partir do array de linhas atual.
+     * Necessário após a compactação do array, pois as posições das linhas mudam
+     * (chamado sem linhas marcadas como removidas).
+     */
+    private void reconstruirIndices() {
+        for (int i = 0; i < numColunas; i++) {
+            if (indicesHash[i] != null) {
+                indicesHash[i].limpar();
+                for (int j = 0; j < numLinhas; j++) {
+                    indicesHash[i].inserir(getValor(j, i), j);
+                }
+            }
+            if (indicesOrdenados[i] != null) {
+                indicesOrdenados[i].limpar();
+                for (int j = 0; j < numLinhas; j++) {
+                    indicesOrdenados[i].inserir(getValor(j, i), j);
+                }
+            }
         }
+    }
+
+    // --- Busca por Índice ---
 
-        this.linhas = novoArrayLinhas; // O array clássico é substituído
-        this.numLinhas = novoNumLinhas; // O contador reflete o novo número de linhas
+    /**
+     * Busca uma linha pelo valor de uma coluna indexada (ex: a chave primária),
+     * consultando o índice hash em tempo constante.
+     * @return A primeira Linha com o valor, ou null se não existir.
+     * @throws Exception se a coluna não possuir índice hash.
+     */
+    public Linha buscarPorChave(int indiceColuna, Object valor) throws Exception {
+        trava.readLock().lock();
+        try {
+            IndiceHash indice = getIndiceHash(indiceColuna);
+            if (indice == null) {
+                throw new Exception("A coluna de índice " + indiceColuna + " não possui índice hash na tabela '" + nome + "'.");
+            }
+            int posicao = indice.buscarPrimeira(valor);
+            return posicao == -1 ? null : getLinha(posicao);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cria um índice hash para a coluna (se ainda não existir), indexando as linhas atuais.
+     * Usado, por exemplo, para colunas referenciadas por chaves estrangeiras.
+     */
+    public void criarIndiceHash(int indiceColuna) {
+        verificarEscrita();
+        trava.writeLock().lock();
+        try {
+            if (indiceColuna < 0 || indiceColuna >= numColunas || indicesHash[indiceColuna] != null) {
+                return;
+            }
+            IndiceHash indice = new IndiceHash(getNumLinhas());
+            for (int i = 0; i < numLinhas; i++) {
+                if (!isRemovida(i)) {
+                    indice.inserir(getValor(i, indiceColuna), i);
+                }
+            }
+            indicesHash[indiceColuna] = indice;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    // --- Índices Ordenados (CREATE INDEX / DROP INDEX) ---
+
+    /**
+     * Cria um índice ordenado (árvore B+) sobre a coluna, indexando as linhas atuais.
+     */
+    public void criarIndiceOrdenado(String nomeIndice, String nomeColuna) throws Exception {
+        verificarEscrita();
+        trava.writeLock().lock();
+        try {
+            int indiceColuna = getIndiceColunaPeloNome(nomeColuna);
+            if (indiceColuna == -1) {
+                throw new Exception("Coluna '" + nomeColuna + "' não encontrada na tabela '" + nome + "'.");
+            }
+            if (indicesOrdenados[indiceColuna] != null) {
+                throw new Exception("A coluna '" + nomesColunas[indiceColuna] + "' já possui o índice '" + indicesOrdenados[indiceColuna].getNome() + "'.");
+            }
+
+            ArvoreBMais indice = new ArvoreBMais(nomeIndice);
+            for (int i = 0; i < numLinhas; i++) {
+                if (!isRemovida(i)) {
+                    indice.inserir(getValor(i, indiceColuna), i);
+                }
+            }
+            indicesOrdenados[indiceColuna] = indice;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove o índice ordenado com o nome informado.
+     * @return true se o índice existia nesta tabela.
+     */
+    public boolean removerIndiceOrdenado(String nomeIndice) {
+        trava.writeLock().lock();
+        try {
+            int indiceColuna = getIndiceColunaPeloNomeIndice(nomeIndice);
+            if (indiceColuna == -1) {
+                return false;
+            }
+            indicesOrdenados[indiceColuna] = null;
+            return true;
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /** Procura a coluna que possui o índice ordenado com o nome informado, ou -1. */
+    public int getIndiceColunaPeloNomeIndice(String nomeIndice) {
+        String nomeBusca = nomeIndice.toLowerCase().trim();
+        for (int i = 0; i < numColunas; i++) {
+            if (indicesOrdenados[i] != null && indicesOrdenados[i].getNome().equals(nomeBusca)) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-        // Note: O array 'linhas' antigo será elegível para coleta de lixo.
+    /** Retorna o índice ordenado da coluna, ou null se a coluna não possuir um. */
+    public ArvoreBMais getIndiceOrdenado(int indiceColuna) {
+        if (indiceColuna >= 0 && indiceColuna < numColunas) {
+            return indicesOrdenados[indiceColuna];
+        }
+        return null;
+    }
 
-        return linhasRemovidas;
+    /** Retorna o índice hash da coluna, ou null se a coluna não for indexada. */
+    public IndiceHash getIndiceHash(int indiceColuna) {
+        if (indiceColuna >= 0 && indiceColuna < numColunas) {
+            return indicesHash[indiceColuna];
+        }
+        return null;
     }
 
     // --- Getters e Métodos Auxiliares ---
 
     public String getNome() { return nome; }
     public int getNumColunas() { return numColunas; }
-    public int getNumLinhas() { return numLinhas; }
+    /** Número de linhas da tabela (sem contar as removidas). */
+    public int getNumLinhas() { return numLinhas - numRemovidas; }
+
+    /**
+     * Número de posições ocupadas (0 a getNumPosicoes()-1), incluindo as linhas removidas
+     * ainda não compactadas. Ao percorrer as posições, ignore as que isRemovida() indicar.
+     */
+    public int getNumPosicoes() { return numLinhas; }
 
     /** Retorna o array de Colunas (Estrutura da Tabela) */
     public Coluna[] getColunasArray() { return colunas; }
 
-    /** Retorna o array de Linhas (Dados da Tabela) */
+    /**
+     * Retorna o array de Linhas (Dados da Tabela), indexado pela posição das linhas.
+     * Percorra as posições de 0 a getNumPosicoes()-1, ignorando as que isRemovida() indicar.
+     */
     public Linha[] getLinhasArray() {
+        // Nos formatos colunar e paginado não há Linhas guardadas: elas são montadas (cópia) a cada
+        // chamada. Para percorrer os dados, prefira getValor(posicao, coluna). O mesmo vale para as visões.
+        if (armazenamentoColunar != null || armazenamentoPaginado != null || visao != null) {
+            Linha[] materializadas = new Linha[numLinhas];
+            for (int i = 0; i < numLinhas; i++) {
+                materializadas[i] = getLinha(i);
+            }
+            return materializadas;
+        }
         // Retorna o array clássico. Note que este array pode conter slots 'null' no final,
-        // mas o numLinhas informa quantos elementos válidos existem.
+        // mas o getNumPosicoes informa quantos elementos válidos existem.
         return linhas;
     }
 
+    public boolean isColunar() { return armazenamentoColunar != null; }
+
+    public boolean isPaginada() { return armazenamentoPaginado != null; }
+
+    public TipoArmazenamento getTipoArmazenamento() {
+        if (armazenamentoPaginado != null) return TipoArmazenamento.PAGINADO;
+        return armazenamentoColunar != null ? TipoArmazenamento.COLUNAR : TipoArmazenamento.LINHAS;
+    }
+
+    // --- Acesso por Posição (independente do formato de armazenamento) ---
+
+    /** Retorna o valor da célula (linha na posição informada, coluna pelo índice), ou null. */
+    public Object getValor(int posicao, int indiceColuna) {
+        if (visao != null) {
+            return visao.getValor(posicao, indiceColuna);
+        }
+        if (armazenamentoColunar != null) {
+            return armazenamentoColunar.getValor(posicao, indiceColuna);
+        }
+        if (armazenamentoPaginado != null) {
+            return armazenamentoPaginado.getValor(posicao, indiceColuna);
+        }
+        return linhas[posicao].getDadoPorIndice(indiceColuna);
+    }
+
+    public boolean isNulo(int posicao, int indiceColuna) {
+        if (visao != null) {
+            return visao.isNulo(posicao, indiceColuna);
+        }
+        if (armazenamentoColunar != null) {
+            return armazenamentoColunar.isNulo(posicao, indiceColuna);
+        }
+        if (armazenamentoPaginado != null) {
+            return armazenamentoPaginado.isNulo(posicao, indiceColuna);
+        }
+        return linhas[posicao].getDadoPorIndice(indiceColuna) == null;
+    }
+
+    /** Valor de uma coluna INT como primitivo, sem criar Integer no formato colunar. Requer valor não nulo. */
+    public int getInt(int posicao, int indiceColuna) {
+        if (visao != null) {
+            return visao.getInt(posicao, indiceColuna);
+        }
+        if (armazenamentoColunar != null) {
+            return armazenamentoColunar.getInt(posicao, indiceColuna);
+        }
+        if (armazenamentoPaginado != null) {
+            return armazenamentoPaginado.getInt(posicao, indiceColuna);
+        }
+        return (Integer) linhas[posicao].getDadoPorIndice(indiceColuna);
+    }
+
+    /** Retorna a Linha na posição (nos formatos colunar e paginado e nas visões, uma cópia montada). */
+    public Linha getLinha(int posicao) {
+        if (visao != null) {
+            Linha linha = new Linha(numColunas);
+            for (int j = 0; j < numColunas; j++) {
+                linha.setDadoPorIndice(j, visao.getValor(posicao, j));
+            }
+            return linha;
+        }
+        if (armazenamentoColunar != null) {
+            return armazenamentoColunar.materializarLinha(posicao);
+        }
+        if (armazenamentoPaginado != null) {
+            return armazenamentoPaginado.materializarLinha(posicao);
+        }
+        return linhas[posicao];
+    }
+
+    /**
+     * Adiciona à lista, em ordem crescente, as posições no intervalo [inicio, fim) das linhas
+     * visíveis no snapshot que atendem à condição (já resolvida, referenciando apenas colunas
+     * desta tabela). No formato colunar, a condição é avaliada diretamente sobre os arrays primitivos.
+     * @param lado O lado da condição que corresponde a esta tabela (0 ou 1, ver Condicao).
+     */
+    public void filtrar(Condicao condicao, int lado, int inicio, int fim, ListaPosicoes saida, long snapshot) {
+        // Se a tabela não mudou desde o snapshot, as linhas visíveis são exatamente as não marcadas
+        // no bitmap de removidas; senão, a versão de cada linha aceita é verificada.
+        boolean mudouDepois = ultimaEscrita > snapshot;
+        if (armazenamentoPaginado != null) {
+            // Formato paginado: as versões estão nos registros, lidos uma página de cada vez.
+            armazenamentoPaginado.filtrar(condicao, inicio, fim, snapshot, saida);
+            return;
+        }
+        if (armazenamentoColunar != null) {
+            int tamanhoAntes = saida.getTamanho();
+            armazenamentoColunar.filtrar(condicao, inicio, fim, numRemovidas > 0 && !mudouDepois ? removidas : null, saida);
+            if (mudouDepois) {
+                int mantidas = tamanhoAntes;
+                for (int i = tamanhoAntes; i < saida.getTamanho(); i++) {
+                    int posicao = saida.get(i);
+                    if (isVisivel(posicao, snapshot)) {
+                        saida.set(mantidas++, posicao);
+                    }
+                }
+                saida.truncar(mantidas);
+            }
+            return;
+        }
+        for (int i = inicio; i < fim; i++) {
+            if (mudouDepois ? !isVisivel(i, snapshot) : isRemovida(i)) continue;
+            if (lado == 0 ? condicao.avaliar(this, i, null, -1) : condicao.avaliar(null, -1, this, i)) {
+                saida.adicionar(i);
+            }
+        }
+    }
+
     /** * Implementação manual de busca: Procura o índice de uma coluna pelo nome,
      * usando o array de mapeamento.
      * @return O índice (0 a numColunas-1) ou -1 se não encontrar.
@@ -0,0 +1,89 @@
+package app.model;
+
+/**
+ * Tabela hash de chaves inteiras primitivas (int -> posições), usada na fase de build
+ * do Hash Join quando as colunas de junção são INT.
+ *
+ * Diferente do IndiceHash, não cria nenhum objeto por entrada: tudo fica em arrays
+ * clássicos de int, com o encadeamento feito por índices:
+ * - cabecas/caudas[bucket]: primeira e última entrada do bucket (-1 = vazio);
+ * - chaves/posicoes/proximas[entrada]: dados da entrada e a próxima do mesmo bucket.
+ * As entradas são acrescentadas no fim da cadeia, preservando a ordem de inserção.
+ *
+ * Uso:
+ *   for (int e = tabela.buscarPrimeira(chave); e != -1; e = tabela.buscarProxima(e, chave)) {
+ *       int posicao = tabela.getPosicao(e);
+ *   }
+ */
+public class TabelaHashInteiros {
+    private final int[] cabecas;
+    private final int[] caudas;
+    private final int mascara;
+
+    private final int[] chaves;
+    private final int[] posicoes;
+    private final int[] proximas;
+    private int numEntradas;
+
+    /** Cria a tabela com espaço para exatamente 'capacidade' entradas. */
+    public TabelaHashInteiros(int capacidade) {
+        int numBuckets = 16;
+        while (numBuckets < capacidade * 2) {
+            numBuckets *= 2;
+        }
+        this.cabecas = new int[numBuckets];
+        this.caudas = new int[numBuckets];
+        for (int i = 0; i < numBuckets; i++) {
+            cabecas[i] = -1;
+        }
+        this.mascara = numBuckets - 1;
+
+        this.chaves = new int[capacidade];
+        this.posicoes = new int[capacidade];
+        this.proximas = new int[capacidade];
+        this.numEntradas = 0;
+    }
+
+    private int indiceBucket(int chave) {
+        int h = chave * 0x9E3779B9; // Espalhamento multiplicativo (Fibonacci).
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    public void inserir(int chave, int posicao) {
+        int entrada = numEntradas++;
+        chaves[entrada] = chave;
+        posicoes[entrada] = posicao;
+        proximas[entrada] = -1;
+
+        int bucket = indiceBucket(chave);
+        if (cabecas[bucket] == -1) {
+            cabecas[bucket] = entrada;
+        } else {
+            proximas[caudas[bucket]] = entrada;
+        }
+        caudas[bucket] = entrada;
+    }
+
+    /** Retorna a primeira entrada com a chave, ou -1. */
+    public int buscarPrimeira(int chave) {
+        return avancarAte(cabecas[indiceBucket(chave)], chave);
+    }
+
+    /** Retorna a próxima entrada com a mesma chave depois de 'entrada', ou -1. */
+    public int buscarProxima(int entrada, int chave) {
+        return avancarAte(proximas[entrada], chave);
+    }
+
+    private int avancarAte(int entrada, int chave) {
+        while (entrada != -1 && chaves[entrada] != chave) {
+            entrada = proximas[entrada];
+        }
+        return entrada;
+    }
+
+    public int getPosicao(int entrada) {
+        return posicoes[entrada];
+    }
+
+    public int getNumEntradas() { return numEntradas; }
+}
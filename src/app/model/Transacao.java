@@ -0,0 +1,245 @@
+package app.model;
+
+/**
+ * Transação explícita (BEGIN ... COMMIT/ROLLBACK) de uma sessão.
+ *
+ * As escritas não são aplicadas quando o comando é executado: ficam guardadas na transação
+ * (arrays paralelos, uma posição por operação) e são aplicadas todas de uma vez no COMMIT.
+ * O ROLLBACK apenas descarta as operações guardadas. Consequências:
+ * - nenhuma outra sessão vê parte da transação: todas as escritas recebem o mesmo número de
+ *   escrita (ver GerenciadorTransacoes), aplicado com as tabelas travadas;
+ * - as consultas feitas dentro da transação também não veem as suas próprias escritas pendentes;
+ * - as restrições (PK, FK) são verificadas no COMMIT. Se uma operação falhar, as anteriores
+ *   são desfeitas e nenhuma escrita da transação permanece.
+ *
+ * Com o log de transações ativo (ver LogTransacoes), o COMMIT acrescenta um único registro
+ * com os comandos da transação e só termina depois que ele estiver gravado em disco.
+ */
+public class Transacao {
+
+    private static final int CAPACIDADE_INICIAL = 4;
+
+    private static final int INSERCAO = 0;
+    private static final int REMOCAO = 1;
+
+    // ----- Operações pendentes (arrays paralelos) -----
+    private int[] tipos;
+    private Tabela[] tabelas;
+    private Linha[][] linhas;            // INSERCAO: as linhas do lote
+    private int[] colunasBusca;          // REMOCAO: a coluna do WHERE
+    private Object[] valoresBusca;       // REMOCAO: o valor do WHERE
+    private int[] paralelismos;          // REMOCAO: threads da varredura (1 = sequencial)
+    private String[] comandos;           // Texto SQL da operação, gravado no log
+    private int numOperacoes;
+
+    // Etapa que soma o tempo das validações das inserções no COMMIT (EXPLAIN ANALYZE), ou null.
+    private Explicacao.Etapa validacao;
+
+    public Transacao() {
+        this.tipos = new int[CAPACIDADE_INICIAL];
+        this.tabelas = new Tabela[CAPACIDADE_INICIAL];
+        this.linhas = new Linha[CAPACIDADE_INICIAL][];
+        this.colunasBusca = new int[CAPACIDADE_INICIAL];
+        this.valoresBusca = new Object[CAPACIDADE_INICIAL];
+        this.paralelismos = new int[CAPACIDADE_INICIAL];
+        this.comandos = new String[CAPACIDADE_INICIAL];
+        this.numOperacoes = 0;
+    }
+
+    public int getNumOperacoes() { return numOperacoes; }
+
+    /** Soma à etapa o tempo das validações (PK, FK) das inserções aplicadas no COMMIT. */
+    void medirValidacao(Explicacao.Etapa etapa) {
+        this.validacao = etapa;
+    }
+
+    /** Guarda a inserção das linhas (todas usadas; o array não deve ser alterado depois). */
+    void adicionarInsercao(Tabela tabela, Linha[] novasLinhas, String sql) {
+        int i = reservarOperacao();
+        tipos[i] = INSERCAO;
+        tabelas[i] = tabela;
+        linhas[i] = novasLinhas;
+        comandos[i] = sql;
+    }
+
+    /**
+     * Guarda a remoção das linhas com 'valor' na coluna 'indiceColuna'.
+     * @param paralelismo Número de threads da varredura, se a coluna não tiver índice (ver Tabela.removerLinhas).
+     */
+    void adicionarRemocao(Tabela tabela, int indiceColuna, Object valor, int paralelismo, String sql) {
+        int i = reservarOperacao();
+        tipos[i] = REMOCAO;
+        tabelas[i] = tabela;
+        colunasBusca[i] = indiceColuna;
+        valoresBusca[i] = valor;
+        paralelismos[i] = paralelismo;
+        comandos[i] = sql;
+    }
+
+    /** Retorna a posição da próxima operação, dobrando os arrays paralelos se estiverem cheios. */
+    private int reservarOperacao() {
+        if (numOperacoes == tipos.length) {
+            int novaCapacidade = tipos.length * 2;
+            int[] novoTipos = new int[novaCapacidade];
+            Tabela[] novoTabelas = new Tabela[novaCapacidade];
+            Linha[][] novoLinhas = new Linha[novaCapacidade][];
+            int[] novoColunas = new int[novaCapacidade];
+            Object[] novoValores = new Object[novaCapacidade];
+            int[] novoParalelismos = new int[novaCapacidade];
+            String[] novoComandos = new String[novaCapacidade];
+            for (int i = 0; i < numOperacoes; i++) {
+                novoTipos[i] = tipos[i];
+                novoTabelas[i] = tabelas[i];
+                novoLinhas[i] = linhas[i];
+                novoColunas[i] = colunasBusca[i];
+                novoValores[i] = valoresBusca[i];
+                novoParalelismos[i] = paralelismos[i];
+                novoComandos[i] = comandos[i];
+            }
+            tipos = novoTipos;
+            tabelas = novoTabelas;
+            linhas = novoLinhas;
+            colunasBusca = novoColunas;
+            valoresBusca = novoValores;
+            paralelismos = novoParalelismos;
+            comandos = novoComandos;
+        }
+        return numOperacoes++;
+    }
+
+    /**
+     * Aplica as operações pendentes, na ordem em que foram executadas, como uma única escrita.
+     *
+     * 1. Resolve as FKs das inserções antes de travar (ver Tabela.resolverReferenciadas).
+     * 2. Trava, na ordem global, as tabelas alteradas para escrita e as apenas referenciadas
+     *    para leitura; enquanto isso, as tabelas alteradas não são compactadas, para que as
+     *    posições aplicadas possam ser desfeitas.
+     * 3. Aplica as operações com um único número de escrita; em caso de erro, desfaz as
+     *    anteriores (na ordem inversa) e repassa o erro.
+     * 4. Acrescenta o registro ao log (ainda com as travas, para manter a ordem das escritas)
+     *    e, já sem as travas, espera a gravação em disco junto com as outras sessões.
+     *
+     * @param log O log de transações, ou null se o banco não tiver log.
+     * @return O número de linhas afetadas por cada operação.
+     */
+    int[] confirmar(LogTransacoes log) throws Exception {
+        int[] afetadas = new int[numOperacoes];
+        if (numOperacoes == 0) {
+            return afetadas;
+        }
+
+        // 1. Tabelas alteradas e referenciadas (com repetições; ordenarPorTrava as descarta).
+        Tabela[] envolvidas = new Tabela[numOperacoes];
+        int numEnvolvidas = 0;
+        for (int i = 0; i < numOperacoes; i++) {
+            envolvidas[numEnvolvidas++] = tabelas[i];
+        }
+        for (int i = 0; i < numOperacoes; i++) {
+            if (tipos[i] != INSERCAO) continue;
+            Tabela[] referenciadas = tabelas[i].resolverReferenciadas(linhas[i], linhas[i].length);
+            for (int j = 0; j < referenciadas.length; j++) {
+                if (referenciadas[j] == null) continue;
+                if (numEnvolvidas == envolvidas.length) {
+                    Tabela[] novoEnvolvidas = new Tabela[envolvidas.length * 2];
+                    for (int k = 0; k < numEnvolvidas; k++) {
+                        novoEnvolvidas[k] = envolvidas[k];
+                    }
+                    envolvidas = novoEnvolvidas;
+                }
+                envolvidas[numEnvolvidas++] = referenciadas[j];
+            }
+        }
+        Tabela[] compactas = new Tabela[numEnvolvidas];
+        for (int i = 0; i < numEnvolvidas; i++) {
+            compactas[i] = envolvidas[i];
+        }
+        Tabela[] travadas = Tabela.ordenarPorTrava(compactas);
+
+        // 2. Travas: escrita nas tabelas alteradas, leitura nas apenas referenciadas.
+        boolean[] escrita = new boolean[travadas.length];
+        for (int t = 0; t < travadas.length; t++) {
+            escrita[t] = isAlterada(travadas[t]);
+            if (escrita[t]) {
+                travadas[t].travarEscrita();
+            } else {
+                travadas[t].travarLeitura();
+            }
+        }
+        long fimNoLog = -1;
+        boolean registradas = false;
+        try {
+            for (int t = 0; t < travadas.length; t++) {
+                if (travadas[t].isExcluida()) {
+                    throw new Exception("Tabela '" + travadas[t].getNome() + "' não encontrada.");
+                }
+            }
+            for (int t = 0; t < travadas.length; t++) {
+                if (escrita[t]) travadas[t].registrarLeitor();
+            }
+            registradas = true;
+
+            // 3. Aplicação com um único número de escrita, guardando o necessário para desfazer.
+            long numero = GerenciadorTransacoes.getInstancia().novaTransacao();
+            int[] inicios = new int[numOperacoes];
+            ListaPosicoes[] removidas = new ListaPosicoes[numOperacoes];
+            int aplicadas = 0;
+            try {
+                for (; aplicadas < numOperacoes; aplicadas++) {
+                    int i = aplicadas;
+                    if (tipos[i] == INSERCAO) {
+                        inicios[i] = tabelas[i].getNumPosicoes();
+                        tabelas[i].adicionarLinhas(linhas[i], linhas[i].length, numero, validacao);
+                        afetadas[i] = linhas[i].length;
+                    } else {
+                        removidas[i] = new ListaPosicoes();
+                        afetadas[i] = tabelas[i].removerLinhas(colunasBusca[i], valoresBusca[i], paralelismos[i], numero, removidas[i]);
+                    }
+                }
+            } catch (Exception e) {
+                for (int i = aplicadas - 1; i >= 0; i--) {
+                    if (tipos[i] == INSERCAO) {
+                        tabelas[i].desfazerInsercao(inicios[i], inicios[i] + linhas[i].length, numero);
+                    } else {
+                        tabelas[i].desfazerRemocao(removidas[i]);
+                    }
+                }
+                throw e;
+            }
+
+            // 4. Registro no log, na mesma ordem em que as escritas foram aplicadas.
+            if (log != null) {
+                String[] texto = new String[numOperacoes];
+                for (int i = 0; i < numOperacoes; i++) {
+                    texto[i] = comandos[i];
+                }
+                fimNoLog = log.acrescentar(numero, texto);
+            }
+        } finally {
+            for (int t = travadas.length - 1; t >= 0; t--) {
+                if (escrita[t]) {
+                    travadas[t].destravarEscrita();
+                } else {
+                    travadas[t].destravarLeitura();
+                }
+            }
+            // Sem as travas: a compactação adiada pode ser feita agora (ver Tabela.liberarLeitor).
+            if (registradas) {
+                for (int t = 0; t < travadas.length; t++) {
+                    if (escrita[t]) travadas[t].liberarLeitor();
+                }
+            }
+        }
+
+        if (fimNoLog != -1) {
+            log.aguardarGravacao(fimNoLog);
+        }
+        return afetadas;
+    }
+
+    private boolean isAlterada(Tabela tabela) {
+        for (int i = 0; i < numOperacoes; i++) {
+            if (tabelas[i] == tabela) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,138 @@
+package app.model;
+
+import java.lang.ref.Cleaner;
+
+/**
+ * Visão somente leitura sobre os dados de uma ou duas tabelas de origem: o resultado de
+ * um SELECT (uma origem) ou de um JOIN (duas origens) sem cópia de linhas.
+ *
+ * A visão guarda apenas:
+ * - as posições das linhas selecionadas em cada origem (ListaPosicoes paralelas);
+ * - para cada coluna da visão, de qual origem e de qual coluna da origem vem o valor.
+ * Ler a célula (linha, coluna) da visão é ler a célula correspondente na origem.
+ *
+ * Linhas removidas da origem depois da consulta continuam legíveis pela visão: enquanto ela
+ * estiver aberta, fica registrada como leitora das origens (como um cursor), e a compactação
+ * delas, que muda as posições (ver Tabela.compactar), é adiada. A visão é fechada por fechar()
+ * (ver Tabela.fecharVisao) ou, se nunca for fechada, quando é coletada pelo GC. Uma visão
+ * fechada recusa a leitura, assim como uma cuja origem foi compactada antes da sua criação
+ * (a versão das posições de cada origem é a lida pelo cursor); nesses casos, a consulta deve
+ * ser executada novamente.
+ * Para obter uma cópia independente da origem, use Tabela.materializar().
+ *
+ * Cada leitura obtém a trava de leitura da origem, então a visão pode ser lida enquanto
+ * outras sessões alteram as tabelas de origem.
+ */
+public class Visao {
+    // Libera as origens das visões que não foram fechadas, quando elas são coletadas.
+    private static final Cleaner LIMPEZA = Cleaner.create();
+
+    private final Tabela[] origens;
+    private final ListaPosicoes[] posicoes;
+    private final int[] versoesOrigens;
+
+    // Arrays paralelos, um elemento por coluna da visão.
+    private final int[] origemDaColuna;
+    private final int[] colunaNaOrigem;
+
+    private final int numLinhas;
+
+    private final Liberacao liberacao;
+    private final Cleaner.Cleanable limpeza;
+
+    /**
+     * A visão assume um registro de leitor (Tabela.registrarLeitor) em cada origem, feito antes
+     * da leitura das posições, e o retira ao ser fechada.
+     * @param origens As tabelas de origem (1 ou 2).
+     * @param posicoes As posições selecionadas em cada origem; com duas origens,
+     *                 o par de posições i forma a linha i da visão.
+     * @param versoesOrigens A versão das posições de cada origem quando elas foram lidas.
+     * @param origemDaColuna Para cada coluna da visão, o índice da origem (0 ou 1).
+     * @param colunaNaOrigem Para cada coluna da visão, o índice da coluna na origem.
+     */
+    Visao(Tabela[] origens, ListaPosicoes[] posicoes, int[] versoesOrigens,
+          int[] origemDaColuna, int[] colunaNaOrigem) {
+        this.origens = origens;
+        this.posicoes = posicoes;
+        this.versoesOrigens = versoesOrigens;
+        this.origemDaColuna = origemDaColuna;
+        this.colunaNaOrigem = colunaNaOrigem;
+        this.numLinhas = posicoes[0].getTamanho();
+
+        this.liberacao = new Liberacao(origens);
+        this.limpeza = LIMPEZA.register(this, liberacao);
+    }
+
+    /**
+     * Retira o registro de leitor das origens uma única vez, ao fechar a visão ou ao coletá-la.
+     * Não referencia a visão, senão ela nunca seria coletada.
+     */
+    private static class Liberacao implements Runnable {
+        private final Tabela[] origens;
+        private volatile boolean feita;
+
+        Liberacao(Tabela[] origens) {
+            this.origens = origens;
+        }
+
+        @Override
+        public void run() {
+            feita = true;
+            for (int o = 0; o < origens.length; o++) {
+                origens[o].liberarLeitor();
+            }
+        }
+    }
+
+    /**
+     * Fecha a visão, liberando as origens para a compactação. Depois disso, as leituras são
+     * recusadas. Chamadas repetidas não têm efeito.
+     */
+    public void fechar() {
+        limpeza.clean();
+    }
+
+    public int getNumLinhas() { return numLinhas; }
+
+    /** Traduz (linha da visão, coluna da visão) para a posição da linha na origem da coluna. */
+    private int posicaoNaOrigem(int linha, int origem) {
+        if (liberacao.feita) {
+            throw new IllegalStateException("O resultado foi fechado. Execute a consulta novamente.");
+        }
+        if (origens[origem].getVersaoPosicoes() != versoesOrigens[origem]) {
+            throw new IllegalStateException("O resultado ficou desatualizado: a tabela '" + origens[origem].getNome()
+                    + "' foi compactada. Execute a consulta novamente.");
+        }
+        return posicoes[origem].get(linha);
+    }
+
+    public Object getValor(int linha, int coluna) {
+        Tabela origem = origens[origemDaColuna[coluna]];
+        origem.travarLeitura();
+        try {
+            return origem.getValor(posicaoNaOrigem(linha, origemDaColuna[coluna]), colunaNaOrigem[coluna]);
+        } finally {
+            origem.destravarLeitura();
+        }
+    }
+
+    public boolean isNulo(int linha, int coluna) {
+        Tabela origem = origens[origemDaColuna[coluna]];
+        origem.travarLeitura();
+        try {
+            return origem.isNulo(posicaoNaOrigem(linha, origemDaColuna[coluna]), colunaNaOrigem[coluna]);
+        } finally {
+            origem.destravarLeitura();
+        }
+    }
+
+    public int getInt(int linha, int coluna) {
+        Tabela origem = origens[origemDaColuna[coluna]];
+        origem.travarLeitura();
+        try {
+            return origem.getInt(posicaoNaOrigem(linha, origemDaColuna[coluna]), colunaNaOrigem[coluna]);
+        } finally {
+            origem.destravarLeitura();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package app.model;
+
+/**
+ * Teste de estresse das travas (ver Tabela e BancoSimulado): várias sessões inserem e removem
+ * linhas de uma tabela com FK ao mesmo tempo, enquanto outras leem JOINs e visões e uma sessão
+ * insere e remove linhas da tabela referenciada. No fim, nenhuma escrita pode ter se perdido:
+ * o COUNT(*) de cada sessão e o total devem ser exatamente os esperados.
+ *
+ * Sem as travas, as escritas concorrentes no mesmo array se sobrescrevem (o total fica bem
+ * abaixo do esperado) e surgem violações de FK falsas.
+ *
+ * Execução (sem JavaFX; apenas o pacote app.model):
+ *   javac -encoding UTF-8 -d out $(find src/app/model test/app/model -name "*.java")
+ *   java -cp out app.model.TesteConcorrencia
+ * Termina com código 1 se alguma verificação falhar.
+ */
+public class TesteConcorrencia {
+
+    private static final int SESSOES_ESCRITA = 8;
+    private static final int SESSOES_LEITURA = 2;
+    private static final int INSERCOES_POR_SESSAO = 6000;
+    // A cada REMOVER_A_CADA inserções, a sessão remove uma das linhas que acabou de inserir.
+    private static final int REMOVER_A_CADA = 4;
+    private static final int GRUPOS = 10;
+
+    private static volatile boolean escritaTerminada;
+    private static volatile Throwable falha;
+
+    public static void main(String[] args) throws Exception {
+        InterpretadorSQL principal = new InterpretadorSQL();
+        principal.executar("CREATE TABLE grupos (id INT PRIMARY KEY, nome STRING)");
+        principal.executar("CREATE TABLE itens (id INT PRIMARY KEY, id_grupo INT REFERENCES grupos(id), sessao INT)");
+        for (int g = 0; g < GRUPOS; g++) {
+            principal.executar("INSERT INTO grupos (id, nome) VALUES (" + g + ", 'grupo " + g + "')");
+        }
+
+        Thread[] escritores = new Thread[SESSOES_ESCRITA];
+        for (int s = 0; s < SESSOES_ESCRITA; s++) {
+            escritores[s] = iniciar("escrita-" + s, new Escrita(s));
+        }
+        Thread[] leitores = new Thread[SESSOES_LEITURA];
+        for (int l = 0; l < SESSOES_LEITURA; l++) {
+            leitores[l] = iniciar("leitura-" + l, new Leitura());
+        }
+        Thread referenciada = iniciar("grupos", new EscritaReferenciada());
+
+        for (int s = 0; s < SESSOES_ESCRITA; s++) {
+            escritores[s].join();
+        }
+        escritaTerminada = true;
+        for (int l = 0; l < SESSOES_LEITURA; l++) {
+            leitores[l].join();
+        }
+        referenciada.join();
+
+        if (falha != null) {
+            falhar("erro em uma sessão: " + falha);
+        }
+
+        // Cada sessão deve ter exatamente as linhas que inseriu menos as que removeu.
+        int restantesPorSessao = INSERCOES_POR_SESSAO - INSERCOES_POR_SESSAO / REMOVER_A_CADA;
+        for (int s = 0; s < SESSOES_ESCRITA; s++) {
+            long linhas = contar(principal, "SELECT COUNT(*) FROM itens WHERE sessao = " + s);
+            verificar(linhas == restantesPorSessao, "sessão " + s + ": " + linhas + " linhas, esperadas " + restantesPorSessao);
+        }
+        long esperado = (long) restantesPorSessao * SESSOES_ESCRITA;
+        long total = contar(principal, "SELECT COUNT(*) FROM itens");
+        verificar(total == esperado, "total: " + total + " linhas, esperadas " + esperado);
+
+        // Os índices também devem refletir as escritas: uma linha removida e uma mantida.
+        long removida = contar(principal, "SELECT COUNT(*) FROM itens WHERE id = " + (REMOVER_A_CADA - 2));
+        long mantida = contar(principal, "SELECT COUNT(*) FROM itens WHERE id = " + (REMOVER_A_CADA - 1));
+        verificar(removida == 0 && mantida == 1, "busca pelo índice da PK: removida " + removida + ", mantida " + mantida);
+
+        System.out.println("OK: " + total + "/" + esperado + " linhas.");
+    }
+
+    /** Insere INSERCOES_POR_SESSAO linhas e remove uma a cada REMOVER_A_CADA, com o seu próprio interpretador. */
+    private static class Escrita implements Runnable {
+        private final int sessao;
+
+        Escrita(int sessao) {
+            this.sessao = sessao;
+        }
+
+        @Override
+        public void run() {
+            InterpretadorSQL interpretador = new InterpretadorSQL();
+            int primeiroId = sessao * INSERCOES_POR_SESSAO;
+            try {
+                for (int i = 0; i < INSERCOES_POR_SESSAO; i++) {
+                    int id = primeiroId + i;
+                    interpretador.executar("INSERT INTO itens (id, id_grupo, sessao) VALUES ("
+                            + id + ", " + (id % GRUPOS) + ", " + sessao + ")");
+                    if (i % REMOVER_A_CADA == REMOVER_A_CADA - 1) {
+                        interpretador.executar("DELETE FROM itens WHERE id = " + (id - 1));
+                    }
+                }
+            } catch (Throwable e) {
+                falha = e;
+            }
+        }
+    }
+
+    /** Lê JOINs (como visão) e contagens enquanto as escritas acontecem. */
+    private static class Leitura implements Runnable {
+        @Override
+        public void run() {
+            InterpretadorSQL interpretador = new InterpretadorSQL();
+            try {
+                interpretador.executar("SET RESULT_CACHE = 0");
+                while (!escritaTerminada && falha == null) {
+                    try {
+                        Cursor cursor = (Cursor) interpretador.executar(
+                                "SELECT * FROM itens JOIN grupos ON itens.id_grupo = grupos.id");
+                        cursor.paraVisao().fecharVisao();
+                        contar(interpretador, "SELECT COUNT(*) FROM itens");
+                    } catch (IllegalStateException e) {
+                        // A tabela foi compactada durante a leitura: o resultado é recusado
+                        // (ver Cursor), e a consulta é simplesmente repetida.
+                    }
+                }
+            } catch (Throwable e) {
+                falha = e;
+            }
+        }
+    }
+
+    /** Insere e remove grupos não referenciados, alterando a tabela lida pelas validações de FK. */
+    private static class EscritaReferenciada implements Runnable {
+        @Override
+        public void run() {
+            InterpretadorSQL interpretador = new InterpretadorSQL();
+            try {
+                for (int id = GRUPOS; !escritaTerminada && falha == null; id++) {
+                    interpretador.executar("INSERT INTO grupos (id, nome) VALUES (" + id + ", 'temporário')");
+                    interpretador.executar("DELETE FROM grupos WHERE id = " + id);
+                }
+            } catch (Throwable e) {
+                falha = e;
+            }
+        }
+    }
+
+    private static Thread iniciar(String nome, Runnable sessao) {
+        Thread thread = new Thread(sessao, nome);
+        thread.start();
+        return thread;
+    }
+
+    private static long contar(InterpretadorSQL interpretador, String sql) throws Exception {
+        try (Cursor cursor = (Cursor) interpretador.executar(sql)) {
+            cursor.proximo();
+            return ((Number) cursor.getValor(0)).longValue();
+        }
+    }
+
+    private static void verificar(boolean condicao, String mensagem) {
+        if (!condicao) {
+            falhar(mensagem);
+        }
+    }
+
+    private static void falhar(String mensagem) {
+        System.out.println("FALHA: " + mensagem);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,103 @@
+package app.model;
+
+/**
+ * Teste das visões com a compactação em segundo plano (ver Tabela.agendarCompactacao e Visao):
+ * um DELETE que passa do limiar agenda a compactação, e o SELECT seguinte é guardado como visão.
+ * A visão é lida depois que o compactador teve tempo de rodar e deve continuar com as linhas
+ * da consulta, sem ser recusada como desatualizada; o mesmo quando outro DELETE passa do limiar
+ * depois da criação da visão. Depois que a visão é fechada, a compactação deve acontecer.
+ *
+ * Execução (sem JavaFX; apenas o pacote app.model):
+ *   javac -encoding UTF-8 -d out $(find src/app/model test/app/model -name "*.java")
+ *   java -cp out app.model.TesteVisaoCompactacao
+ * Termina com código 1 se alguma verificação falhar.
+ */
+public class TesteVisaoCompactacao {
+
+    private static final int REPETICOES = 100;
+    private static final int LINHAS = 1000;
+    // As linhas são divididas em lotes: 0 (id < FIM_LOTE_0, 40%, acima do limiar padrão de 25%),
+    // removido antes do SELECT; 1 (até FIM_LOTE_1), removido com a visão aberta; e 2, mantido.
+    private static final int FIM_LOTE_0 = 400;
+    private static final int FIM_LOTE_1 = 900;
+    // Tempo dado ao compactador antes de ler a visão.
+    private static final long ESPERA_COMPACTADOR_MS = 10;
+
+    public static void main(String[] args) throws Exception {
+        InterpretadorSQL interpretador = new InterpretadorSQL();
+        interpretador.executar("SET RESULT_CACHE = 0");
+
+        for (int r = 0; r < REPETICOES; r++) {
+            String nome = "visao_" + r;
+            interpretador.executar("CREATE TABLE " + nome + " (id INT PRIMARY KEY, valor INT, lote INT)");
+            for (int i = 0; i < LINHAS; i++) {
+                interpretador.executar("INSERT INTO " + nome + " (id, valor, lote) VALUES (" + i + ", " + (i * 10)
+                        + ", " + (i < FIM_LOTE_0 ? 0 : i < FIM_LOTE_1 ? 1 : 2) + ")");
+            }
+            Tabela tabela = BancoSimulado.getInstancia().getTabela(nome);
+
+            // DELETE → SELECT → leitura depois do compactador.
+            interpretador.executar("DELETE FROM " + nome + " WHERE lote = 0");
+            Tabela visao = ((Cursor) interpretador.executar("SELECT * FROM " + nome)).paraVisao();
+            Thread.sleep(ESPERA_COMPACTADOR_MS);
+            verificarVisao(visao, FIM_LOTE_0, "repetição " + r);
+
+            // Outro DELETE passa do limiar com a visão aberta: ela continua com as linhas da consulta.
+            interpretador.executar("DELETE FROM " + nome + " WHERE lote = 1");
+            Thread.sleep(ESPERA_COMPACTADOR_MS);
+            verificarVisao(visao, FIM_LOTE_0, "repetição " + r + ", depois do segundo DELETE");
+            verificar(tabela.getNumRemovidas() > 0, "repetição " + r + ": a tabela foi compactada com a visão aberta");
+
+            // Fechada a visão, a compactação adiada acontece e a visão não pode mais ser lida.
+            visao.fecharVisao();
+            aguardarCompactacao(tabela, "repetição " + r);
+            try {
+                visao.getValor(0, 0);
+                falhar("repetição " + r + ": a visão fechada foi lida");
+            } catch (IllegalStateException e) {
+                // Esperado.
+            }
+
+            interpretador.executar("DROP TABLE " + nome);
+        }
+
+        System.out.println("OK: " + REPETICOES + " visões lidas depois da compactação agendada.");
+    }
+
+    /** A visão deve ter as linhas de id primeiroId a LINHAS-1, na ordem de inserção. */
+    private static void verificarVisao(Tabela visao, int primeiroId, String contexto) {
+        int esperadas = LINHAS - primeiroId;
+        verificar(visao.getNumLinhas() == esperadas, contexto + ": " + visao.getNumLinhas() + " linhas, esperadas " + esperadas);
+        for (int i = 0; i < esperadas; i++) {
+            int id;
+            int valor;
+            try {
+                id = ((Number) visao.getValor(i, 0)).intValue();
+                valor = ((Number) visao.getValor(i, 1)).intValue();
+            } catch (IllegalStateException e) {
+                falhar(contexto + ": " + e.getMessage());
+                return;
+            }
+            verificar(id == primeiroId + i && valor == id * 10,
+                    contexto + ": linha " + i + " com id " + id + " e valor " + valor);
+        }
+    }
+
+    private static void aguardarCompactacao(Tabela tabela, String contexto) throws InterruptedException {
+        for (int tentativa = 0; tentativa < 100 && tabela.getNumRemovidas() > 0; tentativa++) {
+            Thread.sleep(ESPERA_COMPACTADOR_MS);
+        }
+        verificar(tabela.getNumRemovidas() == 0, contexto + ": a compactação não aconteceu depois de fechar a visão");
+    }
+
+    private static void verificar(boolean condicao, String mensagem) {
+        if (!condicao) {
+            falhar(mensagem);
+        }
+    }
+
+    private static void falhar(String mensagem) {
+        System.out.println("FALHA: " + mensagem);
+        System.exit(1);
+    }
+}